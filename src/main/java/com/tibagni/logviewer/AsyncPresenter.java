@@ -1,21 +1,82 @@
 package com.tibagni.logviewer;
 
+import com.tibagni.logviewer.logger.Logger;
+
 import javax.swing.*;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 public abstract class AsyncPresenter {
   private final AsyncPresenterView asyncView;
-  private ExecutorService bgExecutorService = Executors.newSingleThreadExecutor();
+  // Tasks of the same presenter run one at a time, in order
+  private ExecutorService bgExecutorService = TaskScheduler.get().newSerialExecutor(TaskScheduler.Priority.USER);
   private Executor uiExecutor = SwingUtilities::invokeLater;
 
+  // Tasks started with 'doAsync' that were not finished yet (pending or running)
+  private final Set<AsyncTask> activeTasks = ConcurrentHashMap.newKeySet();
+  // The last task started of each kind. See 'doAsync(String, Runnable)'
+  private final Map<String, AsyncTask> lastTaskOfKind = new ConcurrentHashMap<>();
+  private volatile AsyncTask runningTask;
+
+  /**
+   * Reports the progress of the running task (See {@link #updateAsyncProgress}) and tells it when it was cancelled
+   */
+  protected final ProgressReporter asyncProgressReporter = new ProgressReporter() {
+    @Override
+    public void onProgress(int progress, String description) {
+      updateAsyncProgress(progress, description);
+    }
+
+    @Override
+    public boolean isCancelled() {
+      AsyncTask task = runningTask;
+      return task != null && task.cancelled;
+    }
+  };
+
   protected AsyncPresenter(AsyncPresenterView asyncView) {
     this.asyncView = asyncView;
   }
 
   protected void doAsync(Runnable runnable) {
+    doAsync(null, runnable);
+  }
+
+  /**
+   * Same as {@link #doAsync(Runnable)}, but a task of the same 'kind' that is still pending or running is cancelled,
+   * as its result is not needed anymore.
+   * Tasks are cancelled cooperatively: they stop when they check {@link ProgressReporter#isCancelled()} of
+   * {@link #asyncProgressReporter} (usually through a {@link ProgressTracker}) and throw a {@link CancellationException}
+   */
+  protected void doAsync(String kind, Runnable runnable) {
+    AsyncTask task = new AsyncTask(kind, runnable);
+    activeTasks.add(task);
+    if (kind != null) {
+      AsyncTask previousTask = lastTaskOfKind.put(kind, task);
+      if (previousTask != null) {
+        previousTask.cancelled = true;
+      }
+    }
+
     uiExecutor.execute(asyncView::showStartLoading);
+    bgExecutorService.execute(task);
+  }
+
+  /**
+   * Cancels all tasks started with 'doAsync' that were not finished yet
+   */
+  public void cancelAsyncTasks() {
+    for (AsyncTask task : activeTasks) {
+      task.cancelled = true;
+    }
+  }
+
+  // Unlike 'doAsync', this doesn't show to the user that something is loading
+  protected void doInBackground(Runnable runnable) {
     bgExecutorService.execute(runnable);
   }
 
@@ -34,6 +95,7 @@ public abstract class AsyncPresenter {
   }
 
   protected void release() {
+    cancelAsyncTasks();
     bgExecutorService.shutdownNow();
   }
 
@@ -43,6 +105,47 @@ public abstract class AsyncPresenter {
     void finishLoading();
   }
 
+  private class AsyncTask implements Runnable {
+    private final String kind;
+    private final Runnable runnable;
+    private volatile boolean cancelled;
+
+    AsyncTask(String kind, Runnable runnable) {
+      this.kind = kind;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public void run() {
+      AsyncTask previousTask = runningTask;
+      try {
+        if (cancelled) {
+          throw new CancellationException();
+        }
+
+        runningTask = this;
+        runnable.run();
+      } catch (CancellationException e) {
+        Logger.info((kind != null ? kind : "Task") + " was cancelled");
+        onCancelled();
+      } finally {
+        runningTask = previousTask;
+        activeTasks.remove(this);
+        if (kind != null) {
+          lastTaskOfKind.remove(kind, this);
+        }
+      }
+    }
+
+    private void onCancelled() {
+      activeTasks.remove(this);
+      // When the task was replaced by a newer one, the loading continues with the new task
+      if (activeTasks.isEmpty()) {
+        uiExecutor.execute(asyncView::finishLoading);
+      }
+    }
+  }
+
 
   // Test helpers
   public void setBgExecutorService(ExecutorService bgExecutorService) {
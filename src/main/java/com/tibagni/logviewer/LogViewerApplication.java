@@ -1,6 +1,7 @@
 package com.tibagni.logviewer;
 
 import com.formdev.flatlaf.util.UIScale;
+import com.tibagni.logviewer.log.LogStreamReceiver;
 import com.tibagni.logviewer.logger.Logger;
 import com.tibagni.logviewer.preferences.LogViewerPreferences;
 import com.tibagni.logviewer.rc.CrashReportConfig;
@@ -48,9 +49,15 @@ public class LogViewerApplication implements UpdateManager.UpdateListener {
             .map(File::new)
             .filter(f -> f.exists() && f.isFile())
             .collect(Collectors.toSet());
+    // Logs can also be received while they are written (e.g.: adb logcat | logviewer -)
+    String initialLogStream = Arrays
+            .stream(args)
+            .filter(LogStreamReceiver::isLogStream)
+            .findFirst()
+            .orElse(null);
 
     LogViewerApplication application = new LogViewerApplication();
-    SwingUtilities.invokeLater(() -> application.start(initialLogFiles));
+    SwingUtilities.invokeLater(() -> application.start(initialLogFiles, initialLogStream));
   }
 
   private static void configureUncaughtExceptionHandler() {
@@ -75,13 +82,13 @@ public class LogViewerApplication implements UpdateManager.UpdateListener {
     });
   }
 
-  private void start(Set<File> initialLogFiles) {
+  private void start(Set<File> initialLogFiles, String initialLogStream) {
     startCheckingForUpdates();
     initLookAndFeel();
 
     // Update ScaleFactor based on theme
     UIScaleUtils.updateScaleFactor((int) UIScale.getUserScaleFactor());
-    newLogViewerWindow(initialLogFiles);
+    newLogViewerWindow(initialLogFiles, initialLogStream);
   }
 
   private void initLookAndFeel() {
@@ -95,10 +102,11 @@ public class LogViewerApplication implements UpdateManager.UpdateListener {
     watchLookAndFeelUpdates();
   }
 
-  void newLogViewerWindow(Set<File> initialLogFiles) {
+  void newLogViewerWindow(Set<File> initialLogFiles, String initialLogStream) {
     JFrame frame = new JFrame(getApplicationTitle());
 
-    mainView = new MainViewImpl(frame, ServiceLocator.INSTANCE.getLogViewerPrefs(), initialLogFiles);
+    mainView = new MainViewImpl(frame, ServiceLocator.INSTANCE.getLogViewerPrefs(), initialLogFiles,
+        initialLogStream);
     frame.setContentPane(mainView.getContentPane());
     frame.pack();
     frame.setVisible(true);
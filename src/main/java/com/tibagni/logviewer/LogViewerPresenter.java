@@ -34,8 +34,12 @@ public interface LogViewerPresenter {
   void loadLogs(File[] logFiles, Charset charset);
   void refreshLogs();
   void refreshLogsWithDifferentCharset(Charset charset);
+  void openLogStream(String source, int maxLines);
+  void setFollowLogs(boolean follow);
+  boolean isFollowingLogs();
   void saveFilteredLogs(File file);
   void applyFilters();
+  void cancelLoading();
   void filterEdited(Filter filter);
 
   void setAllFiltersApplied(String group, boolean isApplied);
@@ -3,8 +3,12 @@ package com.tibagni.logviewer;
 import com.tibagni.logviewer.filter.Filter;
 import com.tibagni.logviewer.filter.Filters;
 import com.tibagni.logviewer.log.LogEntry;
+import com.tibagni.logviewer.log.LogFilesWatcher;
+import com.tibagni.logviewer.log.LogStore;
+import com.tibagni.logviewer.log.LogStreamReceiver;
 import com.tibagni.logviewer.log.LogStream;
 import com.tibagni.logviewer.log.LogTimestamp;
+import com.tibagni.logviewer.log.StreamLogReader;
 import com.tibagni.logviewer.logger.Logger;
 import com.tibagni.logviewer.preferences.LogViewerPreferences;
 import com.tibagni.logviewer.util.StringUtils;
@@ -16,12 +20,22 @@ import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import static com.tibagni.logviewer.logger.ProfilerKt.wrapProfiler;
 
 public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerPresenter {
+  // Logs that are followed keep growing. Only the most recent ones are kept, so they don't take all the memory
+  private static final int MAX_FOLLOWED_LOGS = 1_000_000;
+  // Received lines are shown in batches, so a busy log stream doesn't flood the UI with updates
+  private static final long LOG_STREAM_BATCH_INTERVAL_MS = 250;
+
   private final LogViewerPresenterView view;
 
   private final List<LogEntry> filteredLogs;
@@ -35,6 +49,13 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
   private final MyLogsRepository myLogsRepository;
   private final FiltersRepository filtersRepository;
 
+  private volatile LogFilesWatcher logFilesWatcher;
+  private final AtomicBoolean followedLogsRefreshPending = new AtomicBoolean();
+
+  private LogStreamReceiver logStreamReceiver;
+  private ScheduledExecutorService logStreamScheduler;
+  private final AtomicBoolean logStreamReadPending = new AtomicBoolean();
+
   LogViewerPresenterImpl(LogViewerPresenterView view,
                          LogViewerPreferences userPrefs,
                          LogsRepository logsRepository,
@@ -305,12 +326,14 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
       return -1;
     }
 
+    long timestampKey = timestamp.toKey();
     int index = -1;
     for (LogEntry entry : logList) {
       index++;
-      if (timestamp.compareTo(entry.timestamp) == 0) {
+      long entryKey = entry.getTimestampKey();
+      if (timestampKey == entryKey) {
         break;
-      } else if (timestamp.compareTo(entry.timestamp) < 0) {
+      } else if (timestampKey < entryKey) {
         // We want the log line before
         if (index > 0) index--;
         break;
@@ -402,11 +425,17 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
 
   @Override
   public void  loadLogs(File[] logFiles, Charset charset) {
+    loadLogs(logFiles, () -> logsRepository.openLogFiles(logFiles, charset, asyncProgressReporter));
+  }
+
+  private void loadLogs(File[] logFiles, LogsLoader logsLoader) {
+    closeLogStream();
     // Clean up the filters info as it does not apply anymore
     cleanUpFilterTempInfo();
-    doAsync(() -> {
+    // Opening other logs replaces the logs being opened, so there is no need to finish opening them
+    doAsync("loadLogs", () -> {
       try {
-        logsRepository.openLogFiles(logFiles, charset, this::updateAsyncProgress);
+        logsLoader.load();
         rebuildLogStreamsMap(logsRepository.getAvailableStreams());
         filteredLogs.clear();
         cachedAllowedFilteredLogs.clear();
@@ -424,6 +453,11 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
             view.showMyLogs(myLogsRepository.getLogs());
           }
 
+          if (isFollowingLogs()) {
+            // The opened logs may be different now
+            watchLogFiles();
+          }
+
           if (logsRepository.getCurrentlyOpenedLogs().size() > 0) {
             String logsPath = FilenameUtils.getFullPath(logFiles[0].getAbsolutePath());
             view.showCurrentLogsLocation(logsPath);
@@ -462,7 +496,15 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
     if (logsRepository.getCurrentlyOpenedLogFiles().isEmpty()) {
       view.showErrorMessage("No logs currently open");
     } else {
-      loadLogs(logsRepository.getCurrentlyOpenedLogFiles().toArray(new File[0]), charset);
+      File[] logFiles = logsRepository.getCurrentlyOpenedLogFiles().toArray(new File[0]);
+      loadLogs(logFiles, () -> {
+        // Only read the logs again if they can't simply be decoded again
+        if (logsRepository.changeCharset(charset)) {
+          updateAsyncProgress(100, "Completed");
+        } else {
+          logsRepository.openLogFiles(logFiles, charset, asyncProgressReporter);
+        }
+      });
     }
   }
 
@@ -471,8 +513,214 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
     if (logsRepository.getCurrentlyOpenedLogFiles().isEmpty()) {
       view.showErrorMessage("No logs to be refreshed");
     } else {
-      loadLogs(logsRepository.getCurrentlyOpenedLogFiles().toArray(new File[0]));
+      File[] logFiles = logsRepository.getCurrentlyOpenedLogFiles().toArray(new File[0]);
+      doAsync(() -> {
+        try {
+          refreshAppendedLogs(logFiles, asyncProgressReporter);
+        } catch (OpenLogsException e) {
+          doOnUiThread(() -> view.showErrorMessage(e.getMessage()));
+        }
+      });
+    }
+  }
+
+  @Override
+  public void openLogStream(String source, int maxLines) {
+    closeLogStream();
+    stopWatchingLogFiles();
+    cleanUpFilterTempInfo();
+
+    StreamLogReader reader = new StreamLogReader(LogStreamReceiver.getLogName(source), maxLines);
+    doInBackground(() -> {
+      logsRepository.openLogStream(reader);
+      rebuildLogStreamsMap(logsRepository.getAvailableStreams());
+      filteredLogs.clear();
+      cachedAllowedFilteredLogs.clear();
+      final boolean myLogsChanged = updateMyLogs();
+      doOnUiThread(() -> {
+        view.showFilteredLogs(cachedAllowedFilteredLogs);
+        view.showLogs(logsRepository.getCurrentlyOpenedLogs());
+        view.showAvailableLogStreams(allowedStreamsMap.keySet());
+        view.showCurrentLogsLocation(null);
+        if (myLogsChanged) {
+          view.showMyLogs(myLogsRepository.getLogs());
+        }
+      });
+    });
+
+    logStreamReceiver = new LogStreamReceiver(source, reader);
+    logStreamReceiver.start();
+    logStreamScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "LogStreamScheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    logStreamScheduler.scheduleWithFixedDelay(() -> onLogStreamLinesReceived(reader),
+        LOG_STREAM_BATCH_INTERVAL_MS, LOG_STREAM_BATCH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+  }
+
+  // Visible for testing
+  void onLogStreamLinesReceived(StreamLogReader reader) {
+    // Only one batch at a time. Lines that arrive in the meantime are part of the next one
+    if (!reader.hasNewLines() || logStreamReadPending.getAndSet(true)) {
+      return;
+    }
+
+    doInBackground(() -> {
+      logStreamReadPending.set(false);
+      Set<LogStream> knownStreams = new HashSet<>(logsRepository.getAvailableStreams());
+      LogsRefresh refresh = logsRepository.readLogStream(reader.getMaxLines());
+      if (refresh == null) {
+        return;
+      }
+
+      if (!knownStreams.containsAll(logsRepository.getAvailableStreams())) {
+        for (LogStream stream : logsRepository.getAvailableStreams()) {
+          allowedStreamsMap.putIfAbsent(stream, true);
+        }
+        doOnUiThread(() -> view.showAvailableLogStreams(allowedStreamsMap.keySet()));
+      }
+      showRefreshedLogs(refresh);
+    });
+  }
+
+  private void closeLogStream() {
+    if (logStreamReceiver != null) {
+      logStreamReceiver.stop();
+      logStreamReceiver = null;
+    }
+    if (logStreamScheduler != null) {
+      logStreamScheduler.shutdownNow();
+      logStreamScheduler = null;
+    }
+  }
+
+  @Override
+  public void setFollowLogs(boolean follow) {
+    if (follow) {
+      watchLogFiles();
+    } else {
+      stopWatchingLogFiles();
+    }
+  }
+
+  @Override
+  public boolean isFollowingLogs() {
+    return logFilesWatcher != null;
+  }
+
+  private void watchLogFiles() {
+    stopWatchingLogFiles();
+    File[] logFiles = logsRepository.getCurrentlyOpenedLogFiles().toArray(new File[0]);
+    logFilesWatcher = new LogFilesWatcher(logFiles, this::onFollowedLogsChanged);
+    logFilesWatcher.start();
+  }
+
+  private void stopWatchingLogFiles() {
+    if (logFilesWatcher != null) {
+      logFilesWatcher.stop();
+      logFilesWatcher = null;
+    }
+  }
+
+  // Visible for testing
+  void onFollowedLogsChanged() {
+    // Anything that changes before a pending refresh starts is read by that same refresh
+    if (followedLogsRefreshPending.getAndSet(true)) {
+      return;
+    }
+
+    doInBackground(() -> {
+      followedLogsRefreshPending.set(false);
+      File[] logFiles = logsRepository.getCurrentlyOpenedLogFiles().toArray(new File[0]);
+      if (logFiles.length == 0) {
+        return;
+      }
+
+      try {
+        // This happens all the time while following the logs, so don't show any progress
+        refreshAppendedLogs(logFiles, (progress, note) -> { });
+      } catch (OpenLogsException e) {
+        doOnUiThread(() -> {
+          // Don't keep failing every time the logs change
+          stopWatchingLogFiles();
+          view.showErrorMessage(e.getMessage());
+        });
+      }
+    });
+  }
+
+  private void refreshAppendedLogs(File[] logFiles, ProgressReporter progressReporter) throws OpenLogsException {
+    // Usually logs only grow, so try to read only what was appended to them
+    int maxLogs = isFollowingLogs() ? MAX_FOLLOWED_LOGS : Integer.MAX_VALUE;
+    LogsRefresh refresh = logsRepository.refreshLogFiles(progressReporter, maxLogs);
+    if (refresh == null) {
+      // Open them again with the same charset they were opened with
+      Charset charset = logsRepository.getCurrentlyOpenedCharset();
+      doOnUiThread(() -> loadLogs(logFiles, charset != null ? charset : StandardCharsets.UTF_8));
+    } else {
+      showRefreshedLogs(refresh);
+    }
+  }
+
+  private void showRefreshedLogs(LogsRefresh refresh) {
+    List<Filter> appliedFilters = getFiltersThat(Filter::isApplied);
+    if (!appliedFilters.isEmpty()) {
+      // Only the new entries need to be filtered. The old ones keep the filters applied to them
+      Filters.applyFiltersToNewEntries(
+          refresh.getNewEntries(), refresh.getRemovedEntries(), appliedFilters.toArray(new Filter[0]));
+      updateFiltersContextInfo();
+    }
+
+    List<LogEntry> currentLogs = logsRepository.getCurrentlyOpenedLogs();
+    if (!appliedFilters.isEmpty() && currentLogs instanceof LogStore) {
+      moveFilteredLogs((LogStore) currentLogs, refresh);
+    } else {
+      filteredLogs.clear();
+      if (!appliedFilters.isEmpty()) {
+        filteredLogs.addAll(
+            Filters.applyMultipleFilters(currentLogs, appliedFilters.toArray(new Filter[0]), this::updateAsyncProgress));
+      }
+      cachedAllowedFilteredLogs.clear();
+      cachedAllowedFilteredLogs.addAll(excludeNonAllowedStreams(filteredLogs));
     }
+
+    final boolean myLogsChanged = updateMyLogs();
+    doOnUiThread(() -> {
+      view.showFilteredLogs(cachedAllowedFilteredLogs);
+      view.showLogs(currentLogs);
+      if (myLogsChanged) {
+        view.showMyLogs(myLogsRepository.getLogs());
+      }
+    });
+  }
+
+  /**
+   * Updates the filtered logs after the logs were refreshed. The filtered entries that are still the same are only
+   * moved to the refreshed logs (the ones dropped from the start or parsed again are left out), so only the
+   * entries that changed have to be looked at
+   */
+  private void moveFilteredLogs(LogStore currentLogs, LogsRefresh refresh) {
+    int dropped = refresh.getDroppedEntries();
+    int firstChanged = refresh.getFirstChangedIndex();
+    List<LogEntry> changedEntries = currentLogs.getEntriesWithAppliedFilter(firstChanged);
+
+    List<LogEntry> movedEntries = currentLogs.findMovedEntries(filteredLogs, dropped, firstChanged);
+    filteredLogs.clear();
+    filteredLogs.addAll(movedEntries);
+    filteredLogs.addAll(changedEntries);
+
+    // The streams of the moved entries were already checked
+    List<LogEntry> movedAllowedEntries = allowedStreamsMap.isEmpty() ? movedEntries :
+        currentLogs.findMovedEntries(cachedAllowedFilteredLogs, dropped, firstChanged);
+    cachedAllowedFilteredLogs.clear();
+    cachedAllowedFilteredLogs.addAll(movedAllowedEntries);
+    cachedAllowedFilteredLogs.addAll(excludeNonAllowedStreams(changedEntries));
+  }
+
+  @Override
+  public void cancelLoading() {
+    cancelAsyncTasks();
   }
 
   @Override
@@ -514,11 +762,18 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
     cleanUpFilterTempInfo();
 
     List<Filter> toApply = getFiltersThat(Filter::isApplied);
-    doAsync(() -> {
+    // Only the result of the last filters applied is shown
+    doAsync("applyFilters", () -> {
       filteredLogs.clear();
-      filteredLogs.addAll(Filters.applyMultipleFilters(
-          logsRepository.getCurrentlyOpenedLogs(), toApply.toArray(new Filter[0]), this::updateAsyncProgress));
       cachedAllowedFilteredLogs.clear();
+      try {
+        filteredLogs.addAll(Filters.applyMultipleFilters(
+            logsRepository.getCurrentlyOpenedLogs(), toApply.toArray(new Filter[0]), asyncProgressReporter));
+      } catch (CancellationException e) {
+        // The filters were already cleaned up. Don't keep showing the logs filtered by them
+        doOnUiThread(() -> view.showFilteredLogs(cachedAllowedFilteredLogs));
+        throw e;
+      }
       cachedAllowedFilteredLogs.addAll(excludeNonAllowedStreams(filteredLogs));
       updateFiltersContextInfo();
       doOnUiThread(() -> view.showFilteredLogs(cachedAllowedFilteredLogs));
@@ -781,6 +1036,8 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
         rememberAppliedFilters();
       }
 
+      stopWatchingLogFiles();
+      closeLogStream();
       view.finish();
       release();
     }
@@ -901,6 +1158,10 @@ public class LogViewerPresenterImpl extends AsyncPresenter implements LogViewerP
   }
 
   // Test helpers
+  private interface LogsLoader {
+    void load() throws OpenLogsException;
+  }
+
   static class Stats {
     int applyFiltersCallCount;
     int rememberAppliedFiltersCallCount;
@@ -8,6 +8,8 @@ import com.tibagni.logviewer.filter.FiltersList.FiltersListener
 import com.tibagni.logviewer.log.*
 import com.tibagni.logviewer.logger.Logger
 import com.tibagni.logviewer.preferences.LogViewerPreferences
+import com.tibagni.logviewer.rc.RuntimeConfiguration
+import com.tibagni.logviewer.rc.StreamLinesConfig
 import com.tibagni.logviewer.util.StringUtils
 import com.tibagni.logviewer.util.SwingUtils
 import com.tibagni.logviewer.util.layout.GBConstraintsBuilder
@@ -28,6 +30,8 @@ interface LogViewerView : View {
   fun buildStreamsMenu(): JMenu?
   fun handleOpenLogsMenu()
   fun handleRefreshLogsMenu()
+  fun handleFollowLogsMenu(follow: Boolean)
+  val isFollowingLogs: Boolean
   fun handleChangeCharsetMenu(charset: Charset)
   fun handleSaveFilteredLogsMenu()
   fun handleOpenFiltersMenu()
@@ -102,7 +106,11 @@ private class SidePanel(val targetSplitPanel: JSplitPane) : JPanel() {
   }
 }
 
-class LogViewerViewImpl(private val mainView: MainView, initialLogFiles: Set<File>) : LogViewerView,
+class LogViewerViewImpl(
+  private val mainView: MainView,
+  initialLogFiles: Set<File>,
+  initialLogStream: String? = null
+) : LogViewerView,
   LogViewerPresenterView {
   private val presenter: LogViewerPresenter
 
@@ -206,6 +214,16 @@ class LogViewerViewImpl(private val mainView: MainView, initialLogFiles: Set<Fil
           presenter.loadLogs(initialLogFiles.toTypedArray())
         }
       })
+    } else if (initialLogStream != null) {
+      mainView.parent.addComponentListener(object : ComponentAdapter() {
+        override fun componentShown(e: ComponentEvent) {
+          Logger.debug("Will receive logs from $initialLogStream")
+          mainView.parent.removeComponentListener(this)
+          val maxLines = RuntimeConfiguration.getConfig(RuntimeConfiguration.STREAM_LINES, StreamLinesConfig::class.java)
+            ?.configValue ?: StreamLinesConfig.DEFAULT_MAX_LINES
+          presenter.openLogStream(initialLogStream, maxLines)
+        }
+      })
     }
 
     updateCollapseExpandButtonState()
@@ -700,6 +718,9 @@ class LogViewerViewImpl(private val mainView: MainView, initialLogFiles: Set<Fil
   }
 
   override fun handleRefreshLogsMenu() = presenter.refreshLogs()
+  override fun handleFollowLogsMenu(follow: Boolean) = presenter.setFollowLogs(follow)
+  override val isFollowingLogs: Boolean
+    get() = presenter.isFollowingLogs
   override fun handleChangeCharsetMenu(charset: Charset) = presenter.refreshLogsWithDifferentCharset(charset)
 
   override fun handleSaveFilteredLogsMenu() {
@@ -821,9 +842,27 @@ class LogViewerViewImpl(private val mainView: MainView, initialLogFiles: Set<Fil
   }
 
   override fun showLogs(logEntries: List<LogEntry>?) {
+    val keepShowingLastLog = presenter.isFollowingLogs && isShowingLastRow(logList.table)
     logListTableModel.setLogs(logEntries)
     // calc the line number view needed width
     logEntries?.lastOrNull()?.let { logRenderer.recalculateLineNumberPreferredSize(it.index) }
+    if (keepShowingLastLog) {
+      scrollToLastRow(logList.table)
+    }
+  }
+
+  // While following the logs, the last logs keep being shown as new logs arrive (unless the user scrolled away)
+  private fun isShowingLastRow(table: JTable): Boolean {
+    val lastRow = table.rowCount - 1
+    return lastRow < 0 || table.visibleRect.let { it.y + it.height >= table.getCellRect(lastRow, 0, true).y }
+  }
+
+  private fun scrollToLastRow(table: JTable) {
+    SwingUtilities.invokeLater {
+      if (table.rowCount > 0) {
+        table.scrollRectToVisible(table.getCellRect(table.rowCount - 1, 0, true))
+      }
+    }
   }
 
   override fun showMyLogs(logEntries: List<LogEntry>?) {
@@ -876,9 +915,13 @@ class LogViewerViewImpl(private val mainView: MainView, initialLogFiles: Set<Fil
   }
 
   override fun showFilteredLogs(logEntries: List<LogEntry>?) {
+    val keepShowingLastLog = presenter.isFollowingLogs && isShowingLastRow(filteredLogList.table)
     logEntries?.let {
       filteredLogListTableModel.setLogs(it)
     }
+    if (keepShowingLastLog) {
+      scrollToLastRow(filteredLogList.table)
+    }
     logList.updateUI()
     filtersPane.updateUI()
 
@@ -983,7 +1026,7 @@ class LogViewerViewImpl(private val mainView: MainView, initialLogFiles: Set<Fil
     filtersPane.setAllGroupsVisibility(false)
   }
 
-  override fun showStartLoading() = mainView.showStartLoading("Logs")
+  override fun showStartLoading() = mainView.showStartLoading("Logs") { presenter.cancelLoading() }
 
   override fun showLoadingProgress(progress: Int, note: String?) = mainView.showLoadingProgress("Logs", progress, note)
 
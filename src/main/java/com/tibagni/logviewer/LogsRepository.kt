@@ -1,18 +1,44 @@
 package com.tibagni.logviewer
 
 import com.tibagni.logviewer.log.*
+import com.tibagni.logviewer.log.parser.LogFormat
 import com.tibagni.logviewer.log.parser.LogParser
+import com.tibagni.logviewer.log.parser.LogTail
 import com.tibagni.logviewer.logger.wrapProfiler
 import java.io.File
 import java.nio.charset.Charset
 import java.nio.charset.StandardCharsets
 import java.util.*
+import java.util.concurrent.CancellationException
 
 class OpenLogsException(message: String?, cause: Throwable) : java.lang.Exception(message, cause)
 
+/**
+ * What changed in the visible logs after they were refreshed (See [LogsRepository.refreshLogFiles])
+ *
+ * @param newEntries The entries that were appended to the logs, in order
+ * @param removedEntries The entries that are no longer in the logs. When an entry continues in the appended text,
+ * it is replaced by a new (longer) entry
+ * @param droppedEntries How many entries were dropped from the start of the logs. The index of every entry that
+ * was kept moved back by this much
+ * @param firstChangedIndex The index of the first entry of the refreshed logs that was not in the logs before. The
+ * entries before it are the same, only moved back by [droppedEntries]
+ */
+class LogsRefresh(
+  val newEntries: List<LogEntry>,
+  val removedEntries: List<LogEntry>,
+  val droppedEntries: Int = 0,
+  val firstChangedIndex: Int = 0
+)
+
 interface LogsRepository {
   val currentlyOpenedLogFiles: List<File>
   val currentlyOpenedLogs: List<LogEntry>
+
+  /**
+   * The charset the currently opened logs were decoded with. null if no log files are opened
+   */
+  val currentlyOpenedCharset: Charset?
   val availableStreams: Set<LogStream>
   val lastSkippedLogFiles: List<String>
   val potentialBugReports: Map<String, String>
@@ -27,15 +53,54 @@ interface LogsRepository {
 
   @Throws(OpenLogsException::class)
   fun openLogFiles(files: Array<File>, charset: Charset, progressReporter: ProgressReporter)
+
+  /**
+   * Decodes the currently opened logs again with a different charset, without reading them again
+   *
+   * @return false if this is not possible and the logs have to be opened again
+   */
+  fun changeCharset(charset: Charset): Boolean
+
+  /**
+   * Reads only what was appended to the currently opened logs since they were opened (or last refreshed)
+   *
+   * @param maxLogs How many entries to keep. When there are more than this, the oldest entries are removed.
+   * A few more entries are allowed before removing them, so this doesn't happen on every refresh
+   * @return What changed in the visible logs or null if the logs changed in some other way and have to be opened again
+   */
+  @Throws(OpenLogsException::class)
+  fun refreshLogFiles(progressReporter: ProgressReporter, maxLogs: Int): LogsRefresh?
+
+  /**
+   * Closes the currently opened logs and starts showing the log received by the given reader.
+   * Nothing is read until [readLogStream] is called
+   */
+  fun openLogStream(reader: StreamLogReader)
+
+  /**
+   * Reads the lines received by the log stream since it was last read
+   *
+   * @param maxLogs How many entries to keep. See [refreshLogFiles]
+   * @return What changed in the visible logs or null if nothing was received
+   */
+  fun readLogStream(maxLogs: Int): LogsRefresh?
   fun getMatchingLogEntry(entry: LogEntry): LogEntry?
 }
 
-class LogsRepositoryImpl : LogsRepository {
+/**
+ * @param keepTextInLogFiles Don't keep the text of the logs in memory. It is decoded from the (mapped) log files
+ * when needed. This allows changing the charset without reading the logs again (See [changeCharset])
+ * @param logIndex Where big logs are indexed, so they are not parsed again when opened again
+ */
+class LogsRepositoryImpl(
+  private val keepTextInLogFiles: Boolean = false,
+  private val logIndex: LogIndex? = null
+) : LogsRepository {
   private val _currentlyOpenedLogFiles = mutableListOf<File>()
   override val currentlyOpenedLogFiles: List<File>
     get() = _currentlyOpenedLogFiles
 
-  private val _currentlyOpenedLogs = mutableListOf<LogEntry>()
+  private var _currentlyOpenedLogs = LogStore.EMPTY
   override val currentlyOpenedLogs: List<LogEntry>
     get() = _currentlyOpenedLogs.subList(_firstVisibleLogIndex, _lastVisibleLogIndex + 1)
 
@@ -51,6 +116,15 @@ class LogsRepositoryImpl : LogsRepository {
   override val potentialBugReports: Map<String, String>
     get() = _potentialBugReports
 
+  override var currentlyOpenedCharset: Charset? = null
+    private set
+  private val _logTails = mutableMapOf<String, LogTail>()
+  private var logStreamReader: StreamLogReader? = null
+  // If the last entry read from the log stream may continue in the next lines (See readLogStream)
+  private var logStreamLastEntryPending = false
+  // Detected once from the first lines of the log stream and kept for the rest of it
+  private var logStreamFormat: LogFormat? = null
+
   private var _firstVisibleLogIndex = 0
   override var firstVisibleLogIndex: Int
     get() = _firstVisibleLogIndex
@@ -71,16 +145,19 @@ class LogsRepositoryImpl : LogsRepository {
   @Throws(OpenLogsException::class)
   override fun openLogFiles(files: Array<File>, charset: Charset, progressReporter: ProgressReporter) {
     try {
-      val logParser = LogParser(FileLogReader(files), progressReporter)
+      val logParser = LogParser(MappedFileLogReader(files), progressReporter, keepTextInLogFiles, logIndex)
       val parsedLogs = wrapProfiler("ParseLogs") { logParser.parseLogs(charset) }
 
       _firstVisibleLogIndex = 0
       _lastVisibleLogIndex = parsedLogs.lastIndex
 
-      _currentlyOpenedLogs.reset(parsedLogs)
+      _currentlyOpenedLogs = parsedLogs
       _availableStreams.reset(logParser.availableStreams)
       _lastSkippedLogFiles.reset(logParser.logsSkipped)
       _potentialBugReports.reset(logParser.potentialBugReports)
+      _logTails.reset(logParser.logTails)
+      currentlyOpenedCharset = charset
+      logStreamReader = null
 
       if (parsedLogs.isNotEmpty()) {
         _currentlyOpenedLogFiles.reset(files)
@@ -89,6 +166,9 @@ class LogsRepositoryImpl : LogsRepository {
       }
 
       logParser.release()
+    } catch (e: CancellationException) {
+      // Not a failure. The progress is ended by whoever cancelled it
+      throw e
     } catch (e: Exception) {
       // End the progress if we failed to read the file
       progressReporter.failProgress()
@@ -101,11 +181,181 @@ class LogsRepositoryImpl : LogsRepository {
     }
   }
 
+  override fun changeCharset(charset: Charset): Boolean {
+    val decodedLogs = _currentlyOpenedLogs.withCharset(charset) ?: return false
+
+    _currentlyOpenedLogs = decodedLogs
+    currentlyOpenedCharset = charset
+    // The text was parsed with a different charset, so it can't be checked when refreshing
+    _logTails.clear()
+    return true
+  }
+
+  @Throws(OpenLogsException::class)
+  override fun refreshLogFiles(progressReporter: ProgressReporter, maxLogs: Int): LogsRefresh? {
+    val charset = currentlyOpenedCharset
+    if (_currentlyOpenedLogFiles.isEmpty() || charset == null || _logTails.isEmpty()) {
+      return null
+    }
+
+    try {
+      val logParser = LogParser(
+        MappedFileLogReader(_currentlyOpenedLogFiles.toTypedArray()), progressReporter, keepTextInLogFiles, logIndex)
+      val appendedLogs = wrapProfiler("ParseAppendedLogs") { logParser.parseAppendedLogs(charset, _logTails) }
+      val refresh = appendedLogs?.let { mergeAppendedLogs(it, logParser.logTails, maxLogs) }
+      if (refresh != null) {
+        _potentialBugReports.putAll(logParser.potentialBugReports)
+        _logTails.reset(logParser.logTails)
+      }
+
+      logParser.release()
+      return refresh
+    } catch (e: CancellationException) {
+      throw e
+    } catch (e: Exception) {
+      progressReporter.failProgress()
+      when (e) {
+        is LogReaderException -> {
+          throw OpenLogsException(e.message, e)
+        }
+        else -> throw e
+      }
+    }
+  }
+
+  private fun mergeAppendedLogs(appendedLogs: LogStore, newTails: Map<String, LogTail>, maxLogs: Int): LogsRefresh? {
+    val oldLogs = _currentlyOpenedLogs
+    // A single log is kept in the order it was written. Multiple logs are merged in time order
+    val inTimeOrder = _logTails.size > 1
+
+    // The last entry of each log that grew was parsed again, as it may continue in the appended text
+    val removedRows = mutableListOf<Int>()
+    for ((log, tail) in _logTails) {
+      val lastEntryText = tail.lastEntryText
+      if (lastEntryText == null || newTails[log]?.size == tail.size) continue
+
+      val row = if (inTimeOrder) {
+        oldLogs.findLastEntry(log, tail.lastEntryTimestampKey, lastEntryText)
+      } else {
+        oldLogs.lastIndex.takeIf { it >= 0 && oldLogs[it].logText == lastEntryText } ?: -1
+      }
+      if (row < 0) return null
+      removedRows.add(row)
+    }
+    removedRows.sort()
+
+    return appendLogs(appendedLogs, removedRows, inTimeOrder, maxLogs)
+  }
+
+  private fun appendLogs(appendedLogs: LogStore, removedRows: List<Int>, inTimeOrder: Boolean, maxLogs: Int): LogsRefresh {
+    val oldLogs = _currentlyOpenedLogs
+    val wasShowingLastLog = _lastVisibleLogIndex == oldLogs.lastIndex
+    val appendedIndexes = IntArray(appendedLogs.size)
+    val mergedLogs = oldLogs.mergeAppended(appendedLogs, removedRows.toIntArray(), appendedIndexes, inTimeOrder)
+
+    val oldFirstVisible = _firstVisibleLogIndex
+    val oldLastVisible = _lastVisibleLogIndex
+    _currentlyOpenedLogs = mergedLogs
+    _firstVisibleLogIndex = newIndexOf(oldFirstVisible, oldLogs, appendedLogs, removedRows, inTimeOrder)
+    _lastVisibleLogIndex = if (wasShowingLastLog) {
+      mergedLogs.lastIndex
+    } else {
+      newIndexOf(oldLastVisible, oldLogs, appendedLogs, removedRows, inTimeOrder)
+    }
+
+    val oldVisibleRange = oldFirstVisible..oldLastVisible
+    val removedEntries = removedRows.filter { it in oldVisibleRange }.map { oldLogs[it].detach() }.toMutableList()
+    val dropped = if (mergedLogs.size - maxLogs > maxLogs / 10) mergedLogs.size - maxLogs else 0
+    if (dropped > 0) {
+      // Appended entries were never shown, so only the old ones are removed from what is visible
+      (_firstVisibleLogIndex until minOf(dropped, _lastVisibleLogIndex + 1))
+        .filter { appendedIndexes.binarySearch(it) < 0 }
+        .mapTo(removedEntries) { mergedLogs[it].detach() }
+
+      _currentlyOpenedLogs = mergedLogs.dropFirst(dropped)
+      _firstVisibleLogIndex = maxOf(0, _firstVisibleLogIndex - dropped)
+      _lastVisibleLogIndex = if (wasShowingLastLog) {
+        _currentlyOpenedLogs.lastIndex
+      } else {
+        maxOf(_firstVisibleLogIndex - 1, _lastVisibleLogIndex - dropped)
+      }
+    }
+
+    // The entries before the first removed or appended entry are still in the same place
+    val firstChanged = minOf(removedRows.firstOrNull() ?: oldLogs.size, appendedIndexes.firstOrNull() ?: mergedLogs.size)
+    val visibleRange = (_firstVisibleLogIndex + dropped).._lastVisibleLogIndex + dropped
+    return LogsRefresh(
+      appendedIndexes.filter { it in visibleRange }.map { _currentlyOpenedLogs[it - dropped] },
+      removedEntries,
+      dropped,
+      maxOf(0, firstChanged - dropped))
+  }
+
+  // Old entries come before appended entries with the same timestamp (See LogStore.mergeAppended)
+  private fun newIndexOf(
+    oldIndex: Int,
+    oldLogs: LogStore,
+    appendedLogs: LogStore,
+    removedRows: List<Int>,
+    inTimeOrder: Boolean
+  ): Int {
+    val removedBefore = removedRows.count { it < oldIndex }
+    if (!inTimeOrder || oldIndex >= oldLogs.size) return oldIndex - removedBefore
+    val timestampKey = oldLogs[oldIndex].timestampKey
+    var appendedBefore = 0
+    var high = appendedLogs.size
+    while (appendedBefore < high) {
+      val middle = (appendedBefore + high) ushr 1
+      if (appendedLogs[middle].timestampKey < timestampKey) appendedBefore = middle + 1 else high = middle
+    }
+
+    return oldIndex - removedBefore + appendedBefore
+  }
+
+  override fun openLogStream(reader: StreamLogReader) {
+    _currentlyOpenedLogs = LogStore.EMPTY
+    _firstVisibleLogIndex = 0
+    _lastVisibleLogIndex = -1
+    _currentlyOpenedLogFiles.clear()
+    _availableStreams.clear()
+    _lastSkippedLogFiles.clear()
+    _potentialBugReports.clear()
+    _logTails.clear()
+    currentlyOpenedCharset = null
+    logStreamReader = reader
+    logStreamLastEntryPending = false
+    logStreamFormat = null
+  }
+
+  override fun readLogStream(maxLogs: Int): LogsRefresh? {
+    val reader = logStreamReader ?: return null
+    if (!reader.hasNewLines()) return null
+
+    val logParser = LogParser(reader) { _, _ -> }
+    logStreamFormat?.let { logParser.setLogFormat(reader.logName, it) }
+    val receivedLogs = logParser.parseLogs(StandardCharsets.UTF_8)
+    logStreamFormat = logParser.getLogFormat(reader.logName)
+    // The last entry may continue in the next lines. Read it again with them and replace it
+    reader.unread(logParser.getLastEntryLineCount(reader.logName))
+    // If the lines of the pending entry were dropped, only its tail was read again, so the old one is kept
+    val removedRows = if (logStreamLastEntryPending && !reader.wereUnreadLinesDropped() &&
+      _currentlyOpenedLogs.isNotEmpty()) {
+      listOf(_currentlyOpenedLogs.lastIndex)
+    } else {
+      listOf()
+    }
+    logStreamLastEntryPending = receivedLogs.isNotEmpty()
+    _availableStreams.addAll(logParser.availableStreams)
+    logParser.release()
+
+    return appendLogs(receivedLogs, removedRows, false, maxLogs)
+  }
+
   override fun getMatchingLogEntry(entry: LogEntry): LogEntry? {
     // Here we want to check if the given log entry exists anywhere in the list, not necessarily in the same index,
     // And we also want to make sure the text is the same. So, use a different comparator here that only considers
     // the timestamp for comparison and also checks if the log text is the same
-    val cmp = Comparator.comparing { o: LogEntry -> o.timestamp }
+    val cmp = Comparator.comparingLong { o: LogEntry -> o.timestampKey }
 
     val indexFound = Collections.binarySearch(currentlyOpenedLogs, entry, cmp)
     if (indexFound >= 0) {
@@ -113,20 +363,19 @@ class LogsRepositoryImpl : LogsRepository {
       // so, iterate until we find the exact line we are looking for.
       // First we want to find the first log in this timestamp
       var i = indexFound
-      while (i >= 0 && currentlyOpenedLogs[i].timestamp == entry.timestamp) {
+      while (i > 0 && currentlyOpenedLogs[i - 1].timestampKey == entry.timestampKey) {
         i--
       }
 
-      // Now that we are in the beginning of the timestamp, look for the entry
-      while (currentlyOpenedLogs[i].logText != entry.logText &&
-        currentlyOpenedLogs[i].timestamp <= entry.timestamp) {
+      // Now that we are in the beginning of the timestamp, look for the entry.
+      // Only the text of the given entry is copied, the others are compared where they are stored
+      val logText = entry.logText
+      while (i < currentlyOpenedLogs.size && currentlyOpenedLogs[i].timestampKey == entry.timestampKey) {
+        if (logText.contentEquals(currentlyOpenedLogs[i].textView)) {
+          return currentlyOpenedLogs[i]
+        }
         i++
       }
-
-      // We either found or finished search. check which one
-      if (currentlyOpenedLogs[i].logText == entry.logText) {
-        return currentlyOpenedLogs[i]
-      }
     }
 
     // Not found
@@ -46,7 +46,7 @@ interface MainView {
   fun showSaveFilterFileChooser(suggestedFileName: String? = null): File?
   fun showOpenMultipleFiltersFileChooser(): Array<File>
 
-  fun showStartLoading(tag: String)
+  fun showStartLoading(tag: String, onCancel: (() -> Unit)? = null)
   fun showLoadingProgress(tag:String, progress: Int, note: String?)
   fun finishLoading(tag: String)
 
@@ -60,7 +60,8 @@ interface MainView {
 class MainViewImpl(
   override val parent: JFrame,
   private val userPrefs: LogViewerPreferences,
-  initialLogFiles: Set<File>
+  initialLogFiles: Set<File>,
+  initialLogStream: String? = null
 ) : MainView {
   private lateinit var mainPanel: JPanel
 
@@ -83,7 +84,7 @@ class MainViewImpl(
     get() = mainPanel
 
   init {
-    logViewerView = LogViewerViewImpl(this, initialLogFiles)
+    logViewerView = LogViewerViewImpl(this, initialLogFiles, initialLogStream)
     bugReportView = BugReportViewImpl(this)
     finishChain = listOf(logViewerView, bugReportView)
 
@@ -207,10 +208,10 @@ class MainViewImpl(
     } else arrayOf()
   }
 
-  override fun showStartLoading(tag: String) {
+  override fun showStartLoading(tag: String, onCancel: (() -> Unit)?) {
     var progressDialog = progressDialogs[tag]
     if (progressDialog == null) {
-      progressDialog = ProgressDialog.showProgressDialog(parent)
+      progressDialog = ProgressDialog.showProgressDialog(parent, onCancel?.let { Runnable(it) })
       progressDialogs[tag] = progressDialog
     }
   }
@@ -262,6 +263,10 @@ class MainViewImpl(
     refreshLogsItem.accelerator = KeyStroke.getKeyStroke(KeyEvent.VK_F5, 0)
     refreshLogsItem.addActionListener { logViewerView.handleRefreshLogsMenu() }
     logsMenu.add(refreshLogsItem)
+    val followLogsItem = JCheckBoxMenuItem("Follow", logViewerView.isFollowingLogs)
+    followLogsItem.accelerator = KeyStroke.getKeyStroke(KeyEvent.VK_F5, InputEvent.SHIFT_DOWN_MASK)
+    followLogsItem.addActionListener { logViewerView.handleFollowLogsMenu(followLogsItem.isSelected) }
+    logsMenu.add(followLogsItem)
 
     val changeEncodingMenu = JMenu("Change encoding")
     configureCharsetsMenu(changeEncodingMenu)
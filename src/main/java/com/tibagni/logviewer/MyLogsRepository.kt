@@ -30,7 +30,8 @@ class MyLogsRepositoryImpl : MyLogsRepository {
 
   override fun reset(entries: List<LogEntry>) {
     _logs.clear()
-    _logs.addAll(entries)
+    // Keep copies, so the entries don't hold all the other entries of their logs in memory
+    entries.mapTo(_logs) { it.detach() }
   }
 
   private fun insertInOrder(entry: LogEntry) {
@@ -38,7 +39,7 @@ class MyLogsRepositoryImpl : MyLogsRepository {
     val indexFound = Collections.binarySearch(_logs, entry)
     if (indexFound < 0) { // Element not found. Insert
       val targetIndex = abs(indexFound + 1)
-      _logs.add(targetIndex, entry)
+      _logs.add(targetIndex, entry.detach())
     }
   }
 }
\ No newline at end of file
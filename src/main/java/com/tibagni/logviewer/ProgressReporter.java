@@ -1,8 +1,21 @@
 package com.tibagni.logviewer;
 
 public interface ProgressReporter {
+  /**
+   * @param progress    From 0 to 100. 100 means it is over
+   * @param description What is being done. It can have more lines with details, like the throughput and the ETA
+   *                    (See {@link ProgressTracker})
+   */
   void onProgress(int progress, String description);
 
+  /**
+   * Long tasks check this once in a while (See {@link ProgressTracker}) and stop
+   * with a {@link java.util.concurrent.CancellationException} when it is true
+   */
+  default boolean isCancelled() {
+    return false;
+  }
+
   default void failProgress() {
     // For failed case, set progress to 100, which means it is over
     // and set the 'Failed' description
@@ -0,0 +1,254 @@
+package com.tibagni.logviewer;
+
+import com.tibagni.logviewer.logger.Logger;
+
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Tracks a stage of a long task (parsing, merging, filtering...) by how much of its work was done (bytes or
+ * entries) and how many lines were processed. The progress, the throughput and the remaining time (ETA) are
+ * calculated from that and sent to a {@link ProgressReporter}.
+ *
+ * It can be updated from multiple threads. Updates are only reported every {@link #PUBLISH_INTERVAL_MS} (See
+ * {@link RateLimiter}), so it can be updated from hot loops, as long as they don't update it for every single byte
+ * or entry.
+ * Every update also checks if the task was cancelled, so those loops stop soon after a cancellation
+ */
+public class ProgressTracker {
+  static final long PUBLISH_INTERVAL_MS = 200;
+
+  public enum Unit {
+    BYTES,
+    ENTRIES
+  }
+
+  /**
+   * Decides which of the updates are reported (See {@link #add(long, long)})
+   */
+  public interface RateLimiter {
+    /**
+     * This is called from multiple threads at the same time
+     *
+     * @param now The current time, in nanoseconds
+     * @return true if an update can be reported now
+     */
+    boolean tryAcquire(long now);
+  }
+
+  private static class IntervalRateLimiter implements RateLimiter {
+    private final AtomicLong lastPublishTime;
+
+    IntervalRateLimiter(long startTime) {
+      this.lastPublishTime = new AtomicLong(startTime);
+    }
+
+    @Override
+    public boolean tryAcquire(long now) {
+      long lastPublish = lastPublishTime.get();
+      // Only one of the threads that get here at the same time publishes the progress
+      return now - lastPublish >= TimeUnit.MILLISECONDS.toNanos(PUBLISH_INTERVAL_MS) &&
+          lastPublishTime.compareAndSet(lastPublish, now);
+    }
+  }
+
+  private final ProgressReporter reporter;
+  private final int fromProgress;
+  private final int toProgress;
+  private final long total;
+  private final Unit unit;
+  private final LongSupplier nanoClock;
+  private final long startTime;
+  private final RateLimiter rateLimiter;
+
+  // Updated by all workers but only read when publishing, so they are striped to avoid contention
+  private final LongAdder processed = new LongAdder();
+  private final LongAdder lines = new LongAdder();
+  private volatile String description = "";
+  // How many items (e.g. files) this stage has and how many of them were started (See startItem)
+  private volatile int totalItems;
+  private int startedItems;
+
+  /**
+   * @param fromProgress The overall progress when this stage starts
+   * @param toProgress   The overall progress when this stage is completed
+   * @param total        How much work this stage has to do, in 'unit'. 0 (or less) if it is not known (See
+   *                     {@link #setTotalItems(int)})
+   */
+  public ProgressTracker(ProgressReporter reporter, int fromProgress, int toProgress, long total, Unit unit) {
+    this(reporter, fromProgress, toProgress, total, unit, System::nanoTime);
+  }
+
+  // Visible for testing
+  ProgressTracker(ProgressReporter reporter, int fromProgress, int toProgress, long total, Unit unit,
+                  LongSupplier nanoClock) {
+    this(reporter, fromProgress, toProgress, total, unit, nanoClock, new IntervalRateLimiter(nanoClock.getAsLong()));
+  }
+
+  /**
+   * @param nanoClock   Where the time (in nanoseconds) comes from. Usually System::nanoTime
+   * @param rateLimiter Decides which updates are reported. By default, one every {@link #PUBLISH_INTERVAL_MS}
+   */
+  public ProgressTracker(ProgressReporter reporter, int fromProgress, int toProgress, long total, Unit unit,
+                         LongSupplier nanoClock, RateLimiter rateLimiter) {
+    this.reporter = reporter;
+    this.fromProgress = fromProgress;
+    this.toProgress = toProgress;
+    this.total = total;
+    this.unit = unit;
+    this.nanoClock = nanoClock;
+    this.startTime = nanoClock.getAsLong();
+    this.rateLimiter = rateLimiter;
+  }
+
+  /**
+   * How many items (e.g. files) this stage works on. When the total amount of work is not known, the progress is
+   * how many of these items were started (See {@link #startItem(String)})
+   */
+  public void setTotalItems(int totalItems) {
+    this.totalItems = totalItems;
+  }
+
+  /**
+   * Changes what is being done. This is always reported right away, without the throughput, which is only
+   * reported by the next update
+   */
+  public void setDescription(String description) {
+    checkCancelled();
+    this.description = description;
+    reporter.onProgress(getProgress(), description);
+  }
+
+  /**
+   * Starts working on the next of the items of this stage. Same as {@link #setDescription(String)}, but the
+   * progress also moves to this item when the total amount of work is not known
+   */
+  public synchronized void startItem(String description) {
+    checkCancelled();
+    this.description = description;
+    reporter.onProgress(getProgress(), description);
+    startedItems++;
+  }
+
+  /**
+   * @param amount How much more work was done, in the unit of this stage
+   * @param lines  How many more lines were processed
+   */
+  public void add(long amount, long lines) {
+    checkCancelled();
+    processed.add(amount);
+    this.lines.add(lines);
+
+    long now = nanoClock.getAsLong();
+    if (rateLimiter.tryAcquire(now)) {
+      publish(now);
+    }
+  }
+
+  /**
+   * @throws CancellationException If the task being tracked was cancelled (See {@link ProgressReporter#isCancelled()})
+   */
+  public void checkCancelled() {
+    if (reporter.isCancelled()) {
+      throw new CancellationException(description + " was cancelled");
+    }
+  }
+
+  /**
+   * Logs how long this stage took and its throughput. The progress is not reported, the next stage does it
+   */
+  public void finish() {
+    long elapsed = nanoClock.getAsLong() - startTime;
+    Logger.info(description + " " + getStats(elapsed, false) + " in " +
+        TimeUnit.NANOSECONDS.toMillis(elapsed) + "ms");
+  }
+
+  public int getProgress() {
+    double done;
+    if (total > 0) {
+      done = Math.min(1.0, (double) processed.sum() / total);
+    } else if (totalItems > 0) {
+      synchronized (this) {
+        done = Math.min(1.0, (double) startedItems / totalItems);
+      }
+    } else {
+      return fromProgress;
+    }
+
+    return fromProgress + (int) ((toProgress - fromProgress) * done);
+  }
+
+  private void publish(long now) {
+    String stats = getStats(now - startTime, true);
+    reporter.onProgress(getProgress(), stats.isEmpty() ? description : description + "\n" + stats);
+  }
+
+  /**
+   * E.g.: "1.2 GB of 3.4 GB, 450.3 MB/s, 2.1M lines/s, ETA 0:05"
+   */
+  // Visible for testing
+  String getStats(long elapsedNanos, boolean withEta) {
+    long done = processed.sum();
+    if (done == 0) {
+      return "";
+    }
+
+    StringBuilder stats = new StringBuilder(formatAmount(done));
+    if (total > 0) {
+      stats.append(" of ").append(formatAmount(total));
+    }
+
+    double seconds = elapsedNanos / 1e9;
+    if (seconds <= 0) {
+      return stats.toString();
+    }
+
+    double rate = done / seconds;
+    stats.append(", ").append(formatAmount((long) rate)).append("/s");
+    long linesDone = lines.sum();
+    if (linesDone > 0) {
+      stats.append(", ").append(formatCount(linesDone / seconds)).append(" lines/s");
+    }
+
+    if (withEta && total > done) {
+      stats.append(", ETA ").append(formatDuration((long) Math.ceil((total - done) / rate)));
+    }
+
+    return stats.toString();
+  }
+
+  private String formatAmount(long amount) {
+    if (unit == Unit.ENTRIES) {
+      return formatCount(amount) + " entries";
+    }
+
+    if (amount >= 1L << 30) {
+      return String.format(Locale.US, "%.1f GB", amount / (double) (1L << 30));
+    } else if (amount >= 1L << 20) {
+      return String.format(Locale.US, "%.1f MB", amount / (double) (1L << 20));
+    } else if (amount >= 1L << 10) {
+      return String.format(Locale.US, "%.1f KB", amount / (double) (1L << 10));
+    }
+    return amount + " bytes";
+  }
+
+  private static String formatCount(double count) {
+    if (count >= 1e6) {
+      return String.format(Locale.US, "%.1fM", count / 1e6);
+    } else if (count >= 1e3) {
+      return String.format(Locale.US, "%.1fk", count / 1e3);
+    }
+    return String.valueOf((long) count);
+  }
+
+  private static String formatDuration(long seconds) {
+    if (seconds >= 3600) {
+      return String.format(Locale.US, "%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+    }
+    return String.format(Locale.US, "%d:%02d", seconds / 60, seconds % 60);
+  }
+}
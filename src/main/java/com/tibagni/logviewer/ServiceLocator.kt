@@ -3,14 +3,27 @@ package com.tibagni.logviewer
 import com.tibagni.logviewer.bugreport.BugReportRepository
 import com.tibagni.logviewer.bugreport.BugReportRepositoryImpl
 import com.tibagni.logviewer.bugreport.parser.*
+import com.tibagni.logviewer.log.LogIndex
 import com.tibagni.logviewer.preferences.LogViewerPreferences
 import com.tibagni.logviewer.preferences.LogViewerPreferencesImpl
+import com.tibagni.logviewer.rc.IndexConfig
+import com.tibagni.logviewer.rc.IndexDirConfig
+import com.tibagni.logviewer.rc.LazyTextConfig
+import com.tibagni.logviewer.rc.RuntimeConfiguration
 import com.tibagni.logviewer.theme.LogViewerThemeManager
 
 object ServiceLocator {
   val themeManager: LogViewerThemeManager = LogViewerThemeManager
   val logViewerPrefs: LogViewerPreferences = LogViewerPreferencesImpl
-  val logsRepository: LogsRepository by lazy { LogsRepositoryImpl() }
+  val logsRepository: LogsRepository by lazy {
+    val lazyText =
+      RuntimeConfiguration.getConfig(RuntimeConfiguration.LAZY_TEXT, LazyTextConfig::class.java)?.configValue ?: false
+    val index = RuntimeConfiguration.getConfig(RuntimeConfiguration.INDEX, IndexConfig::class.java)?.configValue ?: true
+    val indexDirectory =
+      RuntimeConfiguration.getConfig(RuntimeConfiguration.INDEX_DIR, IndexDirConfig::class.java)?.configValue
+        ?: IndexDirConfig.defaultDirectory
+    LogsRepositoryImpl(lazyText, if (index) LogIndex(indexDirectory) else null)
+  }
   val myLogsRepository: MyLogsRepository by lazy {MyLogsRepositoryImpl()}
   val filtersRepository: FiltersRepository by lazy { FiltersRepositoryImpl() }
   val bugReportRepository: BugReportRepository by lazy {
@@ -0,0 +1,322 @@
+package com.tibagni.logviewer;
+
+import com.tibagni.logviewer.logger.Logger;
+import com.tibagni.logviewer.rc.RuntimeConfiguration;
+import com.tibagni.logviewer.rc.ThreadsConfig;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs the work of all presenters, parsers and views on a single pool of threads, so they don't compete for the
+ * cores. The size of the pool comes from {@link RuntimeConfiguration#THREADS} (the number of cores by default).
+ *
+ * Work is queued in priority lanes (See {@link Priority}). A thread always picks the queued work of the highest
+ * priority and only interactive work can take the last free thread, so it never waits behind the rest.
+ * Long work should be split in smaller tasks (See {@link #invokeAll}), so more important work can run between them
+ */
+public final class TaskScheduler {
+  public enum Priority {
+    // Work the user is waiting for while using the UI, like searching or navigating through the logs
+    INTERACTIVE,
+    // Work started by the user that shows its progress, like opening logs or applying filters
+    USER,
+    // Work nobody is waiting for, like writing the indexes of the logs
+    BACKGROUND
+  }
+
+  private static TaskScheduler instance;
+
+  private final int parallelism;
+  private final int maxNonInteractiveTasks;
+  private final Object lock = new Object();
+  private final List<Deque<Task>> queues = new ArrayList<>();
+  private int runningNonInteractiveTasks;
+
+  public static synchronized TaskScheduler get() {
+    if (instance == null) {
+      ThreadsConfig config = RuntimeConfiguration.getConfig(RuntimeConfiguration.THREADS, ThreadsConfig.class);
+      instance = new TaskScheduler(config != null ? config.getConfigValue() : ThreadsConfig.getDefaultThreads());
+    }
+
+    return instance;
+  }
+
+  // Visible for testing
+  TaskScheduler(int parallelism) {
+    this.parallelism = Math.max(1, parallelism);
+    for (int i = 0; i < Priority.values().length; i++) {
+      queues.add(new ArrayDeque<>());
+    }
+
+    // There is always a thread that is not running user or background work
+    int threads = Math.max(2, this.parallelism);
+    maxNonInteractiveTasks = threads - 1;
+    for (int i = 0; i < threads; i++) {
+      Thread worker = new Thread(this::work, "TaskScheduler-" + i);
+      worker.setDaemon(true);
+      worker.start();
+    }
+  }
+
+  /**
+   * @return How many tasks should run in parallel to use all the cores available to this application
+   */
+  public int getParallelism() {
+    return parallelism;
+  }
+
+  public void execute(Priority priority, Runnable runnable) {
+    enqueue(new Task(priority, new FutureTask<>(() -> {
+      try {
+        runnable.run();
+      } catch (RuntimeException | Error e) {
+        // Nobody is waiting for the result of this task, so nobody else would know it failed
+        Logger.error("Uncaught error on a " + priority + " task", e);
+        throw e;
+      }
+    }, null)));
+  }
+
+  public <T> Future<T> submit(Priority priority, Callable<T> callable) {
+    FutureTask<T> future = new FutureTask<>(callable);
+    enqueue(new Task(priority, future));
+    return future;
+  }
+
+  /**
+   * @return An executor that runs everything with the given priority
+   */
+  public Executor executor(Priority priority) {
+    return runnable -> execute(priority, runnable);
+  }
+
+  /**
+   * @return An executor that runs its tasks one at a time, in the order they were added, with the given priority
+   */
+  public ExecutorService newSerialExecutor(Priority priority) {
+    return new SerialExecutor(priority);
+  }
+
+  /**
+   * Runs all tasks in parallel and waits for them. The calling thread runs the tasks no other thread picked up yet,
+   * so this can be called from a task running on this scheduler (even when all threads are busy)
+   *
+   * @return The results of the tasks, in order
+   * @throws ExecutionException If any task failed (after all tasks finished)
+   */
+  public <T> List<T> invokeAll(Priority priority, List<? extends Callable<T>> callables)
+      throws InterruptedException, ExecutionException {
+    List<Task> tasks = new ArrayList<>(callables.size());
+    List<FutureTask<T>> futures = new ArrayList<>(callables.size());
+    for (Callable<T> callable : callables) {
+      FutureTask<T> future = new FutureTask<>(callable);
+      futures.add(future);
+      tasks.add(new Task(priority, future));
+    }
+
+    // The first task is always run here, so only queue the others
+    if (tasks.size() > 1) {
+      synchronized (lock) {
+        queues.get(priority.ordinal()).addAll(tasks.subList(1, tasks.size()));
+        lock.notifyAll();
+      }
+    }
+
+    for (Task task : tasks) {
+      task.run();
+    }
+
+    List<T> results = new ArrayList<>(futures.size());
+    for (FutureTask<T> future : futures) {
+      results.add(future.get());
+    }
+
+    return results;
+  }
+
+  /**
+   * Calls 'action' for each index from 0 to 'count' - 1, in parallel (See {@link #invokeAll})
+   */
+  public void parallelFor(Priority priority, int count, IntConsumer action) {
+    List<Callable<Void>> callables = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int index = i;
+      callables.add(() -> {
+        action.accept(index);
+        return null;
+      });
+    }
+
+    try {
+      invokeAll(priority, callables);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CancellationException("Interrupted while waiting for parallel tasks");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      } else if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void enqueue(Task task) {
+    synchronized (lock) {
+      queues.get(task.priority.ordinal()).add(task);
+      lock.notifyAll();
+    }
+  }
+
+  private void work() {
+    while (true) {
+      Task task;
+      synchronized (lock) {
+        while ((task = nextTask()) == null) {
+          try {
+            lock.wait();
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+
+        if (task.priority != Priority.INTERACTIVE) {
+          runningNonInteractiveTasks++;
+        }
+      }
+
+      try {
+        task.run();
+      } finally {
+        if (task.priority != Priority.INTERACTIVE) {
+          synchronized (lock) {
+            runningNonInteractiveTasks--;
+            lock.notifyAll();
+          }
+        }
+      }
+    }
+  }
+
+  // Must hold 'lock'
+  private Task nextTask() {
+    for (Priority priority : Priority.values()) {
+      if (priority != Priority.INTERACTIVE && runningNonInteractiveTasks >= maxNonInteractiveTasks) {
+        break;
+      }
+
+      Deque<Task> queue = queues.get(priority.ordinal());
+      Task task;
+      while ((task = queue.poll()) != null) {
+        // Tasks of 'invokeAll' may have been run by the thread that is waiting for them
+        if (!task.started.get()) {
+          return task;
+        }
+      }
+    }
+
+    return null;
+  }
+
+  private static class Task implements Runnable {
+    final Priority priority;
+    final FutureTask<?> future;
+    final AtomicBoolean started = new AtomicBoolean();
+
+    Task(Priority priority, FutureTask<?> future) {
+      this.priority = priority;
+      this.future = future;
+    }
+
+    @Override
+    public void run() {
+      if (started.compareAndSet(false, true)) {
+        future.run();
+      }
+    }
+  }
+
+  private class SerialExecutor extends AbstractExecutorService {
+    private final Priority priority;
+    private final Deque<Runnable> pending = new ArrayDeque<>();
+    private boolean running;
+    private boolean shutdown;
+
+    SerialExecutor(Priority priority) {
+      this.priority = priority;
+    }
+
+    @Override
+    public synchronized void execute(Runnable command) {
+      if (shutdown) {
+        throw new RejectedExecutionException("Executor was shut down");
+      }
+
+      pending.add(command);
+      if (!running) {
+        running = true;
+        TaskScheduler.this.execute(priority, this::runNext);
+      }
+    }
+
+    private void runNext() {
+      Runnable next;
+      synchronized (this) {
+        next = pending.poll();
+        if (next == null) {
+          running = false;
+          notifyAll();
+          return;
+        }
+      }
+
+      try {
+        next.run();
+      } finally {
+        // Give other work of the same priority a chance to run between the tasks
+        TaskScheduler.this.execute(priority, this::runNext);
+      }
+    }
+
+    @Override
+    public synchronized void shutdown() {
+      shutdown = true;
+    }
+
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+      shutdown = true;
+      List<Runnable> notStarted = new ArrayList<>(pending);
+      pending.clear();
+      return notStarted;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+      return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+      return shutdown && !running;
+    }
+
+    @Override
+    public synchronized boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+      long deadline = System.nanoTime() + unit.toNanos(timeout);
+      while (!isTerminated()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      }
+
+      return true;
+    }
+  }
+}
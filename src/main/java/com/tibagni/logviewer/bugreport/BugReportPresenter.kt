@@ -5,6 +5,7 @@ import com.tibagni.logviewer.AsyncPresenter
 interface BugReportPresenter {
   fun loadBugReport(bugreportPath: String, bugreportText: String)
   fun closeBugReport()
+  fun cancelLoading()
   fun finishing()
 }
 
@@ -14,11 +15,10 @@ class BugReportPresenterImpl(
 ) : AsyncPresenter(view),
   BugReportPresenter {
   override fun loadBugReport(bugreportPath: String, bugreportText: String) {
-    doAsync {
+    // Only the last bugreport opened is shown, so there is no need to finish loading the previous one
+    doAsync("loadBugReport") {
       try {
-        bugReportRepository.loadBugReport(bugreportPath, bugreportText) { progress, note ->
-          updateAsyncProgress(progress, note)
-        }
+        bugReportRepository.loadBugReport(bugreportPath, bugreportText, asyncProgressReporter)
         doOnUiThread {
           bugReportRepository.bugReport?.let { view.showBugReport(it) } ?: view.showErrorMessage("Empty bug report!")
         }
@@ -32,6 +32,10 @@ class BugReportPresenterImpl(
     }
   }
 
+  override fun cancelLoading() {
+    cancelAsyncTasks()
+  }
+
   override fun closeBugReport() {
     bugReportRepository.closeBugReport()
   }
@@ -2,6 +2,7 @@ package com.tibagni.logviewer.bugreport
 
 import com.tibagni.logviewer.ProgressReporter
 import com.tibagni.logviewer.bugreport.parser.BugReportParser
+import java.util.concurrent.CancellationException
 
 class OpenBugReportException(message: String?, cause: Throwable): java.lang.Exception(message, cause)
 
@@ -22,6 +23,8 @@ class BugReportRepositoryImpl(private val bugReportParser: BugReportParser): Bug
   override fun loadBugReport(bugreportPath: String, bugReportText: String, progressReporter: ProgressReporter) {
     try {
       _bugReport = bugReportParser.parseBugReport(bugreportPath, bugReportText, progressReporter)
+    } catch (e: CancellationException) {
+      throw e
     } catch (e: Exception) {
       throw OpenBugReportException(e.message, e)
     }
@@ -72,7 +72,7 @@ class BugReportViewImpl(private val mainView: MainView) : BugReportView, BugRepo
     sectionsList.selectedIndex = 0
   }
 
-  override fun showStartLoading() = mainView.showStartLoading("BR")
+  override fun showStartLoading() = mainView.showStartLoading("BR") { presenter.cancelLoading() }
 
   override fun showLoadingProgress(progress: Int, note: String?) = mainView.showLoadingProgress("BR", progress, note)
 
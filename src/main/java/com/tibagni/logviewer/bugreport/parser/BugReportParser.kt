@@ -3,6 +3,7 @@ package com.tibagni.logviewer.bugreport.parser
 import com.tibagni.logviewer.ProgressReporter
 import com.tibagni.logviewer.bugreport.BugReport
 import com.tibagni.logviewer.logger.wrapProfiler
+import java.util.concurrent.CancellationException
 
 interface BugReportParser {
   fun parseBugReport(bugreportPath: String, bugReportText: String, progressReporter: ProgressReporter): BugReport
@@ -22,6 +23,8 @@ class BugReportParserImpl(private val sectionParsers: List<BugReportSectionParse
     val totalSections = sectionParsers.size
 
     val sections = sectionParsers.mapNotNull {
+      // Sections can't be stopped while they are parsed, so stop between them
+      if (progressReporter.isCancelled) throw CancellationException("Parsing $bugreportPath was cancelled")
       val progress = (sectionsParsed.toDouble() / totalSections) * 100
       sectionsParsed++
       progressReporter.onProgress(progress.toInt(), "Parsing ${it.name}")
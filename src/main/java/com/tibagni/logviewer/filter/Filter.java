@@ -7,11 +7,14 @@ import com.tibagni.logviewer.util.StringUtils;
 
 import java.awt.*;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 public class Filter {
   public static final String FILE_EXTENSION = "filter";
+  private static final int MIN_REQUIRED_LITERAL_LENGTH = 2;
 
   private boolean applied;
   private String name;
@@ -23,6 +26,12 @@ public class Filter {
   private boolean isSimpleFilter;
   private boolean isMultiKeywordFilter;
   private String[] keywords;
+  // Used instead of the pattern for simple and multi keyword filters (one per keyword)
+  private LiteralMatcher[] literalMatchers;
+  // Literals every match of the pattern of a regex filter contains (See RegexLiterals). Lines without the
+  // longest one are rejected without running the regex
+  private String[] requiredLiterals;
+  private LiteralMatcher regexPrefilter;
 
   public boolean wasLoadedFromLegacyFile = false;
 
@@ -39,6 +48,9 @@ public class Filter {
     isSimpleFilter = from.isSimpleFilter;
     isMultiKeywordFilter = from.isMultiKeywordFilter;
     keywords = from.keywords != null ? from.keywords.clone() : null;
+    literalMatchers = from.literalMatchers;
+    requiredLiterals = from.requiredLiterals;
+    regexPrefilter = from.regexPrefilter;
   }
 
   public Filter(String name, String pattern, Color color, LogLevel verbosity) throws FilterException {
@@ -79,6 +91,9 @@ public class Filter {
     this.isSimpleFilter = !StringUtils.isPotentialRegex(pattern);
     this.isMultiKeywordFilter = false;
     this.keywords = null;
+    this.literalMatchers = isSimpleFilter ? createLiteralMatchers(pattern) : null;
+    this.requiredLiterals = isSimpleFilter ? null : findRequiredLiterals(pattern);
+    this.regexPrefilter = requiredLiterals != null ? createLiteralMatchers(requiredLiterals[0])[0] : null;
   }
 
   public void updateMultiKeywordFilter(String name, String[] keywords, Color color, LogLevel verbosity, boolean caseSensitive)
@@ -107,7 +122,10 @@ public class Filter {
     this.isMultiKeywordFilter = true;
     this.isSimpleFilter = false;
     this.keywords = keywords.clone();
-    
+    this.literalMatchers = createLiteralMatchers(keywords);
+    this.requiredLiterals = null;
+    this.regexPrefilter = null;
+
     // Generate regex pattern for multi-keyword search
     StringBuilder patternBuilder = new StringBuilder();
     for (int i = 0; i < keywords.length; i++) {
@@ -216,43 +234,67 @@ public class Filter {
    * @return true if this filter is applicable to the input line. False otherwise
    */
   public boolean appliesTo(LogEntry entry) {
-    String inputLine = entry.getLogText();
-    boolean foundPattern;
-    
+    // The level is checked first, as getting the text of an entry may decode it
+    return allowsLevel(entry.getLogLevel()) && matches(entry.getTextView());
+  }
+
+  /**
+   * Same as {@link #appliesTo(LogEntry)}, for an entry whose text was already read (See LogEntry#getTextView)
+   */
+  boolean appliesTo(CharSequence text, LogLevel level) {
+    return allowsLevel(level) && matches(text);
+  }
+
+  private boolean matches(CharSequence inputLine) {
     if (isMultiKeywordFilter) {
-      foundPattern = multiKeywordMatch(inputLine);
+      return multiKeywordMatch(inputLine);
     } else if (isSimpleFilter) {
-      foundPattern = simpleMatch(inputLine);
-    } else {
-      foundPattern = regexMatch(inputLine);
+      return simpleMatch(inputLine);
     }
-    
-    boolean isVerbosityAllowed = verbosity.ordinal() <= entry.logLevel.ordinal();
 
-    return foundPattern && isVerbosityAllowed;
+    return regexMatch(inputLine);
+  }
+
+  boolean allowsLevel(LogLevel level) {
+    return verbosity.ordinal() <= level.ordinal();
   }
 
-  private boolean simpleMatch(String inputLine) {
-    if (isCaseSensitive()) {
-      return inputLine.contains(getPatternString());
+  /**
+   * @return The literals that must all be found in a line for this filter to apply to it, or null if there
+   * are none. For regex filters, the regex must also match (See {@link #isRegexFilter()})
+   */
+  String[] getLiterals() {
+    if (isMultiKeywordFilter) {
+      return keywords.clone();
+    } else if (isSimpleFilter) {
+      return new String[]{getPatternString()};
     }
-    return inputLine.toLowerCase().contains(getPatternString().toLowerCase());
+
+    return requiredLiterals != null ? requiredLiterals.clone() : null;
   }
 
-  private boolean regexMatch(String inputLine) {
+  boolean isRegexFilter() {
+    return !isSimpleFilter && !isMultiKeywordFilter;
+  }
+
+  private boolean simpleMatch(CharSequence inputLine) {
+    return literalMatchers[0].matches(inputLine);
+  }
+
+  private boolean regexMatch(CharSequence inputLine) {
+    if (regexPrefilter != null && !regexPrefilter.matches(inputLine)) {
+      return false;
+    }
     return pattern.matcher(inputLine).find();
   }
 
-  private boolean multiKeywordMatch(String inputLine) {
-    if (keywords == null || keywords.length == 0) {
+  private boolean multiKeywordMatch(CharSequence inputLine) {
+    if (literalMatchers == null || literalMatchers.length == 0) {
       return false;
     }
-    
-    String searchText = isCaseSensitive() ? inputLine : inputLine.toLowerCase();
-    
-    for (String keyword : keywords) {
-      String searchKeyword = isCaseSensitive() ? keyword : keyword.toLowerCase();
-      if (!searchText.contains(searchKeyword)) {
+
+    for (LiteralMatcher matcher : literalMatchers) {
+      if (!matcher.matches(inputLine)) {
         return false;
       }
     }
@@ -260,6 +302,31 @@ public class Filter {
     return true;
   }
 
+  private LiteralMatcher[] createLiteralMatchers(String... literals) {
+    LiteralMatcher[] matchers = new LiteralMatcher[literals.length];
+    for (int i = 0; i < literals.length; i++) {
+      matchers[i] = new LiteralMatcher(literals[i], isCaseSensitive());
+    }
+
+    return matchers;
+  }
+
+  // The longest literal comes first. Literals too short to reject many lines are left out
+  private static String[] findRequiredLiterals(String pattern) {
+    List<String> literals = new ArrayList<>();
+    for (String literal : RegexLiterals.findRequiredLiterals(pattern)) {
+      if (literal.length() >= MIN_REQUIRED_LITERAL_LENGTH) {
+        literals.add(literal);
+      }
+    }
+    if (literals.isEmpty()) {
+      return null;
+    }
+
+    literals.sort(Comparator.comparingInt(String::length).reversed());
+    return literals.toArray(new String[0]);
+  }
+
   private Pattern getPattern(String pattern) throws FilterException {
     try {
       return Pattern.compile(pattern, flags);
@@ -321,35 +388,60 @@ public class Filter {
   }
 
   public static class ContextInfo {
-    private final Map<LogStream, Integer> linesFound;
-    private Set<LogStream> allowedStreams;
+    private static final LogStream[] STREAMS = LogStream.values();
+
+    // One counter per stream (and one more for entries without a stream). LongAdder, so the workers filtering
+    // in parallel can count the lines a filter matched without contending on a lock
+    private final LongAdder[] linesFound;
+    private volatile Set<LogStream> allowedStreams;
 
     private ContextInfo() {
-      linesFound = new HashMap<>();
+      linesFound = new LongAdder[STREAMS.length + 1];
+      for (int i = 0; i < linesFound.length; i++) {
+        linesFound[i] = new LongAdder();
+      }
     }
     public void setAllowedStreams(Set<LogStream> allowedStreams) {
       this.allowedStreams = allowedStreams;
     }
 
     public int getTotalLinesFound() {
-      int totalLinesFound = 0;
-      for (Map.Entry<LogStream, Integer> entry : linesFound.entrySet()) {
-        if (allowedStreams == null || allowedStreams.contains(entry.getKey())) {
-          totalLinesFound += entry.getValue();
+      Set<LogStream> allowedStreams = this.allowedStreams;
+      long totalLinesFound = 0;
+      for (int i = 0; i < linesFound.length; i++) {
+        LogStream stream = i < STREAMS.length ? STREAMS[i] : null;
+        if (allowedStreams == null || allowedStreams.contains(stream)) {
+          totalLinesFound += linesFound[i].sum();
         }
       }
 
-      return totalLinesFound;
+      return (int) totalLinesFound;
+    }
+
+    // The filters can be applied in parallel, so this can be called from many threads at the same time
+    public void incrementLineCount(LogStream stream) {
+      counterOf(stream).increment();
+    }
+
+    // Only called when the logs change, never in parallel with the other updates
+    public void decrementLineCount(LogStream stream) {
+      LongAdder counter = counterOf(stream);
+      if (counter.sum() > 0) {
+        counter.decrement();
+      }
+    }
+
+    private LongAdder counterOf(LogStream stream) {
+      return linesFound[stream != null ? stream.ordinal() : STREAMS.length];
     }
 
-    // This method must be synchronized as the filters can be applied in parallel
-    public synchronized void incrementLineCount(LogStream stream) {
-      int currentCount = 0;
-      if (linesFound.containsKey(stream)) {
-        currentCount = linesFound.get(stream);
+    private long[] getLinesFound() {
+      long[] counts = new long[linesFound.length];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = linesFound[i].sum();
       }
 
-      linesFound.put(stream, currentCount + 1);
+      return counts;
     }
 
     @Override
@@ -357,12 +449,13 @@ public class Filter {
       if (this == o) return true;
       if (o == null || getClass() != o.getClass()) return false;
       ContextInfo that = (ContextInfo) o;
-      return Objects.equals(linesFound, that.linesFound) && Objects.equals(allowedStreams, that.allowedStreams);
+      return Arrays.equals(getLinesFound(), that.getLinesFound()) &&
+          Objects.equals(allowedStreams, that.allowedStreams);
     }
 
     @Override
     public int hashCode() {
-      return Objects.hash(linesFound, allowedStreams);
+      return Objects.hash(Arrays.hashCode(getLinesFound()), allowedStreams);
     }
   }
 }
\ No newline at end of file
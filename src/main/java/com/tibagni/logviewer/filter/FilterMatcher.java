@@ -0,0 +1,146 @@
+package com.tibagni.logviewer.filter;
+
+import com.tibagni.logviewer.log.LogEntry;
+import com.tibagni.logviewer.log.LogLevel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Evaluates many filters against the same log lines. The literals of all simple and multi keyword filters are
+ * found with a single scan of each line (See {@link LiteralAutomaton}), so adding more of those filters barely
+ * makes filtering slower. The literals every match of a regex filter contains are found by the same scan, so
+ * the regex only runs on lines that contain them.
+ *
+ * With only a few literal filters, scanning the whole line is slower than searching each literal on its own,
+ * so the filters are evaluated one by one then
+ */
+class FilterMatcher {
+  // Visible for testing
+  static final int MIN_LITERAL_FILTERS = 4;
+
+  private final Filter[] filters;
+  // The ids of the literals of each filter in the automaton of its case sensitivity, or null if the filter is
+  // evaluated on its own
+  private final int[][] literalIds;
+  private final LiteralAutomaton caseSensitiveLiterals;
+  private final LiteralAutomaton caseInsensitiveLiterals;
+  private final int caseSensitiveCount;
+  private final int caseInsensitiveCount;
+
+  FilterMatcher(Filter[] filters) {
+    this.filters = filters;
+    literalIds = new int[filters.length][];
+
+    int literalFilters = 0;
+    for (Filter filter : filters) {
+      if (filter.getLiterals() != null) {
+        literalFilters++;
+      }
+    }
+    if (literalFilters < MIN_LITERAL_FILTERS) {
+      caseSensitiveLiterals = null;
+      caseInsensitiveLiterals = null;
+      caseSensitiveCount = 0;
+      caseInsensitiveCount = 0;
+      return;
+    }
+
+    List<String> caseSensitive = new ArrayList<>();
+    List<String> caseInsensitive = new ArrayList<>();
+    for (int i = 0; i < filters.length; i++) {
+      String[] literals = filters[i].getLiterals();
+      if (literals == null) {
+        continue;
+      }
+
+      List<String> automatonLiterals = filters[i].isCaseSensitive() ? caseSensitive : caseInsensitive;
+      literalIds[i] = new int[literals.length];
+      for (int j = 0; j < literals.length; j++) {
+        literalIds[i][j] = automatonLiterals.size();
+        automatonLiterals.add(literals[j]);
+      }
+    }
+
+    caseSensitiveLiterals = caseSensitive.isEmpty() ? null : new LiteralAutomaton(caseSensitive, true);
+    caseInsensitiveLiterals = caseInsensitive.isEmpty() ? null : new LiteralAutomaton(caseInsensitive, false);
+    caseSensitiveCount = caseSensitive.size();
+    caseInsensitiveCount = caseInsensitive.size();
+  }
+
+  /**
+   * @return A new session to evaluate the filters. Sessions are not thread safe, each thread needs its own
+   */
+  Session newSession() {
+    return new Session();
+  }
+
+  class Session {
+    // The mark of the last scan for each literal found by it, so they don't need to be cleared for every entry
+    private final int[] caseSensitiveFound = new int[caseSensitiveCount];
+    private final int[] caseInsensitiveFound = new int[caseInsensitiveCount];
+    private int mark;
+    private LogEntry entry;
+    private LogLevel level;
+    // Getting the text of an entry may decode it, so it is only done once per entry, and only if needed
+    private CharSequence text;
+
+    /**
+     * Scans the entry once. Then {@link #appliesTo(int)} tells which filters apply to it
+     */
+    void scan(LogEntry entry) {
+      this.entry = entry;
+      this.level = entry.getLogLevel();
+      this.text = null;
+      if (caseSensitiveLiterals == null && caseInsensitiveLiterals == null) {
+        return;
+      }
+
+      if (++mark == 0) {
+        // Wrapped around, so old marks could be mistaken for the new one
+        Arrays.fill(caseSensitiveFound, 0);
+        Arrays.fill(caseInsensitiveFound, 0);
+        mark = 1;
+      }
+      CharSequence text = getText();
+      if (caseSensitiveLiterals != null) {
+        caseSensitiveLiterals.scan(text, caseSensitiveFound, mark);
+      }
+      if (caseInsensitiveLiterals != null) {
+        caseInsensitiveLiterals.scan(text, caseInsensitiveFound, mark);
+      }
+    }
+
+    /**
+     * @return If the filter at 'index' applies to the last scanned entry
+     */
+    boolean appliesTo(int index) {
+      Filter filter = filters[index];
+      if (!filter.allowsLevel(level)) {
+        return false;
+      }
+
+      int[] ids = literalIds[index];
+      if (ids == null) {
+        return filter.appliesTo(getText(), level);
+      }
+
+      int[] found = filter.isCaseSensitive() ? caseSensitiveFound : caseInsensitiveFound;
+      for (int id : ids) {
+        if (found[id] != mark) {
+          return false;
+        }
+      }
+      // The literals of a regex filter are only a prefilter
+      return !filter.isRegexFilter() || filter.appliesTo(getText(), level);
+    }
+
+    private CharSequence getText() {
+      if (text == null) {
+        text = entry.getTextView();
+      }
+      return text;
+    }
+  }
+}
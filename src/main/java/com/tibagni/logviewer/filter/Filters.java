@@ -1,52 +1,99 @@
 package com.tibagni.logviewer.filter;
 
 import com.tibagni.logviewer.ProgressReporter;
+import com.tibagni.logviewer.ProgressTracker;
+import com.tibagni.logviewer.TaskScheduler;
 import com.tibagni.logviewer.log.LogEntry;
 
 import java.util.*;
 
 public class Filters {
 
-  private static class Progress {
-    public final long totalLogs;
-    public final long publishThreshold;
-    public long logsRead;
-    public long logsReadOnProgressPublish;
+  // How many entries each worker filters between each progress update
+  private static final int BLOCK_SIZE = 4096;
 
-    public Progress(long totalLogs) {
-      this.totalLogs = totalLogs;
-      this.publishThreshold = totalLogs / 10;
+  public static List<LogEntry> applyMultipleFilters(List<LogEntry> input, Filter[] filters, ProgressReporter pr) {
+    initializeContextInfo(filters);
+    ProgressTracker tracker = new ProgressTracker(pr, 0, 99, input.size(), ProgressTracker.Unit.ENTRIES);
+    tracker.setDescription("Applying filters...");
+
+    // Each entry is evaluated against all filters, but the literal filters are all evaluated in a single scan
+    // of the entry when there are many of them (See FilterMatcher)
+    FilterMatcher matcher = new FilterMatcher(filters);
+    // The entries are filtered in blocks, so the progress is only updated once per block. Each block keeps the
+    // indexes of its own matches, so the workers don't share anything and the blocks can simply be joined in order
+    int blocks = (input.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    int[][] matchesPerBlock = new int[blocks][];
+    TaskScheduler.get().parallelFor(TaskScheduler.Priority.USER, blocks, block -> {
+      int blockStart = block * BLOCK_SIZE;
+      int blockEnd = Math.min(blockStart + BLOCK_SIZE, input.size());
+      FilterMatcher.Session session = matcher.newSession();
+      int[] matches = new int[blockEnd - blockStart];
+      int matchCount = 0;
+      for (int i = blockStart; i < blockEnd; i++) {
+        LogEntry entry = input.get(i);
+        Filter appliedFilter = getAppliedFilter(entry, session, filters);
+        if (appliedFilter != null) {
+          entry.setAppliedFilter(appliedFilter);
+          matches[matchCount++] = i;
+        }
+      }
+
+      matchesPerBlock[block] = Arrays.copyOf(matches, matchCount);
+      tracker.add(blockEnd - blockStart, blockEnd - blockStart);
+    });
+    tracker.finish();
+
+    int total = 0;
+    for (int[] matches : matchesPerBlock) {
+      total += matches.length;
+    }
+    List<LogEntry> filtered = new ArrayList<>(total);
+    for (int[] matches : matchesPerBlock) {
+      for (int index : matches) {
+        filtered.add(input.get(index));
+      }
     }
+
+    pr.onProgress(100, "Done!");
+    return filtered;
   }
 
-  public static List<LogEntry> applyMultipleFilters(List<LogEntry> input, Filter[] filters, ProgressReporter pr) {
-    initializeContextInfo(filters);
-    // This algorithm is O(n*m), but we can assume the 'filters' array will only contain a few elements
-    // So, in practice, this will be much closer to O(n) than O(nˆ2)
-    List<LogEntry> filtered = new Vector<>();
-    final Progress progress = new Progress(input.size());
-    input.stream().parallel().forEach(entry -> {
-      Filter appliedFilter = getAppliedFilter(entry, filters);
+  /**
+   * Updates the result of {@link #applyMultipleFilters} after the logs changed, without applying the filters
+   * to all logs again. The number of lines found by each filter is updated instead of reset
+   *
+   * @param added   The entries added to the logs
+   * @param removed The entries removed from the logs
+   * @param filters The same filters that were applied before
+   * @return The added entries that matched any of the filters, in order
+   */
+  public static List<LogEntry> applyFiltersToNewEntries(List<LogEntry> added, List<LogEntry> removed,
+                                                        Filter[] filters) {
+    FilterMatcher.Session session = new FilterMatcher(filters).newSession();
+    for (LogEntry entry : removed) {
+      session.scan(entry);
+      for (int i = 0; i < filters.length; i++) {
+        if (filters[i].getTemporaryInfo() != null && session.appliesTo(i)) {
+          filters[i].getTemporaryInfo().decrementLineCount(entry.getStream());
+        }
+      }
+    }
+
+    List<LogEntry> filtered = new ArrayList<>();
+    for (Filter filter : filters) {
+      if (filter.getTemporaryInfo() == null) {
+        filter.initTemporaryInfo();
+      }
+    }
+    for (LogEntry entry : added) {
+      Filter appliedFilter = getAppliedFilter(entry, session, filters);
       if (appliedFilter != null) {
         entry.setAppliedFilter(appliedFilter);
         filtered.add(entry);
       }
+    }
 
-      // This is called A LOT of times, so we try to publish progress update only after a given threshold
-      // to not impact on performance. We don't care about thread synchronization either as it is not
-      // that important that the progress is completely accurate (since there will be so many iterations
-      // here it will not actually make a difference and the progress will be accurate). We only care about
-      // impacting the least possible in performance here
-      progress.logsRead++;
-      if (progress.logsRead > (progress.logsReadOnProgressPublish + progress.publishThreshold)
-              || progress.logsRead >= progress.totalLogs ) {
-        progress.logsReadOnProgressPublish = progress.logsRead;
-        pr.onProgress((int)progress.logsRead * 100 / input.size(), "Applying filters...");
-      }
-    });
-    Collections.sort(filtered);
-
-    pr.onProgress(100, "Done!");
     return filtered;
   }
 
@@ -56,10 +103,12 @@ public class Filters {
     }
   }
 
-  private static Filter getAppliedFilter(LogEntry entry, Filter[] filters) {
+  private static Filter getAppliedFilter(LogEntry entry, FilterMatcher.Session session, Filter[] filters) {
+    session.scan(entry);
     Filter firstFound = null;
-    for (Filter filter : filters) {
-      if (filter.appliesTo(entry)) {
+    for (int i = 0; i < filters.length; i++) {
+      Filter filter = filters[i];
+      if (session.appliesTo(i)) {
         if (firstFound == null) {
           firstFound = filter;
         }
@@ -0,0 +1,144 @@
+package com.tibagni.logviewer.filter;
+
+import java.util.*;
+
+/**
+ * Aho-Corasick automaton that finds many literals in a text scanning it only once, no matter how many
+ * literals there are. Each literal has an id, and a scan marks the ids of all literals found in the text
+ */
+class LiteralAutomaton {
+  private static final int[] NO_OUTPUTS = new int[0];
+  private static final int ASCII = 128;
+
+  private final boolean caseSensitive;
+  // Transitions of each state, sorted by character. The root also has a table for ASCII characters
+  private final char[][] keys;
+  private final int[][] targets;
+  private final int[] rootAscii = new int[ASCII];
+  private final int[] fail;
+  // Ids of all literals that end at each state, including the ones reached through the fail links
+  private final int[][] outputs;
+
+  /**
+   * @param literals The literals to find. The id of each literal is its position in the list
+   */
+  LiteralAutomaton(List<String> literals, boolean caseSensitive) {
+    this.caseSensitive = caseSensitive;
+
+    List<TreeMap<Character, Integer>> children = new ArrayList<>();
+    List<List<Integer>> ends = new ArrayList<>();
+    children.add(new TreeMap<>());
+    ends.add(new ArrayList<>());
+    for (int id = 0; id < literals.size(); id++) {
+      String literal = literals.get(id);
+      int state = 0;
+      for (int i = 0; i < literal.length(); i++) {
+        char c = normalize(literal.charAt(i));
+        Integer next = children.get(state).get(c);
+        if (next == null) {
+          next = children.size();
+          children.add(new TreeMap<>());
+          ends.add(new ArrayList<>());
+          children.get(state).put(c, next);
+        }
+        state = next;
+      }
+      ends.get(state).add(id);
+    }
+
+    int states = children.size();
+    keys = new char[states][];
+    targets = new int[states][];
+    for (int state = 0; state < states; state++) {
+      TreeMap<Character, Integer> transitions = children.get(state);
+      keys[state] = new char[transitions.size()];
+      targets[state] = new int[transitions.size()];
+      int i = 0;
+      for (Map.Entry<Character, Integer> transition : transitions.entrySet()) {
+        keys[state][i] = transition.getKey();
+        targets[state][i] = transition.getValue();
+        i++;
+      }
+    }
+    Arrays.fill(rootAscii, -1);
+    for (int i = 0; i < keys[0].length; i++) {
+      if (keys[0][i] < ASCII) {
+        rootAscii[keys[0][i]] = targets[0][i];
+      }
+    }
+
+    // Breadth first, so the fail state of a state is always complete before the state itself
+    fail = new int[states];
+    outputs = new int[states][];
+    outputs[0] = toArray(ends.get(0));
+    Deque<Integer> queue = new ArrayDeque<>();
+    for (int child : targets[0]) {
+      queue.add(child);
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.poll();
+      List<Integer> stateOutputs = ends.get(state);
+      for (int output : outputs[fail[state]]) {
+        stateOutputs.add(output);
+      }
+      outputs[state] = toArray(stateOutputs);
+
+      for (int i = 0; i < keys[state].length; i++) {
+        int child = targets[state][i];
+        fail[child] = next(fail[state], keys[state][i]);
+        queue.add(child);
+      }
+    }
+  }
+
+  /**
+   * Sets 'found[id]' to 'mark' for the id of each literal found in 'text'
+   */
+  void scan(CharSequence text, int[] found, int mark) {
+    int state = 0;
+    for (int i = 0; i < text.length(); i++) {
+      state = next(state, normalize(text.charAt(i)));
+      for (int id : outputs[state]) {
+        found[id] = mark;
+      }
+    }
+  }
+
+  private int next(int state, char c) {
+    while (true) {
+      int next = transition(state, c);
+      if (next >= 0) {
+        return next;
+      }
+      if (state == 0) {
+        return 0;
+      }
+      state = fail[state];
+    }
+  }
+
+  private int transition(int state, char c) {
+    if (state == 0 && c < ASCII) {
+      return rootAscii[c];
+    }
+
+    int i = Arrays.binarySearch(keys[state], c);
+    return i >= 0 ? targets[state][i] : -1;
+  }
+
+  private char normalize(char c) {
+    return caseSensitive ? c : LiteralMatcher.fold(c);
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    if (list.isEmpty()) {
+      return NO_OUTPUTS;
+    }
+
+    int[] array = new int[list.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = list.get(i);
+    }
+    return array;
+  }
+}
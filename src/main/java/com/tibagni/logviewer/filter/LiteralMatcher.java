@@ -0,0 +1,90 @@
+package com.tibagni.logviewer.filter;
+
+import java.util.Arrays;
+
+/**
+ * Finds a literal text in the log lines without copying them.
+ *
+ * Case insensitive matching folds the text being searched one character at a time while scanning it with
+ * Boyer-Moore-Horspool, instead of lower casing the whole line. The needle is folded only once, here.
+ * The text can be any CharSequence, so lines that were not decoded into a String can be searched as well
+ */
+class LiteralMatcher {
+  // Shifts are kept for the low byte of the folded characters. Characters sharing a byte share the smallest
+  // shift, which is always safe
+  private static final int SHIFT_TABLE_SIZE = 256;
+
+  private final String needle;
+  private final boolean caseSensitive;
+  private final char[] foldedNeedle;
+  private final int[] shifts;
+
+  LiteralMatcher(String needle, boolean caseSensitive) {
+    this.needle = needle;
+    this.caseSensitive = caseSensitive;
+
+    int length = needle.length();
+    foldedNeedle = new char[length];
+    for (int i = 0; i < length; i++) {
+      foldedNeedle[i] = normalize(needle.charAt(i));
+    }
+
+    shifts = new int[SHIFT_TABLE_SIZE];
+    Arrays.fill(shifts, Math.max(1, length));
+    for (int i = 0; i < length - 1; i++) {
+      shifts[foldedNeedle[i] & (SHIFT_TABLE_SIZE - 1)] = length - 1 - i;
+    }
+  }
+
+  /**
+   * @param text The text to search. It is not copied, so it can also be a view over the bytes of a log line
+   */
+  boolean matches(CharSequence text) {
+    if (caseSensitive && text instanceof String) {
+      // String.indexOf is already as fast as it gets for this case
+      return ((String) text).contains(needle);
+    }
+
+    int length = foldedNeedle.length;
+    if (length == 0) {
+      return true;
+    }
+
+    char lastNeedleChar = foldedNeedle[length - 1];
+    int end = length - 1;
+    while (end < text.length()) {
+      char c = normalize(text.charAt(end));
+      if (c == lastNeedleChar && regionMatches(text, end - length + 1)) {
+        return true;
+      }
+
+      end += shifts[c & (SHIFT_TABLE_SIZE - 1)];
+    }
+
+    return false;
+  }
+
+  private boolean regionMatches(CharSequence text, int start) {
+    // The last character was already compared
+    for (int i = foldedNeedle.length - 2; i >= 0; i--) {
+      if (normalize(text.charAt(start + i)) != foldedNeedle[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private char normalize(char c) {
+    return caseSensitive ? c : fold(c);
+  }
+
+  // The same folding String.regionMatches uses to ignore case
+  static char fold(char c) {
+    if (c < 128) {
+      return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+}
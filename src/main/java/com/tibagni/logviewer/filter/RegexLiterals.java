@@ -0,0 +1,174 @@
+package com.tibagni.logviewer.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the literal texts any match of a regex must contain, like "ActivityManager" and "Start proc" in
+ * "ActivityManager.*Start proc". Lines that don't contain them can be rejected without running the regex.
+ *
+ * This is conservative: anything it doesn't fully understand (groups, classes, alternations...) is simply
+ * not used, so the literals found are always required, but not all required literals are always found
+ */
+class RegexLiterals {
+  // Inline flags like (?i) or (?x) change how the literals are matched
+  private static final Pattern INLINE_FLAGS = Pattern.compile("\\(\\?[a-zA-Z-]");
+  // Escaped letters that are not followed by anything that belongs to them
+  private static final String SIMPLE_ESCAPES = "dDsSwWhHvVbBAGzZRXntrfae";
+
+  private RegexLiterals() {
+  }
+
+  /**
+   * @param regex A valid regex
+   * @return The literals that are part of every match of 'regex'. Empty if none were found
+   */
+  static List<String> findRequiredLiterals(String regex) {
+    // \c takes any character as its operand, even the ones that close groups and classes
+    if (regex.contains("\\Q") || regex.contains("\\c") || INLINE_FLAGS.matcher(regex).find()) {
+      return Collections.emptyList();
+    }
+
+    List<String> literals = new ArrayList<>();
+    StringBuilder run = new StringBuilder();
+    int i = 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      switch (c) {
+        case '\\':
+          if (i + 1 >= regex.length()) {
+            return Collections.emptyList();
+          }
+          char escaped = regex.charAt(i + 1);
+          if (!Character.isLetterOrDigit(escaped)) {
+            // Escaped symbols are literal
+            run.append(escaped);
+          } else if (SIMPLE_ESCAPES.indexOf(escaped) >= 0 &&
+              !(i + 2 < regex.length() && regex.charAt(i + 2) == '{')) {
+            // Classes, anchors and control characters that are a single letter
+            endRun(run, literals);
+          } else {
+            // Escapes followed by operands (\x41, \u0041, \0101, \cA, \k<name>, \p{L}...) or back references
+            return Collections.emptyList();
+          }
+          i += 2;
+          break;
+        case '*':
+        case '?':
+        case '{':
+          // The previous character may not be there
+          removeLastCharacter(run);
+          endRun(run, literals);
+          i = c == '{' ? skipPast(regex, i, '}') : i + 1;
+          break;
+        case '+':
+          // The previous character is there, but may be repeated
+          endRun(run, literals);
+          i++;
+          break;
+        case '|':
+          // Groups are skipped, so this is an alternation of the whole regex
+          return Collections.emptyList();
+        case '[':
+          endRun(run, literals);
+          i = skipClass(regex, i);
+          break;
+        case '(':
+          endRun(run, literals);
+          i = skipGroup(regex, i);
+          break;
+        case '.':
+        case '^':
+        case '$':
+          endRun(run, literals);
+          i++;
+          break;
+        default:
+          run.append(c);
+          i++;
+      }
+    }
+    endRun(run, literals);
+
+    return literals;
+  }
+
+  private static void endRun(StringBuilder run, List<String> literals) {
+    if (run.length() > 0) {
+      literals.add(run.toString());
+      run.setLength(0);
+    }
+  }
+
+  private static void removeLastCharacter(StringBuilder run) {
+    int length = run.length();
+    if (length == 0) {
+      return;
+    }
+
+    boolean isSurrogatePair = length > 1 && Character.isLowSurrogate(run.charAt(length - 1)) &&
+        Character.isHighSurrogate(run.charAt(length - 2));
+    run.setLength(length - (isSurrogatePair ? 2 : 1));
+  }
+
+  private static int skipPast(String regex, int start, char end) {
+    int i = regex.indexOf(end, start);
+    return i < 0 ? regex.length() : i + 1;
+  }
+
+  // Returns the index right after the class that starts at 'start'
+  private static int skipClass(String regex, int start) {
+    int i = start + 1;
+    if (i < regex.length() && regex.charAt(i) == '^') {
+      i++;
+    }
+    // A ']' right at the beginning is part of the class
+    if (i < regex.length() && regex.charAt(i) == ']') {
+      i++;
+    }
+
+    int depth = 1;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        depth++;
+      } else if (c == ']' && --depth == 0) {
+        return i + 1;
+      }
+      i++;
+    }
+
+    return regex.length();
+  }
+
+  // Returns the index right after the group that starts at 'start'
+  private static int skipGroup(String regex, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\') {
+        i += 2;
+        continue;
+      }
+      if (c == '[') {
+        i = skipClass(regex, i);
+        continue;
+      }
+      if (c == '(') {
+        depth++;
+      } else if (c == ')' && --depth == 0) {
+        return i + 1;
+      }
+      i++;
+    }
+
+    return regex.length();
+  }
+}
@@ -0,0 +1,55 @@
+package com.tibagni.logviewer.log;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * The text of an entry that only has ASCII characters, read directly from the bytes it is stored in (each byte
+ * is a char), so it can be searched without being decoded into a new String (See {@link LogEntry#getTextView()})
+ */
+class AsciiText implements CharSequence {
+  private final byte[] bytes;
+  private final int offset;
+  private final int length;
+
+  AsciiText(byte[] bytes, int offset, int length) {
+    this.bytes = bytes;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * @return true if the given bytes are all ASCII characters
+   */
+  static boolean isAscii(byte[] bytes, int offset, int length) {
+    for (int i = offset; i < offset + length; i++) {
+      if (bytes[i] < 0) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    Objects.checkIndex(index, length);
+    return (char) bytes[offset + index];
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    Objects.checkFromToIndex(start, end, length);
+    return new AsciiText(bytes, offset + start, end - start);
+  }
+
+  @Override
+  public String toString() {
+    return new String(bytes, offset, length, StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,181 @@
+package com.tibagni.logviewer.log;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A log inside a compressed file: a ".gz" file or an entry of a ".zip" archive (like the bugreports).
+ *
+ * Logs are decompressed while they are read, so they are never extracted to disk or fully inflated in
+ * memory. Each log can be read on its own thread, so the entries of the same archive are decompressed
+ * in parallel when they are parsed
+ */
+public class CompressedLogFile {
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+  private static final byte[] ZIP_MAGIC = {'P', 'K', 3, 4};
+  // Files of a bugreport archive that are not logs. Its "FS/" directory is a copy of device files
+  private static final String FILE_SYSTEM_DIR = "fs/";
+  private static final Set<String> NON_LOG_FILES =
+      new HashSet<>(Arrays.asList("version.txt", "main_entry.txt", "dumpstate_log.txt"));
+
+  private final String path;
+  private final File gzipFile;
+  private final ZipFile zipFile;
+  private final ZipEntry zipEntry;
+
+  private CompressedLogFile(String path, File gzipFile, ZipFile zipFile, ZipEntry zipEntry) {
+    this.path = path;
+    this.gzipFile = gzipFile;
+    this.zipFile = zipFile;
+    this.zipEntry = zipEntry;
+  }
+
+  /**
+   * Compressed files are recognized by their first bytes, not by their names
+   */
+  public static boolean isCompressed(File file) {
+    byte[] header = new byte[ZIP_MAGIC.length];
+    try (InputStream input = new FileInputStream(file)) {
+      int read = input.readNBytes(header, 0, header.length);
+      return startsWith(header, read, GZIP_MAGIC) || startsWith(header, read, ZIP_MAGIC);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static boolean startsWith(byte[] header, int length, byte[] magic) {
+    if (length < magic.length) {
+      return false;
+    }
+
+    for (int i = 0; i < magic.length; i++) {
+      if (header[i] != magic[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * Opens the logs of a compressed file. A ".gz" file has a single log. The logs of a ".zip" archive are its
+   * text files (".txt" or ".log") or all of its files if there is no text file in it. Files that are not logs,
+   * like the "FS/" directory and the version of a bugreport, are left out. The names of the logs are the
+   * archive path followed by the entry name. The logs of an archive must be closed after use
+   */
+  public static List<CompressedLogFile> open(File file) throws IOException {
+    byte[] header = new byte[ZIP_MAGIC.length];
+    int read;
+    try (InputStream input = new FileInputStream(file)) {
+      read = input.readNBytes(header, 0, header.length);
+    }
+
+    if (startsWith(header, read, GZIP_MAGIC)) {
+      return Collections.singletonList(new CompressedLogFile(file.getPath(), file, null, null));
+    }
+
+    ZipFile zipFile = new ZipFile(file);
+    List<CompressedLogFile> logs = new ArrayList<>();
+    try {
+      List<ZipEntry> allEntries = new ArrayList<>();
+      List<ZipEntry> textEntries = new ArrayList<>();
+      Enumeration<? extends ZipEntry> entries = zipFile.entries();
+      while (entries.hasMoreElements()) {
+        ZipEntry entry = entries.nextElement();
+        if (!entry.isDirectory() && !isNonLogEntry(entry)) {
+          allEntries.add(entry);
+          if (isTextEntry(entry)) {
+            textEntries.add(entry);
+          }
+        }
+      }
+
+      for (ZipEntry entry : textEntries.isEmpty() ? allEntries : textEntries) {
+        String path = file.getPath() + File.separator + entry.getName().replace('/', File.separatorChar);
+        logs.add(new CompressedLogFile(path, null, zipFile, entry));
+      }
+    } catch (RuntimeException e) {
+      zipFile.close();
+      throw e;
+    }
+
+    if (logs.isEmpty()) {
+      zipFile.close();
+    }
+
+    return logs;
+  }
+
+  private static boolean isTextEntry(ZipEntry entry) {
+    String name = entry.getName().toLowerCase();
+    return name.endsWith(".txt") || name.endsWith(".log");
+  }
+
+  private static boolean isNonLogEntry(ZipEntry entry) {
+    String name = entry.getName().toLowerCase();
+    String fileName = name.substring(name.lastIndexOf('/') + 1);
+    return name.startsWith(FILE_SYSTEM_DIR) || NON_LOG_FILES.contains(fileName);
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public InputStream openStream() throws IOException {
+    if (gzipFile != null) {
+      return new GZIPInputStream(new FileInputStream(gzipFile), BUFFER_SIZE);
+    }
+
+    return new BufferedInputStream(zipFile.getInputStream(zipEntry), BUFFER_SIZE);
+  }
+
+  /**
+   * Decompresses the log while its lines are consumed. The returned stream must be closed after use
+   */
+  public Stream<String> lines(Charset charset) {
+    try {
+      BufferedReader reader = new BufferedReader(new InputStreamReader(openStream(), charset), BUFFER_SIZE);
+      return reader.lines().onClose(() -> {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public String decodeAll(Charset charset) {
+    try (InputStream input = openStream()) {
+      return new String(input.readAllBytes(), charset);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public void close() {
+    if (zipFile == null) {
+      return;
+    }
+
+    try {
+      zipFile.close();
+    } catch (IOException e) {
+      // Nothing else to do. It was only being read
+    }
+  }
+}
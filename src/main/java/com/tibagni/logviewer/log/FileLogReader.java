@@ -1,25 +1,26 @@
 package com.tibagni.logviewer.log;
 
-import com.tibagni.logviewer.util.StringUtils;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.Charset;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
+/**
+ * {@link LogReader} that streams the log files from disk. Nothing is kept in memory between calls,
+ * each call to {@link #getLines(String)} reads the file again, line by line
+ */
 public class FileLogReader implements LogReader {
   private File[] logFiles;
-  private Map<String, String> logStrings;
+  private Map<String, File> availableLogs;
+  private Charset charset;
 
   private boolean isClosed;
 
   public FileLogReader(File[] logFiles) {
     this.logFiles = logFiles;
-    this.logStrings = new HashMap<>();
+    this.availableLogs = new LinkedHashMap<>();
   }
 
   @Override
@@ -32,53 +33,78 @@ public class FileLogReader implements LogReader {
       throw new LogReaderException("There are no logs to read!");
     }
 
-    File currentFile = null;
-    try {
-      for (File logFile : logFiles) {
-        currentFile = logFile;
-        logStrings.put(currentFile.getPath(), readFile(currentFile, charset));
+    this.charset = charset;
+    for (File logFile : logFiles) {
+      if (!logFile.isFile() || !logFile.canRead()) {
+        throw new LogReaderException("Error reading: " + logFile,
+            new FileNotFoundException(logFile.getPath()));
       }
 
-    } catch (IOException e) {
-      throw new LogReaderException("Error reading: " + currentFile, e);
+      availableLogs.put(logFile.getPath(), logFile);
     }
   }
 
-  private String readFile(File file, Charset charset) throws IOException {
-    String line;
-    StringBuilder builder = new StringBuilder();
+  @Override
+  public int size() {
+    return availableLogs.size();
+  }
 
-    try (BufferedReader reader = new BufferedReader(new FileReader(file, charset))) {
-      while ((line = reader.readLine()) != null) {
-        builder.append(line);
-        builder.append(StringUtils.LINE_SEPARATOR);
+  @Override
+  public String get(String logName) {
+    StringWriter writer = new StringWriter();
+    try (BufferedReader reader = openReader(logName)) {
+      if (reader == null) {
+        return null;
       }
+
+      reader.transferTo(writer);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
 
-    return builder.toString();
+    return writer.toString();
   }
 
   @Override
-  public int size() {
-    return logStrings.size();
+  public Stream<String> getLines(String logName) {
+    try {
+      BufferedReader reader = openReader(logName);
+      if (reader == null) {
+        return Stream.empty();
+      }
+
+      return reader.lines().onClose(() -> {
+        try {
+          reader.close();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
   }
 
-  @Override
-  public String get(String logName) {
-    return logStrings.get(logName);
+  private BufferedReader openReader(String logName) throws IOException {
+    File logFile = availableLogs.get(logName);
+    if (logFile == null) {
+      return null;
+    }
+
+    return new BufferedReader(new FileReader(logFile, charset));
   }
 
   @Override
   public Set<String> getAvailableLogPaths() {
-    return logStrings.keySet();
+    return availableLogs.keySet();
   }
 
   @Override
   public void close() {
     isClosed = true;
 
-    logStrings.clear();
-    logStrings = null;
+    availableLogs.clear();
+    availableLogs = null;
 
     logFiles = null;
   }
@@ -4,20 +4,26 @@ import com.tibagni.logviewer.filter.Filter;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
 import java.util.Objects;
 
+/**
+ * A single log entry. This is a lightweight view over a row of a {@link LogStore}. Entries created
+ * directly (through the constructors) have their own single row store
+ */
 public class LogEntry implements Comparable<LogEntry> {
-
+  private final LogStore.Columns store;
+  private final int row;
   private int index;
-  public final LogTimestamp timestamp;
-  public final String logText;
-  public final LogLevel logLevel;
-  public final LogStream logStream;
-  public final String fileName;
 
-  private Filter appliedFilter;
-  @Nullable
-  private Filter searchFilter;
+  // Only set for detached entries (See 'detach'). This is where the entry was copied from, so it can
+  // keep following the filters applied to the original entry while its logs are still open
+  private final Reference<LogStore.Columns> origin;
+  private final int originRow;
+
+  // Only created when needed, for display
+  private LogTimestamp timestamp;
 
   public LogEntry(String logText, LogLevel logLevel, LogTimestamp timestamp) {
     this(logText, logLevel, timestamp, "", "");
@@ -28,27 +34,98 @@ public class LogEntry implements Comparable<LogEntry> {
   }
 
   public LogEntry(String logText, LogLevel logLevel, LogTimestamp timestamp, String logName, String fileName) {
-    this.logText = logText;
-    this.logLevel = logLevel;
+    this(logText, logLevel, timestamp != null ? timestamp.toKey() : LogTimestamp.NO_TIMESTAMP, logName, fileName);
     this.timestamp = timestamp;
-    this.logStream = LogStream.inferLogStreamFromName(logName);
-    this.fileName = fileName;
+  }
+
+  public LogEntry(String logText, LogLevel logLevel, long timestampKey, String logName, String fileName) {
+    this(LogStore.single(logText, logLevel, timestampKey, -1, -1, logName, fileName), 0, 0);
+  }
+
+  LogEntry(LogStore.Columns store, int row, int index) {
+    this(store, row, index, null, -1);
+  }
+
+  private LogEntry(LogStore.Columns store, int row, int index, Reference<LogStore.Columns> origin, int originRow) {
+    this.store = store;
+    this.row = row;
+    this.index = index;
+    this.origin = origin;
+    this.originRow = originRow;
+  }
+
+  /**
+   * Creates a copy of this entry that does not depend on the {@link LogStore} it came from, so it can be
+   * kept around without keeping all the other entries of its store in memory
+   */
+  public LogEntry detach() {
+    LogStore.Source source = store.getSource(row);
+    LogStore.Columns copy = LogStore.single(getLogText(), getLogLevel(), getTimestampKey(), getPid(), getTid(),
+        source.logName, source.fileName);
+    copy.setAppliedFilter(0, getAppliedFilter());
+    copy.setSearchFilter(0, getSearchFilter());
+
+    LogEntry detached = new LogEntry(copy, 0, index, new WeakReference<>(store), row);
+    detached.timestamp = timestamp;
+    return detached;
   }
 
   public String getLogText() {
-    return logText;
+    return store.getText(row);
+  }
+
+  /**
+   * The text of this entry, for searching it. Unlike {@link #getLogText()}, the text is not copied when it is
+   * only made of ASCII characters. Don't keep it, use {@link #getLogText()} for that
+   */
+  public CharSequence getTextView() {
+    return store.getTextView(row);
   }
 
   public LogLevel getLogLevel() {
-    return logLevel;
+    return store.getLogLevel(row);
+  }
+
+  @Nullable
+  public LogTimestamp getTimestamp() {
+    // Timestamps are immutable, so there is no harm if this is created more than once
+    if (timestamp == null) {
+      timestamp = LogTimestamp.fromKey(getTimestampKey());
+    }
+
+    return timestamp;
+  }
+
+  public long getTimestampKey() {
+    return store.getTimestampKey(row);
+  }
+
+  /**
+   * @return The process id of this entry or -1 if it is unknown
+   */
+  public int getPid() {
+    return store.getPid(row);
+  }
+
+  /**
+   * @return The thread id of this entry or -1 if it is unknown
+   */
+  public int getTid() {
+    return store.getTid(row);
   }
 
   public Filter getAppliedFilter() {
-    return appliedFilter;
+    LogStore.Columns originStore = getOrigin();
+    return originStore != null ? originStore.getAppliedFilter(originRow) : store.getAppliedFilter(row);
   }
 
   public void setAppliedFilter(Filter appliedFilter) {
-    this.appliedFilter = appliedFilter;
+    // The copy is also updated, so it keeps the filter once the origin is gone
+    LogStore.Columns originStore = getOrigin();
+    if (originStore != null) {
+      originStore.setAppliedFilter(originRow, appliedFilter);
+    }
+    store.setAppliedFilter(row, appliedFilter);
   }
 
   public int getIndex() {
@@ -60,27 +137,38 @@ public class LogEntry implements Comparable<LogEntry> {
   }
 
   public LogStream getStream() {
-    return logStream;
+    return store.getSource(row).stream;
   }
 
   public String getFileName() {
-    return fileName;
+    return store.getSource(row).fileName;
   }
 
   public int getLength() {
-    return logText.length();
+    return getLogText().length();
   }
 
   @Nullable
   public Filter getSearchFilter() {
-    return searchFilter;
+    LogStore.Columns originStore = getOrigin();
+    return originStore != null ? originStore.getSearchFilter(originRow) : store.getSearchFilter(row);
   }
 
   public LogEntry setSearchFilter(@Nullable Filter searchFilter) {
-    this.searchFilter = searchFilter;
+    LogStore.Columns originStore = getOrigin();
+    if (originStore != null) {
+      originStore.setSearchFilter(originRow, searchFilter);
+    }
+    store.setSearchFilter(row, searchFilter);
     return this;
   }
 
+  // The store a detached entry was copied from, while its logs are still open
+  @Nullable
+  private LogStore.Columns getOrigin() {
+    return origin != null ? origin.get() : null;
+  }
+
   @Override
   public String toString() {
     return getLogText();
@@ -88,11 +176,8 @@ public class LogEntry implements Comparable<LogEntry> {
 
   @Override
   public int compareTo(@NotNull LogEntry o) {
-    if (timestamp == null && o.timestamp == null) return 0;
-    if (timestamp == null) return -1;
-    if (o.timestamp == null) return 1;
-
-    int time = timestamp.compareTo(o.timestamp);
+    // Entries without a timestamp have the smallest key, so they come first
+    int time = Long.compare(getTimestampKey(), o.getTimestampKey());
     // compare index if same time
     return time == 0 ? Integer.compare(index, o.index) : time;
   }
@@ -102,16 +187,21 @@ public class LogEntry implements Comparable<LogEntry> {
     if (this == o) return true;
     if (o == null || getClass() != o.getClass()) return false;
     LogEntry logEntry = (LogEntry) o;
+    if (store == logEntry.store && row == logEntry.row) {
+      // Two views of the same row. No need to compare everything
+      return index == logEntry.index;
+    }
+
     return index == logEntry.index &&
-        Objects.equals(timestamp, logEntry.timestamp) &&
-        Objects.equals(logText, logEntry.logText) &&
-        logLevel == logEntry.logLevel &&
-        logStream == logEntry.logStream &&
-        Objects.equals(fileName, logEntry.fileName);
+        getTimestampKey() == logEntry.getTimestampKey() &&
+        getLogLevel() == logEntry.getLogLevel() &&
+        getStream() == logEntry.getStream() &&
+        Objects.equals(getFileName(), logEntry.getFileName()) &&
+        Objects.equals(getLogText(), logEntry.getLogText());
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(index, timestamp, logText, logLevel, logStream, fileName);
+    return Objects.hash(index, getTimestampKey(), getLogText(), getLogLevel(), getStream(), getFileName());
   }
 }
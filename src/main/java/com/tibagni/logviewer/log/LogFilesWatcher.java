@@ -0,0 +1,137 @@
+package com.tibagni.logviewer.log;
+
+import com.tibagni.logviewer.logger.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notifies when any of the given log files changes, so they can be followed while they are being written.
+ *
+ * The directories of the logs are watched with a {@link WatchService} when it is available. As watch events
+ * are not reliable on every file system (and not even available on some), the size and modification time
+ * of the logs are also checked periodically
+ */
+public class LogFilesWatcher {
+  private static final long DEFAULT_POLL_INTERVAL_MS = 1000;
+
+  public interface Listener {
+    /**
+     * Called from the watcher thread when any of the logs changed
+     */
+    void onLogFilesChanged();
+  }
+
+  private final File[] logFiles;
+  private final Listener listener;
+  private final long pollIntervalMs;
+  private Thread watcherThread;
+
+  public LogFilesWatcher(File[] logFiles, Listener listener) {
+    this(logFiles, listener, DEFAULT_POLL_INTERVAL_MS);
+  }
+
+  // Visible for testing
+  LogFilesWatcher(File[] logFiles, Listener listener, long pollIntervalMs) {
+    this.logFiles = logFiles;
+    this.listener = listener;
+    this.pollIntervalMs = pollIntervalMs;
+  }
+
+  public synchronized void start() {
+    if (watcherThread != null) {
+      return;
+    }
+
+    // Changes are checked against how the logs are now, not when the thread starts running
+    long[] sizes = new long[logFiles.length];
+    long[] modifiedTimes = new long[logFiles.length];
+    for (int i = 0; i < logFiles.length; i++) {
+      sizes[i] = logFiles[i].length();
+      modifiedTimes[i] = logFiles[i].lastModified();
+    }
+
+    watcherThread = new Thread(() -> watch(sizes, modifiedTimes), "LogFilesWatcher");
+    watcherThread.setDaemon(true);
+    watcherThread.start();
+  }
+
+  public synchronized void stop() {
+    if (watcherThread != null) {
+      watcherThread.interrupt();
+      watcherThread = null;
+    }
+  }
+
+  private void watch(long[] lastSizes, long[] lastModifiedTimes) {
+    WatchService watchService = createWatchService();
+    try {
+      while (!Thread.currentThread().isInterrupted()) {
+        // Watch events only wake up the watcher earlier. The logs are checked either way
+        if (watchService != null) {
+          WatchKey key = watchService.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+          if (key != null) {
+            key.pollEvents();
+            key.reset();
+          }
+        } else {
+          Thread.sleep(pollIntervalMs);
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < logFiles.length; i++) {
+          long size = logFiles[i].length();
+          long lastModified = logFiles[i].lastModified();
+          if (size != lastSizes[i] || lastModified != lastModifiedTimes[i]) {
+            lastSizes[i] = size;
+            lastModifiedTimes[i] = lastModified;
+            changed = true;
+          }
+        }
+
+        if (changed) {
+          listener.onLogFilesChanged();
+        }
+      }
+    } catch (InterruptedException | ClosedWatchServiceException e) {
+      // Stopped. Nothing else to do
+    } finally {
+      closeWatchService(watchService);
+    }
+  }
+
+  private WatchService createWatchService() {
+    try {
+      WatchService watchService = FileSystems.getDefault().newWatchService();
+      Set<Path> directories = new HashSet<>();
+      for (File logFile : logFiles) {
+        File directory = logFile.getAbsoluteFile().getParentFile();
+        if (directory != null && directories.add(directory.toPath())) {
+          directory.toPath().register(watchService,
+              StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        }
+      }
+
+      return watchService;
+    } catch (IOException | UnsupportedOperationException e) {
+      Logger.warning("Could not watch the log files. Checking them periodically instead", e);
+      return null;
+    }
+  }
+
+  private void closeWatchService(WatchService watchService) {
+    if (watchService == null) {
+      return;
+    }
+
+    try {
+      watchService.close();
+    } catch (IOException e) {
+      Logger.warning("Failed to close the watch service", e);
+    }
+  }
+}
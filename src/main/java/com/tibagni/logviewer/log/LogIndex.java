@@ -0,0 +1,325 @@
+package com.tibagni.logviewer.log;
+
+import com.tibagni.logviewer.TaskScheduler;
+import com.tibagni.logviewer.logger.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the result of parsing big logs on disk, so they can be opened again without being parsed.
+ *
+ * Each index has all the columns of the entries of a single log (See {@link LogStore}). The text of the
+ * entries is not in the index, only where it is in the log. It is decoded from there when needed, even if
+ * the text is not kept in the mapped files. Indexes are only valid while the log has the same size and
+ * modification time
+ */
+public class LogIndex {
+  private static final int MAGIC = 0x4C56494E; // "LVIN"
+  private static final int VERSION = 1;
+  private static final String INDEX_EXTENSION = ".idx";
+  // Small logs are parsed fast enough, it is not worth indexing them
+  private static final long DEFAULT_MIN_LOG_SIZE = 16 * 1024 * 1024;
+  // Only the indexes of the most recently opened logs are kept, up to this many and this size
+  private static final int MAX_INDEXES = 32;
+  private static final long DEFAULT_MAX_INDEXES_SIZE = 2L * 1024 * 1024 * 1024;
+  // Temporary files this old were left behind by a write that never finished
+  private static final long TEMPORARY_FILE_MAX_AGE_MS = TimeUnit.DAYS.toMillis(1);
+  private static final String TEMPORARY_FILE_PREFIX = "index";
+  private static final String TEMPORARY_FILE_EXTENSION = ".tmp";
+
+  private final File directory;
+  private final long minLogSize;
+  private final long maxIndexesSize;
+  private final Executor writeExecutor;
+
+  /**
+   * Indexes are written in the background. Nobody needs to wait for them
+   */
+  public LogIndex(File directory) {
+    this(directory, DEFAULT_MIN_LOG_SIZE, TaskScheduler.get().executor(TaskScheduler.Priority.BACKGROUND));
+  }
+
+  /**
+   * Indexes are written right away, by the thread that saves them
+   */
+  public LogIndex(File directory, long minLogSize) {
+    this(directory, minLogSize, Runnable::run);
+  }
+
+  public LogIndex(File directory, long minLogSize, Executor writeExecutor) {
+    this(directory, minLogSize, DEFAULT_MAX_INDEXES_SIZE, writeExecutor);
+  }
+
+  /**
+   * @param maxIndexesSize How many bytes all the indexes can take. The least recently used are deleted first
+   */
+  public LogIndex(File directory, long minLogSize, long maxIndexesSize, Executor writeExecutor) {
+    this.directory = directory;
+    this.minLogSize = minLogSize;
+    this.maxIndexesSize = maxIndexesSize;
+    this.writeExecutor = writeExecutor;
+  }
+
+  public boolean shouldIndex(MappedLogFile log) {
+    return log.size() >= minLogSize;
+  }
+
+  /**
+   * Reads the index of the given log
+   *
+   * @param log      The mapped log. The text of the indexed entries will be read from it
+   * @param fileName The file name to be used for the entries of this log
+   * @return The indexed log or null if there is no valid index for it
+   */
+  public IndexedLog load(MappedLogFile log, String fileName) {
+    File logFile = new File(log.getPath());
+    File indexFile = getIndexFile(logFile, log.getCharset());
+    if (!indexFile.isFile()) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(indexFile.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (index.getInt() != MAGIC || index.getInt() != VERSION ||
+          !readString(index).equals(logFile.getAbsolutePath()) ||
+          !readString(index).equals(log.getCharset().name()) ||
+          !readString(index).equals(System.lineSeparator()) ||
+          index.getLong() != logFile.length() || index.getLong() != logFile.lastModified()) {
+        Logger.debug("Index is outdated: " + indexFile);
+        return null;
+      }
+
+      boolean potentialBugReport = index.get() != 0;
+      int count = index.getInt();
+      int copiedTextLength = index.getInt();
+
+      long[] timestampKeys = new long[count];
+      byte[] logLevels = new byte[count];
+      int[] pids = new int[count];
+      int[] tids = new int[count];
+      long[] textPositions = new long[count];
+      int[] textLengths = new int[count];
+      byte[] copiedText = new byte[copiedTextLength];
+      index.asLongBuffer().get(timestampKeys);
+      index.position(index.position() + count * Long.BYTES);
+      index.get(logLevels);
+      index.asIntBuffer().get(pids);
+      index.position(index.position() + count * Integer.BYTES);
+      index.asIntBuffer().get(tids);
+      index.position(index.position() + count * Integer.BYTES);
+      index.asLongBuffer().get(textPositions);
+      index.position(index.position() + count * Long.BYTES);
+      index.asIntBuffer().get(textLengths);
+      index.position(index.position() + count * Integer.BYTES);
+      index.get(copiedText);
+
+      // Mark it as recently used, so it is not deleted to give space to other indexes
+      indexFile.setLastModified(System.currentTimeMillis());
+
+      LogStore.Builder entries = LogStore.Builder.fromIndex(log, log.getPath(), fileName, timestampKeys, logLevels,
+          pids, tids, textPositions, textLengths, copiedText);
+      return new IndexedLog(entries, potentialBugReport);
+    } catch (IOException | RuntimeException e) {
+      // A corrupted index is just ignored. It will be written again
+      Logger.warning("Failed to read index " + indexFile, e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the index of the given log. The entries must not be changed anymore
+   *
+   * @param log                The mapped log
+   * @param chunks             All the entries of this log, in the order they were parsed
+   * @param potentialBugReport If this log looks like a bugreport
+   */
+  public void save(MappedLogFile log, List<LogStore.Builder> chunks, boolean potentialBugReport) {
+    writeExecutor.execute(() -> write(log, chunks, potentialBugReport));
+  }
+
+  private void write(MappedLogFile log, List<LogStore.Builder> chunks, boolean potentialBugReport) {
+    File logFile = new File(log.getPath());
+    File indexFile = getIndexFile(logFile, log.getCharset());
+
+    File temporaryFile = null;
+    try {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+        throw new IOException("Could not create " + directory);
+      }
+
+      temporaryFile = File.createTempFile(TEMPORARY_FILE_PREFIX, TEMPORARY_FILE_EXTENSION, directory);
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(temporaryFile), 64 * 1024))) {
+        writeIndex(out, logFile, log.getCharset(), chunks, potentialBugReport);
+      }
+
+      // Never leave a partially written index behind
+      Files.move(temporaryFile.toPath(), indexFile.toPath(),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      deleteOldIndexes();
+    } catch (IOException e) {
+      Logger.warning("Failed to write index for " + logFile, e);
+      if (temporaryFile != null) {
+        temporaryFile.delete();
+      }
+    }
+  }
+
+  private void writeIndex(DataOutputStream out, File logFile, Charset charset, List<LogStore.Builder> chunks,
+                          boolean potentialBugReport) throws IOException {
+    int count = 0;
+    int copiedTextLength = 0;
+    for (LogStore.Builder chunk : chunks) {
+      count += chunk.size();
+      for (int row = 0; row < chunk.size(); row++) {
+        if (!chunk.isMapped(row)) {
+          copiedTextLength += chunk.getTextLength(row);
+        }
+      }
+    }
+
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+    writeString(out, logFile.getAbsolutePath());
+    writeString(out, charset.name());
+    // Line separators are part of the text of the entries, so they must be the same
+    writeString(out, System.lineSeparator());
+    out.writeLong(logFile.length());
+    out.writeLong(logFile.lastModified());
+    out.writeBoolean(potentialBugReport);
+    out.writeInt(count);
+    out.writeInt(copiedTextLength);
+
+    for (LogStore.Builder chunk : chunks) {
+      for (int row = 0; row < chunk.size(); row++) {
+        out.writeLong(chunk.getTimestampKey(row));
+      }
+    }
+    for (LogStore.Builder chunk : chunks) {
+      for (int row = 0; row < chunk.size(); row++) {
+        out.writeByte(chunk.getLogLevel(row).ordinal());
+      }
+    }
+    for (LogStore.Builder chunk : chunks) {
+      for (int row = 0; row < chunk.size(); row++) {
+        out.writeInt(chunk.getPid(row));
+      }
+    }
+    for (LogStore.Builder chunk : chunks) {
+      for (int row = 0; row < chunk.size(); row++) {
+        out.writeInt(chunk.getTid(row));
+      }
+    }
+
+    // Text that is not mapped is written after all columns, in the same order of the entries
+    int copiedTextPosition = 0;
+    for (LogStore.Builder chunk : chunks) {
+      for (int row = 0; row < chunk.size(); row++) {
+        if (chunk.isMapped(row)) {
+          out.writeLong(chunk.getMappedTextPosition(row));
+        } else {
+          out.writeLong(copiedTextPosition);
+          copiedTextPosition += chunk.getTextLength(row);
+        }
+      }
+    }
+    for (LogStore.Builder chunk : chunks) {
+      for (int row = 0; row < chunk.size(); row++) {
+        out.writeInt(chunk.getTextLength(row));
+      }
+    }
+    for (LogStore.Builder chunk : chunks) {
+      for (int row = 0; row < chunk.size(); row++) {
+        if (!chunk.isMapped(row)) {
+          chunk.writeText(row, out);
+        }
+      }
+    }
+  }
+
+  private void deleteOldIndexes() {
+    File[] indexes = directory.listFiles((dir, name) -> name.endsWith(INDEX_EXTENSION));
+    if (indexes == null) {
+      return;
+    }
+
+    // The most recently used index (the one just written) is always kept, even if it is too big by itself
+    Arrays.sort(indexes, Comparator.comparingLong(File::lastModified).reversed());
+    long totalSize = 0;
+    for (int i = 0; i < indexes.length; i++) {
+      totalSize += indexes[i].length();
+      if (i > 0 && (i >= MAX_INDEXES || totalSize > maxIndexesSize)) {
+        delete(indexes[i]);
+      }
+    }
+
+    long now = System.currentTimeMillis();
+    File[] temporaryFiles = directory.listFiles((dir, name) ->
+        name.startsWith(TEMPORARY_FILE_PREFIX) && name.endsWith(TEMPORARY_FILE_EXTENSION));
+    if (temporaryFiles != null) {
+      for (File temporaryFile : temporaryFiles) {
+        if (now - temporaryFile.lastModified() > TEMPORARY_FILE_MAX_AGE_MS) {
+          delete(temporaryFile);
+        }
+      }
+    }
+  }
+
+  private static void delete(File file) {
+    if (!file.delete()) {
+      Logger.warning("Could not delete old index " + file);
+    }
+  }
+
+  // Visible for testing
+  File getIndexFile(File logFile, Charset charset) {
+    String key = logFile.getAbsolutePath() + "\n" + charset.name();
+    return new File(directory, UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + INDEX_EXTENSION);
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public static class IndexedLog {
+    private final LogStore.Builder entries;
+    private final boolean potentialBugReport;
+
+    IndexedLog(LogStore.Builder entries, boolean potentialBugReport) {
+      this.entries = entries;
+      this.potentialBugReport = potentialBugReport;
+    }
+
+    /**
+     * @return All entries of the log, in the same order they are in the log
+     */
+    public LogStore.Builder getEntries() {
+      return entries;
+    }
+
+    public boolean isPotentialBugReport() {
+      return potentialBugReport;
+    }
+  }
+}
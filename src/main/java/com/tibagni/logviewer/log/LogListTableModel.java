@@ -7,7 +7,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class LogListTableModel extends AbstractTableModel {
-  protected final List<LogEntry> entries = new ArrayList<>();
+  protected List<LogEntry> entries = new ArrayList<>();
   protected final String title;
 
   public LogListTableModel(String title) {
@@ -49,8 +49,12 @@ public class LogListTableModel extends AbstractTableModel {
   }
 
   public void setLogs(List<LogEntry> entries) {
-    this.entries.clear();
-    this.entries.addAll(entries);
+    if (entries instanceof LogStore) {
+      // Stores are read only, so there is no need to copy all entries
+      this.entries = entries;
+    } else {
+      this.entries = new ArrayList<>(entries);
+    }
     fireTableRowsInserted(0, this.entries.size() - 1);
   }
 
@@ -58,7 +62,7 @@ public class LogListTableModel extends AbstractTableModel {
     if (entries.isEmpty()) return;
 
     int index = entries.size() - 1;
-    entries.clear();
+    entries = new ArrayList<>();
     fireTableRowsDeleted(0, index);
   }
 }
@@ -2,6 +2,7 @@ package com.tibagni.logviewer.log;
 
 import java.nio.charset.Charset;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface LogReader {
   void readLogs(Charset charset) throws LogReaderException;
@@ -10,6 +11,28 @@ public interface LogReader {
 
   String get(String logName);
 
+  /**
+   * Streams the lines of a log, so the log never needs to be fully loaded in memory to be parsed.
+   * The returned stream holds resources and must be closed after use.
+   *
+   * @param logName The log to be read
+   * @return The lines of the log, without the line terminators
+   */
+  default Stream<String> getLines(String logName) {
+    String logText = get(logName);
+    return logText != null ? logText.lines() : Stream.empty();
+  }
+
+  /**
+   * Gives direct access to the bytes of a log, for readers that are able to memory-map them.
+   *
+   * @param logName The log to be accessed
+   * @return The mapped log or null if this log can only be accessed through {@link #get(String)}
+   */
+  default MappedLogFile getMappedLog(String logName) {
+    return null;
+  }
+
   Set<String> getAvailableLogPaths();
 
   void close();
@@ -0,0 +1,864 @@
+package com.tibagni.logviewer.log;
+
+import com.tibagni.logviewer.filter.Filter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Column oriented ("struct of arrays") storage of log entries.
+ *
+ * Instead of one object per log line, each attribute of the entries is kept in its own primitive array
+ * and the text of all entries is kept in a few big shared buffers. {@link LogEntry} objects are only
+ * lightweight views over a row of this store, created when they are requested.
+ *
+ * The text of an entry can also stay in the mapped log file it came from (See {@link Builder#addMapped}).
+ * In this case only its position is kept and the text is decoded again when it is needed.
+ *
+ * A LogStore is a read-only list. Only the filter state of each entry (applied and search filters) can change
+ */
+public class LogStore extends AbstractList<LogEntry> implements RandomAccess {
+  public static final LogStore EMPTY = new Builder(0).build();
+  // Shown instead of the text of entries that are no longer in their (mapped) log files
+  public static final String UNAVAILABLE_TEXT = "<text not available: the log file was truncated>";
+
+  private final Columns columns;
+  // A LogStore can also be a slice of another one (See subList)
+  private final int offset;
+  private final int size;
+
+  private LogStore(Columns columns, int offset, int size) {
+    this.columns = columns;
+    this.offset = offset;
+    this.size = size;
+  }
+
+  @Override
+  public LogEntry get(int index) {
+    Objects.checkIndex(index, size);
+    int row = offset + index;
+    return new LogEntry(columns, row, row);
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Slices share the same storage of the original store, so this is O(1). Entries keep the same index
+   */
+  @Override
+  public LogStore subList(int fromIndex, int toIndex) {
+    Objects.checkFromToIndex(fromIndex, toIndex, size);
+    return new LogStore(columns, offset + fromIndex, toIndex - fromIndex);
+  }
+
+  /**
+   * Creates a copy of this store that decodes the text of its entries with another charset. This is only
+   * possible if the text of all entries is still in the mapped log files, so nothing has to be read again
+   *
+   * @return The new store or null if the logs have to be parsed again
+   */
+  public LogStore withCharset(Charset charset) {
+    Columns newColumns = columns.withCharset(charset);
+    return newColumns != null ? new LogStore(newColumns, offset, size) : null;
+  }
+
+  /**
+   * Finds the last entry with the given attributes. The entries must be in time order
+   *
+   * @return The index of the entry or -1 if it is not in this store
+   */
+  public int findLastEntry(String logName, long timestampKey, String logText) {
+    // Find the first entry after the given timestamp and walk back from there
+    int low = offset;
+    int high = offset + size;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (columns.timestampKeys[middle] <= timestampKey) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    for (int row = low - 1; row >= offset && columns.timestampKeys[row] == timestampKey; row--) {
+      if (columns.getSource(row).logName.equals(logName) && logText.contentEquals(columns.getTextView(row))) {
+        return row - offset;
+      }
+    }
+
+    return -1;
+  }
+
+  /**
+   * @return The entries of this store that have an applied filter, in order. The filters are not evaluated again
+   */
+  public List<LogEntry> getEntriesWithAppliedFilter() {
+    return getEntriesWithAppliedFilter(offset);
+  }
+
+  /**
+   * Same as {@link #getEntriesWithAppliedFilter()}, but only looks at the entries from the given index on
+   *
+   * @param fromIndex Index (See {@link LogEntry#getIndex()}) of the first entry to look at
+   */
+  public List<LogEntry> getEntriesWithAppliedFilter(int fromIndex) {
+    List<LogEntry> entries = new ArrayList<>();
+    Filter[] appliedFilters = columns.appliedFilters;
+    if (appliedFilters == null) {
+      return entries;
+    }
+
+    for (int row = Math.max(offset, fromIndex); row < offset + size; row++) {
+      if (appliedFilters[row] != null) {
+        entries.add(new LogEntry(columns, row, row));
+      }
+    }
+
+    return entries;
+  }
+
+  /**
+   * Finds entries of the store this one was refreshed from in this store, so they don't keep the old store in
+   * memory. The entries dropped from the start of the old store (or outside of this slice) are left out
+   *
+   * @param entries    Entries of the old store, in order
+   * @param indexShift How much the index of the entries moved back in this store
+   * @param endIndex   Index of the first entry of this store that is not the same as in the old store. Entries
+   *                   from there on are left out too
+   * @return The entries that are still in this store, in order
+   */
+  public List<LogEntry> findMovedEntries(List<LogEntry> entries, int indexShift, int endIndex) {
+    List<LogEntry> moved = new ArrayList<>();
+    int end = Math.min(endIndex, offset + size);
+    for (LogEntry entry : entries) {
+      int row = entry.getIndex() - indexShift;
+      if (row >= end) {
+        break;
+      }
+      if (row >= offset) {
+        moved.add(new LogEntry(columns, row, row));
+      }
+    }
+
+    return moved;
+  }
+
+  /**
+   * Creates a new store with the entries of this store and the entries that were appended to its logs.
+   * The filters applied to the entries of this store are kept, so only the appended entries need to be
+   * filtered. Nothing is copied but the columns, the text is shared with both stores
+   *
+   * @param appended        The appended entries
+   * @param removedRows     Indexes of the entries of this store that are not part of the new store, in order
+   * @param appendedIndexes Filled with the index of each appended entry in the new store
+   * @param inTimeOrder     If both stores are in time order. The entries are merged in time order, entries from
+   *                        this store coming first when they have the same timestamp. Otherwise, the appended
+   *                        entries are simply added after the entries of this store
+   * @return The new store
+   */
+  public LogStore mergeAppended(LogStore appended, int[] removedRows, int[] appendedIndexes, boolean inTimeOrder) {
+    if (offset != 0 || size != columns.timestampKeys.length ||
+        appended.offset != 0 || appended.size != appended.columns.timestampKeys.length) {
+      throw new IllegalArgumentException("Only complete stores can be merged");
+    }
+
+    Columns from = columns;
+    Columns other = appended.columns;
+
+    // Sources and text pages of the appended entries are added after the ones of this store. A log that grew
+    // is mapped again, so its new source replaces the old one (the old text is still at the same positions)
+    List<Source> sourceTable = new ArrayList<>(Arrays.asList(from.sourceTable));
+    short[] otherSources = new short[other.sourceTable.length];
+    for (int i = 0; i < other.sourceTable.length; i++) {
+      int sourceId = -1;
+      for (int j = 0; j < sourceTable.size() && sourceId < 0; j++) {
+        if (sourceTable.get(j).logName.equals(other.sourceTable[i].logName)) {
+          sourceId = j;
+          sourceTable.set(j, other.sourceTable[i]);
+        }
+      }
+      if (sourceId < 0) {
+        sourceId = sourceTable.size();
+        sourceTable.add(other.sourceTable[i]);
+      }
+      otherSources[i] = (short) sourceId;
+    }
+    byte[][] textPages = Arrays.copyOf(from.textPages, from.textPages.length + other.textPages.length);
+    System.arraycopy(other.textPages, 0, textPages, from.textPages.length, other.textPages.length);
+    long otherPagesStart = (long) from.textPages.length << 32;
+
+    int newSize = size - removedRows.length + appended.size;
+    long[] timestampKeys = new long[newSize];
+    byte[] logLevels = new byte[newSize];
+    short[] sources = new short[newSize];
+    int[] pids = new int[newSize];
+    int[] tids = new int[newSize];
+    long[] textPositions = new long[newSize];
+    int[] textLengths = new int[newSize];
+    Filter[] appliedFilters = from.appliedFilters != null ? new Filter[newSize] : null;
+    Filter[] searchFilters = from.searchFilters != null ? new Filter[newSize] : null;
+    int mappedEntries = 0;
+
+    int row = 0;
+    int otherRow = 0;
+    int removed = 0;
+    for (int i = 0; i < newSize; i++) {
+      while (removed < removedRows.length && removedRows[removed] == row) {
+        removed++;
+        row++;
+      }
+
+      boolean takeOwn = row < size && (otherRow >= appended.size || !inTimeOrder ||
+          from.timestampKeys[row] <= other.timestampKeys[otherRow]);
+      Columns source = takeOwn ? from : other;
+      int sourceRow = takeOwn ? row++ : otherRow++;
+      long textPosition = source.textPositions[sourceRow];
+
+      timestampKeys[i] = source.timestampKeys[sourceRow];
+      logLevels[i] = source.logLevels[sourceRow];
+      sources[i] = takeOwn ? source.sources[sourceRow] : otherSources[source.sources[sourceRow]];
+      pids[i] = source.pids[sourceRow];
+      tids[i] = source.tids[sourceRow];
+      textPositions[i] = textPosition < 0 || takeOwn ? textPosition : textPosition + otherPagesStart;
+      textLengths[i] = source.textLengths[sourceRow];
+      if (textPosition < 0) {
+        mappedEntries++;
+      }
+
+      if (takeOwn) {
+        if (appliedFilters != null) {
+          appliedFilters[i] = from.appliedFilters[sourceRow];
+        }
+        if (searchFilters != null) {
+          searchFilters[i] = from.searchFilters[sourceRow];
+        }
+      } else {
+        appendedIndexes[sourceRow] = i;
+      }
+    }
+
+    Columns merged = new Columns(timestampKeys, logLevels, sources, pids, tids, textPositions, textLengths,
+        sourceTable.toArray(new Source[0]), textPages, newSize > 0 && mappedEntries == newSize, mappedEntries > 0);
+    merged.appliedFilters = appliedFilters;
+    merged.searchFilters = searchFilters;
+    return new LogStore(merged, 0, newSize);
+  }
+
+  /**
+   * Creates a new store without the first entries of this store. The text kept in memory is copied
+   * to new pages, so the text of the removed entries can be freed
+   *
+   * @param count How many entries to remove
+   * @return The new store
+   */
+  public LogStore dropFirst(int count) {
+    if (offset != 0 || size != columns.timestampKeys.length) {
+      throw new IllegalArgumentException("Only complete stores can be trimmed");
+    }
+
+    Columns from = columns;
+    int newSize = size - count;
+    Builder text = new Builder(0);
+    long[] textPositions = new long[newSize];
+    int mappedEntries = 0;
+    for (int i = 0; i < newSize; i++) {
+      long position = from.textPositions[count + i];
+      if (position < 0) {
+        textPositions[i] = position;
+        mappedEntries++;
+      } else {
+        textPositions[i] = text.appendText(from.textPages[(int) (position >>> 32)], (int) position,
+            from.textLengths[count + i]);
+      }
+    }
+    text.trimCurrentPage();
+
+    Columns trimmed = new Columns(
+        Arrays.copyOfRange(from.timestampKeys, count, size), Arrays.copyOfRange(from.logLevels, count, size),
+        Arrays.copyOfRange(from.sources, count, size), Arrays.copyOfRange(from.pids, count, size),
+        Arrays.copyOfRange(from.tids, count, size), textPositions, Arrays.copyOfRange(from.textLengths, count, size),
+        from.sourceTable, text.textPages.toArray(new byte[0][]), newSize > 0 && mappedEntries == newSize,
+        mappedEntries > 0);
+    Filter[] appliedFilters = from.appliedFilters;
+    Filter[] searchFilters = from.searchFilters;
+    trimmed.appliedFilters = appliedFilters != null ? Arrays.copyOfRange(appliedFilters, count, size) : null;
+    trimmed.searchFilters = searchFilters != null ? Arrays.copyOfRange(searchFilters, count, size) : null;
+    return new LogStore(trimmed, 0, newSize);
+  }
+
+  static Columns single(String logText, LogLevel logLevel, long timestampKey, int pid, int tid,
+                        String logName, String fileName) {
+    Builder builder = new Builder(1);
+    builder.add(logText, logLevel, timestampKey, pid, tid, builder.addSource(logName, fileName));
+    return builder.build().columns;
+  }
+
+  /**
+   * The actual storage. Rows here are absolute (not relative to the slice of a LogStore)
+   */
+  static class Columns {
+    private static final LogLevel[] LOG_LEVELS = LogLevel.values();
+    private static final int DECODED_TEXTS_CACHE_SIZE = 1024;
+
+    private final long[] timestampKeys;
+    private final byte[] logLevels;
+    private final short[] sources;
+    private final int[] pids;
+    private final int[] tids;
+    private final long[] textPositions;
+    private final int[] textLengths;
+    private final Source[] sourceTable;
+    private final byte[][] textPages;
+    private final boolean allTextMapped;
+
+    // Recently decoded text of the entries kept in the mapped logs, indexed by row. The same entries are
+    // usually requested many times in a row (once for each filter, once for each repaint...)
+    private final DecodedText[] decodedTexts;
+
+    // Filters are only set on a few entries (if any), so only allocate these when needed
+    private volatile Filter[] appliedFilters;
+    private volatile Filter[] searchFilters;
+
+    private Columns(long[] timestampKeys, byte[] logLevels, short[] sources, int[] pids, int[] tids,
+                    long[] textPositions, int[] textLengths, Source[] sourceTable, byte[][] textPages,
+                    boolean allTextMapped, boolean hasMappedText) {
+      this.timestampKeys = timestampKeys;
+      this.logLevels = logLevels;
+      this.sources = sources;
+      this.pids = pids;
+      this.tids = tids;
+      this.textPositions = textPositions;
+      this.textLengths = textLengths;
+      this.sourceTable = sourceTable;
+      this.textPages = textPages;
+      this.allTextMapped = allTextMapped;
+      this.decodedTexts = hasMappedText ? new DecodedText[DECODED_TEXTS_CACHE_SIZE] : null;
+    }
+
+    Columns withCharset(Charset charset) {
+      if (!allTextMapped || !MappedLogFile.canBeScannedAsBytes(charset)) {
+        return null;
+      }
+
+      // Entries are found on the raw bytes, so they are the same for any charset that can be scanned as bytes.
+      // Only the text needs to be decoded differently
+      Source[] newSourceTable = new Source[sourceTable.length];
+      for (int i = 0; i < sourceTable.length; i++) {
+        Source source = sourceTable[i];
+        newSourceTable[i] = new Source(source.logName, source.fileName,
+            source.mappedLog != null ? source.mappedLog.withCharset(charset) : null);
+      }
+
+      return new Columns(timestampKeys, logLevels, sources, pids, tids, textPositions, textLengths,
+          newSourceTable, textPages, true, true);
+    }
+
+    String getText(int row) {
+      long position = textPositions[row];
+      if (position < 0) {
+        return getMappedText(row, Builder.toMappedOffset(position));
+      }
+
+      return new String(textPages[(int) (position >>> 32)], (int) position, textLengths[row], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Same as {@link #getText(int)}, but the text of ASCII entries is read directly from the text pages instead
+     * of being copied into a new String
+     */
+    CharSequence getTextView(int row) {
+      long position = textPositions[row];
+      if (position < 0) {
+        // Decoded texts of mapped entries are already cached
+        return getMappedText(row, Builder.toMappedOffset(position));
+      }
+
+      byte[] page = textPages[(int) (position >>> 32)];
+      if (!AsciiText.isAscii(page, (int) position, textLengths[row])) {
+        return getText(row);
+      }
+      return new AsciiText(page, (int) position, textLengths[row]);
+    }
+
+    private String getMappedText(int row, long offset) {
+      int slot = row & (DECODED_TEXTS_CACHE_SIZE - 1);
+      // DecodedText is immutable, so it is safe to share it between threads without any lock
+      DecodedText cached = decodedTexts[slot];
+      if (cached != null && cached.row == row) {
+        return cached.text;
+      }
+
+      String text = getSource(row).mappedLog.tryDecode(offset, offset + textLengths[row]);
+      if (text == null) {
+        text = UNAVAILABLE_TEXT;
+      }
+      decodedTexts[slot] = new DecodedText(row, text);
+      return text;
+    }
+
+    long getTimestampKey(int row) {
+      return timestampKeys[row];
+    }
+
+    LogLevel getLogLevel(int row) {
+      return LOG_LEVELS[logLevels[row]];
+    }
+
+    int getPid(int row) {
+      return pids[row];
+    }
+
+    int getTid(int row) {
+      return tids[row];
+    }
+
+    Source getSource(int row) {
+      return sourceTable[sources[row]];
+    }
+
+    Filter getAppliedFilter(int row) {
+      Filter[] filters = appliedFilters;
+      return filters != null ? filters[row] : null;
+    }
+
+    void setAppliedFilter(int row, Filter filter) {
+      Filter[] filters = appliedFilters;
+      if (filters == null) {
+        if (filter == null) return;
+        filters = allocateAppliedFilters();
+      }
+
+      filters[row] = filter;
+    }
+
+    Filter getSearchFilter(int row) {
+      Filter[] filters = searchFilters;
+      return filters != null ? filters[row] : null;
+    }
+
+    void setSearchFilter(int row, Filter filter) {
+      Filter[] filters = searchFilters;
+      if (filters == null) {
+        if (filter == null) return;
+        filters = allocateSearchFilters();
+      }
+
+      filters[row] = filter;
+    }
+
+    // Filters are applied from multiple threads, so make sure only one array is created
+    private synchronized Filter[] allocateAppliedFilters() {
+      if (appliedFilters == null) {
+        appliedFilters = new Filter[timestampKeys.length];
+      }
+      return appliedFilters;
+    }
+
+    private synchronized Filter[] allocateSearchFilters() {
+      if (searchFilters == null) {
+        searchFilters = new Filter[timestampKeys.length];
+      }
+      return searchFilters;
+    }
+  }
+
+  static class Source {
+    final String logName;
+    final String fileName;
+    final LogStream stream;
+    // Only set if the text of the entries can be kept in the mapped log
+    final MappedLogFile mappedLog;
+
+    Source(String logName, String fileName, MappedLogFile mappedLog) {
+      this.logName = logName;
+      this.fileName = fileName;
+      this.stream = LogStream.inferLogStreamFromName(logName);
+      this.mappedLog = mappedLog;
+    }
+  }
+
+  private static class DecodedText {
+    final int row;
+    final String text;
+
+    DecodedText(int row, String text) {
+      this.row = row;
+      this.text = text;
+    }
+  }
+
+  /**
+   * Builds a LogStore one entry at a time. This is not thread safe, but multiple builders can be
+   * filled in parallel and then combined with {@link #combine(List, int[], int[])}
+   */
+  public static class Builder {
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final int MIN_PAGE_SIZE = 64 * 1024;
+    private static final int MAX_PAGE_SIZE = 4 * 1024 * 1024;
+    // Set on the text position of the entries whose text is in the mapped log (See 'addMapped')
+    private static final long MAPPED_TEXT = Long.MIN_VALUE;
+
+    static long toMappedOffset(long textPosition) {
+      return textPosition & ~MAPPED_TEXT;
+    }
+
+    private final List<Source> sources = new ArrayList<>();
+    private final List<byte[]> textPages = new ArrayList<>();
+    private byte[] currentPage;
+    private int currentPageUsed;
+
+    private long[] timestampKeys;
+    private byte[] logLevels;
+    private short[] sourceIds;
+    private int[] pids;
+    private int[] tids;
+    private long[] textPositions;
+    private int[] textLengths;
+    // Where the text of the copied entries is in their log (same as the mapped positions, 0 if unknown) and its
+    // length there. Only allocated when entries are added with their position, so they can be indexed (See LogIndex)
+    private long[] logTextPositions;
+    private int[] logTextLengths;
+    private int size;
+
+    public Builder() {
+      this(DEFAULT_CAPACITY);
+    }
+
+    public Builder(int initialCapacity) {
+      timestampKeys = new long[initialCapacity];
+      logLevels = new byte[initialCapacity];
+      sourceIds = new short[initialCapacity];
+      pids = new int[initialCapacity];
+      tids = new int[initialCapacity];
+      textPositions = new long[initialCapacity];
+      textLengths = new int[initialCapacity];
+    }
+
+    /**
+     * Creates a builder with the entries of a single mapped log that were read from its index (See {@link LogIndex})
+     *
+     * @param textPositions Same as the positions created by this builder. Text that is not mapped is in 'copiedText'
+     * @param copiedText    The UTF-8 text of the entries that are not mapped
+     */
+    static Builder fromIndex(MappedLogFile mappedLog, String logName, String fileName, long[] timestampKeys,
+                             byte[] logLevels, int[] pids, int[] tids, long[] textPositions, int[] textLengths,
+                             byte[] copiedText) {
+      Builder builder = new Builder(0);
+      builder.addSource(logName, fileName, mappedLog);
+      builder.timestampKeys = timestampKeys;
+      builder.logLevels = logLevels;
+      builder.sourceIds = new short[timestampKeys.length];
+      builder.pids = pids;
+      builder.tids = tids;
+      builder.textPositions = textPositions;
+      builder.textLengths = textLengths;
+      builder.size = timestampKeys.length;
+      if (copiedText.length > 0) {
+        builder.currentPage = copiedText;
+        builder.currentPageUsed = copiedText.length;
+        builder.textPages.add(copiedText);
+      }
+
+      return builder;
+    }
+
+    /**
+     * Creates a builder with the same entries of this one, but with all their text copied. The text of the
+     * mapped entries is decoded from their logs, which are not referenced by the new builder
+     */
+    public Builder copyText() {
+      Builder copy = new Builder(size);
+      for (Source source : sources) {
+        copy.addSource(source.logName, source.fileName);
+      }
+
+      for (int row = 0; row < size; row++) {
+        copy.add(getText(row), getLogLevel(row), timestampKeys[row], pids[row], tids[row], sourceIds[row]);
+      }
+
+      return copy;
+    }
+
+    /**
+     * Registers the log the next entries come from
+     *
+     * @return The source id to be used when adding entries
+     */
+    public int addSource(String logName, String fileName) {
+      return addSource(logName, fileName, null);
+    }
+
+    /**
+     * Registers the log the next entries come from
+     *
+     * @param mappedLog The mapped log the entries come from, if their text is going to be added with
+     *                  {@link #addMapped(long, int, LogLevel, long, int, int, int)}
+     * @return The source id to be used when adding entries
+     */
+    public int addSource(String logName, String fileName, MappedLogFile mappedLog) {
+      if (sources.size() >= Short.MAX_VALUE) {
+        throw new IllegalStateException("Too many logs: " + sources.size());
+      }
+
+      sources.add(new Source(logName, fileName, mappedLog));
+      return sources.size() - 1;
+    }
+
+    public void add(String logText, LogLevel logLevel, long timestampKey, int pid, int tid, int sourceId) {
+      ensureCapacity(size + 1);
+
+      byte[] text = logText.getBytes(StandardCharsets.UTF_8);
+      timestampKeys[size] = timestampKey;
+      logLevels[size] = (byte) logLevel.ordinal();
+      sourceIds[size] = (short) sourceId;
+      pids[size] = pid;
+      tids[size] = tid;
+      textPositions[size] = appendText(text, 0, text.length);
+      textLengths[size] = text.length;
+      size++;
+    }
+
+    /**
+     * Same as {@link #add(String, LogLevel, long, int, int, int)}, but also keeps where the text of the entry
+     * is in its log. The text is still copied, the position is only used to index the entry (See {@link LogIndex})
+     *
+     * @param offset Where the text of the entry starts in the log. It must be exactly the same of those bytes
+     * @param length Length of the text of the entry in the log, in bytes
+     */
+    public void add(String logText, long offset, int length, LogLevel logLevel, long timestampKey, int pid, int tid,
+                    int sourceId) {
+      if (logTextPositions == null) {
+        logTextPositions = new long[timestampKeys.length];
+        logTextLengths = new int[timestampKeys.length];
+      }
+
+      add(logText, logLevel, timestampKey, pid, tid, sourceId);
+      logTextPositions[size - 1] = MAPPED_TEXT | offset;
+      logTextLengths[size - 1] = length;
+    }
+
+    /**
+     * Adds an entry whose text is not copied. It is decoded from the mapped log of its source every time
+     * it is needed, so the text must be exactly the same of those bytes
+     *
+     * @param offset Where the text of the entry starts in the mapped log
+     * @param length Length of the text of the entry, in bytes
+     */
+    public void addMapped(long offset, int length, LogLevel logLevel, long timestampKey, int pid, int tid,
+                          int sourceId) {
+      if (sources.get(sourceId).mappedLog == null) {
+        throw new IllegalArgumentException("Source " + sourceId + " is not mapped");
+      }
+
+      ensureCapacity(size + 1);
+      timestampKeys[size] = timestampKey;
+      logLevels[size] = (byte) logLevel.ordinal();
+      sourceIds[size] = (short) sourceId;
+      pids[size] = pid;
+      tids[size] = tid;
+      textPositions[size] = MAPPED_TEXT | offset;
+      textLengths[size] = length;
+      size++;
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public long getTimestampKey(int row) {
+      return timestampKeys[row];
+    }
+
+    public String getText(int row) {
+      long position = textPositions[row];
+      if (position < 0) {
+        long offset = toMappedOffset(position);
+        return sources.get(sourceIds[row]).mappedLog.decode(offset, offset + textLengths[row]);
+      }
+
+      return new String(textPages.get((int) (position >>> 32)), (int) position, textLengths[row],
+          StandardCharsets.UTF_8);
+    }
+
+    // The accessors below are used to write log indexes (See LogIndex)
+
+    LogLevel getLogLevel(int row) {
+      return Columns.LOG_LEVELS[logLevels[row]];
+    }
+
+    int getPid(int row) {
+      return pids[row];
+    }
+
+    int getTid(int row) {
+      return tids[row];
+    }
+
+    /**
+     * @return If the position of the text of the entry in its log is known, even if the text was copied
+     */
+    boolean isMapped(int row) {
+      return getMappedTextPosition(row) < 0;
+    }
+
+    /**
+     * @return The position of the text of the entry in its log, if it is mapped
+     */
+    long getMappedTextPosition(int row) {
+      long position = textPositions[row];
+      if (position >= 0 && logTextPositions != null) {
+        return logTextPositions[row];
+      }
+
+      return position;
+    }
+
+    /**
+     * @return The length of the text of the entry in its log if it is mapped, or the length of its UTF-8 text
+     */
+    int getTextLength(int row) {
+      if (textPositions[row] >= 0 && logTextPositions != null && logTextPositions[row] < 0) {
+        return logTextLengths[row];
+      }
+
+      return textLengths[row];
+    }
+
+    /**
+     * Writes the UTF-8 text of an entry that is not mapped (See {@link #isMapped(int)})
+     */
+    void writeText(int row, OutputStream out) throws IOException {
+      long position = textPositions[row];
+      out.write(textPages.get((int) (position >>> 32)), (int) position, textLengths[row]);
+    }
+
+    // Entries never cross a page boundary, so each entry can be decoded straight from its page
+    private long appendText(byte[] text, int offset, int length) {
+      if (currentPage == null || currentPageUsed + length > currentPage.length) {
+        // Pages grow as more text is added, so small logs don't waste much space
+        int pageSize = currentPage == null ? MIN_PAGE_SIZE : Math.min(currentPage.length * 2, MAX_PAGE_SIZE);
+        trimCurrentPage();
+        currentPage = new byte[Math.max(pageSize, length)];
+        currentPageUsed = 0;
+        textPages.add(currentPage);
+      }
+
+      long position = (long) (textPages.size() - 1) << 32 | currentPageUsed;
+      System.arraycopy(text, offset, currentPage, currentPageUsed, length);
+      currentPageUsed += length;
+      return position;
+    }
+
+    private void trimCurrentPage() {
+      if (currentPage != null && currentPageUsed < currentPage.length) {
+        currentPage = Arrays.copyOf(currentPage, currentPageUsed);
+        textPages.set(textPages.size() - 1, currentPage);
+      }
+    }
+
+    private void ensureCapacity(int capacity) {
+      if (capacity <= timestampKeys.length) {
+        return;
+      }
+
+      int newCapacity = Math.max(capacity, timestampKeys.length + (timestampKeys.length >> 1) + 1);
+      timestampKeys = Arrays.copyOf(timestampKeys, newCapacity);
+      logLevels = Arrays.copyOf(logLevels, newCapacity);
+      sourceIds = Arrays.copyOf(sourceIds, newCapacity);
+      pids = Arrays.copyOf(pids, newCapacity);
+      tids = Arrays.copyOf(tids, newCapacity);
+      textPositions = Arrays.copyOf(textPositions, newCapacity);
+      textLengths = Arrays.copyOf(textLengths, newCapacity);
+      if (logTextPositions != null) {
+        logTextPositions = Arrays.copyOf(logTextPositions, newCapacity);
+        logTextLengths = Arrays.copyOf(logTextLengths, newCapacity);
+      }
+    }
+
+    public LogStore build() {
+      int[] parts = new int[size];
+      int[] rows = new int[size];
+      for (int i = 0; i < size; i++) {
+        rows[i] = i;
+      }
+
+      return combine(Collections.singletonList(this), parts, rows);
+    }
+
+    /**
+     * Combines the entries of multiple builders in a single store, in the given order.
+     * The text of the entries is not copied, the new store shares it with the builders
+     *
+     * @param builders The builders to take the entries from
+     * @param parts    For each entry of the new store, the index of the builder it comes from
+     * @param rows     For each entry of the new store, its row in the builder it comes from
+     * @return A new store with all the given entries
+     */
+    public static LogStore combine(List<Builder> builders, int[] parts, int[] rows) {
+      // Text pages of all builders are put together, so keep track of where the pages of each builder start
+      List<byte[]> allTextPages = new ArrayList<>();
+      int[] textPagesStart = new int[builders.size()];
+      // Builders are usually chunks of the same logs. Make sure each log has only one source
+      Map<String, Integer> sourceIdsByName = new LinkedHashMap<>();
+      List<Source> allSources = new ArrayList<>();
+      short[][] sourcesMapping = new short[builders.size()][];
+      for (int i = 0; i < builders.size(); i++) {
+        Builder builder = builders.get(i);
+        builder.trimCurrentPage();
+        textPagesStart[i] = allTextPages.size();
+        allTextPages.addAll(builder.textPages);
+
+        sourcesMapping[i] = new short[builder.sources.size()];
+        for (int s = 0; s < builder.sources.size(); s++) {
+          Source source = builder.sources.get(s);
+          Integer sourceId = sourceIdsByName.get(source.logName);
+          if (sourceId == null) {
+            sourceId = allSources.size();
+            sourceIdsByName.put(source.logName, sourceId);
+            allSources.add(source);
+          }
+          sourcesMapping[i][s] = sourceId.shortValue();
+        }
+      }
+
+      int size = rows.length;
+      long[] timestampKeys = new long[size];
+      byte[] logLevels = new byte[size];
+      short[] sourceIds = new short[size];
+      int[] pids = new int[size];
+      int[] tids = new int[size];
+      long[] textPositions = new long[size];
+      int[] textLengths = new int[size];
+      int mappedEntries = 0;
+      for (int i = 0; i < size; i++) {
+        int part = parts[i];
+        int row = rows[i];
+        Builder builder = builders.get(part);
+        timestampKeys[i] = builder.timestampKeys[row];
+        logLevels[i] = builder.logLevels[row];
+        sourceIds[i] = sourcesMapping[part][builder.sourceIds[row]];
+        pids[i] = builder.pids[row];
+        tids[i] = builder.tids[row];
+        long textPosition = builder.textPositions[row];
+        if (textPosition < 0) {
+          textPositions[i] = textPosition;
+          mappedEntries++;
+        } else {
+          textPositions[i] = textPosition + ((long) textPagesStart[part] << 32);
+        }
+        textLengths[i] = builder.textLengths[row];
+      }
+
+      Columns columns = new Columns(timestampKeys, logLevels, sourceIds, pids, tids, textPositions, textLengths,
+          allSources.toArray(new Source[0]), allTextPages.toArray(new byte[0][]),
+          size > 0 && mappedEntries == size, mappedEntries > 0);
+      return new LogStore(columns, 0, size);
+    }
+  }
+}
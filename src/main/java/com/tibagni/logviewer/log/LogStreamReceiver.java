@@ -0,0 +1,165 @@
+package com.tibagni.logviewer.log;
+
+import com.tibagni.logviewer.logger.Logger;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+
+/**
+ * Receives a log as it is written, without it ever being saved to a file. The lines are added to a
+ * {@link StreamLogReader} as they arrive. Supported sources:
+ * <ul>
+ *   <li>"-": The standard input. E.g.: adb logcat | logviewer -</li>
+ *   <li>A named pipe (FIFO). It is opened again when its writer closes it</li>
+ *   <li>"tcp:PORT": A TCP port on the loopback interface. E.g.: adb logcat | nc localhost PORT</li>
+ * </ul>
+ */
+public class LogStreamReceiver {
+  public static final String STDIN = "-";
+  private static final String TCP_PREFIX = "tcp:";
+  // The type of a file in its unix mode (See 'man 7 inode')
+  private static final int S_IFMT = 0170000;
+  private static final int S_IFIFO = 0010000;
+
+  private final String source;
+  private final StreamLogReader reader;
+  private Thread receiverThread;
+  private volatile Closeable currentInput;
+
+  public LogStreamReceiver(String source, StreamLogReader reader) {
+    this.source = source;
+    this.reader = reader;
+  }
+
+  /**
+   * @return true if the given command line argument is a log stream this receiver can read
+   */
+  public static boolean isLogStream(String source) {
+    if (STDIN.equals(source)) {
+      return true;
+    }
+
+    if (source.startsWith(TCP_PREFIX)) {
+      return parsePort(source) > 0;
+    }
+
+    return isNamedPipe(source);
+  }
+
+  // Named pipes exist in the file system, but so do devices and sockets, which are not read as streams
+  private static boolean isNamedPipe(String path) {
+    try {
+      int mode = (int) Files.getAttribute(Paths.get(path), "unix:mode");
+      return (mode & S_IFMT) == S_IFIFO;
+    } catch (IOException | InvalidPathException | UnsupportedOperationException e) {
+      // It doesn't exist or this is not a unix system
+      return false;
+    }
+  }
+
+  /**
+   * @return A name for the log received from the given source
+   */
+  public static String getLogName(String source) {
+    return STDIN.equals(source) ? "stdin" : source;
+  }
+
+  public synchronized void start() {
+    if (receiverThread != null) {
+      return;
+    }
+
+    receiverThread = new Thread(this::receive, "LogStreamReceiver");
+    receiverThread.setDaemon(true);
+    receiverThread.start();
+  }
+
+  public synchronized void stop() {
+    if (receiverThread != null) {
+      receiverThread.interrupt();
+      receiverThread = null;
+      // Reading blocks until there is input. Closing it is the only way to unblock it. The standard input is not
+      // ours to close, so the thread stays blocked there and ignores the line that unblocks it (See readLines)
+      closeQuietly(currentInput);
+    }
+  }
+
+  private void receive() {
+    try {
+      if (STDIN.equals(source)) {
+        readLines(System.in);
+      } else if (source.startsWith(TCP_PREFIX)) {
+        receiveFromSocket(parsePort(source));
+      } else {
+        receiveFromPipe(new File(source));
+      }
+    } catch (IOException e) {
+      if (!Thread.currentThread().isInterrupted()) {
+        Logger.error("Failed to receive logs from " + source, e);
+      }
+    }
+  }
+
+  private void receiveFromSocket(int port) throws IOException {
+    try (ServerSocket serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress())) {
+      Logger.info("Waiting for logs on port " + port);
+      // One writer at a time. When it disconnects, wait for the next one
+      while (!Thread.currentThread().isInterrupted()) {
+        currentInput = serverSocket;
+        try (Socket socket = serverSocket.accept()) {
+          currentInput = socket;
+          readLines(socket.getInputStream());
+        }
+      }
+    }
+  }
+
+  private void receiveFromPipe(File pipe) throws IOException {
+    // The pipe reaches its end every time its writer closes it. Open it again for the next writer
+    while (!Thread.currentThread().isInterrupted()) {
+      try (InputStream input = new FileInputStream(pipe)) {
+        currentInput = input;
+        readLines(input);
+      }
+    }
+  }
+
+  private void readLines(InputStream input) throws IOException {
+    BufferedReader lines = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    String line;
+    while (!Thread.currentThread().isInterrupted() && (line = lines.readLine()) != null) {
+      if (Thread.currentThread().isInterrupted()) {
+        // Stopped while waiting for this line
+        return;
+      }
+      reader.addLine(line);
+    }
+  }
+
+  private static int parsePort(String source) {
+    try {
+      int port = Integer.parseInt(source.substring(TCP_PREFIX.length()));
+      return port > 0 && port <= 0xFFFF ? port : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable == null) {
+      return;
+    }
+
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // Nothing to do. It is being closed only to stop reading it
+    }
+  }
+}
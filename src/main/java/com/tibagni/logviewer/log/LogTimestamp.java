@@ -1,6 +1,30 @@
 package com.tibagni.logviewer.log;
 
 public class LogTimestamp implements Comparable<LogTimestamp> {
+  /**
+   * Key of entries without a timestamp. It comes before any valid key
+   */
+  public static final long NO_TIMESTAMP = -1;
+  /**
+   * Era of the keys of entries whose timestamp is the time since boot, not a date. Dates are in era 0, so
+   * both are never mixed: keys of the time since boot always come after the keys of any date
+   */
+  public static final int UPTIME_ERA = 1;
+
+  // Layout of a packed timestamp key, from the most to the least significant bits:
+  // era (7) | month (4) | day (5) | hour (5) | minutes (6) | seconds (6) | fraction (30).
+  // 'era' is reserved for a year or a file-relative epoch. The most significant bit is never set,
+  // so valid keys are always positive and comparing two keys is the same as comparing the timestamps
+  private static final int FRACTION_BITS = 30;
+  private static final int SECONDS_SHIFT = FRACTION_BITS;
+  private static final int MINUTES_SHIFT = SECONDS_SHIFT + 6;
+  private static final int HOUR_SHIFT = MINUTES_SHIFT + 6;
+  private static final int DAY_SHIFT = HOUR_SHIFT + 5;
+  private static final int MONTH_SHIFT = DAY_SHIFT + 5;
+  private static final int ERA_SHIFT = MONTH_SHIFT + 4;
+  private static final int MAX_ERA = 127;
+  private static final int MAX_FRACTION = (1 << FRACTION_BITS) - 1;
+
   public final int month;
   public final int day;
 
@@ -27,6 +51,60 @@ public class LogTimestamp implements Comparable<LogTimestamp> {
     this.hundredth = Integer.parseInt(hundredth);
   }
 
+  /**
+   * Packs a timestamp in a single long that keeps the time order, so timestamps can be compared
+   * with a simple {@link Long#compare(long, long)}. Fields out of their valid range are clamped
+   */
+  public static long toKey(int month, int day, int hour, int minutes, int seconds, int hundredth) {
+    return toKey(0, month, day, hour, minutes, seconds, hundredth);
+  }
+
+  /**
+   * Same as {@link #toKey(int, int, int, int, int, int)}, but in the given era. Keys of a later era always come
+   * after the keys of the earlier eras, whatever their time is
+   */
+  public static long toKey(int era, int month, int day, int hour, int minutes, int seconds, int hundredth) {
+    // Fractions with more digits than we can hold (more than 9) are scaled down, which keeps their order
+    int fraction = Math.max(hundredth, 0);
+    while (fraction > MAX_FRACTION) {
+      fraction /= 10;
+    }
+
+    return (long) clamp(era, MAX_ERA) << ERA_SHIFT |
+        (long) clamp(month, 15) << MONTH_SHIFT |
+        (long) clamp(day, 31) << DAY_SHIFT |
+        (long) clamp(hour, 31) << HOUR_SHIFT |
+        (long) clamp(minutes, 63) << MINUTES_SHIFT |
+        (long) clamp(seconds, 63) << SECONDS_SHIFT |
+        fraction;
+  }
+
+  public static LogTimestamp fromKey(long key) {
+    if (key == NO_TIMESTAMP) {
+      return null;
+    }
+
+    return new LogTimestamp(
+        (int) (key >>> MONTH_SHIFT) & 0xF,
+        (int) (key >>> DAY_SHIFT) & 0x1F,
+        (int) (key >>> HOUR_SHIFT) & 0x1F,
+        (int) (key >>> MINUTES_SHIFT) & 0x3F,
+        (int) (key >>> SECONDS_SHIFT) & 0x3F,
+        (int) key & MAX_FRACTION);
+  }
+
+  public static int getEra(long key) {
+    return key == NO_TIMESTAMP ? 0 : (int) (key >>> ERA_SHIFT);
+  }
+
+  private static int clamp(int value, int max) {
+    return Math.min(Math.max(value, 0), max);
+  }
+
+  public long toKey() {
+    return toKey(month, day, hour, minutes, seconds, hundredth);
+  }
+
   @Override
   public int compareTo(LogTimestamp o) {
     if (month > o.month) return 1;
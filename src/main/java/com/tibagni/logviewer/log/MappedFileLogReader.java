@@ -0,0 +1,124 @@
+package com.tibagni.logviewer.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogReader} that memory-maps the log files instead of reading them into Strings.
+ * The parser works directly on the mapped bytes (See {@link #getMappedLog(String)}).
+ *
+ * Compressed files can't be mapped. Their logs are decompressed while they are read instead (See {@link CompressedLogFile})
+ */
+public class MappedFileLogReader implements LogReader {
+  private File[] logFiles;
+  private Map<String, MappedLogFile> mappedLogs;
+  private Map<String, CompressedLogFile> compressedLogs;
+  private Set<String> availableLogs;
+  private Charset charset;
+
+  private boolean isClosed;
+
+  public MappedFileLogReader(File[] logFiles) {
+    this.logFiles = logFiles;
+    this.mappedLogs = new LinkedHashMap<>();
+    this.compressedLogs = new LinkedHashMap<>();
+    this.availableLogs = new LinkedHashSet<>();
+  }
+
+  @Override
+  public void readLogs(Charset charset) throws LogReaderException {
+    if (isClosed) {
+      throw new IllegalStateException("Reader already closed");
+    }
+
+    if (logFiles == null || logFiles.length == 0) {
+      throw new LogReaderException("There are no logs to read!");
+    }
+
+    this.charset = charset;
+    File currentFile = null;
+    try {
+      for (File logFile : logFiles) {
+        currentFile = logFile;
+        if (CompressedLogFile.isCompressed(currentFile)) {
+          for (CompressedLogFile compressedLog : CompressedLogFile.open(currentFile)) {
+            compressedLogs.put(compressedLog.getPath(), compressedLog);
+            availableLogs.add(compressedLog.getPath());
+          }
+        } else {
+          mappedLogs.put(currentFile.getPath(), MappedLogFile.map(currentFile, charset));
+          availableLogs.add(currentFile.getPath());
+        }
+      }
+
+    } catch (IOException e) {
+      throw new LogReaderException("Error reading: " + currentFile, e);
+    }
+  }
+
+  @Override
+  public int size() {
+    return availableLogs.size();
+  }
+
+  @Override
+  public String get(String logName) {
+    CompressedLogFile compressedLog = compressedLogs.get(logName);
+    if (compressedLog != null) {
+      return compressedLog.decodeAll(charset);
+    }
+
+    MappedLogFile mappedLog = mappedLogs.get(logName);
+    return mappedLog != null ? mappedLog.decodeAll() : null;
+  }
+
+  @Override
+  public Stream<String> getLines(String logName) {
+    CompressedLogFile compressedLog = compressedLogs.get(logName);
+    if (compressedLog != null) {
+      return compressedLog.lines(charset);
+    }
+
+    MappedLogFile mappedLog = mappedLogs.get(logName);
+    return mappedLog != null ? mappedLog.lines() : Stream.empty();
+  }
+
+  @Override
+  public MappedLogFile getMappedLog(String logName) {
+    MappedLogFile mappedLog = mappedLogs.get(logName);
+    if (mappedLog != null && MappedLogFile.canBeScannedAsBytes(mappedLog.getCharset())) {
+      return mappedLog;
+    }
+
+    // Let the caller fall back to 'get' for charsets we can't scan byte by byte
+    return null;
+  }
+
+  @Override
+  public Set<String> getAvailableLogPaths() {
+    return availableLogs;
+  }
+
+  @Override
+  public void close() {
+    isClosed = true;
+
+    mappedLogs.clear();
+    mappedLogs = null;
+
+    compressedLogs.values().forEach(CompressedLogFile::close);
+    compressedLogs.clear();
+    compressedLogs = null;
+
+    availableLogs.clear();
+    availableLogs = null;
+
+    logFiles = null;
+  }
+}
@@ -0,0 +1,362 @@
+package com.tibagni.logviewer.log;
+
+import com.tibagni.logviewer.logger.Logger;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Read-only, memory-mapped view of a log file.
+ *
+ * Line boundaries are found directly on the mapped bytes, so the file is never copied into the
+ * Java heap as a whole. Text is only decoded for the byte ranges that are actually requested.
+ *
+ * A single mapping can't be bigger than 2GB, so the file is mapped in segments and positions are longs.
+ * Lines and numbers may cross from one segment to the next
+ */
+public class MappedLogFile {
+  private static final ThreadLocal<byte[]> decodeBuffer = ThreadLocal.withInitial(() -> new byte[1024]);
+  // Segments of 1GB
+  private static final int DEFAULT_SEGMENT_SHIFT = 30;
+  // How often the size of the file is checked when its text is read after it was mapped (See tryDecode)
+  static final long SIZE_CHECK_INTERVAL_MS = 100;
+
+  private final String path;
+  private final ByteBuffer[] segments;
+  private final int segmentShift;
+  private final long segmentMask;
+  private final long size;
+  private final Charset charset;
+  // Set once the file is found to be smaller than when it was mapped (See tryDecode)
+  private volatile boolean truncated;
+  private volatile long lastSizeCheck = System.nanoTime();
+
+  MappedLogFile(String path, ByteBuffer[] segments, int segmentShift, long size, Charset charset) {
+    this.path = path;
+    this.segments = segments;
+    this.segmentShift = segmentShift;
+    this.segmentMask = (1L << segmentShift) - 1;
+    this.size = size;
+    this.charset = charset;
+  }
+
+  public static MappedLogFile map(File file, Charset charset) throws IOException {
+    return map(file, charset, DEFAULT_SEGMENT_SHIFT);
+  }
+
+  // Visible for testing
+  static MappedLogFile map(File file, Charset charset, int segmentShift) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      long segmentSize = 1L << segmentShift;
+      ByteBuffer[] segments = new ByteBuffer[(int) Math.max(1, (size + segmentSize - 1) >>> segmentShift)];
+      for (int i = 0; i < segments.length; i++) {
+        long segmentStart = i * segmentSize;
+        // The mapping stays valid after the channel is closed
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, segmentStart,
+            Math.min(segmentSize, size - segmentStart));
+      }
+
+      return new MappedLogFile(file.getPath(), segments, segmentShift, size, charset);
+    }
+  }
+
+  /**
+   * Line boundaries are searched for on the raw bytes, which only works if '\r' and '\n' are
+   * encoded as single bytes that can't appear inside other characters (UTF-8, ISO-8859-*, ASCII...)
+   */
+  public static boolean canBeScannedAsBytes(Charset charset) {
+    if (!charset.canEncode()) {
+      return false;
+    }
+
+    byte[] encoded = "\r\n".getBytes(charset);
+    return encoded.length == 2 && encoded[0] == '\r' && encoded[1] == '\n' &&
+        (charset.equals(StandardCharsets.UTF_8) || charset.newEncoder().maxBytesPerChar() == 1);
+  }
+
+  /**
+   * @return A view of the same mapped file that decodes its text with another charset. Nothing is read again
+   */
+  public MappedLogFile withCharset(Charset charset) {
+    return new MappedLogFile(path, segments, segmentShift, size, charset);
+  }
+
+  public String getPath() {
+    return path;
+  }
+
+  public Charset getCharset() {
+    return charset;
+  }
+
+  public long size() {
+    return size;
+  }
+
+  public byte byteAt(long position) {
+    return segments[(int) (position >>> segmentShift)].get((int) (position & segmentMask));
+  }
+
+  /**
+   * Reads an unsigned 16 bits little-endian number (the byte order of binary logs)
+   */
+  public int unsignedShortAt(long position) {
+    return (byteAt(position) & 0xFF) | (byteAt(position + 1) & 0xFF) << 8;
+  }
+
+  /**
+   * Reads a 32 bits little-endian number (the byte order of binary logs)
+   */
+  public int intAt(long position) {
+    return unsignedShortAt(position) | unsignedShortAt(position + 2) << 16;
+  }
+
+  /**
+   * Reads a 64 bits little-endian number (the byte order of binary logs)
+   */
+  public long longAt(long position) {
+    return Integer.toUnsignedLong(intAt(position)) | (long) intAt(position + 4) << 32;
+  }
+
+  /**
+   * Finds where the line starting at 'lineStart' ends (exclusive). Line terminators are not part of the line
+   *
+   * @param lineStart Position where the line starts
+   * @return The position of the line terminator, or the file size if this is the last line
+   */
+  public long findLineEnd(long lineStart) {
+    // Scan one segment at a time, so there is no segment lookup for each byte
+    long position = lineStart;
+    while (position < size) {
+      ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+      long segmentStart = position & ~segmentMask;
+      int limit = segment.limit();
+      for (int i = (int) (position - segmentStart); i < limit; i++) {
+        byte b = segment.get(i);
+        if (b == '\n' || b == '\r') {
+          return segmentStart + i;
+        }
+      }
+
+      position = segmentStart + limit;
+    }
+
+    return size;
+  }
+
+  /**
+   * Skips the line terminator found at 'lineEnd' (Same rules as {@link java.io.BufferedReader#readLine()}:
+   * '\n', '\r' or "\r\n")
+   *
+   * @param lineEnd Position returned by {@link #findLineEnd(long)}
+   * @return The position where the next line starts
+   */
+  public long nextLineStart(long lineEnd) {
+    if (lineEnd >= size) {
+      return lineEnd;
+    }
+
+    if (byteAt(lineEnd) == '\r' && lineEnd + 1 < size && byteAt(lineEnd + 1) == '\n') {
+      return lineEnd + 2;
+    }
+
+    return lineEnd + 1;
+  }
+
+  public boolean startsWith(long position, long end, String asciiPrefix) {
+    if (end - position < asciiPrefix.length()) {
+      return false;
+    }
+
+    for (int i = 0; i < asciiPrefix.length(); i++) {
+      if (byteAt(position + i) != asciiPrefix.charAt(i)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  /**
+   * @return The CRC32 of the bytes from 'start' (inclusive) to 'end' (exclusive)
+   */
+  public long checksum(long start, long end) {
+    CRC32 crc = new CRC32();
+    for (long position = start; position < end; ) {
+      ByteBuffer segment = segmentAt(position, end);
+      crc.update(segment);
+      position += segment.capacity();
+    }
+    return crc.getValue();
+  }
+
+  public String decode(long start, long end) {
+    // A single String can't hold more than 2GB anyway
+    int length = Math.toIntExact(end - start);
+    byte[] bytes = decodeBuffer.get();
+    if (bytes.length < length) {
+      bytes = new byte[Math.max(length, bytes.length * 2)];
+      decodeBuffer.set(bytes);
+    }
+
+    int copied = 0;
+    while (copied < length) {
+      ByteBuffer segment = segmentAt(start + copied, end);
+      int count = segment.remaining();
+      segment.get(bytes, copied, count);
+      copied += count;
+    }
+    return new String(bytes, 0, length, charset);
+  }
+
+  /**
+   * Same as {@link #decode(long, long)}, but for text that is read long after the file was mapped (and may have been
+   * truncated since then, e.g. a log that is being followed was rotated). Reading a mapped page that is no longer
+   * in the file fails (SIGBUS), so the text is not read anymore once the file is smaller than what was mapped
+   *
+   * @return The text or null if it may not be in the file anymore
+   */
+  public String tryDecode(long start, long end) {
+    if (isTruncated()) {
+      return null;
+    }
+
+    try {
+      return decode(start, end);
+    } catch (InternalError e) {
+      // The JVM reports a fault while accessing the mapped memory like this (when it is noticed right away)
+      truncated = true;
+      Logger.warning(path + " was truncated after it was mapped", e);
+      return null;
+    }
+  }
+
+  private boolean isTruncated() {
+    if (truncated) {
+      return true;
+    }
+
+    // Checking the size every time would slow down reading the text of every entry (e.g. while filtering)
+    long now = System.nanoTime();
+    if (now - lastSizeCheck < TimeUnit.MILLISECONDS.toNanos(SIZE_CHECK_INTERVAL_MS)) {
+      return false;
+    }
+
+    lastSizeCheck = now;
+    // A deleted file is still mapped, it is only gone when it is replaced or truncated
+    File file = new File(path);
+    if (file.exists() && file.length() < size) {
+      truncated = true;
+      Logger.warning(path + " is smaller than when it was mapped. Its text is not read anymore");
+    }
+
+    return truncated;
+  }
+
+  // The bytes from 'position' to 'end' (or the end of the segment of 'position', whichever comes first)
+  private ByteBuffer segmentAt(long position, long end) {
+    ByteBuffer segment = segments[(int) (position >>> segmentShift)];
+    int start = (int) (position & segmentMask);
+    int limit = (int) Math.min(segment.limit(), start + (end - position));
+    return segment.duplicate().position(start).limit(limit).slice();
+  }
+
+  /**
+   * @return The text of the first 'maxBytes' bytes of this file (or of the whole file, if it is smaller)
+   */
+  public String decodeHead(int maxBytes) {
+    return decode(0, Math.min(size, maxBytes));
+  }
+
+  /**
+   * @return If the whole text of this file fits in a single String (See {@link #decodeAll()})
+   */
+  public boolean canDecodeAll() {
+    return size <= Integer.MAX_VALUE;
+  }
+
+  public String decodeAll() {
+    if (!canDecodeAll()) {
+      throw new IllegalStateException(path + " is too large to be decoded into a single String");
+    }
+
+    StringWriter text = new StringWriter();
+    try (Reader reader = new InputStreamReader(new MappedInputStream(), charset)) {
+      reader.transferTo(text);
+    } catch (IOException e) {
+      // Reading from memory never fails
+      throw new UncheckedIOException(e);
+    }
+
+    return text.toString();
+  }
+
+  /**
+   * Streams the decoded lines of this file. Lines are decoded one at a time, as they are consumed
+   */
+  public Stream<String> lines() {
+    if (!canBeScannedAsBytes(charset)) {
+      // Let the decoder find the lines for us
+      return new BufferedReader(new InputStreamReader(new MappedInputStream(), charset)).lines();
+    }
+
+    Iterator<String> iterator = new Iterator<>() {
+      private long lineStart = 0;
+
+      @Override
+      public boolean hasNext() {
+        return lineStart < size();
+      }
+
+      @Override
+      public String next() {
+        if (!hasNext()) {
+          throw new NoSuchElementException();
+        }
+
+        long lineEnd = findLineEnd(lineStart);
+        String line = decode(lineStart, lineEnd);
+        lineStart = nextLineStart(lineEnd);
+        return line;
+      }
+    };
+
+    return StreamSupport.stream(
+        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  private class MappedInputStream extends InputStream {
+    private long position;
+
+    @Override
+    public int read() {
+      return position < size ? (byteAt(position++) & 0xFF) : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (position >= size) {
+        return -1;
+      }
+
+      ByteBuffer segment = segmentAt(position, Math.min(size, position + length));
+      int count = segment.remaining();
+      segment.get(bytes, offset, count);
+      position += count;
+      return count;
+    }
+  }
+}
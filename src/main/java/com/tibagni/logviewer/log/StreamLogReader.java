@@ -0,0 +1,115 @@
+package com.tibagni.logviewer.log;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * {@link LogReader} for a log that is still being received (from stdin, a named pipe or a socket).
+ *
+ * Lines are kept in a ring buffer: when more lines than its capacity arrive before they are read, the
+ * oldest ones are dropped. Each call to {@link #readLogs(Charset)} gives only the lines received since
+ * the previous call (plus any line given back with {@link #unread(int)})
+ */
+public class StreamLogReader implements LogReader {
+  private final String logName;
+  private final String[] lines;
+  // Lines are numbered in the order they arrive. Line 'n' is at 'lines[n % lines.length]'
+  private long firstLine;
+  private long nextLine;
+  private long nextUnreadLine;
+  private boolean unreadLinesDropped;
+
+  private long readStart;
+  private long readEnd;
+  // Replaced (never changed) by each read, while the parser may still be reading the previous one
+  private volatile List<String> readLines = Collections.emptyList();
+
+  public StreamLogReader(String logName, int maxLines) {
+    this.logName = logName;
+    this.lines = new String[maxLines];
+  }
+
+  public String getLogName() {
+    return logName;
+  }
+
+  public int getMaxLines() {
+    return lines.length;
+  }
+
+  public synchronized void addLine(String line) {
+    lines[(int) (nextLine % lines.length)] = line;
+    nextLine++;
+    if (nextLine - firstLine > lines.length) {
+      firstLine = nextLine - lines.length;
+    }
+  }
+
+  /**
+   * @return true if lines were received since the last time the log was read
+   */
+  public synchronized boolean hasNewLines() {
+    return nextLine > readEnd;
+  }
+
+  /**
+   * Gives back the last lines that were read, so they are read again with the next lines
+   *
+   * @param count How many of the last read lines to give back
+   */
+  public synchronized void unread(int count) {
+    nextUnreadLine = Math.max(readStart, readEnd - count);
+  }
+
+  /**
+   * @return true if lines given back with {@link #unread(int)} were dropped before the last read, because more
+   * lines than the buffer holds arrived in the meantime
+   */
+  public synchronized boolean wereUnreadLinesDropped() {
+    return unreadLinesDropped;
+  }
+
+  @Override
+  public synchronized void readLogs(Charset charset) {
+    // Lines are already decoded when they are received
+    unreadLinesDropped = nextUnreadLine < firstLine;
+    readStart = Math.max(nextUnreadLine, firstLine);
+    readEnd = nextLine;
+    List<String> newLines = new ArrayList<>((int) (readEnd - readStart));
+    for (long line = readStart; line < readEnd; line++) {
+      newLines.add(lines[(int) (line % lines.length)]);
+    }
+    readLines = newLines;
+
+    nextUnreadLine = readEnd;
+  }
+
+  @Override
+  public int size() {
+    return 1;
+  }
+
+  @Override
+  public String get(String logName) {
+    return this.logName.equals(logName) ? String.join("\n", readLines) : null;
+  }
+
+  @Override
+  public Stream<String> getLines(String logName) {
+    return this.logName.equals(logName) ? readLines.stream() : Stream.empty();
+  }
+
+  @Override
+  public Set<String> getAvailableLogPaths() {
+    return Collections.singleton(logName);
+  }
+
+  @Override
+  public void close() {
+    // The same reader is read again every time new lines arrive. There is nothing to release
+  }
+}
@@ -0,0 +1,283 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.LogLevel;
+import com.tibagni.logviewer.log.LogStore;
+import com.tibagni.logviewer.log.LogTimestamp;
+import com.tibagni.logviewer.log.MappedLogFile;
+import com.tibagni.logviewer.logger.Logger;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Reads binary logcat captures ("adb logcat -B"). They are a sequence of 'logger_entry' records
+ * (versions 3 and 4), all little-endian:
+ * <pre>
+ *   uint16 len, uint16 hdr_size, int32 pid, int32 tid, int32 sec, int32 nsec, uint32 lid, [uint32 uid]
+ * </pre>
+ * followed by 'len' bytes of payload. The header fields are read directly, so no text header needs to be
+ * parsed. Each entry is shown as logcat shows it in the "threadtime" format
+ */
+class BinaryLogcatParser {
+  private static final int HEADER_SIZE_V3 = 24;
+  private static final int HEADER_SIZE_V4 = 28;
+  // Enough for any payload from LOGGER_ENTRY_MAX_PAYLOAD on all versions
+  private static final int MAX_PAYLOAD = 4096;
+  // How many records are checked to tell if a log is binary
+  private static final int RECORDS_TO_SNIFF = 16;
+
+  // Buffers with binary payloads (event tag + typed values) instead of "priority, tag, message"
+  private static final int LOG_ID_EVENTS = 2;
+  private static final int LOG_ID_STATS = 5;
+  private static final int LOG_ID_SECURITY = 6;
+
+  private static final int EVENT_TYPE_INT = 0;
+  private static final int EVENT_TYPE_LONG = 1;
+  private static final int EVENT_TYPE_STRING = 2;
+  private static final int EVENT_TYPE_LIST = 3;
+  private static final int EVENT_TYPE_FLOAT = 4;
+
+  private static final char[] PRIORITY_CHARS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'F', 'S'};
+  private static final LogLevel[] PRIORITY_LEVELS = {LogLevel.DEBUG, LogLevel.DEBUG, LogLevel.VERBOSE,
+      LogLevel.DEBUG, LogLevel.INFO, LogLevel.WARNING, LogLevel.ERROR, LogLevel.ERROR, LogLevel.DEBUG};
+
+  private final ZoneId zone;
+  private final StringBuilder text = new StringBuilder();
+
+  // Many entries are logged on the same second. Only convert it again when it changes
+  private long lastSeconds = Long.MIN_VALUE;
+  private LocalDateTime lastDateTime;
+
+  BinaryLogcatParser() {
+    // The capture has no time zone. Show it the same way logcat would on a device in our time zone
+    this(ZoneId.systemDefault());
+  }
+
+  // Visible for testing
+  BinaryLogcatParser(ZoneId zone) {
+    this.zone = zone;
+  }
+
+  /**
+   * Text logs start with a timestamp or "--------- beginning of", which are never valid binary headers.
+   * So a log is binary if its first records are all valid
+   */
+  static boolean isBinaryLogcat(MappedLogFile log) {
+    long position = 0;
+    long size = log.size();
+    for (int i = 0; i < RECORDS_TO_SNIFF && position < size; i++) {
+      long recordEnd = findRecordEnd(log, position);
+      // Only the last record may have been cut (the capture may have been interrupted)
+      if (recordEnd < 0 || (recordEnd > size && i == 0)) {
+        return false;
+      }
+
+      position = recordEnd;
+    }
+
+    return size > 0;
+  }
+
+  /**
+   * @return Where the record starting at 'position' ends (possibly beyond the log size if it was cut)
+   * or -1 if there is no valid record header there
+   */
+  private static long findRecordEnd(MappedLogFile log, long position) {
+    if (log.size() - position < HEADER_SIZE_V3) {
+      return -1;
+    }
+
+    int length = log.unsignedShortAt(position);
+    int headerSize = log.unsignedShortAt(position + 2);
+    int nanoseconds = log.intAt(position + 16);
+    if ((headerSize != HEADER_SIZE_V3 && headerSize != HEADER_SIZE_V4) || length == 0 || length > MAX_PAYLOAD ||
+        nanoseconds < 0 || nanoseconds >= 1_000_000_000) {
+      return -1;
+    }
+
+    return position + headerSize + length;
+  }
+
+  /**
+   * Decodes all records of a binary log. Parsing stops on the first invalid or incomplete record
+   */
+  LogStore.Builder parse(MappedLogFile log, String logPath, String fileName) {
+    LogStore.Builder entries = new LogStore.Builder();
+    int sourceId = entries.addSource(logPath, fileName);
+
+    long position = 0;
+    long size = log.size();
+    while (position < size) {
+      long recordEnd = findRecordEnd(log, position);
+      if (recordEnd < 0 || recordEnd > size) {
+        Logger.warning("Ignoring the end of " + logPath + ". Invalid record at " + position);
+        break;
+      }
+
+      int headerSize = log.unsignedShortAt(position + 2);
+      int pid = log.intAt(position + 4);
+      int tid = log.intAt(position + 8);
+      long seconds = Integer.toUnsignedLong(log.intAt(position + 12));
+      int nanoseconds = log.intAt(position + 16);
+      int logId = log.intAt(position + 20);
+
+      long payloadStart = position + headerSize;
+      if (logId == LOG_ID_EVENTS || logId == LOG_ID_STATS || logId == LOG_ID_SECURITY) {
+        addEvent(entries, sourceId, log, payloadStart, recordEnd, seconds, nanoseconds, pid, tid);
+      } else {
+        addMessage(entries, sourceId, log, payloadStart, recordEnd, seconds, nanoseconds, pid, tid);
+      }
+
+      position = recordEnd;
+    }
+
+    return entries;
+  }
+
+  // Payload: uint8 priority, tag, '\0', message, '\0'
+  private void addMessage(LogStore.Builder entries, int sourceId, MappedLogFile log, long start, long end,
+                          long seconds, int nanoseconds, int pid, int tid) {
+    int priority = log.byteAt(start) & 0xFF;
+    if (priority >= PRIORITY_CHARS.length) {
+      priority = 0;
+    }
+
+    long tagEnd = findNull(log, start + 1, end);
+    long messageStart = Math.min(tagEnd + 1, end);
+    long messageEnd = findNull(log, messageStart, end);
+    // logcat drops the line breaks at the end of the message
+    while (messageEnd > messageStart && (log.byteAt(messageEnd - 1) == '\n' || log.byteAt(messageEnd - 1) == '\r')) {
+      messageEnd--;
+    }
+
+    String tag = log.decode(start + 1, tagEnd);
+    String message = log.decode(messageStart, messageEnd);
+
+    // Same as logcat: every line of the message is an entry of its own, with the same header
+    int lineStart = 0;
+    do {
+      int lineEnd = message.indexOf('\n', lineStart);
+      if (lineEnd < 0) {
+        lineEnd = message.length();
+      }
+
+      addEntry(entries, sourceId, seconds, nanoseconds, pid, tid, priority, tag,
+          message.substring(lineStart, lineEnd));
+      lineStart = lineEnd + 1;
+    } while (lineStart <= message.length());
+  }
+
+  // Payload: int32 tag number, then a single typed value (which may be a list)
+  private void addEvent(LogStore.Builder entries, int sourceId, MappedLogFile log, long start, long end,
+                        long seconds, int nanoseconds, int pid, int tid) {
+    if (end - start < Integer.BYTES) {
+      return;
+    }
+
+    // The names of the tags are only known by the device (/system/etc/event-log-tags). Show their numbers
+    String tag = Integer.toUnsignedString(log.intAt(start));
+    StringBuilder values = new StringBuilder();
+    if (start + Integer.BYTES < end && appendEventValue(log, start + Integer.BYTES, end, values) < 0) {
+      values.append("<invalid event>");
+    }
+
+    addEntry(entries, sourceId, seconds, nanoseconds, pid, tid, 4, tag, values.toString());
+  }
+
+  /**
+   * Appends an event value the same way logcat prints it ("[1,2,text]" for lists)
+   *
+   * @return Where the value ends or -1 if it is invalid
+   */
+  private long appendEventValue(MappedLogFile log, long position, long end, StringBuilder values) {
+    if (position >= end) {
+      return -1;
+    }
+
+    int type = log.byteAt(position++);
+    switch (type) {
+      case EVENT_TYPE_INT:
+        if (end - position < Integer.BYTES) return -1;
+        values.append(log.intAt(position));
+        return position + Integer.BYTES;
+      case EVENT_TYPE_LONG:
+        if (end - position < Long.BYTES) return -1;
+        values.append(log.longAt(position));
+        return position + Long.BYTES;
+      case EVENT_TYPE_FLOAT:
+        if (end - position < Integer.BYTES) return -1;
+        values.append(Float.intBitsToFloat(log.intAt(position)));
+        return position + Integer.BYTES;
+      case EVENT_TYPE_STRING:
+        if (end - position < Integer.BYTES) return -1;
+        int length = log.intAt(position);
+        position += Integer.BYTES;
+        if (length < 0 || length > end - position) return -1;
+        values.append(log.decode(position, position + length));
+        return position + length;
+      case EVENT_TYPE_LIST:
+        if (position >= end) return -1;
+        int count = log.byteAt(position++) & 0xFF;
+        values.append('[');
+        for (int i = 0; i < count && position >= 0; i++) {
+          if (i > 0) {
+            values.append(',');
+          }
+          position = appendEventValue(log, position, end, values);
+        }
+        values.append(']');
+        return position;
+    }
+
+    return -1;
+  }
+
+  // "MM-DD HH:MM:SS.mmm  PID  TID L TAG     : message"
+  private void addEntry(LogStore.Builder entries, int sourceId, long seconds, int nanoseconds, int pid, int tid,
+                        int priority, String tag, String message) {
+    if (seconds != lastSeconds) {
+      lastSeconds = seconds;
+      lastDateTime = LocalDateTime.ofInstant(Instant.ofEpochSecond(seconds), zone);
+    }
+
+    int millis = nanoseconds / 1_000_000;
+    text.setLength(0);
+    appendPadded(text, lastDateTime.getMonthValue(), 2, '0').append('-');
+    appendPadded(text, lastDateTime.getDayOfMonth(), 2, '0').append(' ');
+    appendPadded(text, lastDateTime.getHour(), 2, '0').append(':');
+    appendPadded(text, lastDateTime.getMinute(), 2, '0').append(':');
+    appendPadded(text, lastDateTime.getSecond(), 2, '0').append('.');
+    appendPadded(text, millis, 3, '0').append(' ');
+    appendPadded(text, pid, 5, ' ').append(' ');
+    appendPadded(text, tid, 5, ' ').append(' ');
+    text.append(PRIORITY_CHARS[priority]).append(' ').append(tag);
+    for (int i = tag.length(); i < 8; i++) {
+      text.append(' ');
+    }
+    text.append(": ").append(message);
+
+    long timestampKey = LogTimestamp.toKey(lastDateTime.getMonthValue(), lastDateTime.getDayOfMonth(),
+        lastDateTime.getHour(), lastDateTime.getMinute(), lastDateTime.getSecond(), millis);
+    entries.add(text.toString(), PRIORITY_LEVELS[priority], timestampKey, pid, tid, sourceId);
+  }
+
+  private static StringBuilder appendPadded(StringBuilder builder, int value, int width, char padding) {
+    String digits = Integer.toString(value);
+    for (int i = digits.length(); i < width; i++) {
+      builder.append(padding);
+    }
+
+    return builder.append(digits);
+  }
+
+  private static long findNull(MappedLogFile log, long start, long end) {
+    for (long i = start; i < end; i++) {
+      if (log.byteAt(i) == 0) {
+        return i;
+      }
+    }
+
+    return end;
+  }
+}
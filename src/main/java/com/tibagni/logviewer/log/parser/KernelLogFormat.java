@@ -0,0 +1,106 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.LogLevel;
+import com.tibagni.logviewer.log.LogTimestamp;
+
+import static com.tibagni.logviewer.log.parser.SecondsLogFormat.*;
+
+/**
+ * Kernel logs (dmesg, /proc/kmsg): "[  123.456789] message", optionally prefixed by the priority ("<6>[...").
+ * The timestamp is the time since boot (See {@link SecondsLogFormat#toUptimeKey})
+ */
+class KernelLogFormat implements LogFormat {
+
+  @Override
+  public String getName() {
+    return "kernel";
+  }
+
+  @Override
+  public boolean isHeader(CharSequence line) {
+    return findTimestamp(line) >= 0;
+  }
+
+  // Where the seconds start, or -1 if the line doesn't start with a kernel timestamp
+  private static int findTimestamp(CharSequence line) {
+    int position = 0;
+    if (line.length() > 3 && line.charAt(0) == '<' && isDigit(line.charAt(1)) && line.charAt(2) == '>') {
+      position = 3;
+    }
+
+    if (position >= line.length() || line.charAt(position) != '[') {
+      return -1;
+    }
+
+    int secondsStart = skipSpaces(line, position + 1);
+    int secondsEnd = skipDigits(line, secondsStart);
+    if (secondsEnd == secondsStart || secondsEnd >= line.length() || line.charAt(secondsEnd) != '.') {
+      return -1;
+    }
+
+    int fractionEnd = skipDigits(line, secondsEnd + 1);
+    return fractionEnd > secondsEnd + 1 && fractionEnd < line.length() && line.charAt(fractionEnd) == ']' ?
+        secondsStart : -1;
+  }
+
+  // Same as the kernel log levels (KERN_EMERG to KERN_DEBUG)
+  private static LogLevel toLogLevel(char priority) {
+    switch (priority) {
+      case '0':
+      case '1':
+      case '2':
+      case '3':
+        return LogLevel.ERROR;
+      case '4':
+        return LogLevel.WARNING;
+      case '7':
+        return LogLevel.DEBUG;
+      default:
+        return LogLevel.INFO;
+    }
+  }
+
+  @Override
+  public HeaderScanner newScanner() {
+    return new HeaderScanner() {
+      private long timestampKey;
+      private LogLevel logLevel;
+
+      @Override
+      public void scan(CharSequence logLine) {
+        int secondsStart = findTimestamp(logLine);
+        if (secondsStart < 0) {
+          timestampKey = LogTimestamp.NO_TIMESTAMP;
+          logLevel = LogLevel.INFO;
+          return;
+        }
+
+        int secondsEnd = skipDigits(logLine, secondsStart);
+        int fractionEnd = skipDigits(logLine, secondsEnd + 1);
+        int fraction = (int) Math.min(parse(logLine, secondsEnd + 1, fractionEnd), Integer.MAX_VALUE);
+        timestampKey = toUptimeKey(parse(logLine, secondsStart, secondsEnd), fraction);
+        logLevel = logLine.charAt(0) == '<' ? toLogLevel(logLine.charAt(1)) : LogLevel.INFO;
+      }
+
+      @Override
+      public LogLevel getLogLevel() {
+        return logLevel;
+      }
+
+      @Override
+      public long getTimestampKey() {
+        return timestampKey;
+      }
+
+      @Override
+      public int getPid() {
+        return -1;
+      }
+
+      @Override
+      public int getTid() {
+        return -1;
+      }
+    };
+  }
+}
@@ -0,0 +1,60 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.LogLevel;
+import com.tibagni.logviewer.log.MappedLogFile;
+
+/**
+ * A format of log lines. Each format finds the lines that start a new entry (its headers) and reads
+ * their fields, without regular expressions.
+ *
+ * The format of each log is detected from its first lines (See {@link LogFormats#detect}). Formats other
+ * than the built-in ones can be added as services of this interface (See {@link java.util.ServiceLoader})
+ */
+public interface LogFormat {
+  String getName();
+
+  /**
+   * @param line A line of the log, without its line terminator
+   * @return true if this line starts a new log entry
+   */
+  boolean isHeader(CharSequence line);
+
+  /**
+   * Same as {@link #isHeader(CharSequence)}, but checked on the raw bytes of a mapped log.
+   * Headers are expected to be ASCII, so there is no need to decode them
+   */
+  default boolean isHeader(MappedLogFile log, long lineStart, long lineEnd) {
+    return isHeader(new MappedLine(log, lineStart, lineEnd));
+  }
+
+  /**
+   * @return A new scanner for the headers of this format. Scanners keep the results of the last
+   * scan, so each thread needs its own
+   */
+  HeaderScanner newScanner();
+
+  interface HeaderScanner {
+    /**
+     * Reads the fields of an entry. Only its first line is considered
+     */
+    void scan(CharSequence logLine);
+
+    LogLevel getLogLevel();
+
+    /**
+     * @return The timestamp of the last scanned entry, normalized to a {@link com.tibagni.logviewer.log.LogTimestamp}
+     * key, so entries from logs of any format can be sorted together
+     */
+    long getTimestampKey();
+
+    /**
+     * @return The pid of the last scanned entry or -1 if it is not known
+     */
+    int getPid();
+
+    /**
+     * @return The tid of the last scanned entry or -1 if it is not known
+     */
+    int getTid();
+  }
+}
@@ -0,0 +1,100 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.MappedLogFile;
+import com.tibagni.logviewer.logger.Logger;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * All known {@link LogFormat}s: the built-in ones and the ones registered as services
+ */
+public final class LogFormats {
+  public static final LogFormat LOGCAT = new LogcatFormat();
+  public static final LogFormat LOGCAT_YEAR = new LogcatYearFormat();
+  public static final LogFormat LOGCAT_EPOCH = new SecondsLogFormat(true, ZoneId.systemDefault());
+  public static final LogFormat LOGCAT_MONOTONIC = new SecondsLogFormat(false, ZoneId.systemDefault());
+  public static final LogFormat KERNEL = new KernelLogFormat();
+
+  // How many lines from the beginning of a log are checked to detect its format
+  static final int SAMPLE_LINES = 200;
+
+  private static final List<LogFormat> FORMATS = loadFormats();
+
+  private LogFormats() {
+  }
+
+  private static List<LogFormat> loadFormats() {
+    List<LogFormat> formats = new ArrayList<>(List.of(LOGCAT, LOGCAT_YEAR, LOGCAT_EPOCH, LOGCAT_MONOTONIC, KERNEL));
+    try {
+      for (LogFormat format : ServiceLoader.load(LogFormat.class)) {
+        Logger.info("Found log format: " + format.getName());
+        formats.add(format);
+      }
+    } catch (ServiceConfigurationError e) {
+      Logger.error("Failed to load the log formats", e);
+    }
+
+    return Collections.unmodifiableList(formats);
+  }
+
+  /**
+   * @return All known formats. The built-in ones come first
+   */
+  public static List<LogFormat> getFormats() {
+    return FORMATS;
+  }
+
+  /**
+   * Finds the format with most headers on the given lines. If there is a tie, the first format wins
+   *
+   * @param lines The first lines of a log (See {@link #SAMPLE_LINES})
+   * @return The format of the log. {@link #LOGCAT} if no format has any header on these lines
+   */
+  public static LogFormat detect(List<? extends CharSequence> lines) {
+    int[] headers = new int[FORMATS.size()];
+    for (CharSequence line : lines) {
+      for (int i = 0; i < headers.length; i++) {
+        if (FORMATS.get(i).isHeader(line)) {
+          headers[i]++;
+        }
+      }
+    }
+
+    return mostHeaders(headers);
+  }
+
+  /**
+   * Same as {@link #detect(List)}, for the first lines of a mapped log
+   */
+  public static LogFormat detect(MappedLogFile log) {
+    int[] headers = new int[FORMATS.size()];
+    long lineStart = 0;
+    for (int line = 0; line < SAMPLE_LINES && lineStart < log.size(); line++) {
+      long lineEnd = log.findLineEnd(lineStart);
+      for (int i = 0; i < headers.length; i++) {
+        if (FORMATS.get(i).isHeader(log, lineStart, lineEnd)) {
+          headers[i]++;
+        }
+      }
+      lineStart = log.nextLineStart(lineEnd);
+    }
+
+    return mostHeaders(headers);
+  }
+
+  private static LogFormat mostHeaders(int[] headers) {
+    int best = 0;
+    for (int i = 1; i < headers.length; i++) {
+      if (headers[i] > headers[best]) {
+        best = i;
+      }
+    }
+
+    return FORMATS.get(best);
+  }
+}
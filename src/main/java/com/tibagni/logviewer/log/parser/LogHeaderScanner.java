@@ -0,0 +1,280 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.LogLevel;
+import com.tibagni.logviewer.log.LogTimestamp;
+
+/**
+ * Reads the header of a logcat line ("MM-DD HH:MM:SS.mmm  PID  TID L TAG: ...") in a single pass,
+ * without regular expressions and without allocating anything.
+ *
+ * The results of the last {@link #scan(CharSequence)} are kept in this object, so a single instance
+ * can be reused for all lines parsed by the same thread. This is NOT thread safe
+ */
+class LogHeaderScanner implements LogFormat.HeaderScanner {
+  private static final int HEADER_PREFIX_LENGTH = "MM-DD HH:MM:SS".length();
+
+  private boolean hasTimestamp;
+  private int month;
+  private int day;
+  private int hour;
+  private int minutes;
+  private int seconds;
+  private int hundredth;
+  private int pid;
+  private int tid;
+  private LogLevel logLevel;
+
+  // Position right after the last number read by 'readNumber'
+  private int position;
+
+  /**
+   * Same as matching "^\d{2}-\d{2} \d{2}:\d{2}:\d{2}.*": Checks if this line starts a new log entry
+   */
+  static boolean isLogHeader(CharSequence line) {
+    return hasHeaderPrefix(line, false);
+  }
+
+  // "MM-DD HH:MM:SS", with exactly 2 digits on each field
+  private static boolean hasHeaderPrefix(CharSequence line, boolean anyWhitespaceSeparator) {
+    if (line.length() < HEADER_PREFIX_LENGTH) {
+      return false;
+    }
+
+    return isDigit(line.charAt(0)) && isDigit(line.charAt(1)) && line.charAt(2) == '-' &&
+        isDigit(line.charAt(3)) && isDigit(line.charAt(4)) &&
+        (anyWhitespaceSeparator ? isWhitespace(line.charAt(5)) : line.charAt(5) == ' ') &&
+        isDigit(line.charAt(6)) && isDigit(line.charAt(7)) && line.charAt(8) == ':' &&
+        isDigit(line.charAt(9)) && isDigit(line.charAt(10)) && line.charAt(11) == ':' &&
+        isDigit(line.charAt(12)) && isDigit(line.charAt(13));
+  }
+
+  /**
+   * Reads the timestamp, pid, tid and log level of the given line
+   *
+   * @param logLine The log line to be scanned. Only its first line is considered
+   */
+  @Override
+  public void scan(CharSequence logLine) {
+    hasTimestamp = scanTimestamp(logLine);
+    pid = -1;
+    tid = -1;
+    logLevel = LogLevel.DEBUG;
+
+    if (!hasHeaderPrefix(logLine, true)) {
+      return;
+    }
+
+    // Fast path for the "threadtime" format: the level comes right after the pid and tid
+    if (hasTimestamp && scanThreadTime(logLine)) {
+      return;
+    }
+
+    // Any other format: the level is the first of "VDIWE" after the date and time
+    int length = logLine.length();
+    for (int i = HEADER_PREFIX_LENGTH; i < length; i++) {
+      char c = logLine.charAt(i);
+      if (isLineTerminator(c)) {
+        break;
+      }
+
+      LogLevel level = toLogLevel(c);
+      if (level != null) {
+        logLevel = level;
+        break;
+      }
+    }
+  }
+
+  // Same as matching "^(\d{1,2})-(\d{1,2})\s(\d{1,2}):(\d{1,2}):(\d{1,2}).(\d{3,})"
+  private boolean scanTimestamp(CharSequence line) {
+    position = 0;
+    if ((month = readNumber(line, 1, 2)) < 0 || !skip(line, '-') ||
+        (day = readNumber(line, 1, 2)) < 0 || !skipWhitespace(line) ||
+        (hour = readNumber(line, 1, 2)) < 0 || !skip(line, ':') ||
+        (minutes = readNumber(line, 1, 2)) < 0 || !skip(line, ':')) {
+      return false;
+    }
+
+    int secondsStart = position;
+    if ((seconds = readNumber(line, 1, 2)) < 0) {
+      return false;
+    }
+
+    int secondsDigits = position - secondsStart;
+    if (scanFraction(line)) {
+      return true;
+    }
+
+    // The separator before the fraction can be any char, even a digit. So if we read two digits for
+    // the seconds, the second one may actually be the separator
+    if (secondsDigits == 2) {
+      position = secondsStart;
+      seconds = readNumber(line, 1, 1);
+      return scanFraction(line);
+    }
+
+    return false;
+  }
+
+  private boolean scanFraction(CharSequence line) {
+    if (position >= line.length() || isLineTerminator(line.charAt(position))) {
+      return false;
+    }
+
+    position++;
+    return (hundredth = readNumber(line, 3, Integer.MAX_VALUE)) >= 0;
+  }
+
+  // "  PID  TID L "
+  private boolean scanThreadTime(CharSequence line) {
+    if (!skipWhitespace(line) || (pid = readNumber(line, 1, 10)) < 0 ||
+        !skipWhitespace(line) || (tid = readNumber(line, 1, 10)) < 0 ||
+        !skip(line, ' ') || position >= line.length()) {
+      pid = -1;
+      tid = -1;
+      return false;
+    }
+
+    LogLevel level = toLogLevel(line.charAt(position));
+    if (level == null) {
+      return false;
+    }
+
+    logLevel = level;
+    return true;
+  }
+
+  /**
+   * Reads a decimal number starting at 'position' and moves 'position' to the end of it
+   *
+   * @return The number or -1 if there are not enough digits or it doesn't fit an int
+   */
+  private int readNumber(CharSequence line, int minDigits, int maxDigits) {
+    long value = 0;
+    int digits = 0;
+    int length = line.length();
+    while (digits < maxDigits && position < length && isDigit(line.charAt(position))) {
+      value = value * 10 + (line.charAt(position) - '0');
+      if (value > Integer.MAX_VALUE) {
+        return -1;
+      }
+
+      digits++;
+      position++;
+    }
+
+    return digits >= minDigits ? (int) value : -1;
+  }
+
+  private boolean skip(CharSequence line, char expected) {
+    if (position < line.length() && line.charAt(position) == expected) {
+      position++;
+      return true;
+    }
+
+    return false;
+  }
+
+  // Skips one or more whitespaces
+  private boolean skipWhitespace(CharSequence line) {
+    int start = position;
+    while (position < line.length() && isWhitespace(line.charAt(position))) {
+      position++;
+    }
+
+    return position > start;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  // Same as regex's "\s"
+  private static boolean isWhitespace(char c) {
+    return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+  }
+
+  // Chars not matched by regex's "."
+  private static boolean isLineTerminator(char c) {
+    return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+  }
+
+  static LogLevel toLogLevel(char c) {
+    switch (c) {
+      case 'V':
+        return LogLevel.VERBOSE;
+      case 'D':
+        return LogLevel.DEBUG;
+      case 'I':
+        return LogLevel.INFO;
+      case 'W':
+        return LogLevel.WARNING;
+      case 'E':
+        return LogLevel.ERROR;
+    }
+
+    return null;
+  }
+
+  boolean hasTimestamp() {
+    return hasTimestamp;
+  }
+
+  int getMonth() {
+    return month;
+  }
+
+  int getDay() {
+    return day;
+  }
+
+  int getHour() {
+    return hour;
+  }
+
+  int getMinutes() {
+    return minutes;
+  }
+
+  int getSeconds() {
+    return seconds;
+  }
+
+  int getHundredth() {
+    return hundredth;
+  }
+
+  /**
+   * @return The pid of the last scanned line or -1 if it is not in the "threadtime" format
+   */
+  @Override
+  public int getPid() {
+    return pid;
+  }
+
+  /**
+   * @return The tid of the last scanned line or -1 if it is not in the "threadtime" format
+   */
+  @Override
+  public int getTid() {
+    return tid;
+  }
+
+  @Override
+  public LogLevel getLogLevel() {
+    return logLevel;
+  }
+
+  /**
+   * @return The packed timestamp of the last scanned line (See {@link LogTimestamp#toKey()})
+   */
+  @Override
+  public long getTimestampKey() {
+    return hasTimestamp ?
+        LogTimestamp.toKey(month, day, hour, minutes, seconds, hundredth) : LogTimestamp.NO_TIMESTAMP;
+  }
+
+  LogTimestamp createTimestamp() {
+    return hasTimestamp ? new LogTimestamp(month, day, hour, minutes, seconds, hundredth) : null;
+  }
+}
@@ -1,6 +1,8 @@
 package com.tibagni.logviewer.log.parser;
 
 import com.tibagni.logviewer.ProgressReporter;
+import com.tibagni.logviewer.ProgressTracker;
+import com.tibagni.logviewer.TaskScheduler;
 import com.tibagni.logviewer.log.*;
 import com.tibagni.logviewer.logger.Logger;
 import com.tibagni.logviewer.util.StringUtils;
@@ -9,8 +11,9 @@ import org.jetbrains.annotations.NotNull;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class LogParser {
   // This is the maximum size of a payload log from Android
@@ -21,65 +24,529 @@ public class LogParser {
   // of size restriction, set our maximum to twice the Android's payload size.
   public static final int MAX_LOG_LINE_ALLOWED = LOGGER_ENTRY_MAX_PAYLOAD * 2;
 
-  private static final Pattern LOG_LEVEL_PATTERN =
-      Pattern.compile("^\\d{2}-\\d{2}\\s\\d{2}:\\d{2}:\\d{2}.*?([VDIWE])");
-  private static final String LOG_START_PATTERN = "^\\d{2}-\\d{2} \\d{2}:\\d{2}:\\d{2}.*";
-  private static final Pattern LOG_TIMESTAMP_PATTERN =
-      Pattern.compile("^(\\d{1,2})-(\\d{1,2})\\s(\\d{1,2}):(\\d{1,2}):(\\d{1,2}).(\\d{3,})");
+  private static final String IGNORED_LINE_PREFIX = "--------- beginning of";
+  // Logs smaller than this are never split in multiple chunks
+  private static final int MIN_CHUNK_SIZE = 16 * 1024 * 1024;
+  // How many lines are parsed between each progress update
+  private static final int PROGRESS_LINES = 4096;
+  // Bugreports have their header in their first lines, so only this much of a log is searched for it
+  // Visible for testing
+  static final int BUGREPORT_HEADER_SEARCH_SIZE = 64 * 1024;
 
   private LogReader logReader;
-  private List<LogEntry> logEntries;
   private ProgressReporter progressReporter;
   private final List<String> logsSkipped;
   private final Map<String, String> potentialBugReports;
+  // The logs that were already checked for being a bugreport
+  private final Set<String> bugReportChecks = ConcurrentHashMap.newKeySet();
+  private final Map<String, LogTail> logTails;
+  private final Map<String, Integer> lastEntryLineCounts;
+  // The format of each log, detected from its first lines (See setLogFormat)
+  private final Map<String, LogFormat> logFormats;
+  // Size of the chunks big logs are split into. 0 means it is calculated from the log size
+  private final int chunkSize;
+  // Keep the text of the entries in the mapped logs instead of copying it (See LogStore.Builder#addMapped)
+  private final boolean keepTextInLogFiles;
+  // Where the parsed logs are indexed, so they don't have to be parsed again
+  private final LogIndex logIndex;
+  // Indexes are only written once the parsed chunks are combined (and not changed anymore)
+  private final List<Runnable> pendingIndexes = new ArrayList<>();
+  // Decides which progress updates are reported. null to report one every ProgressTracker.PUBLISH_INTERVAL_MS
+  private ProgressTracker.RateLimiter progressRateLimiter;
 
   public LogParser(LogReader logReader, ProgressReporter progressReporter) {
+    this(logReader, progressReporter, false, null);
+  }
+
+  public LogParser(LogReader logReader, ProgressReporter progressReporter, boolean keepTextInLogFiles,
+                   LogIndex logIndex) {
+    this(logReader, progressReporter, 0, keepTextInLogFiles, logIndex);
+  }
+
+  // Visible for testing
+  LogParser(LogReader logReader, ProgressReporter progressReporter, int chunkSize) {
+    this(logReader, progressReporter, chunkSize, false, null);
+  }
+
+  // Visible for testing
+  LogParser(LogReader logReader, ProgressReporter progressReporter, int chunkSize, boolean keepTextInLogFiles,
+            LogIndex logIndex) {
     this.logReader = logReader;
     this.progressReporter = progressReporter;
-    this.logEntries = new ArrayList<>();
+    this.chunkSize = chunkSize;
+    this.keepTextInLogFiles = keepTextInLogFiles;
+    this.logIndex = logIndex;
     this.logsSkipped = new ArrayList<>();
-    this.potentialBugReports = new HashMap<>();
+    // Logs are parsed in parallel. Each log only touches its own key, but the map itself is shared
+    this.potentialBugReports = Collections.synchronizedMap(new LinkedHashMap<>());
+    this.logTails = new LinkedHashMap<>();
+    this.lastEntryLineCounts = Collections.synchronizedMap(new HashMap<>());
+    this.logFormats = Collections.synchronizedMap(new HashMap<>());
+  }
+
+  /**
+   * Parses the given log with this format, instead of detecting it from the first lines of the log. E.g. a log
+   * stream is parsed in batches, but its format is only detected from its first lines
+   */
+  public void setLogFormat(String log, LogFormat format) {
+    logFormats.put(log, format);
+  }
+
+  /**
+   * @return The format the given log was parsed with. null if it was not parsed yet or if the log was not read
+   * directly and had less lines than needed to be sure of its format
+   */
+  public LogFormat getLogFormat(String log) {
+    return logFormats.get(log);
   }
 
-  public LogEntry[] parseLogs(Charset charset) throws LogReaderException {
+  // Visible for testing
+  void setProgressRateLimiter(ProgressTracker.RateLimiter progressRateLimiter) {
+    this.progressRateLimiter = progressRateLimiter;
+  }
+
+  public LogStore parseLogs(Charset charset) throws LogReaderException {
     ensureState();
 
     logReader.readLogs(charset);
-    Set<String> availableLogs = logReader.getAvailableLogPaths();
-
-    int logsRead = 0;
-    for (String log : availableLogs) {
-      try {
-        int progress = logsRead++ * 90 / availableLogs.size();
-        progressReporter.onProgress(progress, "Reading " + log + "...");
-        String logText = logReader.get(log);
-        List<LogEntry> logEntriesFromFile = getLogEntries(logText, log);
-
-        if (!logEntriesFromFile.isEmpty()) {
-          logEntries.addAll(logEntriesFromFile);
-        } else {
-          Logger.warning("Skipping " + log + " because it was empty");
-          logsSkipped.add(log);
-        }
-      } catch(Exception e) {
-        Logger.warning("Skipping " + log + " because it failed to parse", e);
-        logsSkipped.add(log);
+    List<String> availableLogs = new ArrayList<>(logReader.getAvailableLogPaths());
+
+    // The results are collected in the same order of 'availableLogs',
+    // so the outcome doesn't depend on which worker finishes first
+    List<List<LogStore.Builder>> chunksPerLog = parseInParallel(availableLogs, Collections.emptyMap());
+    List<LogStore.Builder> parsedChunks = new ArrayList<>();
+    for (int i = 0; i < availableLogs.size(); i++) {
+      List<LogStore.Builder> chunksFromFile = chunksPerLog.get(i);
+      if (chunksFromFile != null) {
+        parsedChunks.addAll(chunksFromFile);
+      } else {
+        logsSkipped.add(availableLogs.get(i));
       }
     }
 
+    LogStore logEntries;
     if (availableLogs.size() > 1) {
-      progressReporter.onProgress(91, "Sorting...");
-      Collections.sort(logEntries);
+      // Each log is already (almost) in time order, so there is no need to sort everything
+      // together. Just fix any local disorder and merge the logs
+      logEntries = mergeLogs(parsedChunks);
+    } else {
+      logEntries = SortedLogsMerger.concat(parsedChunks);
+    }
+
+    pendingIndexes.forEach(Runnable::run);
+    pendingIndexes.clear();
+    progressReporter.onProgress(100, "Completed");
+    return logEntries;
+  }
+
+  /**
+   * Parses only the text that was appended to the logs since they were parsed
+   *
+   * @param previousTails Where the last parsing of each log stopped (See {@link #getLogTails()})
+   * @return The appended entries, in the same order of {@link #parseLogs}. This includes the last entry of each log that changed, as it may
+   * have changed as well. null if the logs were changed in any other way and need to be parsed again
+   */
+  public LogStore parseAppendedLogs(Charset charset, Map<String, LogTail> previousTails) throws LogReaderException {
+    ensureState();
+
+    logReader.readLogs(charset);
+    if (!logReader.getAvailableLogPaths().equals(previousTails.keySet())) {
+      return null;
+    }
+
+    List<String> appendedLogs = new ArrayList<>();
+    Map<String, Long> startOffsets = new HashMap<>();
+    for (String log : logReader.getAvailableLogPaths()) {
+      MappedLogFile mappedLog = logReader.getMappedLog(log);
+      LogTail previousTail = previousTails.get(log);
+      if (mappedLog == null || !isSameLog(log, mappedLog, previousTail)) {
+        Logger.debug(log + " was changed. It needs to be parsed again");
+        return null;
+      }
+
+      if (mappedLog.size() == previousTail.getSize()) {
+        logTails.put(log, previousTail);
+      } else {
+        appendedLogs.add(log);
+        startOffsets.put(log, previousTail.getLastEntryOffset());
+      }
+    }
+
+    List<List<LogStore.Builder>> chunksPerLog = parseInParallel(appendedLogs, startOffsets);
+    List<LogStore.Builder> parsedChunks = new ArrayList<>();
+    for (int i = 0; i < appendedLogs.size(); i++) {
+      List<LogStore.Builder> chunksFromFile = chunksPerLog.get(i);
+      if (chunksFromFile == null || !continuesLastEntry(chunksFromFile, previousTails.get(appendedLogs.get(i)))) {
+        Logger.debug(appendedLogs.get(i) + " was changed. It needs to be parsed again");
+        return null;
+      }
+
+      parsedChunks.addAll(chunksFromFile);
     }
 
-    progressReporter.onProgress(95, "Setting index...");
-    int index = 0;
-    for (LogEntry entry : logEntries) {
-      entry.setIndex(index++);
+    LogStore logEntries;
+    if (previousTails.size() > 1) {
+      logEntries = mergeLogs(parsedChunks);
+    } else {
+      logEntries = SortedLogsMerger.concat(parsedChunks);
     }
 
     progressReporter.onProgress(100, "Completed");
-    return logEntries.toArray(new LogEntry[0]);
+    return logEntries;
+  }
+
+  private LogStore mergeLogs(List<LogStore.Builder> parsedChunks) {
+    long totalEntries = 0;
+    for (LogStore.Builder chunk : parsedChunks) {
+      totalEntries += chunk.size();
+    }
+
+    ProgressTracker tracker = newTracker(91, 99, totalEntries, ProgressTracker.Unit.ENTRIES);
+    tracker.setDescription("Merging...");
+    LogStore logEntries = SortedLogsMerger.merge(parsedChunks, tracker);
+    tracker.finish();
+    return logEntries;
+  }
+
+  private boolean isSameLog(String log, MappedLogFile mappedLog, LogTail previousTail) {
+    return mappedLog.size() >= previousTail.getSize() &&
+        mappedLog.checksum(0, previousTail.getHeadLength()) == previousTail.getHeadChecksum() &&
+        (previousTail.getLastEntryText() == null || getLogFormat(log, mappedLog).isHeader(mappedLog, previousTail.getLastEntryOffset(),
+            mappedLog.findLineEnd(previousTail.getLastEntryOffset())));
+  }
+
+  // The first entry parsed again must be the (possibly longer) last entry from before
+  private boolean continuesLastEntry(List<LogStore.Builder> chunks, LogTail previousTail) {
+    if (previousTail.getLastEntryText() == null) {
+      return true;
+    }
+
+    for (LogStore.Builder chunk : chunks) {
+      if (chunk.size() > 0) {
+        return chunk.getTimestampKey(0) == previousTail.getLastEntryTimestampKey() &&
+            chunk.getText(0).startsWith(previousTail.getLastEntryText());
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Parses all logs, using as many workers as possible. Each log is parsed on its own worker and
+   * big logs are also split into chunks, so even a single huge log can use all available cores
+   *
+   * @param startOffsets Where to start parsing each log. Logs that are not here are parsed from the beginning
+   * @return The parsed chunks of each log, in order, or null for the logs that should be skipped
+   */
+  private List<List<LogStore.Builder>> parseInParallel(List<String> logs, Map<String, Long> startOffsets)
+      throws LogReaderException {
+    List<LogChunk> chunks = new ArrayList<>();
+    Map<String, LogStore.Builder> indexedLogs = new HashMap<>();
+    for (String log : logs) {
+      LogStore.Builder indexedLog = startOffsets.containsKey(log) ? null : loadIndex(log);
+      if (indexedLog != null) {
+        indexedLogs.put(log, indexedLog);
+      } else {
+        chunks.addAll(splitIntoChunks(log, startOffsets.getOrDefault(log, 0L)));
+      }
+    }
+
+    List<LogStore.Builder> entriesPerChunk = parseChunks(chunks);
+
+    // Group the chunks of each log back together. Chunks are in the same order of 'logs'
+    List<List<LogStore.Builder>> result = new ArrayList<>(logs.size());
+    int chunkIndex = 0;
+    for (String log : logs) {
+      if (indexedLogs.containsKey(log)) {
+        result.add(Collections.singletonList(indexedLogs.get(log)));
+        saveTail(log, result.get(result.size() - 1));
+        continue;
+      }
+
+      List<LogStore.Builder> chunksFromFile = new ArrayList<>();
+      int entriesCount = 0;
+      boolean failed = false;
+      for (; chunkIndex < chunks.size() && chunks.get(chunkIndex).log.equals(log); chunkIndex++) {
+        LogStore.Builder chunkEntries = entriesPerChunk.get(chunkIndex);
+        if (chunkEntries == null) {
+          failed = true;
+        } else {
+          chunksFromFile.add(chunkEntries);
+          entriesCount += chunkEntries.size();
+        }
+      }
+
+      if (failed) {
+        result.add(null);
+      } else if (entriesCount == 0) {
+        Logger.warning("Skipping " + log + " because it was empty");
+        result.add(null);
+        saveTail(log, chunksFromFile);
+      } else {
+        result.add(chunksFromFile);
+        saveTail(log, chunksFromFile);
+        if (!startOffsets.containsKey(log)) {
+          saveIndex(log, chunksFromFile);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private void saveTail(String log, List<LogStore.Builder> chunks) {
+    MappedLogFile mappedLog = logReader.getMappedLog(log);
+    if (mappedLog == null || BinaryLogcatParser.isBinaryLogcat(mappedLog)) {
+      // Only mapped text logs can be parsed from the middle
+      return;
+    }
+
+    long lastEntryTimestampKey = LogTimestamp.NO_TIMESTAMP;
+    String lastEntryText = null;
+    for (int i = chunks.size() - 1; i >= 0 && lastEntryText == null; i--) {
+      LogStore.Builder chunk = chunks.get(i);
+      if (chunk.size() > 0) {
+        lastEntryTimestampKey = chunk.getTimestampKey(chunk.size() - 1);
+        lastEntryText = chunk.getText(chunk.size() - 1);
+      }
+    }
+
+    int headLength = (int) Math.min(LogTail.HEAD_SIZE, mappedLog.size());
+    long lastEntryOffset = lastEntryText != null ? findLastLogLine(getLogFormat(log, mappedLog), mappedLog) : 0;
+    logTails.put(log, new LogTail(mappedLog.size(), headLength, mappedLog.checksum(0, headLength),
+        lastEntryOffset, lastEntryTimestampKey, lastEntryText));
+  }
+
+  private boolean shouldIndex(MappedLogFile mappedLog) {
+    return logIndex != null && mappedLog != null && logIndex.shouldIndex(mappedLog);
+  }
+
+  private LogStore.Builder loadIndex(String log) {
+    MappedLogFile mappedLog = logReader.getMappedLog(log);
+    if (!shouldIndex(mappedLog)) {
+      return null;
+    }
+
+    LogIndex.IndexedLog indexedLog = logIndex.load(mappedLog, getFileName(log));
+    if (indexedLog == null) {
+      return null;
+    }
+
+    Logger.debug("Using the index of " + log);
+    if (indexedLog.isPotentialBugReport() && bugReportChecks.add(log)) {
+      String bugReportText = getBugReportText(log, mappedLog);
+      if (bugReportText != null) {
+        potentialBugReports.put(log, bugReportText);
+      }
+    }
+
+    // The index only has where the text is in the log. Decode it now if it should not stay there
+    return keepTextInLogFiles ? indexedLog.getEntries() : indexedLog.getEntries().copyText();
+  }
+
+  private void saveIndex(String log, List<LogStore.Builder> chunks) {
+    MappedLogFile mappedLog = logReader.getMappedLog(log);
+    if (shouldIndex(mappedLog)) {
+      boolean potentialBugReport = potentialBugReports.containsKey(log);
+      pendingIndexes.add(() -> logIndex.save(mappedLog, chunks, potentialBugReport));
+    }
+  }
+
+  private List<LogStore.Builder> parseChunks(List<LogChunk> chunks) throws LogReaderException {
+    TaskScheduler scheduler = TaskScheduler.get();
+    ProgressTracker tracker = newTracker(0, 90, getTotalSize(chunks), ProgressTracker.Unit.BYTES);
+    // When the size of the logs is not known, the progress is how many chunks were picked up
+    tracker.setTotalItems(chunks.size());
+    List<LogStore.Builder> result = new ArrayList<>(chunks.size());
+
+    if (chunks.size() <= 1 || scheduler.getParallelism() <= 1) {
+      // No need to use any other thread if there is nothing to do in parallel
+      for (LogChunk chunk : chunks) {
+        result.add(parseChunk(chunk, tracker));
+      }
+      finishTracking(tracker, chunks);
+      return result;
+    }
+
+    List<Callable<LogStore.Builder>> tasks = new ArrayList<>(chunks.size());
+    for (LogChunk chunk : chunks) {
+      tasks.add(() -> parseChunk(chunk, tracker));
+    }
+
+    try {
+      result.addAll(scheduler.invokeAll(TaskScheduler.Priority.USER, tasks));
+      finishTracking(tracker, chunks);
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new LogReaderException("Interrupted while parsing logs", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof CancellationException) {
+        throw (CancellationException) e.getCause();
+      }
+
+      // 'parseChunk' handles all other errors, so this should never happen
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private ProgressTracker newTracker(int fromProgress, int toProgress, long total, ProgressTracker.Unit unit) {
+    if (progressRateLimiter != null) {
+      return new ProgressTracker(progressReporter, fromProgress, toProgress, total, unit, System::nanoTime,
+          progressRateLimiter);
+    }
+    return new ProgressTracker(progressReporter, fromProgress, toProgress, total, unit);
+  }
+
+  // The size of the logs is only known if all of them are mapped. 0 otherwise
+  private static long getTotalSize(List<LogChunk> chunks) {
+    long totalSize = 0;
+    for (LogChunk chunk : chunks) {
+      if (chunk.mappedLog == null) {
+        return 0;
+      }
+      totalSize += chunk.end - chunk.start;
+    }
+
+    return totalSize;
+  }
+
+  private static void finishTracking(ProgressTracker tracker, List<LogChunk> chunks) {
+    if (!chunks.isEmpty()) {
+      tracker.finish();
+    }
+  }
+
+  private LogStore.Builder parseChunk(LogChunk chunk, ProgressTracker tracker) {
+    // The description is shared by all workers, so it shows the last chunk that was picked up
+    tracker.startItem("Reading " + chunk.log + "...");
+    return parseChunkEntries(chunk, tracker);
+  }
+
+  /**
+   * Parses a single chunk. This can be called from multiple threads at the same time (one for each chunk)
+   *
+   * @param chunk   The chunk to be parsed
+   * @param tracker Where the parsed bytes and lines are reported
+   * @return All the log entries from this chunk or null if it failed to parse
+   */
+  private LogStore.Builder parseChunkEntries(LogChunk chunk, ProgressTracker tracker) {
+    try {
+      if (chunk.binary) {
+        LogStore.Builder entries = new BinaryLogcatParser().parse(chunk.mappedLog, chunk.log, getFileName(chunk.log));
+        tracker.add(chunk.end - chunk.start, entries.size());
+        return entries;
+      }
+
+      if (chunk.mappedLog != null) {
+        return getLogEntries(chunk.mappedLog, chunk.log, chunk.start, chunk.end, tracker);
+      }
+
+      try (Stream<String> lines = logReader.getLines(chunk.log)) {
+        return getLogEntries(lines, chunk.log, tracker);
+      }
+    } catch (CancellationException e) {
+      throw e;
+    } catch(Exception e) {
+      Logger.warning("Skipping " + chunk.log + " because it failed to parse", e);
+      return null;
+    }
+  }
+
+  /**
+   * Splits a mapped log in chunks that can be parsed independently. Chunks always start on a log
+   * header line, so the continuation lines of an entry are always in the same chunk of its header
+   */
+  private List<LogChunk> splitIntoChunks(String log, long start) {
+    MappedLogFile mappedLog = logReader.getMappedLog(log);
+    if (mappedLog == null) {
+      // Only mapped logs can be accessed at random positions
+      return Collections.singletonList(new LogChunk(log, null, 0, 0));
+    }
+
+    if (start == 0 && BinaryLogcatParser.isBinaryLogcat(mappedLog)) {
+      // Records can only be found by walking from the first one, so binary logs are never split
+      return Collections.singletonList(new LogChunk(log, mappedLog, 0, mappedLog.size(), true));
+    }
+
+    LogFormat format = getLogFormat(log, mappedLog);
+    long size = mappedLog.size();
+    int targetChunkSize = chunkSize > 0 ? chunkSize : Math.max(MIN_CHUNK_SIZE,
+        (int) Math.ceil((double) (size - start) / TaskScheduler.get().getParallelism()));
+
+    List<LogChunk> chunks = new ArrayList<>();
+    long chunkStart = start;
+    while (chunkStart < size) {
+      long chunkEnd = chunkStart + targetChunkSize < size ?
+          findNextLogLine(format, mappedLog, chunkStart + targetChunkSize) : size;
+      chunks.add(new LogChunk(log, mappedLog, chunkStart, chunkEnd));
+      chunkStart = chunkEnd;
+    }
+
+    return chunks.isEmpty() ? Collections.singletonList(new LogChunk(log, mappedLog, start, start)) : chunks;
+  }
+
+  // Finds the start of the first log header line after 'position' (or the log size if there is none)
+  private long findNextLogLine(LogFormat format, MappedLogFile logFile, long position) {
+    long size = logFile.size();
+    long lineStart = logFile.nextLineStart(logFile.findLineEnd(position));
+    while (lineStart < size) {
+      long lineEnd = logFile.findLineEnd(lineStart);
+      if (format.isHeader(logFile, lineStart, lineEnd)) {
+        return lineStart;
+      }
+      lineStart = logFile.nextLineStart(lineEnd);
+    }
+
+    return size;
+  }
+
+  // Finds the start of the last log header line (or -1 if there is none)
+  private long findLastLogLine(LogFormat format, MappedLogFile logFile) {
+    long lineEnd = logFile.size();
+    while (lineEnd >= 0) {
+      long lineStart = lineEnd;
+      while (lineStart > 0 && logFile.byteAt(lineStart - 1) != '\n' && logFile.byteAt(lineStart - 1) != '\r') {
+        lineStart--;
+      }
+
+      if (format.isHeader(logFile, lineStart, lineEnd)) {
+        return lineStart;
+      }
+      lineEnd = lineStart - 1;
+    }
+
+    return -1;
+  }
+
+  private LogFormat getLogFormat(String log, MappedLogFile mappedLog) {
+    return logFormats.computeIfAbsent(log, l -> {
+      LogFormat format = LogFormats.detect(mappedLog);
+      Logger.debug("Format of " + l + ": " + format.getName());
+      return format;
+    });
+  }
+
+  private static class LogChunk {
+    final String log;
+    // null if the log can't be accessed directly. In this case the whole log is a single chunk
+    final MappedLogFile mappedLog;
+    final long start;
+    final long end;
+    // Binary logcat capture (See BinaryLogcatParser)
+    final boolean binary;
+
+    LogChunk(String log, MappedLogFile mappedLog, long start, long end) {
+      this(log, mappedLog, start, end, false);
+    }
+
+    LogChunk(String log, MappedLogFile mappedLog, long start, long end, boolean binary) {
+      this.log = log;
+      this.mappedLog = mappedLog;
+      this.start = start;
+      this.end = end;
+      this.binary = binary;
+    }
   }
 
   @NotNull
@@ -87,6 +554,22 @@ public class LogParser {
     return logsSkipped;
   }
 
+  /**
+   * @return Where the parsing of each (mapped) log stopped. See {@link #parseAppendedLogs(Charset, Map)}
+   */
+  @NotNull
+  public Map<String, LogTail> getLogTails() {
+    return logTails;
+  }
+
+  /**
+   * @return How many lines (from the end of the log) are part of its last entry. Only known for logs that
+   * are not mapped
+   */
+  public int getLastEntryLineCount(String log) {
+    return lastEntryLineCounts.getOrDefault(log, 0);
+  }
+
   @NotNull
   public Map<String, String> getPotentialBugReports() {
     return potentialBugReports;
@@ -106,132 +589,384 @@ public class LogParser {
   }
 
   private void ensureState() {
-    if (logReader == null || logEntries == null || progressReporter == null) {
+    if (logReader == null || progressReporter == null) {
       throw new IllegalStateException("LogParser was already released. Cannot use it...");
     }
   }
 
   public void release() {
-    logEntries.clear();
-    logEntries = null;
-
     progressReporter = null;
 
     logReader.close();
     logReader = null;
   }
 
-  private List<LogEntry> getLogEntries(String logText, String logPath) {
-    String[] lines = logText.split(StringUtils.LINE_SEPARATOR);
-    List<LogEntry> logLines = new ArrayList<>(lines.length);
+  private LogStore.Builder getLogEntries(Stream<String> lines, String logPath, ProgressTracker tracker) {
+    // Consume the lines one by one, so the log never needs to be in memory as a whole.
+    // Only the first lines are kept for a while, to detect the format of the log
+    Iterator<String> linesIterator = lines.iterator();
+    List<String> sampleLines = new ArrayList<>();
+    while (sampleLines.size() < LogFormats.SAMPLE_LINES && linesIterator.hasNext()) {
+      sampleLines.add(linesIterator.next());
+    }
 
-    StringBuilder currentLogLine = null;
-    for (String line : lines) {
+    LogFormat format = logFormats.get(logPath);
+    if (format == null) {
+      format = LogFormats.detect(sampleLines);
+      // With less lines the log may be a stream that just started, so only the format of this text is known
+      if (sampleLines.size() == LogFormats.SAMPLE_LINES) {
+        logFormats.put(logPath, format);
+      }
+    }
+    // The whole log is only read again (and decompressed, for compressed logs) if its head has the bugreport header
+    LogEntriesBuilder builder = new LogEntriesBuilder(logPath, format, () -> getLogHead(logPath),
+        () -> logReader.get(logPath).replace("\r", ""));
+
+    Iterator<String> sampleIterator = sampleLines.iterator();
+    int lineCount = 0;
+    int lastEntryStart = 0;
+    // The real size of the lines is not known here (they were already decoded). Count chars as an approximation
+    long charsRead = 0;
+    while (sampleIterator.hasNext() || linesIterator.hasNext()) {
+      String rawLine = sampleIterator.hasNext() ? sampleIterator.next() : linesIterator.next();
+      charsRead += rawLine.length() + 1;
       // Sometimes a line can contain a lot of NULL chars at the end, making it fail when trying to open the log
       // (as these NULL chars will make the line length too long). So check here if the line has NULL chars
       // and remove them to avoid failing to open valid log files
-      if (!line.isEmpty() && line.charAt(line.length() - 1) == '\u0000') {
-        line = line.replaceAll("\\u0000", "");
+      String line = removeTrailingNullChars(rawLine);
+
+      if (format.isHeader(line)) {
+        builder.startEntry(line);
+        lastEntryStart = lineCount;
+      } else if (builder.hasEntry() && !shouldIgnoreLine(line)) {
+        builder.appendLine(line);
+      }
+      lineCount++;
+
+      if (lineCount % PROGRESS_LINES == 0) {
+        tracker.add(charsRead, PROGRESS_LINES);
+        charsRead = 0;
+      }
+    }
+
+    tracker.add(charsRead, lineCount % PROGRESS_LINES);
+
+    lastEntryLineCounts.put(logPath, builder.hasEntry() ? lineCount - lastEntryStart : 0);
+    return builder.build(true);
+  }
+
+  private LogStore.Builder getLogEntries(MappedLogFile logFile, String logPath, long start, long end,
+                                         ProgressTracker tracker) {
+    LogFormat format = getLogFormat(logPath, logFile);
+    // Where the text of the entries is in the log is also needed to index it, even if the text is copied
+    LogEntriesBuilder builder =
+        new LogEntriesBuilder(logPath, format, () -> logFile.decodeHead(BUGREPORT_HEADER_SEARCH_SIZE),
+            () -> getBugReportText(logPath, logFile), keepTextInLogFiles || shouldIndex(logFile) ? logFile : null,
+            keepTextInLogFiles, end);
+
+    // Find the lines and the log headers directly on the mapped bytes. Text is only decoded
+    // for the lines that will actually be part of a log entry
+    long lineStart = start;
+    long reportedPosition = start;
+    int lineCount = 0;
+    while (lineStart < end) {
+      long lineEnd = logFile.findLineEnd(lineStart);
+
+      if (format.isHeader(logFile, lineStart, lineEnd)) {
+        builder.startEntry(removeTrailingNullChars(logFile.decode(lineStart, lineEnd)), lineStart, lineEnd);
+      } else if (builder.hasEntry() && !shouldIgnoreLine(logFile, lineStart, lineEnd)) {
+        builder.appendLine(removeTrailingNullChars(logFile.decode(lineStart, lineEnd)), lineStart, lineEnd);
+      }
+
+      lineStart = logFile.nextLineStart(lineEnd);
+      if (++lineCount % PROGRESS_LINES == 0) {
+        tracker.add(lineStart - reportedPosition, PROGRESS_LINES);
+        reportedPosition = lineStart;
+      }
+    }
+
+    tracker.add(end - reportedPosition, lineCount % PROGRESS_LINES);
+
+    // Empty lines at the end of a chunk are still part of its last entry if there is another chunk after it
+    return builder.build(end >= logFile.size());
+  }
+
+  /**
+   * Groups the lines of a log into log entries. A log entry starts on a log header line and
+   * includes all the following lines until the next header (continuation lines)
+   */
+  private class LogEntriesBuilder {
+    private final String logPath;
+    // The beginning of the log, where a bugreport has its header
+    private final Supplier<String> logHeadSupplier;
+    // The text of the log without '\r', for the bugreport parsers. Null if it is too large
+    private final Supplier<String> bugReportTextSupplier;
+    private final LogStore.Builder logLines;
+    private final int sourceId;
+    private final LogFormat.HeaderScanner headerScanner;
+    private StringBuilder currentLogLine;
+    private int pendingEmptyLines;
+
+    // Only set if the position of the text of the entries in the mapped log is needed
+    private final MappedLogFile mappedLog;
+    // If the text of the entries should be kept in the mapped log instead of being copied
+    private final boolean keepTextInLog;
+    private final long mappedLogEnd;
+    // Where the text of the current entry is in 'mappedLog'.
+    // 'textStart' is -1 if the text is not exactly the same of the mapped bytes
+    private long textStart = -1;
+    private long textEnd;
+
+    LogEntriesBuilder(String logPath, LogFormat format, Supplier<String> logHeadSupplier,
+                      Supplier<String> bugReportTextSupplier) {
+      this(logPath, format, logHeadSupplier, bugReportTextSupplier, null, false, 0);
+    }
+
+    LogEntriesBuilder(String logPath, LogFormat format, Supplier<String> logHeadSupplier,
+                      Supplier<String> bugReportTextSupplier, MappedLogFile mappedLog, boolean keepTextInLog,
+                      long mappedLogEnd) {
+      this.logPath = logPath;
+      this.headerScanner = format.newScanner();
+      this.logHeadSupplier = logHeadSupplier;
+      this.bugReportTextSupplier = bugReportTextSupplier;
+      this.mappedLog = mappedLog;
+      this.keepTextInLog = keepTextInLog && mappedLog != null;
+      this.mappedLogEnd = mappedLogEnd;
+      this.logLines = new LogStore.Builder();
+      this.sourceId = logLines.addSource(logPath, getFileName(logPath), this.keepTextInLog ? mappedLog : null);
+    }
+
+    boolean hasEntry() {
+      return currentLogLine != null;
+    }
+
+    void startEntry(String line) {
+      startEntry(line, -1, -1);
+    }
+
+    void startEntry(String line, long lineStart, long lineEnd) {
+      appendPendingEmptyLines(lineStart);
+      if (currentLogLine != null) {
+        addLogEntry(currentLogLine.toString());
+      }
+
+      currentLogLine = new StringBuilder(line);
+      textStart = isMappedLine(lineStart, lineEnd) ? lineStart : -1;
+      textEnd = lineEnd;
+    }
+
+    void appendLine(String line) {
+      appendLine(line, -1, -1);
+    }
+
+    void appendLine(String line, long lineStart, long lineEnd) {
+      // Empty lines at the end of the log are not part of the last entry, so only
+      // append them once we know there is something else after them
+      if (line.isEmpty()) {
+        pendingEmptyLines++;
+        return;
+      }
+
+      appendPendingEmptyLines(lineStart);
+      if (currentLogLine != null) {
+        extendMappedText(lineStart, 1, isMappedLine(lineStart, lineEnd) ? lineEnd : -1);
+        appendContinuationLine(line);
+      }
+    }
+
+    private void appendPendingEmptyLines(long nextLineStart) {
+      if (pendingEmptyLines > 0 && currentLogLine != null) {
+        extendMappedText(nextLineStart, pendingEmptyLines + 1,
+            nextLineStart - StringUtils.LINE_SEPARATOR.length());
+      }
+
+      for (; pendingEmptyLines > 0 && currentLogLine != null; pendingEmptyLines--) {
+        appendContinuationLine("");
+      }
+
+      pendingEmptyLines = 0;
+    }
+
+    // Lines with NULL chars are changed before they are added (See 'removeTrailingNullChars')
+    private boolean isMappedLine(long lineStart, long lineEnd) {
+      return mappedLog != null && lineStart >= 0 && (lineStart == lineEnd || mappedLog.byteAt(lineEnd - 1) != 0);
+    }
+
+    /**
+     * Lines are joined with LINE_SEPARATOR. So the current entry is still the same of the mapped bytes
+     * only if the bytes between it and the next line are exactly the separators that are going to be added
+     *
+     * @param nextLineStart Where the next line to be appended starts
+     * @param separators    How many separators will be added before the next line
+     * @param newTextEnd    Where the current entry ends after the next line is appended (-1 if it can't be mapped)
+     */
+    private void extendMappedText(long nextLineStart, int separators, long newTextEnd) {
+      if (textStart < 0) {
+        return;
+      }
+
+      String separator = StringUtils.LINE_SEPARATOR;
+      long gap = nextLineStart - textEnd;
+      if (nextLineStart < 0 || newTextEnd < 0 || gap != separators * separator.length()) {
+        textStart = -1;
+        return;
       }
 
-      if (isLogLine(line)) {
-        if (currentLogLine != null) {
-          logLines.add(createLogEntry(currentLogLine.toString(), logPath));
+      for (int i = 0; i < gap; i++) {
+        if (mappedLog.byteAt(textEnd + i) != separator.charAt(i % separator.length())) {
+          textStart = -1;
+          return;
         }
+      }
+
+      textEnd = newTextEnd;
+    }
 
-        currentLogLine = new StringBuilder(line);
-      } else if (!shouldIgnoreLine(line) && currentLogLine != null) {
-        // This is probably a continuation of a already started log line. Append to it
-        if (currentLogLine.length() >= MAX_LOG_LINE_ALLOWED) {
-          currentLogLine.delete(MAX_LOG_LINE_ALLOWED, currentLogLine.length());
-
-          // First check if we have already considered this as a potential bugreport. If so,
-          // don't waste any more time here
-          if (!potentialBugReports.containsKey(logPath)) {
-            String incorrectLinePreview = currentLogLine.substring(0, 100) + "...";
-            Logger.warning(
-                "Incorrect format on following line (too long - " + currentLogLine.length() + " bytes):\n" +
-                    "\"" + incorrectLinePreview + "\"\n\n" +
-                    "Maximum logcat line should be " + LOGGER_ENTRY_MAX_PAYLOAD + " bytes");
-
-            // This could be a bugreport. If this is the case, keep track of it
-            if (isPotentialBugReport(logText)) {
-              Logger.info("Found a potential bugreport: " + logPath);
-
-              // Make sure to remove all '\r' so it does not get in the way of the parsers
-              String bugReportText = logText.replaceAll("\r", "");
+    private void appendContinuationLine(String line) {
+      // This is probably a continuation of a already started log line. Append to it
+      if (currentLogLine.length() >= MAX_LOG_LINE_ALLOWED) {
+        currentLogLine.delete(MAX_LOG_LINE_ALLOWED, currentLogLine.length());
+
+        // Only check once if this log is a potential bugreport. Its chunks are parsed in parallel,
+        // so this makes sure only one of them decodes the log
+        if (bugReportChecks.add(logPath)) {
+          String incorrectLinePreview = currentLogLine.substring(0, 100) + "...";
+          Logger.warning(
+              "Incorrect format on following line (too long - " + currentLogLine.length() + " bytes):\n" +
+                  "\"" + incorrectLinePreview + "\"\n\n" +
+                  "Maximum logcat line should be " + LOGGER_ENTRY_MAX_PAYLOAD + " bytes");
+
+          // This could be a bugreport. If this is the case, keep track of it
+          if (isPotentialBugReport(logHeadSupplier.get())) {
+            Logger.info("Found a potential bugreport: " + logPath);
+
+            String bugReportText = bugReportTextSupplier.get();
+            if (bugReportText != null) {
               potentialBugReports.put(logPath, bugReportText);
             }
           }
+        }
 
-          // We are done with this line, add it to the list and clear currentLogLine to avoid
-          // executing this same code over and over for invalid lines
-          logLines.add(createLogEntry(currentLogLine.toString(), logPath));
-          currentLogLine = null;
+        // We are done with this line, add it to the list and clear currentLogLine to avoid
+        // executing this same code over and over for invalid lines
+        textStart = -1;
+        addLogEntry(currentLogLine.toString());
+        currentLogLine = null;
 
-          // This could simply be a malformed line, just continue parsing other lines
-          continue;
-        }
-        currentLogLine.append(StringUtils.LINE_SEPARATOR).append(line);
+        // This could simply be a malformed line, just continue parsing other lines
+        return;
       }
+      currentLogLine.append(StringUtils.LINE_SEPARATOR).append(line);
     }
 
-    // Make sure to add the last log line as well
-    if (currentLogLine != null) {
-      logLines.add(createLogEntry(currentLogLine.toString(), logPath));
+    LogStore.Builder build(boolean endOfLog) {
+      if (endOfLog) {
+        pendingEmptyLines = 0;
+      } else {
+        appendPendingEmptyLines(mappedLogEnd);
+      }
+
+      // Make sure to add the last log line as well
+      if (currentLogLine != null) {
+        addLogEntry(currentLogLine.toString());
+        currentLogLine = null;
+      }
+
+      return logLines;
     }
 
-    return logLines;
+    private void addLogEntry(String logLine) {
+      headerScanner.scan(logLine);
+      // Entries that are too long are always copied. Their text could be cut differently when decoded with
+      // another charset (See LogStore#withCharset)
+      if (textStart >= 0 && textEnd - textStart < MAX_LOG_LINE_ALLOWED && keepTextInLog) {
+        logLines.addMapped(textStart, (int) (textEnd - textStart), headerScanner.getLogLevel(),
+            headerScanner.getTimestampKey(), headerScanner.getPid(), headerScanner.getTid(), sourceId);
+      } else if (textStart >= 0 && textEnd - textStart < MAX_LOG_LINE_ALLOWED) {
+        logLines.add(logLine, textStart, (int) (textEnd - textStart), headerScanner.getLogLevel(),
+            headerScanner.getTimestampKey(), headerScanner.getPid(), headerScanner.getTid(), sourceId);
+      } else {
+        logLines.add(logLine, headerScanner.getLogLevel(), headerScanner.getTimestampKey(),
+            headerScanner.getPid(), headerScanner.getTid(), sourceId);
+      }
+    }
   }
 
-  private LogEntry createLogEntry(String logLine, String logName) {
+  private String getFileName(String logName) {
     // Extract filename from the full path
     String fileName = logName;
     if (logName != null && logName.contains(java.io.File.separator)) {
       fileName = logName.substring(logName.lastIndexOf(java.io.File.separator) + 1);
     }
-    return new LogEntry(logLine, findLogLevel(logLine), findTimestamp(logLine), logName, fileName);
+
+    return fileName;
   }
 
   LogLevel findLogLevel(String logLine) {
-    LogLevel logLevel = LogLevel.DEBUG;
+    LogHeaderScanner headerScanner = new LogHeaderScanner();
+    headerScanner.scan(logLine);
+    return headerScanner.getLogLevel();
+  }
 
-    Matcher matcher = LOG_LEVEL_PATTERN.matcher(logLine);
-    if (matcher.find()) {
-      logLevel = LogLevel.createFromStringLevel(matcher.group(1));
-    }
+  LogTimestamp findTimestamp(String logLine) {
+    LogHeaderScanner headerScanner = new LogHeaderScanner();
+    headerScanner.scan(logLine);
+    return headerScanner.createTimestamp();
+  }
 
-    return logLevel;
+  private boolean shouldIgnoreLine(String line) {
+    return line.startsWith(IGNORED_LINE_PREFIX);
   }
 
-  LogTimestamp findTimestamp(String logLine) {
-    LogTimestamp timestamp = null;
+  private boolean shouldIgnoreLine(MappedLogFile logFile, long lineStart, long lineEnd) {
+    return logFile.startsWith(lineStart, lineEnd, IGNORED_LINE_PREFIX);
+  }
 
-    try {
-      Matcher matcher = LOG_TIMESTAMP_PATTERN.matcher(logLine);
-      if (matcher.find()) {
-        timestamp = new LogTimestamp(matcher.group(1),
-            matcher.group(2),
-            matcher.group(3),
-            matcher.group(4),
-            matcher.group(5),
-            matcher.group(6));
+  private String removeTrailingNullChars(String line) {
+    int length = line.length();
+    if (length == 0 || line.charAt(length - 1) != '\u0000') {
+      return line;
+    }
+
+    // Remove all NULL chars, not only the trailing ones
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      char c = line.charAt(i);
+      if (c != '\u0000') {
+        builder.append(c);
       }
-    } catch (Exception e) {
-      // Don't add a timestamp if we couldn't parse it
-      // This should never happen anyway
-      Logger.error("Failed to parse timestamp for: " + logLine, e);
     }
 
-    return timestamp;
+    return builder.toString();
   }
 
-  private boolean isLogLine(String line) {
-    return line.matches(LOG_START_PATTERN);
+  /**
+   * @return The text of a mapped log for the bugreport parsers, or null if it is too large to be held in memory
+   */
+  private String getBugReportText(String log, MappedLogFile mappedLog) {
+    if (!mappedLog.canDecodeAll()) {
+      Logger.warning(log + " may be a bugreport, but it is too large (" + mappedLog.size() + " bytes) to be parsed");
+      return null;
+    }
+
+    // Make sure to remove all '\r' so it does not get in the way of the parsers
+    return mappedLog.decodeAll().replace("\r", "");
   }
 
-  private boolean shouldIgnoreLine(String line) {
-    return line.startsWith("--------- beginning of");
+  /**
+   * @return The first BUGREPORT_HEADER_SEARCH_SIZE chars of a log that is not mapped. Only its first lines are read
+   */
+  private String getLogHead(String log) {
+    StringBuilder head = new StringBuilder();
+    try (Stream<String> lines = logReader.getLines(log)) {
+      Iterator<String> linesIterator = lines.iterator();
+      while (head.length() < BUGREPORT_HEADER_SEARCH_SIZE && linesIterator.hasNext()) {
+        head.append(linesIterator.next()).append('\n');
+      }
+    }
+
+    head.setLength(Math.min(head.length(), BUGREPORT_HEADER_SEARCH_SIZE));
+    return head.toString();
   }
 
   private boolean isPotentialBugReport(String logText) {
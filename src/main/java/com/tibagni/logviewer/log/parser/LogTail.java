@@ -0,0 +1,61 @@
+package com.tibagni.logviewer.log.parser;
+
+/**
+ * Where the parsing of a log stopped. When more text is appended to the log, only the appended
+ * text needs to be parsed (See {@link LogParser#parseAppendedLogs})
+ */
+public class LogTail {
+  // The beginning of the log is checked to make sure it is still the same log
+  static final int HEAD_SIZE = 4096;
+
+  private final long size;
+  private final int headLength;
+  private final long headChecksum;
+  private final long lastEntryOffset;
+  private final long lastEntryTimestampKey;
+  private final String lastEntryText;
+
+  LogTail(long size, int headLength, long headChecksum, long lastEntryOffset, long lastEntryTimestampKey,
+          String lastEntryText) {
+    this.size = size;
+    this.headLength = headLength;
+    this.headChecksum = headChecksum;
+    this.lastEntryOffset = lastEntryOffset;
+    this.lastEntryTimestampKey = lastEntryTimestampKey;
+    this.lastEntryText = lastEntryText;
+  }
+
+  /**
+   * @return The size of the log, in bytes
+   */
+  public long getSize() {
+    return size;
+  }
+
+  int getHeadLength() {
+    return headLength;
+  }
+
+  long getHeadChecksum() {
+    return headChecksum;
+  }
+
+  /**
+   * @return Where the last entry of the log starts. The last entry is always parsed again, as its
+   * continuation lines may be in the appended text
+   */
+  long getLastEntryOffset() {
+    return lastEntryOffset;
+  }
+
+  public long getLastEntryTimestampKey() {
+    return lastEntryTimestampKey;
+  }
+
+  /**
+   * @return The text of the last entry of the log or null if the log had no entries
+   */
+  public String getLastEntryText() {
+    return lastEntryText;
+  }
+}
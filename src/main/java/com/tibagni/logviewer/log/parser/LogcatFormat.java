@@ -0,0 +1,46 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.MappedLogFile;
+
+/**
+ * The formats of "adb logcat" that start with "MM-DD HH:MM:SS" ("threadtime", "time"...)
+ */
+class LogcatFormat implements LogFormat {
+  // Log entries start with "MM-DD HH:MM:SS". 'd' stands for a digit
+  private static final String LOG_START_FORMAT = "dd-dd dd:dd:dd";
+  private static final int LOG_START_LENGTH = LOG_START_FORMAT.length();
+
+  @Override
+  public String getName() {
+    return "logcat";
+  }
+
+  @Override
+  public boolean isHeader(CharSequence line) {
+    return LogHeaderScanner.isLogHeader(line);
+  }
+
+  // Same as LogHeaderScanner.isLogHeader, but checked directly on the raw bytes: "MM-DD HH:MM:SS".
+  // This is the most common format, so it is worth not going through MappedLine
+  @Override
+  public boolean isHeader(MappedLogFile log, long lineStart, long lineEnd) {
+    if (lineEnd - lineStart < LOG_START_LENGTH) {
+      return false;
+    }
+
+    for (int i = 0; i < LOG_START_LENGTH; i++) {
+      byte b = log.byteAt(lineStart + i);
+      char expected = LOG_START_FORMAT.charAt(i);
+      if (expected == 'd' ? (b < '0' || b > '9') : b != expected) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public HeaderScanner newScanner() {
+    return new LogHeaderScanner();
+  }
+}
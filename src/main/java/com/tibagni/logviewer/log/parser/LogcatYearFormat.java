@@ -0,0 +1,70 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.LogLevel;
+
+import java.nio.CharBuffer;
+
+/**
+ * "adb logcat -v year": Same as {@link LogcatFormat}, but the date starts with the year ("YYYY-MM-DD HH:MM:SS").
+ * The year is not part of the timestamp, so these logs can still be merged with logs of other formats
+ */
+class LogcatYearFormat implements LogFormat {
+  private static final int YEAR_LENGTH = "YYYY-".length();
+
+  @Override
+  public String getName() {
+    return "logcat (year)";
+  }
+
+  @Override
+  public boolean isHeader(CharSequence line) {
+    return line.length() > YEAR_LENGTH && isYear(line) && LogHeaderScanner.isLogHeader(withoutYear(line));
+  }
+
+  private static boolean isYear(CharSequence line) {
+    for (int i = 0; i < YEAR_LENGTH - 1; i++) {
+      if (line.charAt(i) < '0' || line.charAt(i) > '9') {
+        return false;
+      }
+    }
+
+    return line.charAt(YEAR_LENGTH - 1) == '-';
+  }
+
+  // A view of the rest of the line. Nothing is copied
+  private static CharSequence withoutYear(CharSequence line) {
+    return CharBuffer.wrap(line, YEAR_LENGTH, line.length());
+  }
+
+  @Override
+  public HeaderScanner newScanner() {
+    return new HeaderScanner() {
+      private final LogHeaderScanner scanner = new LogHeaderScanner();
+
+      @Override
+      public void scan(CharSequence logLine) {
+        scanner.scan(logLine.length() > YEAR_LENGTH && isYear(logLine) ? withoutYear(logLine) : logLine);
+      }
+
+      @Override
+      public LogLevel getLogLevel() {
+        return scanner.getLogLevel();
+      }
+
+      @Override
+      public long getTimestampKey() {
+        return scanner.getTimestampKey();
+      }
+
+      @Override
+      public int getPid() {
+        return scanner.getPid();
+      }
+
+      @Override
+      public int getTid() {
+        return scanner.getTid();
+      }
+    };
+  }
+}
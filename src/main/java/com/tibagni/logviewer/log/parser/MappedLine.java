@@ -0,0 +1,42 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.MappedLogFile;
+
+/**
+ * The beginning of a line of a mapped log, seen as chars without being decoded. Each byte is a char,
+ * which is only right for ASCII text. That is enough to check log headers
+ */
+class MappedLine implements CharSequence {
+  // Headers are always at the beginning of the line, there is no need to look any further
+  private static final int MAX_LENGTH = 256;
+
+  private final MappedLogFile log;
+  private final long start;
+  private final int length;
+
+  MappedLine(MappedLogFile log, long start, long end) {
+    this.log = log;
+    this.start = start;
+    this.length = (int) Math.min(end - start, MAX_LENGTH);
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (log.byteAt(start + index) & 0xFF);
+  }
+
+  @Override
+  public CharSequence subSequence(int start, int end) {
+    return toString().substring(start, end);
+  }
+
+  @Override
+  public String toString() {
+    return log.decode(start, start + length);
+  }
+}
@@ -0,0 +1,178 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.log.LogLevel;
+import com.tibagni.logviewer.log.LogTimestamp;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * "adb logcat -v epoch" and "adb logcat -v monotonic": The timestamp is a number of seconds
+ * ("SSSSSSSSSS.mmm  PID  TID L TAG: ..."), since 1970 for "epoch" and since the device booted for "monotonic".
+ *
+ * Both are normalized to {@link LogTimestamp} keys. Seconds since 1970 are converted to a date in the local
+ * time zone. Seconds since boot are not a date, so they are kept as days, hours, minutes and seconds
+ */
+class SecondsLogFormat implements LogFormat {
+  // Any time since 2001 has at least 10 digits. Nothing has been running for that many seconds since boot
+  private static final int MIN_EPOCH_DIGITS = 10;
+  private static final int MAX_SECONDS_DIGITS = 18;
+  private static final int DAYS_PER_MONTH = 32;
+
+  private final boolean epoch;
+  private final ZoneId zone;
+
+  SecondsLogFormat(boolean epoch, ZoneId zone) {
+    this.epoch = epoch;
+    this.zone = zone;
+  }
+
+  @Override
+  public String getName() {
+    return epoch ? "logcat (epoch)" : "logcat (monotonic)";
+  }
+
+  @Override
+  public boolean isHeader(CharSequence line) {
+    int position = skipSpaces(line, 0);
+    int digitsEnd = skipDigits(line, position);
+    int digits = digitsEnd - position;
+    if (digits == 0 || digits > MAX_SECONDS_DIGITS || (digits >= MIN_EPOCH_DIGITS) != epoch ||
+        digitsEnd >= line.length() || line.charAt(digitsEnd) != '.') {
+      return false;
+    }
+
+    int fractionEnd = skipDigits(line, digitsEnd + 1);
+    return fractionEnd > digitsEnd + 1 && fractionEnd < line.length() && line.charAt(fractionEnd) == ' ';
+  }
+
+  /**
+   * Time since boot, packed in a {@link LogTimestamp} key. Days are split in "months" of 32 days, so
+   * the key keeps the order for more than a year of uptime. It is not a date, so it is kept in its own
+   * era ({@link LogTimestamp#UPTIME_ERA}) and never merged in between the entries of logs with dates
+   */
+  static long toUptimeKey(long seconds, int fraction) {
+    long days = seconds / 86400;
+    int secondsOfDay = (int) (seconds % 86400);
+    return LogTimestamp.toKey(LogTimestamp.UPTIME_ERA, (int) (days / DAYS_PER_MONTH), (int) (days % DAYS_PER_MONTH),
+        secondsOfDay / 3600, secondsOfDay / 60 % 60, secondsOfDay % 60, fraction);
+  }
+
+  static int skipSpaces(CharSequence line, int position) {
+    while (position < line.length() && line.charAt(position) == ' ') {
+      position++;
+    }
+    return position;
+  }
+
+  static int skipDigits(CharSequence line, int position) {
+    while (position < line.length() && isDigit(line.charAt(position))) {
+      position++;
+    }
+    return position;
+  }
+
+  static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  @Override
+  public HeaderScanner newScanner() {
+    return new Scanner();
+  }
+
+  private class Scanner implements HeaderScanner {
+    private long timestampKey;
+    private int pid;
+    private int tid;
+    private LogLevel logLevel;
+
+    // Many entries are logged on the same second. Only convert it again when it changes
+    private long lastSeconds = -1;
+    private LocalDateTime lastDateTime;
+
+    @Override
+    public void scan(CharSequence logLine) {
+      timestampKey = LogTimestamp.NO_TIMESTAMP;
+      pid = -1;
+      tid = -1;
+      logLevel = LogLevel.DEBUG;
+      if (!isHeader(logLine)) {
+        return;
+      }
+
+      int position = skipSpaces(logLine, 0);
+      int secondsEnd = skipDigits(logLine, position);
+      long seconds = parse(logLine, position, secondsEnd);
+      int fractionEnd = skipDigits(logLine, secondsEnd + 1);
+      // Fractions with too many digits are scaled down by LogTimestamp.toKey
+      int fraction = (int) Math.min(parse(logLine, secondsEnd + 1, fractionEnd), Integer.MAX_VALUE);
+      timestampKey = epoch ? toEpochKey(seconds, fraction) : toUptimeKey(seconds, fraction);
+
+      // "  PID  TID L "
+      int pidStart = skipSpaces(logLine, fractionEnd);
+      int pidEnd = skipDigits(logLine, pidStart);
+      int tidStart = skipSpaces(logLine, pidEnd);
+      int tidEnd = skipDigits(logLine, tidStart);
+      if (pidEnd > pidStart && tidStart > pidEnd && tidEnd > tidStart && tidEnd + 1 < logLine.length() &&
+          logLine.charAt(tidEnd) == ' ' && LogHeaderScanner.toLogLevel(logLine.charAt(tidEnd + 1)) != null) {
+        pid = (int) Math.min(parse(logLine, pidStart, pidEnd), Integer.MAX_VALUE);
+        tid = (int) Math.min(parse(logLine, tidStart, tidEnd), Integer.MAX_VALUE);
+        logLevel = LogHeaderScanner.toLogLevel(logLine.charAt(tidEnd + 1));
+        return;
+      }
+
+      // Any other layout: the level is the first of "VDIWE" after the timestamp
+      for (int i = fractionEnd; i < logLine.length() && logLine.charAt(i) != '\n'; i++) {
+        LogLevel level = LogHeaderScanner.toLogLevel(logLine.charAt(i));
+        if (level != null) {
+          logLevel = level;
+          break;
+        }
+      }
+    }
+
+    private long toEpochKey(long seconds, int fraction) {
+      if (seconds != lastSeconds) {
+        lastSeconds = seconds;
+        lastDateTime = LocalDateTime.ofInstant(Instant.ofEpochSecond(seconds), zone);
+      }
+
+      return LogTimestamp.toKey(lastDateTime.getMonthValue(), lastDateTime.getDayOfMonth(),
+          lastDateTime.getHour(), lastDateTime.getMinute(), lastDateTime.getSecond(), fraction);
+    }
+
+    @Override
+    public LogLevel getLogLevel() {
+      return logLevel;
+    }
+
+    @Override
+    public long getTimestampKey() {
+      return timestampKey;
+    }
+
+    @Override
+    public int getPid() {
+      return pid;
+    }
+
+    @Override
+    public int getTid() {
+      return tid;
+    }
+  }
+
+  // Only called for digits that were already checked. Too many digits saturate instead of overflowing
+  static long parse(CharSequence line, int start, int end) {
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      if (value > (Long.MAX_VALUE - 9) / 10) {
+        return Long.MAX_VALUE;
+      }
+      value = value * 10 + (line.charAt(i) - '0');
+    }
+    return value;
+  }
+}
@@ -0,0 +1,196 @@
+package com.tibagni.logviewer.log.parser;
+
+import com.tibagni.logviewer.ProgressTracker;
+import com.tibagni.logviewer.log.LogStore;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Combines the entries of multiple logs, each already in time order, into a single store in time order.
+ *
+ * This is a k-way merge: O(n log k) for n entries from k logs, instead of the O(n log n) of sorting
+ * everything together. The merge is stable: entries with the same timestamp keep the order of the
+ * logs they came from, which is the same result of a stable sort over all logs concatenated
+ */
+class SortedLogsMerger {
+  // How many entries are merged between each progress update
+  private static final int PROGRESS_STEP = 64 * 1024;
+
+  private SortedLogsMerger() { }
+
+  /**
+   * Returns the order the entries of the given part should be read to be in time order. Logs are
+   * expected to be already (or almost) in order, so this only costs a linear check in the common case.
+   * Small local disorders (which happen when multiple threads write to the same log) are fixed with a
+   * stable sort, which is also close to linear for data that is almost sorted
+   *
+   * @param part The entries from a single log (or a chunk of it)
+   * @return The rows of 'part' in time order or null if they are already in order
+   */
+  static int[] sortedOrder(LogStore.Builder part) {
+    int size = part.size();
+    for (int i = 1; i < size; i++) {
+      if (part.getTimestampKey(i - 1) > part.getTimestampKey(i)) {
+        int[] order = new int[size];
+        for (int j = 0; j < size; j++) {
+          order[j] = j;
+        }
+
+        mergeSort(part, order, new int[size], 0, size);
+        return order;
+      }
+    }
+
+    return null;
+  }
+
+  // Stable merge sort of the rows in 'order' by their timestamps
+  private static void mergeSort(LogStore.Builder part, int[] order, int[] buffer, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+
+    int middle = (from + to) >>> 1;
+    mergeSort(part, order, buffer, from, middle);
+    mergeSort(part, order, buffer, middle, to);
+    if (part.getTimestampKey(order[middle - 1]) <= part.getTimestampKey(order[middle])) {
+      // Already in order. Nothing to merge
+      return;
+    }
+
+    System.arraycopy(order, from, buffer, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to ||
+          (left < middle && part.getTimestampKey(buffer[left]) <= part.getTimestampKey(buffer[right]))) {
+        order[i] = buffer[left++];
+      } else {
+        order[i] = buffer[right++];
+      }
+    }
+  }
+
+  /**
+   * Sorts the entries of each part and merges all of them
+   *
+   * @param parts The entries of each log (or chunks of them), in order
+   * @return All entries, in time order
+   */
+  static LogStore merge(List<LogStore.Builder> parts) {
+    return merge(parts, null);
+  }
+
+  /**
+   * Same as {@link #merge(List)}, reporting how many entries were merged to 'tracker' (if not null)
+   */
+  static LogStore merge(List<LogStore.Builder> parts, ProgressTracker tracker) {
+    int totalEntries = 0;
+    PriorityQueue<Cursor> heap = new PriorityQueue<>(Math.max(1, parts.size()));
+    for (int i = 0; i < parts.size(); i++) {
+      LogStore.Builder part = parts.get(i);
+      totalEntries += part.size();
+      if (part.size() > 0) {
+        heap.add(new Cursor(i, part, sortedOrder(part)));
+      }
+    }
+
+    int[] mergedParts = new int[totalEntries];
+    int[] mergedRows = new int[totalEntries];
+    int index = 0;
+    int reportedEntries = 0;
+    while (heap.size() > 1) {
+      Cursor cursor = heap.poll();
+      mergedParts[index] = cursor.partId;
+      mergedRows[index] = cursor.currentRow();
+      index++;
+      if (cursor.advance()) {
+        heap.add(cursor);
+      }
+
+      if (tracker != null && index - reportedEntries >= PROGRESS_STEP) {
+        tracker.add(index - reportedEntries, index - reportedEntries);
+        reportedEntries = index;
+      }
+    }
+
+    // Only one part left. There is nothing to compare against, just copy the rest of it
+    Cursor last = heap.poll();
+    if (last != null) {
+      do {
+        mergedParts[index] = last.partId;
+        mergedRows[index] = last.currentRow();
+        index++;
+      } while (last.advance());
+    }
+
+    if (tracker != null) {
+      tracker.add(index - reportedEntries, index - reportedEntries);
+    }
+
+    return LogStore.Builder.combine(parts, mergedParts, mergedRows);
+  }
+
+  /**
+   * Puts the entries of all parts together, keeping the order they were read
+   *
+   * @param parts The entries of each log (or chunks of them), in order
+   * @return All entries
+   */
+  static LogStore concat(List<LogStore.Builder> parts) {
+    int totalEntries = 0;
+    for (LogStore.Builder part : parts) {
+      totalEntries += part.size();
+    }
+
+    int[] allParts = new int[totalEntries];
+    int[] allRows = new int[totalEntries];
+    int index = 0;
+    for (int i = 0; i < parts.size(); i++) {
+      for (int row = 0; row < parts.get(i).size(); row++) {
+        allParts[index] = i;
+        allRows[index] = row;
+        index++;
+      }
+    }
+
+    return LogStore.Builder.combine(parts, allParts, allRows);
+  }
+
+  private static class Cursor implements Comparable<Cursor> {
+    private final int partId;
+    private final LogStore.Builder part;
+    private final int[] order;
+    private int position;
+    private long currentKey;
+
+    Cursor(int partId, LogStore.Builder part, int[] order) {
+      this.partId = partId;
+      this.part = part;
+      this.order = order;
+      this.currentKey = part.getTimestampKey(currentRow());
+    }
+
+    int currentRow() {
+      return order != null ? order[position] : position;
+    }
+
+    boolean advance() {
+      if (++position < part.size()) {
+        currentKey = part.getTimestampKey(currentRow());
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public int compareTo(@NotNull Cursor o) {
+      int time = Long.compare(currentKey, o.currentKey);
+      // Ties go to the part that comes first, to keep the merge stable
+      return time == 0 ? Integer.compare(partId, o.partId) : time;
+    }
+  }
+}
@@ -0,0 +1,14 @@
+package com.tibagni.logviewer.rc
+
+/**
+ * When off, big logs are not indexed on disk (See [com.tibagni.logviewer.log.LogIndex]), so they are always
+ * parsed again when opened. Indexing is on by default
+ */
+class IndexConfig(configValue: String) : Config<Boolean> {
+  private val state: Boolean
+  init {
+    state = configValue.lowercase() != "off"
+  }
+
+  override fun getConfigValue() = state
+}
@@ -0,0 +1,21 @@
+package com.tibagni.logviewer.rc
+
+import java.io.File
+
+/**
+ * Where the indexes of big logs are kept (See [IndexConfig]). In the user home by default
+ */
+class IndexDirConfig(configValue: String) : Config<File> {
+  private val directory: File
+  init {
+    directory = configValue.trim().takeIf { it.isNotEmpty() }?.let { File(it) } ?: defaultDirectory
+  }
+
+  override fun getConfigValue() = directory
+
+  companion object {
+    @JvmStatic
+    val defaultDirectory: File
+      get() = File(System.getProperty("user.home"), ".logviewer_index")
+  }
+}
@@ -0,0 +1,13 @@
+package com.tibagni.logviewer.rc
+
+/**
+ * When on, the text of the log entries is not copied to memory. It is decoded from the log files when needed
+ */
+class LazyTextConfig(configValue: String) : Config<Boolean> {
+  private val state: Boolean
+  init {
+    state = configValue.lowercase() == "on"
+  }
+
+  override fun getConfigValue() = state
+}
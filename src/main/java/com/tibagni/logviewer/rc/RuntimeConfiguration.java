@@ -20,6 +20,11 @@ public class RuntimeConfiguration {
     public static final String UI_SCALE = "uiscale";
     public static final String LOG_LEVEL = "loglevel";
     public static final String CRASH_REPORT = "crashreport";
+    public static final String LAZY_TEXT = "lazytext";
+    public static final String STREAM_LINES = "streamlines";
+    public static final String THREADS = "threads";
+    public static final String INDEX = "index";
+    public static final String INDEX_DIR = "indexdir";
 
     @NotNull
     static RuntimeConfiguration initializeForTest() {
@@ -36,7 +41,8 @@ public class RuntimeConfiguration {
     }
 
     public static <T> T getConfig(String configName, Class<T> type) {
-        if (instance.runtimeConfigs.containsKey(configName)) {
+        // Nothing is configured before it is initialized (e.g. in tests)
+        if (instance != null && instance.runtimeConfigs.containsKey(configName)) {
             Object config = instance.runtimeConfigs.get(configName);
             if (type.isInstance(config)) {
                 //noinspection unchecked
@@ -74,6 +80,8 @@ public class RuntimeConfiguration {
 
         String configName = configParts[0].toLowerCase();
         String configValue = configParts[1].toLowerCase();
+        // Paths may be case sensitive
+        String rawConfigValue = configParts[1];
         Config<?> config = null;
         switch (configName) {
             case UI_SCALE:
@@ -85,6 +93,21 @@ public class RuntimeConfiguration {
             case CRASH_REPORT:
                 config = new CrashReportConfig(configValue);
                 break;
+            case LAZY_TEXT:
+                config = new LazyTextConfig(configValue);
+                break;
+            case STREAM_LINES:
+                config = new StreamLinesConfig(configValue);
+                break;
+            case THREADS:
+                config = new ThreadsConfig(configValue);
+                break;
+            case INDEX:
+                config = new IndexConfig(configValue);
+                break;
+            case INDEX_DIR:
+                config = new IndexDirConfig(rawConfigValue);
+                break;
             default:
                 Logger.error("Invalid config: " + configName);
                 break;
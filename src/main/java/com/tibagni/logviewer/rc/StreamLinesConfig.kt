@@ -0,0 +1,17 @@
+package com.tibagni.logviewer.rc
+
+/**
+ * How many lines of a log stream (stdin, named pipe or socket) are kept. The oldest lines are dropped
+ */
+class StreamLinesConfig(configValue: String) : Config<Int> {
+  private val maxLines: Int
+  init {
+    maxLines = configValue.toIntOrNull()?.takeIf { it > 0 } ?: DEFAULT_MAX_LINES
+  }
+
+  override fun getConfigValue() = maxLines
+
+  companion object {
+    const val DEFAULT_MAX_LINES = 500_000
+  }
+}
@@ -0,0 +1,20 @@
+package com.tibagni.logviewer.rc
+
+/**
+ * How many threads are used to parse and filter the logs (See [com.tibagni.logviewer.TaskScheduler]).
+ * All available cores are used by default
+ */
+class ThreadsConfig(configValue: String) : Config<Int> {
+  private val threads: Int
+  init {
+    threads = configValue.toIntOrNull()?.takeIf { it > 0 } ?: defaultThreads
+  }
+
+  override fun getConfigValue() = threads
+
+  companion object {
+    @JvmStatic
+    val defaultThreads: Int
+      get() = Runtime.getRuntime().availableProcessors()
+  }
+}
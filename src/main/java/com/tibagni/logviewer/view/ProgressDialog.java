@@ -6,17 +6,23 @@ public class ProgressDialog extends JDialog {
     private JPanel contentPane;
     private JProgressBar progressbar;
     private JTextArea progressText;
+    private JButton cancelButton;
     private final JFrame owner;
     private final String initialText;
+    private final Runnable onCancel;
 
     public ProgressDialog(JFrame owner) {
-       this(owner, "Loading...");
+       this(owner, "Loading...", null);
     }
 
-    public ProgressDialog(JFrame owner, String initialText) {
+    /**
+     * @param onCancel Called when the user clicks 'Cancel'. No 'Cancel' button is shown if this is null
+     */
+    public ProgressDialog(JFrame owner, String initialText, Runnable onCancel) {
         super(owner);
         this.owner = owner;
         this.initialText = initialText;
+        this.onCancel = onCancel;
         buildUi();
         setUndecorated(true);
         setContentPane(contentPane);
@@ -32,6 +38,10 @@ public class ProgressDialog extends JDialog {
     }
 
     public void updateProgressText(String text) {
+        if (cancelButton != null && !cancelButton.isEnabled()) {
+            // Keep showing it is being cancelled
+            return;
+        }
         progressText.setText(text);
     }
 
@@ -41,7 +51,11 @@ public class ProgressDialog extends JDialog {
     }
 
     public static ProgressDialog showProgressDialog(JFrame parent) {
-        ProgressDialog dialog = new ProgressDialog(parent);
+        return showProgressDialog(parent, null);
+    }
+
+    public static ProgressDialog showProgressDialog(JFrame parent, Runnable onCancel) {
+        ProgressDialog dialog = new ProgressDialog(parent, "Loading...", onCancel);
 
         dialog.pack();
         dialog.setLocationRelativeTo(parent);
@@ -63,11 +77,23 @@ public class ProgressDialog extends JDialog {
         progressText.setEditable(false);
         progressText.setText(initialText);
 
+        Object[] options = new Object[]{};
+        if (onCancel != null) {
+            cancelButton = new JButton("Cancel");
+            cancelButton.addActionListener(e -> {
+                // The task stops on its own time. The dialog is closed when it does
+                cancelButton.setEnabled(false);
+                progressText.setText("Cancelling...");
+                onCancel.run();
+            });
+            options = new Object[]{cancelButton};
+        }
+
         JOptionPane optionPane = new JOptionPane(new Object[] {progressText, progressbar},
                 JOptionPane.INFORMATION_MESSAGE,
                 JOptionPane.DEFAULT_OPTION,
                 null,
-                new Object[]{},
+                options,
                 null);
         contentPane.add(optionPane);
     }
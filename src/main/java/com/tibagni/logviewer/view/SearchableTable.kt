@@ -3,6 +3,7 @@ package com.tibagni.logviewer.view
 import com.jgoodies.forms.builder.PanelBuilder
 import com.jgoodies.forms.factories.CC
 import com.jgoodies.forms.layout.FormLayout
+import com.tibagni.logviewer.TaskScheduler
 import com.tibagni.logviewer.filter.Filter
 import com.tibagni.logviewer.log.LogCellRenderer
 import com.tibagni.logviewer.log.LogEntry
@@ -42,6 +43,8 @@ class SearchableTable @JvmOverloads constructor(
   val table = JTable(dm, cm, sm)
 
   private val scope: CoroutineScope = CoroutineScope(Dispatchers.Main)
+  // Searching is interactive, it doesn't wait behind the logs being opened or filtered
+  private val searchDispatcher = TaskScheduler.get().executor(TaskScheduler.Priority.INTERACTIVE).asCoroutineDispatcher()
   private var lastSearchJob: Deferred<List<Int>>? = null
 
   private val performSearchState = MutableStateFlow(Any())
@@ -132,7 +135,7 @@ class SearchableTable @JvmOverloads constructor(
   private fun searchContent() {
     lastSearchJob?.cancel()
     lastSearchGoToPos = -1
-    lastSearchJob = scope.async(Dispatchers.Default) {
+    lastSearchJob = scope.async(searchDispatcher) {
       val pattern = searchText.text
       val filterResult = if (pattern.isNotBlank()) runCatching {
         Filter(
@@ -0,0 +1,114 @@
+package com.tibagni.logviewer
+
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.Mockito.*
+import org.mockito.MockitoAnnotations
+import java.util.concurrent.AbstractExecutorService
+import java.util.concurrent.TimeUnit
+
+class AsyncPresenterTests {
+  @Mock
+  private lateinit var view: AsyncPresenter.AsyncPresenterView
+
+  private lateinit var presenter: TestPresenter
+  private val executor = QueuedExecutorService()
+
+  private class TestPresenter(view: AsyncPresenterView) : AsyncPresenter(view) {
+    val progressReporter: ProgressReporter
+      get() = asyncProgressReporter
+
+    fun start(kind: String?, task: () -> Unit) = doAsync(kind) { task() }
+  }
+
+  // Only runs the tasks when asked to, so tests can start more than one before they run
+  private class QueuedExecutorService : AbstractExecutorService() {
+    private val tasks = mutableListOf<Runnable>()
+
+    fun runAll() {
+      while (tasks.isNotEmpty()) {
+        tasks.removeAt(0).run()
+      }
+    }
+
+    override fun execute(command: Runnable) {
+      tasks.add(command)
+    }
+
+    override fun shutdown() {}
+    override fun shutdownNow() = tasks.toMutableList()
+    override fun isShutdown() = false
+    override fun isTerminated() = false
+    override fun awaitTermination(timeout: Long, unit: TimeUnit) = true
+  }
+
+  @Before
+  fun setUp() {
+    MockitoAnnotations.initMocks(this)
+    presenter = TestPresenter(view)
+    presenter.setBgExecutorService(executor)
+    presenter.setUiExecutor { it.run() }
+  }
+
+  // A task that stops the same way the long tasks do (See ProgressTracker)
+  private fun trackedTask(onRun: () -> Unit = {}): () -> Unit = {
+    onRun()
+    ProgressTracker(presenter.progressReporter, 0, 100, 10, ProgressTracker.Unit.BYTES).add(1, 1)
+  }
+
+  @Test
+  fun testNewerTaskOfSameKindSupersedesOlder() {
+    val ran = mutableListOf<String>()
+    presenter.start("load") { ran.add("first") }
+    presenter.start("load") { ran.add("second") }
+
+    executor.runAll()
+
+    assertEquals(listOf("second"), ran)
+    // The loading continued with the second task, so it was not finished because of the first one
+    verify(view, never()).finishLoading()
+  }
+
+  @Test
+  fun testTasksOfOtherKindsAreNotCancelled() {
+    val ran = mutableListOf<String>()
+    presenter.start("load") { ran.add("load") }
+    presenter.start("filter") { ran.add("filter") }
+    presenter.start(null) { ran.add("other") }
+
+    executor.runAll()
+
+    assertEquals(listOf("load", "filter", "other"), ran)
+  }
+
+  @Test
+  fun testCancelRunningTask() {
+    var finished = false
+    presenter.start("load", trackedTask {
+      assertFalse(presenter.progressReporter.isCancelled)
+      presenter.cancelAsyncTasks()
+      assertTrue(presenter.progressReporter.isCancelled)
+      // Started after the cancellation, so it is not cancelled
+      presenter.start(null) { finished = true }
+    })
+
+    executor.runAll()
+
+    assertTrue(finished)
+    assertFalse(presenter.progressReporter.isCancelled)
+    // Another task was still loading when the first one was cancelled
+    verify(view, never()).finishLoading()
+  }
+
+  @Test
+  fun testCancelFinishesLoading() {
+    presenter.start("load", trackedTask { presenter.cancelAsyncTasks() })
+
+    executor.runAll()
+
+    verify(view).showStartLoading()
+    verify(view).finishLoading()
+  }
+}
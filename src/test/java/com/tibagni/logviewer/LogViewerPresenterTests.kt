@@ -3,6 +3,7 @@ package com.tibagni.logviewer
 import com.tibagni.logviewer.filter.Filter
 import com.tibagni.logviewer.log.LogEntry
 import com.tibagni.logviewer.log.LogLevel
+import com.tibagni.logviewer.log.LogStore
 import com.tibagni.logviewer.log.LogStream
 import com.tibagni.logviewer.log.LogTimestamp
 import com.tibagni.logviewer.preferences.LogViewerPreferences
@@ -17,6 +18,7 @@ import org.mockito.Mockito.*
 import org.mockito.MockitoAnnotations
 import java.awt.Color
 import java.io.File
+import java.nio.charset.Charset
 import java.nio.charset.StandardCharsets
 
 class LogViewerPresenterTests {
@@ -2118,6 +2120,79 @@ class LogViewerPresenterTests {
     verify(view, never()).showErrorMessage(any())
   }
 
+  @Test
+  fun testRefreshFollowedLogs() {
+    val newEntry = LogEntry("Log line 2", LogLevel.DEBUG, null)
+    `when`(mockLogsRepository.currentlyOpenedLogFiles).thenReturn(listOf(File("test")))
+    `when`(mockLogsRepository.currentlyOpenedLogs).thenReturn(
+      listOf(LogEntry("Log line 1", LogLevel.DEBUG, null), newEntry)
+    )
+    `when`(mockLogsRepository.refreshLogFiles(anyOrNull(), anyInt())).thenReturn(
+      LogsRefresh(listOf(newEntry), listOf())
+    )
+    presenter.onFollowedLogsChanged()
+
+    verify(view).showLogs(any())
+    verify(view, never()).showStartLoading()
+    verify(view, never()).showErrorMessage(any())
+    verify(mockLogsRepository, never()).openLogFiles(anyOrNull(), anyOrNull(), anyOrNull())
+  }
+
+  @Test
+  fun testRefreshFollowedLogsUpdatesFilteredLogs() {
+    val appliedFilter = Filter("name", "match", Color.WHITE, LogLevel.VERBOSE)
+    appliedFilter.isApplied = true
+    `when`(mockFiltersRepository.currentlyOpenedFilters).thenReturn(mapOf("testGroup" to listOf(appliedFilter)))
+
+    val oldLogs = buildLogs("match 1", "other", "match 2")
+    oldLogs[0].appliedFilter = appliedFilter
+    oldLogs[2].appliedFilter = appliedFilter
+    presenter.setFilteredLogsForTesting(arrayOf(oldLogs[0], oldLogs[2]), true)
+
+    // The last entry is parsed again, as it continues in the appended text
+    val appended = buildLogs("match 2 longer", "other 2", "match 3")
+    val newLogs = spy(oldLogs.mergeAppended(appended, intArrayOf(2), IntArray(appended.size), false))
+    `when`(mockLogsRepository.currentlyOpenedLogFiles).thenReturn(listOf(File("test")))
+    `when`(mockLogsRepository.currentlyOpenedLogs).thenReturn(newLogs)
+    val refresh = LogsRefresh(newLogs.subList(2, 5), listOf(oldLogs[2].detach()), 0, 2)
+    `when`(mockLogsRepository.refreshLogFiles(anyOrNull(), anyInt())).thenReturn(refresh)
+    val filteredLogsArguments = mutableListOf<List<LogEntry>>()
+    @Suppress("UNCHECKED_CAST")
+    `when`(view.showFilteredLogs(any())).thenAnswer { filteredLogsArguments.add(ArrayList(it.arguments[0] as List<LogEntry>)) }
+
+    presenter.onFollowedLogsChanged()
+
+    assertEquals(1, filteredLogsArguments.size)
+    assertEquals(listOf("match 1", "match 2 longer", "match 3"), filteredLogsArguments[0].map { it.logText })
+    assertEquals(listOf(0, 2, 4), filteredLogsArguments[0].map { it.index })
+    // The old entries are not looked at again
+    verify(newLogs, never()).entriesWithAppliedFilter
+    verify(newLogs).getEntriesWithAppliedFilter(2)
+    assertEquals(0, presenter.testStats.applyFiltersCallCount)
+  }
+
+  private fun buildLogs(vararg lines: String): LogStore {
+    val builder = LogStore.Builder()
+    val source = builder.addSource("main", "main")
+    for (line in lines) {
+      builder.add(line, LogLevel.DEBUG, LogTimestamp.NO_TIMESTAMP, -1, -1, source)
+    }
+    return builder.build()
+  }
+
+  @Test
+  fun testRefreshModifiedLogsKeepsCharset() {
+    val logFiles = listOf(File("test"))
+    `when`(mockLogsRepository.currentlyOpenedLogFiles).thenReturn(logFiles)
+    `when`(mockLogsRepository.currentlyOpenedCharset).thenReturn(StandardCharsets.ISO_8859_1)
+    // The logs were not only appended, so they are opened again
+    `when`(mockLogsRepository.refreshLogFiles(anyOrNull(), anyInt())).thenReturn(null)
+    presenter.refreshLogs()
+
+    verify(mockLogsRepository).openLogFiles(eqOrNull(logFiles.toTypedArray()),
+      eqOrNull<Charset>(StandardCharsets.ISO_8859_1), anyOrNull())
+  }
+
   @Test
   fun testRefreshLogsNoLogsLoaded() {
     presenter.refreshLogs()
@@ -1,5 +1,7 @@
 package com.tibagni.logviewer
 
+import com.tibagni.logviewer.log.StreamLogReader
+import com.tibagni.logviewer.util.StringUtils
 import org.junit.After
 import org.junit.Assert.*
 import org.junit.Before
@@ -65,6 +67,184 @@ class LogsRepositoryTests {
     assertEquals(1, logsRepository.availableStreams.size)
     assertEquals(1, logsRepository.currentlyOpenedLogFiles.size)
     assertEquals(5, logsRepository.currentlyOpenedLogs.size)
+    assertEquals(StandardCharsets.UTF_8, logsRepository.currentlyOpenedCharset)
+  }
+
+  @Test
+  fun testChangeCharsetNeedsToOpenLogsAgain() {
+    val temporaryLogFile = createTempLogFiles("log")
+    logsRepository.openLogFiles(temporaryLogFile, StandardCharsets.UTF_8, mockProgressReporter)
+
+    assertFalse(logsRepository.changeCharset(StandardCharsets.ISO_8859_1))
+  }
+
+  @Test
+  fun testChangeCharsetKeepingTextInLogFiles() {
+    logsRepository = LogsRepositoryImpl(true)
+    val temporaryLogFile = createTempLogFiles("log")
+    logsRepository.openLogFiles(temporaryLogFile, StandardCharsets.UTF_8, mockProgressReporter)
+    logsRepository.lastVisibleLogIndex = 3
+    val logText = logsRepository.currentlyOpenedLogs.map { it.logText }
+
+    assertTrue(logsRepository.changeCharset(StandardCharsets.ISO_8859_1))
+    assertEquals(logText, logsRepository.currentlyOpenedLogs.map { it.logText })
+    assertEquals(5, logsRepository.allLogsSize)
+    assertEquals(StandardCharsets.ISO_8859_1, logsRepository.currentlyOpenedCharset)
+    assertFalse(logsRepository.changeCharset(StandardCharsets.UTF_16))
+    assertEquals(StandardCharsets.ISO_8859_1, logsRepository.currentlyOpenedCharset)
+  }
+
+  @Test
+  fun testRefreshAppendedLogFile() {
+    val temporaryLogFile = createTempLogFiles("log")
+    logsRepository.openLogFiles(temporaryLogFile, StandardCharsets.UTF_8, mockProgressReporter)
+    val lastEntry = logsRepository.currentlyOpenedLogs[4]
+
+    temporaryLogFile[0].appendText("\n01-06 20:46:50.000 821-2168/? I/Test: appended")
+    val refresh = logsRepository.refreshLogFiles(mockProgressReporter, Int.MAX_VALUE)
+
+    assertNotNull(refresh)
+    assertEquals(6, logsRepository.allLogsSize)
+    assertEquals(6, logsRepository.currentlyOpenedLogs.size)
+    assertEquals(listOf(lastEntry), refresh!!.removedEntries)
+    assertEquals(
+      listOf(lastEntry.logText, "01-06 20:46:50.000 821-2168/? I/Test: appended"),
+      refresh.newEntries.map { it.logText })
+    assertEquals(0, refresh.droppedEntries)
+    assertEquals(4, refresh.firstChangedIndex)
+  }
+
+  @Test
+  fun testRefreshMultipleAppendedLogFiles() {
+    val temporaryLogFiles = createTempLogFiles("main", "system")
+    logsRepository.openLogFiles(temporaryLogFiles, StandardCharsets.UTF_8, mockProgressReporter)
+
+    temporaryLogFiles[1].appendText("\n01-06 20:46:30.000 821-2168/? I/Test: appended")
+    val refresh = logsRepository.refreshLogFiles(mockProgressReporter, Int.MAX_VALUE)
+
+    assertNotNull(refresh)
+    assertEquals(11, logsRepository.currentlyOpenedLogs.size)
+    assertEquals(1, refresh!!.removedEntries.size)
+    assertEquals(2, refresh.newEntries.size)
+    assertEquals(
+      logsRepository.currentlyOpenedLogs.sortedBy { it.timestampKey },
+      logsRepository.currentlyOpenedLogs)
+    assertEquals(
+      logsRepository.currentlyOpenedLogs.indices.toList(),
+      logsRepository.currentlyOpenedLogs.map { it.index })
+  }
+
+  @Test
+  fun testRefreshKeepingMaxLogs() {
+    val temporaryLogFile = createTempLogFiles("log")
+    logsRepository.openLogFiles(temporaryLogFile, StandardCharsets.UTF_8, mockProgressReporter)
+    val oldEntries = logsRepository.currentlyOpenedLogs.map { it.logText }
+
+    temporaryLogFile[0].appendText("\n01-06 20:46:50.000 821-2168/? I/Test: appended 1" +
+        "\n01-06 20:46:51.000 821-2168/? I/Test: appended 2")
+    val refresh = logsRepository.refreshLogFiles(mockProgressReporter, 4)
+
+    assertNotNull(refresh)
+    assertEquals(4, logsRepository.allLogsSize)
+    assertEquals(4, logsRepository.currentlyOpenedLogs.size)
+    assertEquals(listOf(0, 1, 2, 3), logsRepository.currentlyOpenedLogs.map { it.index })
+    assertEquals("01-06 20:46:51.000 821-2168/? I/Test: appended 2", logsRepository.currentlyOpenedLogs[3].logText)
+    // The oldest entries were removed, as well as the last entry that was parsed again
+    assertEquals(
+      listOf(oldEntries[0], oldEntries[1], oldEntries[2], oldEntries[4]),
+      refresh!!.removedEntries.sortedBy { it.index }.map { it.logText })
+    assertEquals(logsRepository.currentlyOpenedLogs.subList(1, 4), refresh.newEntries)
+    assertEquals(3, refresh.droppedEntries)
+    assertEquals(1, refresh.firstChangedIndex)
+  }
+
+  @Test
+  fun testReadLogStream() {
+    val reader = StreamLogReader("stdin", 100)
+    logsRepository.openLogStream(reader)
+    assertNull(logsRepository.readLogStream(100))
+
+    reader.addLine("01-06 20:46:26.091 821-2168/? V/ThermalMonitor: first")
+    reader.addLine("01-06 20:46:39.481 25175-25175/? E/AndroidRuntime: FATAL EXCEPTION: main")
+    val firstRefresh = logsRepository.readLogStream(100)
+
+    assertNotNull(firstRefresh)
+    assertEquals(2, firstRefresh!!.newEntries.size)
+    assertTrue(firstRefresh.removedEntries.isEmpty())
+    assertTrue(logsRepository.currentlyOpenedLogFiles.isEmpty())
+
+    // The last entry continues in the next lines, so it is replaced
+    reader.addLine("    at com.example.Main.main(Main.java:10)")
+    reader.addLine("01-06 20:46:40.000 821-2168/? I/Test: last")
+    val secondRefresh = logsRepository.readLogStream(100)
+
+    assertNotNull(secondRefresh)
+    assertEquals(
+      listOf("01-06 20:46:39.481 25175-25175/? E/AndroidRuntime: FATAL EXCEPTION: main"),
+      secondRefresh!!.removedEntries.map { it.logText })
+    assertEquals(
+      listOf(
+        "01-06 20:46:26.091 821-2168/? V/ThermalMonitor: first",
+        "01-06 20:46:39.481 25175-25175/? E/AndroidRuntime: FATAL EXCEPTION: main" +
+            StringUtils.LINE_SEPARATOR + "    at com.example.Main.main(Main.java:10)",
+        "01-06 20:46:40.000 821-2168/? I/Test: last"),
+      logsRepository.currentlyOpenedLogs.map { it.logText })
+  }
+
+  @Test
+  fun testReadLogStreamKeepsItsFormat() {
+    val reader = StreamLogReader("stdin", 1000)
+    logsRepository.openLogStream(reader)
+    // Enough lines to be sure of the format
+    repeat(200) { reader.addLine("01-06 20:46:26.091 821-2168/? V/ThermalMonitor: line $it") }
+    logsRepository.readLogStream(1000)
+
+    // These lines alone look like a kernel log, but they are part of the last entry of the logcat stream
+    reader.addLine("[    1.234567] kernel line 1")
+    reader.addLine("[    1.234568] kernel line 2")
+    logsRepository.readLogStream(1000)
+
+    assertEquals(200, logsRepository.currentlyOpenedLogs.size)
+    assertEquals(
+      "01-06 20:46:26.091 821-2168/? V/ThermalMonitor: line 199" + StringUtils.LINE_SEPARATOR +
+          "[    1.234567] kernel line 1" + StringUtils.LINE_SEPARATOR + "[    1.234568] kernel line 2",
+      logsRepository.currentlyOpenedLogs.last().logText)
+  }
+
+  @Test
+  fun testReadLogStreamAfterPendingEntryWasDropped() {
+    val reader = StreamLogReader("stdin", 3)
+    logsRepository.openLogStream(reader)
+
+    reader.addLine("01-06 20:46:26.091 821-2168/? V/ThermalMonitor: first")
+    reader.addLine("01-06 20:46:39.481 25175-25175/? E/AndroidRuntime: FATAL EXCEPTION: main")
+    logsRepository.readLogStream(100)
+
+    // More lines than the reader holds arrive, so the pending entry can't be read again
+    reader.addLine("    at com.example.Main.main(Main.java:10)")
+    reader.addLine("01-06 20:46:40.000 821-2168/? I/Test: second")
+    reader.addLine("01-06 20:46:41.000 821-2168/? I/Test: last")
+    val refresh = logsRepository.readLogStream(100)
+
+    assertNotNull(refresh)
+    assertTrue(refresh!!.removedEntries.isEmpty())
+    assertEquals(
+      listOf(
+        "01-06 20:46:26.091 821-2168/? V/ThermalMonitor: first",
+        "01-06 20:46:39.481 25175-25175/? E/AndroidRuntime: FATAL EXCEPTION: main",
+        "01-06 20:46:40.000 821-2168/? I/Test: second",
+        "01-06 20:46:41.000 821-2168/? I/Test: last"),
+      logsRepository.currentlyOpenedLogs.map { it.logText })
+  }
+
+  @Test
+  fun testRefreshModifiedLogFile() {
+    val temporaryLogFile = createTempLogFiles("log")
+    logsRepository.openLogFiles(temporaryLogFile, StandardCharsets.UTF_8, mockProgressReporter)
+
+    temporaryLogFile[0].writeText("01-06 20:46:50.000 821-2168/? I/Test: new log")
+
+    assertNull(logsRepository.refreshLogFiles(mockProgressReporter, Int.MAX_VALUE))
   }
 
   @Test
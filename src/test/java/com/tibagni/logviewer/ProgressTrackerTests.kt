@@ -0,0 +1,110 @@
+package com.tibagni.logviewer
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.concurrent.CancellationException
+import java.util.concurrent.TimeUnit
+
+class ProgressTrackerTests {
+  private var now = 0L
+  private val published = mutableListOf<Pair<Int, String>>()
+  private val reporter = ProgressReporter { progress, description -> published.add(progress to description) }
+
+  private fun advance(millis: Long) {
+    now += TimeUnit.MILLISECONDS.toNanos(millis)
+  }
+
+  @Test
+  fun testDescriptionIsPublishedRightAway() {
+    val tracker = ProgressTracker(reporter, 10, 20, 100, ProgressTracker.Unit.BYTES) { now }
+
+    tracker.setDescription("Reading main...")
+
+    assertEquals(listOf(10 to "Reading main..."), published)
+  }
+
+  @Test
+  fun testUpdatesAreRateLimited() {
+    val tracker = ProgressTracker(reporter, 0, 100, 1000, ProgressTracker.Unit.BYTES) { now }
+
+    for (i in 0 until 10) {
+      advance(10)
+      tracker.add(10, 1)
+    }
+    assertTrue(published.isEmpty())
+
+    advance(ProgressTracker.PUBLISH_INTERVAL_MS)
+    tracker.add(10, 1)
+    tracker.add(10, 1)
+
+    assertEquals(1, published.size)
+    assertEquals(11, published[0].first)
+  }
+
+  @Test
+  fun testThroughputAndEta() {
+    val tracker = ProgressTracker(reporter, 0, 90, 4L * 1024 * 1024, ProgressTracker.Unit.BYTES) { now }
+    tracker.setDescription("Reading main...")
+
+    advance(1000)
+    tracker.add(1024 * 1024, 2000)
+
+    assertEquals(22, published.last().first)
+    assertEquals("Reading main...\n1.0 MB of 4.0 MB, 1.0 MB/s, 2.0k lines/s, ETA 0:03", published.last().second)
+  }
+
+  @Test
+  fun testUnknownTotal() {
+    val tracker = ProgressTracker(reporter, 5, 90, 0, ProgressTracker.Unit.ENTRIES) { now }
+    tracker.setDescription("Reading stdin...")
+
+    advance(2000)
+    tracker.add(500, 500)
+
+    assertEquals(5, published.last().first)
+    assertEquals("Reading stdin...\n500 entries, 250 entries/s, 250 lines/s", published.last().second)
+  }
+
+  @Test
+  fun testProgressOfItemsWhenTotalIsUnknown() {
+    val tracker = ProgressTracker(reporter, 0, 90, 0, ProgressTracker.Unit.BYTES) { now }
+    tracker.setTotalItems(4)
+
+    tracker.startItem("Reading main...")
+    tracker.add(100, 1)
+    advance(1000)
+    tracker.startItem("Reading radio...")
+
+    assertEquals(listOf(0 to "Reading main...", 22 to "Reading radio..."), published)
+  }
+
+  @Test
+  fun testCustomRateLimiter() {
+    val tracker = ProgressTracker(reporter, 0, 100, 1000, ProgressTracker.Unit.BYTES, { now }, { true })
+
+    tracker.add(10, 1)
+    tracker.add(10, 1)
+
+    assertEquals(listOf(1, 2), published.map { it.first })
+  }
+
+  @Test
+  fun testProgressNeverGoesBeyondTheStage() {
+    val tracker = ProgressTracker(reporter, 91, 99, 10, ProgressTracker.Unit.ENTRIES) { now }
+
+    tracker.add(20, 20)
+
+    assertEquals(99, tracker.progress)
+  }
+
+  @Test(expected = CancellationException::class)
+  fun testStopsWhenCancelled() {
+    val cancellableReporter = object : ProgressReporter {
+      override fun onProgress(progress: Int, description: String) {}
+      override fun isCancelled() = true
+    }
+    val tracker = ProgressTracker(cancellableReporter, 0, 100, 100, ProgressTracker.Unit.BYTES) { now }
+
+    tracker.add(1, 1)
+  }
+}
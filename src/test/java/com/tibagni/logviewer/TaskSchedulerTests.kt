@@ -0,0 +1,116 @@
+package com.tibagni.logviewer
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.Collections
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class TaskSchedulerTests {
+
+  @Test
+  fun testInvokeAllKeepsOrder() {
+    val scheduler = TaskScheduler(4)
+
+    val results = scheduler.invokeAll(TaskScheduler.Priority.USER, List(100) { i -> Callable { i * 2 } })
+
+    assertEquals(List(100) { it * 2 }, results)
+  }
+
+  @Test
+  fun testInvokeAllFromTaskWhenAllThreadsAreBusy() {
+    val scheduler = TaskScheduler(2)
+    val release = CountDownLatch(1)
+    // Keep the other thread busy
+    scheduler.execute(TaskScheduler.Priority.INTERACTIVE) { release.await() }
+
+    val result = scheduler.submit(TaskScheduler.Priority.USER) {
+      scheduler.invokeAll(TaskScheduler.Priority.USER, List(10) { i -> Callable { i } }).sum()
+    }
+
+    assertEquals(45, result.get(5, TimeUnit.SECONDS))
+    release.countDown()
+  }
+
+  @Test
+  fun testInteractiveWorkDoesNotWaitForBackgroundWork() {
+    val scheduler = TaskScheduler(2)
+    val release = CountDownLatch(1)
+    val backgroundStarted = CountDownLatch(1)
+    repeat(4) {
+      scheduler.execute(TaskScheduler.Priority.BACKGROUND) {
+        backgroundStarted.countDown()
+        release.await()
+      }
+    }
+    backgroundStarted.await(5, TimeUnit.SECONDS)
+
+    val interactive = scheduler.submit(TaskScheduler.Priority.INTERACTIVE) { "done" }
+
+    assertEquals("done", interactive.get(5, TimeUnit.SECONDS))
+    release.countDown()
+  }
+
+  @Test
+  fun testInteractiveWorkDoesNotWaitForUserWork() {
+    val scheduler = TaskScheduler(4)
+    val release = CountDownLatch(1)
+    val userStarted = CountDownLatch(3)
+    repeat(8) {
+      scheduler.execute(TaskScheduler.Priority.USER) {
+        userStarted.countDown()
+        release.await()
+      }
+    }
+    assertTrue(userStarted.await(5, TimeUnit.SECONDS))
+
+    val interactive = scheduler.submit(TaskScheduler.Priority.INTERACTIVE) { "done" }
+
+    assertEquals("done", interactive.get(5, TimeUnit.SECONDS))
+    release.countDown()
+  }
+
+  @Test
+  fun testHigherPriorityRunsFirst() {
+    val scheduler = TaskScheduler(2)
+    val started = CountDownLatch(2)
+    val releaseFirst = CountDownLatch(1)
+    val releaseSecond = CountDownLatch(1)
+    val order = Collections.synchronizedList(mutableListOf<String>())
+    // Keep both threads busy while the other tasks are queued
+    scheduler.execute(TaskScheduler.Priority.USER) { started.countDown(); releaseFirst.await() }
+    scheduler.execute(TaskScheduler.Priority.INTERACTIVE) { started.countDown(); releaseSecond.await() }
+    started.await(5, TimeUnit.SECONDS)
+
+    val user = scheduler.submit(TaskScheduler.Priority.USER) { order.add("user") }
+    val interactive = scheduler.submit(TaskScheduler.Priority.INTERACTIVE) { order.add("interactive") }
+    // Only one thread is free to run them
+    releaseFirst.countDown()
+    user.get(5, TimeUnit.SECONDS)
+    interactive.get(5, TimeUnit.SECONDS)
+    releaseSecond.countDown()
+
+    assertEquals(listOf("interactive", "user"), order)
+  }
+
+  @Test
+  fun testSerialExecutorRunsInOrder() {
+    val scheduler = TaskScheduler(4)
+    val executor = scheduler.newSerialExecutor(TaskScheduler.Priority.USER)
+    val order = Collections.synchronizedList(mutableListOf<Int>())
+
+    repeat(20) { i -> executor.execute { order.add(i) } }
+    executor.shutdown()
+
+    assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS))
+    assertEquals(List(20) { it }, order)
+  }
+
+  @Test(expected = IllegalArgumentException::class)
+  fun testParallelForRethrowsErrors() {
+    TaskScheduler(2).parallelFor(TaskScheduler.Priority.USER, 10) { i ->
+      if (i == 5) throw IllegalArgumentException()
+    }
+  }
+}
@@ -8,6 +8,7 @@ import org.junit.Assert.*
 import org.junit.Test
 import org.mockito.Mockito.mock
 import java.awt.Color
+import java.util.concurrent.CancellationException
 
 class FilterTests {
   @Test
@@ -34,6 +35,131 @@ class FilterTests {
     assertEquals(3, filtered.size)
   }
 
+  @Test(expected = CancellationException::class)
+  fun testApplyFiltersCancelled() {
+    val filter = Filter("name", "filterText", Color.WHITE, LogLevel.VERBOSE)
+    val input = List(10000) { LogEntry("Log line containing filterText $it", LogLevel.DEBUG, null) }
+    val cancelledReporter = object : ProgressReporter {
+      override fun onProgress(progress: Int, description: String) {}
+      override fun isCancelled() = true
+    }
+
+    Filters.applyMultipleFilters(input, arrayOf(filter), cancelledReporter)
+  }
+
+  @Test
+  fun testApplyFiltersKeepsInputOrder() {
+    val filter = Filter("name", "match", Color.WHITE, LogLevel.VERBOSE)
+    // Enough entries to be filtered in many blocks
+    val input = List(50000) { LogEntry(if (it % 3 == 0) "match $it" else "other $it", LogLevel.DEBUG, null) }
+
+    val filtered = Filters.applyMultipleFilters(input, arrayOf(filter), mock(ProgressReporter::class.java))
+
+    assertEquals(input.filterIndexed { i, _ -> i % 3 == 0 }.map { it.logText }, filtered.map { it.logText })
+  }
+
+  @Test
+  fun testManyLiteralFilters() {
+    val filters = arrayOf(
+      Filter("regex", "Activity\\w+", Color.WHITE, LogLevel.VERBOSE),
+      Filter("simple", "activitymanager", Color.WHITE, LogLevel.VERBOSE),
+      Filter("caseSensitive", "WindowManager", Color.WHITE, LogLevel.VERBOSE, true),
+      Filter("keywords", arrayOf("start", "proc"), Color.WHITE, LogLevel.VERBOSE, false),
+      Filter("errors", "manager", Color.WHITE, LogLevel.ERROR),
+      Filter("unused", "nothing", Color.WHITE, LogLevel.VERBOSE)
+    )
+    val input = listOf(
+      LogEntry("ActivityManager: Start proc", LogLevel.DEBUG, null),
+      LogEntry("activitymanager: done", LogLevel.ERROR, null),
+      LogEntry("windowmanager: focus", LogLevel.ERROR, null),
+      LogEntry("WindowManager: focus", LogLevel.DEBUG, null),
+      LogEntry("proc start", LogLevel.INFO, null),
+      LogEntry("something else", LogLevel.ERROR, null)
+    )
+    assertTrue(filters.count { it.literals != null } >= FilterMatcher.MIN_LITERAL_FILTERS)
+
+    val filtered = Filters.applyMultipleFilters(input, filters, mock(ProgressReporter::class.java))
+
+    // The first filter that applies to an entry is the one applied to it
+    assertEquals(listOf("regex", "regex", "errors", "caseSensitive", "keywords"),
+        filtered.map { it.appliedFilter.name })
+    // But all filters that apply to an entry count it
+    assertEquals(listOf(2, 2, 1, 2, 2, 0), filters.map { it.temporaryInfo.totalLinesFound })
+  }
+
+  // Counts how many times its text is read (See LogEntry#getTextView) and copied (See LogEntry#getLogText)
+  private class CountingLogEntry(text: String, level: LogLevel) : LogEntry(text, level, null) {
+    var textReads = 0
+    var textCopies = 0
+
+    override fun getTextView(): CharSequence {
+      textReads++
+      return super.getTextView()
+    }
+
+    override fun getLogText(): String {
+      textCopies++
+      return super.getLogText()
+    }
+  }
+
+  @Test
+  fun testTextIsReadOncePerEntry() {
+    val regexFilters = Array(3) { Filter("regex $it", "line \\d+", Color.WHITE, LogLevel.VERBOSE) }
+    val literalFilters = Array(FilterMatcher.MIN_LITERAL_FILTERS) {
+      Filter("simple $it", "line", Color.WHITE, LogLevel.VERBOSE)
+    }
+    val errorFilter = arrayOf(Filter("errors", "line", Color.WHITE, LogLevel.ERROR))
+
+    for (filters in listOf(regexFilters, regexFilters + literalFilters)) {
+      val entry = CountingLogEntry("Log line 1", LogLevel.DEBUG)
+
+      Filters.applyMultipleFilters(listOf(entry), filters, mock(ProgressReporter::class.java))
+
+      assertEquals(1, entry.textReads)
+      // The text is ASCII, so it is never copied, not even for the regex filters
+      assertEquals(0, entry.textCopies)
+    }
+
+    // The level is checked before the text is read
+    val entry = CountingLogEntry("Log line 1", LogLevel.DEBUG)
+    Filters.applyMultipleFilters(listOf(entry), errorFilter, mock(ProgressReporter::class.java))
+    assertEquals(0, entry.textReads)
+  }
+
+  @Test
+  fun testRegexFilterWithRequiredLiterals() {
+    val filter = Filter("name", "ActivityManager.*Start proc \\d+", Color.WHITE, LogLevel.VERBOSE)
+    val caseSensitiveFilter = Filter("name", "ActivityManager.*Start", Color.WHITE, LogLevel.VERBOSE, true)
+
+    assertEquals(listOf("ActivityManager", "Start proc "), filter.literals.toList())
+    assertTrue(filter.appliesTo(LogEntry("I activitymanager: START PROC 123", LogLevel.DEBUG, null)))
+    assertFalse(filter.appliesTo(LogEntry("I ActivityManager: Start proc", LogLevel.DEBUG, null)))
+    assertFalse(filter.appliesTo(LogEntry("I WindowManager: Start proc 123", LogLevel.DEBUG, null)))
+    assertTrue(caseSensitiveFilter.appliesTo(LogEntry("ActivityManager: Start", LogLevel.DEBUG, null)))
+    assertFalse(caseSensitiveFilter.appliesTo(LogEntry("activitymanager: Start", LogLevel.DEBUG, null)))
+  }
+
+  @Test
+  fun testRegexFiltersWithManyLiteralFilters() {
+    val filters = arrayOf(
+      Filter("one", "one", Color.WHITE, LogLevel.VERBOSE),
+      Filter("two", "two", Color.WHITE, LogLevel.VERBOSE),
+      Filter("three", "three", Color.WHITE, LogLevel.VERBOSE),
+      Filter("regex", "wifi.*(connect|disconnect)", Color.WHITE, LogLevel.VERBOSE),
+      Filter("four", "four", Color.WHITE, LogLevel.VERBOSE)
+    )
+    val input = listOf(
+      LogEntry("WiFi: disconnect", LogLevel.DEBUG, null),
+      LogEntry("wifi: scan four", LogLevel.DEBUG, null),
+      LogEntry("connect wifi", LogLevel.DEBUG, null)
+    )
+
+    val filtered = Filters.applyMultipleFilters(input, filters, mock(ProgressReporter::class.java))
+
+    assertEquals(listOf("regex", "four"), filtered.map { it.appliedFilter.name })
+  }
+
   @Test
   fun testFilterCount() {
     val filter = Filter("name", "Log line", Color.WHITE, LogLevel.VERBOSE)
@@ -388,6 +514,25 @@ class FilterTests {
     assertEquals(8, contextInfo.totalLinesFound)
   }
 
+  @Test
+  fun testContextInfoCountsFromManyThreads() {
+    val filter = Filter("name", "filterText", Color.WHITE, LogLevel.VERBOSE)
+    filter.initTemporaryInfo()
+    val contextInfo = filter.temporaryInfo
+
+    val threads = List(8) {
+      Thread { repeat(10000) { contextInfo.incrementLineCount(LogStream.MAIN) } }
+    }
+    threads.forEach { it.start() }
+    threads.forEach { it.join() }
+    contextInfo.decrementLineCount(LogStream.MAIN)
+    contextInfo.decrementLineCount(LogStream.SYSTEM)
+
+    assertEquals(79999, contextInfo.totalLinesFound)
+    contextInfo.setAllowedStreams(setOf(LogStream.SYSTEM))
+    assertEquals(0, contextInfo.totalLinesFound)
+  }
+
   @Test
   fun testEquals() {
     val filter = Filter.createFromString("Filter Name,XHcrQFx3K1wuKG5ldHxjb20pKFwuYnIpezAsMX0=,2,0:0:0")
@@ -0,0 +1,59 @@
+package com.tibagni.logviewer.filter
+
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.random.Random
+
+class LiteralAutomatonTests {
+  private fun found(automaton: LiteralAutomaton, literals: Int, text: String): List<Int> {
+    val found = IntArray(literals)
+    automaton.scan(text, found, 1)
+    return found.indices.filter { found[it] == 1 }
+  }
+
+  @Test
+  fun testFindsAllLiterals() {
+    val literals = listOf("he", "she", "his", "hers")
+    val automaton = LiteralAutomaton(literals, true)
+
+    assertEquals(listOf(0, 1, 3), found(automaton, literals.size, "ushers"))
+    assertEquals(listOf(2), found(automaton, literals.size, "this"))
+    assertEquals(emptyList<Int>(), found(automaton, literals.size, "HERS"))
+  }
+
+  @Test
+  fun testCaseInsensitive() {
+    val literals = listOf("ActivityManager", "WINDOWMANAGER", "ção")
+    val automaton = LiteralAutomaton(literals, false)
+
+    assertEquals(listOf(0, 2), found(automaton, literals.size, "I activitymanager: configuração"))
+    assertEquals(listOf(1), found(automaton, literals.size, "WindowManager"))
+  }
+
+  @Test
+  fun testRepeatedLiterals() {
+    val literals = listOf("abc", "abc", "bc")
+    val automaton = LiteralAutomaton(literals, true)
+
+    assertEquals(listOf(0, 1, 2), found(automaton, literals.size, "xabcx"))
+  }
+
+  @Test
+  fun testSameResultAsContains() {
+    val random = Random(7)
+    val alphabet = "abcAB"
+    fun randomText(length: Int) = String(CharArray(length) { alphabet[random.nextInt(alphabet.length)] })
+
+    repeat(500) {
+      val literals = List(1 + random.nextInt(8)) { randomText(1 + random.nextInt(4)) }
+      val text = randomText(random.nextInt(40))
+      val caseSensitive = random.nextBoolean()
+
+      val expected = literals.indices.filter {
+        if (caseSensitive) text.contains(literals[it]) else text.lowercase().contains(literals[it].lowercase())
+      }
+      assertEquals("$literals in '$text'", expected,
+          found(LiteralAutomaton(literals, caseSensitive), literals.size, text))
+    }
+  }
+}
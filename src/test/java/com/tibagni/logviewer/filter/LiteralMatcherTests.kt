@@ -0,0 +1,66 @@
+package com.tibagni.logviewer.filter
+
+import org.junit.Assert.*
+import org.junit.Test
+import kotlin.random.Random
+
+class LiteralMatcherTests {
+  @Test
+  fun testCaseInsensitiveMatch() {
+    val matcher = LiteralMatcher("ActivityManager", false)
+
+    assertTrue(matcher.matches("I ActivityManager: Start proc"))
+    assertTrue(matcher.matches("activitymanager"))
+    assertTrue(matcher.matches("xxACTIVITYMANAGER"))
+    assertFalse(matcher.matches("ActivityManage"))
+    assertFalse(matcher.matches("Activity Manager"))
+    assertFalse(matcher.matches(""))
+  }
+
+  @Test
+  fun testCaseSensitiveMatch() {
+    val matcher = LiteralMatcher("ActivityManager", true)
+
+    assertTrue(matcher.matches("I ActivityManager: Start proc"))
+    assertFalse(matcher.matches("activitymanager"))
+  }
+
+  @Test
+  fun testMatchTextThatIsNotAString() {
+    val text = StringBuilder("I ActivityManager: Start proc")
+
+    assertTrue(LiteralMatcher("ActivityManager", true).matches(text))
+    assertFalse(LiteralMatcher("activitymanager", true).matches(text))
+    assertTrue(LiteralMatcher("activitymanager", false).matches(text))
+  }
+
+  @Test
+  fun testNonAsciiCharacters() {
+    val matcher = LiteralMatcher("ÇÃO", false)
+
+    assertTrue(matcher.matches("configuração"))
+    assertFalse(matcher.matches("configuracao"))
+  }
+
+  @Test
+  fun testRepeatedCharacters() {
+    assertTrue(LiteralMatcher("aab", false).matches("aaaaaab"))
+    assertTrue(LiteralMatcher("abab", false).matches("abaABAB"))
+    assertTrue(LiteralMatcher("a", false).matches("bbbA"))
+  }
+
+  @Test
+  fun testSameResultAsLowerCaseContains() {
+    val random = Random(42)
+    val alphabet = "abAB c"
+    fun randomText(length: Int) = String(CharArray(length) { alphabet[random.nextInt(alphabet.length)] })
+
+    repeat(2000) {
+      val needle = randomText(1 + random.nextInt(4))
+      val text = randomText(random.nextInt(30))
+
+      assertEquals("'$needle' in '$text'", text.lowercase().contains(needle.lowercase()),
+          LiteralMatcher(needle, false).matches(text))
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package com.tibagni.logviewer.filter
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class RegexLiteralsTests {
+  private fun literals(regex: String) = RegexLiterals.findRequiredLiterals(regex)
+
+  @Test
+  fun testLiteralsAroundWildcards() {
+    assertEquals(listOf("ActivityManager", "Start proc"), literals("ActivityManager.*Start proc"))
+    assertEquals(listOf("wifi"), literals("wifi.*(connect|disconnect)"))
+    assertEquals(listOf("pid=", " uid="), literals("^pid=\\d+ uid=[0-9]+$"))
+  }
+
+  @Test
+  fun testQuantifiers() {
+    assertEquals(listOf("ab", "d"), literals("abc?d"))
+    assertEquals(listOf("ab", "d"), literals("abc*d"))
+    assertEquals(listOf("abc", "d"), literals("abc+d"))
+    assertEquals(listOf("ab", "d"), literals("abc{2,3}d"))
+    assertEquals(listOf("ab", "d"), literals("abc*?d"))
+  }
+
+  @Test
+  fun testEscapedCharacters() {
+    assertEquals(listOf("com.android.phone"), literals("com\\.android\\.phone"))
+    assertEquals(listOf("a(b)"), literals("a\\(b\\)"))
+    assertEquals(listOf("@"), literals("\\w+@\\w+"))
+  }
+
+  @Test
+  fun testGroupsAndClassesAreSkipped() {
+    assertEquals(listOf("Displayed ", ".", "/"), literals("Displayed (com|org)\\.[a-z\\]]+/(\\.\\w+)?"))
+    assertEquals(listOf("x", "y"), literals("x[]a]y"))
+  }
+
+  @Test
+  fun testNothingIsRequired() {
+    assertEquals(emptyList<String>(), literals("foo|bar"))
+    assertEquals(emptyList<String>(), literals("(?i)Foo"))
+    assertEquals(emptyList<String>(), literals("\\Qa.b\\E"))
+    assertEquals(emptyList<String>(), literals("\\x41BC"))
+    assertEquals(emptyList<String>(), literals("\\u0041pp"))
+    assertEquals(emptyList<String>(), literals("\\0101BC"))
+    assertEquals(emptyList<String>(), literals("(?<n>ab)\\k<n>"))
+    assertEquals(emptyList<String>(), literals("foo\\cAbar"))
+    assertEquals(emptyList<String>(), literals("\\p{Lu}pp"))
+  }
+
+  @Test
+  fun testLiteralsAreInEveryMatch() {
+    val lines = listOf("ActivityManager: Start proc 123", "wifi: connect to ap", "abcccd", "abd", "x]y",
+        "Displayed com.app/.Main", "pid=1 uid=2", "com.android.phone crashed", "ABC", "App", "abab", "foo\u0001bar",
+        "Apple")
+    val regexes = listOf("ActivityManager.*Start proc", "wifi.*(connect|disconnect)", "abc*d", "abc+d",
+        "x[]a]y", "Displayed (com|org)\\.[a-z]+/(\\.\\w+)?", "^pid=\\d+ uid=[0-9]+$", "com\\.android\\.phone",
+        "\\x41BC", "\\x{41}BC", "\\u0041pp", "\\0101BC", "(?<n>ab)\\k<n>", "(ab)\\1", "foo\\cAbar", "\\p{Lu}pple",
+        "\\N{LATIN CAPITAL LETTER A}pp")
+
+    for (regex in regexes) {
+      val pattern = Regex(regex)
+      val matchingLines = lines.filter { pattern.containsMatchIn(it) }
+      assertTrue("'$regex' matches a line", matchingLines.isNotEmpty())
+      for (line in matchingLines) {
+        literals(regex).forEach { assertTrue("'$it' of '$regex' in '$line'", line.contains(it)) }
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package com.tibagni.logviewer.log
+
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.nio.charset.StandardCharsets
+import java.util.zip.GZIPOutputStream
+import java.util.zip.ZipEntry
+import java.util.zip.ZipOutputStream
+import kotlin.streams.toList
+
+class CompressedLogFileTests {
+  private val temporaryFiles = mutableListOf<File>()
+
+  @After
+  fun tearDown() {
+    temporaryFiles.forEach { it.delete() }
+  }
+
+  private fun createFile(suffix: String, write: (File) -> Unit): File {
+    val file = File.createTempFile("compressed", suffix)
+    temporaryFiles.add(file)
+    write(file)
+    return file
+  }
+
+  private fun gzip(text: String) = createFile(".gz") { file ->
+    GZIPOutputStream(file.outputStream()).use { it.write(text.toByteArray()) }
+  }
+
+  private fun zip(vararg entries: Pair<String, String>) = createFile(".zip") { file ->
+    ZipOutputStream(file.outputStream()).use { zip ->
+      entries.forEach { (name, text) ->
+        zip.putNextEntry(ZipEntry(name))
+        zip.write(text.toByteArray())
+        zip.closeEntry()
+      }
+    }
+  }
+
+  @Test
+  fun testIsCompressed() {
+    assertTrue(CompressedLogFile.isCompressed(gzip("line")))
+    assertTrue(CompressedLogFile.isCompressed(zip("main.txt" to "line")))
+    assertFalse(CompressedLogFile.isCompressed(createFile(".txt") { it.writeText("line") }))
+    assertFalse(CompressedLogFile.isCompressed(createFile(".gz") { it.writeText("") }))
+  }
+
+  @Test
+  fun testReadGzip() {
+    val file = gzip("line 1\nline 2\r\nline 3")
+
+    val logs = CompressedLogFile.open(file)
+
+    assertEquals(listOf(file.path), logs.map { it.path })
+    logs[0].lines(StandardCharsets.UTF_8).use {
+      assertEquals(listOf("line 1", "line 2", "line 3"), it.toList())
+    }
+    assertEquals("line 1\nline 2\r\nline 3", logs[0].decodeAll(StandardCharsets.UTF_8))
+  }
+
+  @Test
+  fun testReadOnlyTextEntriesOfZip() {
+    val file = zip("bugreport-1.txt" to "bugreport", "FS/data/anr/trace" to "trace", "logs/main.log" to "main")
+
+    val logs = CompressedLogFile.open(file)
+    try {
+      assertEquals(
+        listOf(file.path + File.separator + "bugreport-1.txt",
+          file.path + File.separator + "logs" + File.separator + "main.log"),
+        logs.map { it.path })
+      assertEquals("bugreport", logs[0].decodeAll(StandardCharsets.UTF_8))
+      assertEquals("main", logs[1].decodeAll(StandardCharsets.UTF_8))
+    } finally {
+      logs.forEach { it.close() }
+    }
+  }
+
+  @Test
+  fun testNonLogEntriesOfBugReportAreSkipped() {
+    val file = zip(
+      "main_entry.txt" to "bugreport-1.txt",
+      "version.txt" to "2.0",
+      "dumpstate_log.txt" to "dumpstate",
+      "FS/data/misc/notes.txt" to "notes",
+      "fs/proc/version.log" to "version",
+      "bugreport-1.txt" to "bugreport")
+
+    val logs = CompressedLogFile.open(file)
+    try {
+      assertEquals(listOf(file.path + File.separator + "bugreport-1.txt"), logs.map { it.path })
+    } finally {
+      logs.forEach { it.close() }
+    }
+  }
+
+  @Test
+  fun testReadAllEntriesOfZipWithoutTextFiles() {
+    val file = zip("main" to "main", "system" to "system")
+
+    val logs = CompressedLogFile.open(file)
+    try {
+      assertEquals(listOf("main", "system"), logs.map { it.decodeAll(StandardCharsets.UTF_8) })
+    } finally {
+      logs.forEach { it.close() }
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.tibagni.logviewer.log
+
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.File
+import java.nio.charset.StandardCharsets
+import java.util.stream.Collectors
+
+class FileLogReaderTests {
+  private var temporaryFile: File? = null
+
+  @After
+  fun tearDown() {
+    temporaryFile?.delete()
+  }
+
+  private fun createTempLogFile(text: String): File {
+    val file = File.createTempFile("main", "txt").apply { writeText(text) }
+    temporaryFile = file
+    return file
+  }
+
+  @Test
+  fun testStreamLines() {
+    val logFile = createTempLogFile("line 1\r\nline 2\nline 3")
+    val reader = FileLogReader(arrayOf(logFile))
+    reader.readLogs(StandardCharsets.UTF_8)
+
+    val lines = reader.getLines(logFile.path).use { it.collect(Collectors.toList()) }
+
+    assertEquals(setOf(logFile.path), reader.availableLogPaths)
+    assertEquals(listOf("line 1", "line 2", "line 3"), lines)
+  }
+
+  @Test
+  fun testStreamLinesMultipleTimes() {
+    val logFile = createTempLogFile("line 1\nline 2")
+    val reader = FileLogReader(arrayOf(logFile))
+    reader.readLogs(StandardCharsets.UTF_8)
+
+    val firstRead = reader.getLines(logFile.path).use { it.count() }
+    val secondRead = reader.getLines(logFile.path).use { it.count() }
+
+    assertEquals(2, firstRead)
+    assertEquals(2, secondRead)
+  }
+
+  @Test
+  fun testGetWholeLog() {
+    val logFile = createTempLogFile("line 1\nline 2")
+    val reader = FileLogReader(arrayOf(logFile))
+    reader.readLogs(StandardCharsets.UTF_8)
+
+    assertEquals("line 1\nline 2", reader.get(logFile.path))
+    assertNull(reader.get("invalid"))
+  }
+
+  @Test(expected = LogReaderException::class)
+  fun testReadInvalidFile() {
+    FileLogReader(arrayOf(File("invalid"))).readLogs(StandardCharsets.UTF_8)
+  }
+}
@@ -85,4 +85,23 @@ class LogEntryTests {
     assertNotEquals(entry1, entry2)
     assertNotEquals(entry1.hashCode(), entry2.hashCode())
   }
+
+  @Test
+  fun testLogEntryTimestampCreatedFromKey() {
+    val timestamp = LogTimestamp(9, 1, 8, 10, 20, 300)
+    val entry = LogEntry("Text1", LogLevel.DEBUG, timestamp.toKey(), "main", "main")
+
+    assertEquals(timestamp, entry.timestamp)
+    assertEquals(LogEntry("Text1", LogLevel.DEBUG, timestamp, "main", "main"), entry)
+  }
+
+  @Test
+  fun testLogEntryWithoutTimestampComesFirst() {
+    val withTimestamp = LogEntry("Text1", LogLevel.DEBUG, LogTimestamp(1, 1, 0, 0, 0, 0))
+    val withoutTimestamp = LogEntry("Text2", LogLevel.DEBUG, null)
+
+    assertNull(withoutTimestamp.timestamp)
+    assertTrue(withoutTimestamp < withTimestamp)
+    assertTrue(withTimestamp > withoutTimestamp)
+  }
 }
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.tibagni.logviewer.log
+
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+class LogFilesWatcherTests {
+  private lateinit var logFile: File
+  private var watcher: LogFilesWatcher? = null
+
+  @Before
+  fun setUp() {
+    logFile = File.createTempFile("main", "txt").apply { writeText("first line\n") }
+  }
+
+  @After
+  fun tearDown() {
+    watcher?.stop()
+    logFile.delete()
+  }
+
+  @Test
+  fun testNotifiesWhenLogGrows() {
+    val changed = CountDownLatch(1)
+    watcher = LogFilesWatcher(arrayOf(logFile), { changed.countDown() }, 50).apply { start() }
+
+    logFile.appendText("second line\n")
+
+    assertTrue(changed.await(5, TimeUnit.SECONDS))
+  }
+
+  @Test
+  fun testDoesNotNotifyWithoutChanges() {
+    val changed = CountDownLatch(1)
+    watcher = LogFilesWatcher(arrayOf(logFile), { changed.countDown() }, 50).apply { start() }
+
+    assertFalse(changed.await(300, TimeUnit.MILLISECONDS))
+  }
+}
@@ -0,0 +1,165 @@
+package com.tibagni.logviewer.log
+
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Before
+import org.junit.Test
+import java.io.File
+import java.nio.charset.StandardCharsets
+import java.nio.file.Files
+import java.util.concurrent.TimeUnit
+
+class LogIndexTests {
+  private lateinit var indexDirectory: File
+  private lateinit var logFile: File
+  private lateinit var logIndex: LogIndex
+
+  private val logText = "10-12 22:32:50.264  2646  2664 I test  : first line\n" +
+      "10-12 22:32:51.264  2646  2665 W test  : second line\n"
+
+  @Before
+  fun setUp() {
+    indexDirectory = Files.createTempDirectory("index").toFile()
+    logFile = File.createTempFile("main", "txt").apply { writeText(logText) }
+    logIndex = LogIndex(indexDirectory, 0)
+  }
+
+  @After
+  fun tearDown() {
+    logFile.delete()
+    indexDirectory.deleteRecursively()
+  }
+
+  private fun buildEntries(mappedLog: MappedLogFile): LogStore.Builder {
+    val builder = LogStore.Builder()
+    val source = builder.addSource(mappedLog.path, logFile.name, mappedLog)
+    builder.addMapped(0, 51, LogLevel.INFO, 10, 2646, 2664, source)
+    builder.add("second line, copied", LogLevel.WARNING, 20, 2646, 2665, source)
+    return builder
+  }
+
+  @Test
+  fun testSaveAndLoad() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    logIndex.save(mappedLog, listOf(buildEntries(mappedLog)), true)
+
+    val indexedLog = logIndex.load(mappedLog, logFile.name)
+
+    assertNotNull(indexedLog)
+    assertTrue(indexedLog!!.isPotentialBugReport)
+    val entries = indexedLog.entries.build()
+    assertEquals(
+      listOf("10-12 22:32:50.264  2646  2664 I test  : first line", "second line, copied"),
+      entries.map { it.logText })
+    assertEquals(listOf(LogLevel.INFO, LogLevel.WARNING), entries.map { it.logLevel })
+    assertEquals(listOf(10L, 20L), entries.map { it.timestampKey })
+    assertEquals(listOf(2646, 2646), entries.map { it.pid })
+    assertEquals(listOf(2664, 2665), entries.map { it.tid })
+    assertEquals(listOf(logFile.name, logFile.name), entries.map { it.fileName })
+  }
+
+  @Test
+  fun testSaveChunks() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    logIndex.save(mappedLog, listOf(buildEntries(mappedLog), buildEntries(mappedLog)), false)
+
+    val indexedLog = logIndex.load(mappedLog, logFile.name)
+
+    assertNotNull(indexedLog)
+    assertFalse(indexedLog!!.isPotentialBugReport)
+    assertEquals(listOf(10L, 20L, 10L, 20L), indexedLog.entries.build().map { it.timestampKey })
+  }
+
+  @Test
+  fun testSaveCopiedTextWithPosition() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    val builder = LogStore.Builder()
+    val source = builder.addSource(mappedLog.path, logFile.name)
+    builder.add("10-12 22:32:51.264  2646  2665 W test  : second line", 52, 52, LogLevel.WARNING, 20, 2646, 2665,
+      source)
+    logIndex.save(mappedLog, listOf(builder), false)
+
+    val indexedLog = logIndex.load(mappedLog, logFile.name)
+
+    // Only the position of the copied text is indexed. The text is read from the log
+    assertNotNull(indexedLog)
+    val entries = indexedLog!!.entries.build()
+    assertEquals(listOf("10-12 22:32:51.264  2646  2665 W test  : second line"), entries.map { it.logText })
+    assertNotNull(entries.withCharset(StandardCharsets.ISO_8859_1))
+    assertEquals(entries.map { it.logText }, indexedLog.entries.copyText().build().map { it.logText })
+  }
+
+  @Test
+  fun testNoIndex() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+
+    assertNull(logIndex.load(mappedLog, logFile.name))
+  }
+
+  @Test
+  fun testIndexOfModifiedLog() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    logIndex.save(mappedLog, listOf(buildEntries(mappedLog)), false)
+
+    logFile.appendText("10-12 22:32:52.264  2646  2665 W test  : third line\n")
+
+    assertNull(logIndex.load(MappedLogFile.map(logFile, StandardCharsets.UTF_8), logFile.name))
+  }
+
+  @Test
+  fun testIndexOfOtherCharset() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    logIndex.save(mappedLog, listOf(buildEntries(mappedLog)), false)
+
+    assertNull(logIndex.load(mappedLog.withCharset(StandardCharsets.ISO_8859_1), logFile.name))
+  }
+
+  @Test
+  fun testCorruptedIndex() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    logIndex.save(mappedLog, listOf(buildEntries(mappedLog)), false)
+
+    val indexFile = logIndex.getIndexFile(logFile, StandardCharsets.UTF_8)
+    indexFile.writeBytes(indexFile.readBytes().copyOf(indexFile.length().toInt() - 10))
+
+    assertNull(logIndex.load(mappedLog, logFile.name))
+  }
+
+  @Test
+  fun testLeastRecentlyUsedIndexesAreDeleted() {
+    // Only the most recent index fits
+    val smallIndex = LogIndex(indexDirectory, 0, 1, Runnable::run)
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    smallIndex.save(mappedLog, listOf(buildEntries(mappedLog)), false)
+    val oldIndexFile = smallIndex.getIndexFile(logFile, StandardCharsets.UTF_8)
+    oldIndexFile.setLastModified(System.currentTimeMillis() - 60_000)
+
+    val otherLog = mappedLog.withCharset(StandardCharsets.ISO_8859_1)
+    smallIndex.save(otherLog, listOf(buildEntries(otherLog)), false)
+
+    assertFalse(oldIndexFile.exists())
+    assertTrue(smallIndex.getIndexFile(logFile, StandardCharsets.ISO_8859_1).exists())
+    assertNotNull(smallIndex.load(otherLog, logFile.name))
+  }
+
+  @Test
+  fun testLeftoverTemporaryFilesAreDeleted() {
+    val leftover = File(indexDirectory, "index1.tmp").apply { writeText("partial") }
+    leftover.setLastModified(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(2))
+    val beingWritten = File(indexDirectory, "index2.tmp").apply { writeText("partial") }
+
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+    logIndex.save(mappedLog, listOf(buildEntries(mappedLog)), false)
+
+    assertFalse(leftover.exists())
+    assertTrue(beingWritten.exists())
+  }
+
+  @Test
+  fun testSmallLogsAreNotIndexed() {
+    val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+
+    assertTrue(logIndex.shouldIndex(mappedLog))
+    assertFalse(LogIndex(indexDirectory, logText.length + 1L).shouldIndex(mappedLog))
+  }
+}
@@ -0,0 +1,272 @@
+package com.tibagni.logviewer.log
+
+import com.tibagni.logviewer.filter.Filter
+import org.junit.Assert.*
+import org.junit.Assume.assumeNoException
+import org.junit.Test
+import java.awt.Color
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.charset.StandardCharsets
+
+class LogStoreTests {
+
+  private fun builder(logName: String, vararg lines: Pair<String, Long>): LogStore.Builder {
+    val builder = LogStore.Builder(1)
+    val source = builder.addSource(logName, logName)
+    for ((text, key) in lines) {
+      builder.add(text, LogLevel.INFO, key, 10, 20, source)
+    }
+    return builder
+  }
+
+  @Test
+  fun testBuildKeepsAllAttributes() {
+    val builder = LogStore.Builder()
+    val source = builder.addSource("/path/main.txt", "main.txt")
+    builder.add("first line", LogLevel.ERROR, 5, 123, 456, source)
+    builder.add("ação 😀", LogLevel.VERBOSE, LogTimestamp.NO_TIMESTAMP, -1, -1, source)
+
+    val store = builder.build()
+
+    assertEquals(2, store.size)
+    assertEquals("first line", store[0].logText)
+    assertEquals(LogLevel.ERROR, store[0].logLevel)
+    assertEquals(5L, store[0].timestampKey)
+    assertEquals(123, store[0].pid)
+    assertEquals(456, store[0].tid)
+    assertEquals("main.txt", store[0].fileName)
+    assertEquals(LogStream.MAIN, store[0].stream)
+    assertEquals(0, store[0].index)
+
+    assertEquals("ação 😀", store[1].logText)
+    assertEquals(LogLevel.VERBOSE, store[1].logLevel)
+    assertNull(store[1].timestamp)
+    assertEquals(1, store[1].index)
+  }
+
+  @Test
+  fun testBuildWithTextBiggerThanPage() {
+    val builder = LogStore.Builder()
+    val source = builder.addSource("main", "main")
+    val bigText = "a".repeat(200 * 1024)
+    builder.add("small", LogLevel.INFO, 1, -1, -1, source)
+    builder.add(bigText, LogLevel.INFO, 2, -1, -1, source)
+    builder.add("small again", LogLevel.INFO, 3, -1, -1, source)
+
+    val store = builder.build()
+
+    assertEquals("small", store[0].logText)
+    assertEquals(bigText, store[1].logText)
+    assertEquals("small again", store[2].logText)
+  }
+
+  @Test
+  fun testTextViewIsNotCopied() {
+    val store = builder("main", "ASCII line" to 1L, "ação" to 2L).build()
+
+    // ASCII text is read where it is stored. Other text is decoded
+    val asciiView = store[0].textView
+    assertFalse(asciiView is String)
+    assertEquals("ASCII line", asciiView.toString())
+    assertEquals("line", asciiView.subSequence(6, 10).toString())
+    assertEquals('A', asciiView[0])
+    assertEquals("ação", store[1].textView)
+  }
+
+  @Test
+  fun testTextOfTruncatedLog() {
+    val logFile = File.createTempFile("main", "txt").apply { writeText("first line\n") }
+    try {
+      val mappedLog = MappedLogFile.map(logFile, StandardCharsets.UTF_8)
+      val builder = LogStore.Builder()
+      val source = builder.addSource(logFile.path, logFile.name, mappedLog)
+      builder.addMapped(0, 10, LogLevel.INFO, 1, 10, 20, source)
+      val store = builder.build()
+
+      try {
+        RandomAccessFile(logFile, "rw").use { it.setLength(0) }
+      } catch (e: IOException) {
+        assumeNoException(e)
+      }
+      Thread.sleep(MappedLogFile.SIZE_CHECK_INTERVAL_MS + 50)
+
+      assertEquals(LogStore.UNAVAILABLE_TEXT, store[0].logText)
+    } finally {
+      logFile.delete()
+    }
+  }
+
+  @Test
+  fun testCombineInGivenOrder() {
+    val main = builder("main", "main1" to 1L, "main2" to 3L)
+    val system = builder("system", "system1" to 2L)
+
+    val store = LogStore.Builder.combine(listOf(main, system), intArrayOf(0, 1, 0), intArrayOf(0, 0, 1))
+
+    assertEquals(listOf("main1", "system1", "main2"), store.map { it.logText })
+    assertEquals(listOf(0, 1, 2), store.map { it.index })
+    assertEquals(LogStream.SYSTEM, store[1].stream)
+  }
+
+  @Test
+  fun testCombineChunksOfSameLog() {
+    val chunk1 = builder("main", "main1" to 1L)
+    val chunk2 = builder("main", "main2" to 2L)
+
+    val store = LogStore.Builder.combine(listOf(chunk1, chunk2), intArrayOf(0, 1), intArrayOf(0, 0))
+
+    assertEquals(listOf("main1", "main2"), store.map { it.logText })
+    assertEquals(listOf("main", "main"), store.map { it.fileName })
+  }
+
+  @Test
+  fun testSubListKeepsIndexes() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L, "main3" to 3L, "main4" to 4L).build()
+
+    val slice = store.subList(1, 3)
+
+    assertEquals(2, slice.size)
+    assertEquals(listOf("main2", "main3"), slice.map { it.logText })
+    assertEquals(listOf(1, 2), slice.map { it.index })
+    assertEquals(listOf("main3"), slice.subList(1, 2).map { it.logText })
+  }
+
+  @Test(expected = IndexOutOfBoundsException::class)
+  fun testSubListOutOfBounds() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L).build()
+    store.subList(1, 2)[1]
+  }
+
+  @Test
+  fun testFiltersAreSharedBetweenViews() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L).build()
+    val filter = Filter("name", "main", Color.WHITE, LogLevel.VERBOSE)
+
+    store[1].appliedFilter = filter
+    store[0].searchFilter = filter
+
+    assertSame(filter, store[1].appliedFilter)
+    assertSame(filter, store.subList(1, 2)[0].appliedFilter)
+    assertNull(store[0].appliedFilter)
+    assertSame(filter, store[0].searchFilter)
+    assertNull(store[1].searchFilter)
+  }
+
+  @Test
+  fun testDetachedEntry() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L).build()
+    val filter = Filter("name", "main", Color.WHITE, LogLevel.VERBOSE)
+    store[1].appliedFilter = filter
+
+    val detached = store[1].detach()
+
+    assertEquals(store[1], detached)
+    assertEquals(store[1].hashCode(), detached.hashCode())
+    assertEquals(10, detached.pid)
+    assertEquals(20, detached.tid)
+    assertSame(filter, detached.appliedFilter)
+
+    // Detached entries follow the filters of the entry they came from
+    store[1].appliedFilter = null
+    assertNull(detached.appliedFilter)
+  }
+
+  @Test
+  fun testSetFiltersOfDetachedEntry() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L).build()
+    val filter = Filter("name", "main", Color.WHITE, LogLevel.VERBOSE)
+    val searchFilter = Filter("search", "main", Color.WHITE, LogLevel.VERBOSE)
+    val detached = store[1].detach()
+
+    detached.appliedFilter = filter
+    detached.searchFilter = searchFilter
+
+    assertSame(filter, detached.appliedFilter)
+    assertSame(searchFilter, detached.searchFilter)
+    assertSame(filter, store[1].appliedFilter)
+    assertSame(searchFilter, store[1].searchFilter)
+  }
+
+  @Test
+  fun testFindLastEntry() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L, "main2" to 2L, "main3" to 3L).build()
+
+    assertEquals(2, store.findLastEntry("main", 2, "main2"))
+    assertEquals(3, store.findLastEntry("main", 3, "main3"))
+    assertEquals(-1, store.findLastEntry("main", 3, "main2"))
+    assertEquals(-1, store.findLastEntry("system", 1, "main1"))
+  }
+
+  @Test
+  fun testMergeAppended() {
+    val store = builder("main", "main1" to 1L, "main2" to 3L, "main3" to 5L).build()
+    val filter = Filter("name", "main", Color.WHITE, LogLevel.VERBOSE)
+    store[0].appliedFilter = filter
+    val appended = LogStore.Builder.combine(
+      listOf(builder("main", "main3 longer" to 5L), builder("system", "system1" to 3L, "system2" to 6L)),
+      intArrayOf(1, 0, 1), intArrayOf(0, 0, 1))
+    val appendedIndexes = IntArray(appended.size)
+
+    val merged = store.mergeAppended(appended, intArrayOf(2), appendedIndexes, true)
+
+    assertEquals(listOf("main1", "main2", "system1", "main3 longer", "system2"), merged.map { it.logText })
+    assertEquals(listOf("main", "main", "system", "main", "system"), merged.map { it.fileName })
+    assertArrayEquals(intArrayOf(2, 3, 4), appendedIndexes)
+    assertSame(filter, merged[0].appliedFilter)
+    assertEquals(listOf(merged[0]), merged.entriesWithAppliedFilter)
+  }
+
+  @Test
+  fun testMergeAppendedKeepingOrder() {
+    val store = builder("main", "main1" to 3L, "main2" to 1L).build()
+    val appended = builder("main", "main2 longer" to 1L, "main3" to 2L).build()
+    val appendedIndexes = IntArray(appended.size)
+
+    val merged = store.mergeAppended(appended, intArrayOf(1), appendedIndexes, false)
+
+    assertEquals(listOf("main1", "main2 longer", "main3"), merged.map { it.logText })
+    assertArrayEquals(intArrayOf(1, 2), appendedIndexes)
+  }
+
+  @Test
+  fun testFindMovedEntries() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L, "main3" to 3L, "main4" to 4L).build()
+    val appended = builder("main", "main4 longer" to 4L, "main5" to 5L).build()
+    val merged = store.mergeAppended(appended, intArrayOf(3), IntArray(appended.size), false)
+    val trimmed = merged.dropFirst(1)
+
+    // The first entry was dropped and the last one was parsed again, so only 'main3' is still the same
+    val moved = trimmed.findMovedEntries(listOf(store[0], store[2], store[3]), 1, 2)
+
+    assertEquals(listOf("main3"), moved.map { it.logText })
+    assertEquals(listOf(1), moved.map { it.index })
+    assertEquals(trimmed[1], moved[0])
+  }
+
+  @Test
+  fun testEntriesWithAppliedFilterFromIndex() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L, "main3" to 3L).build()
+    val filter = Filter("name", "main", Color.WHITE, LogLevel.VERBOSE)
+    store[0].appliedFilter = filter
+    store[2].appliedFilter = filter
+
+    assertEquals(listOf(store[2]), store.getEntriesWithAppliedFilter(1))
+    assertEquals(listOf(store[2]), store.subList(1, 3).getEntriesWithAppliedFilter(0))
+  }
+
+  @Test
+  fun testDropFirst() {
+    val store = builder("main", "main1" to 1L, "main2" to 2L, "main3" to 3L).build()
+    val filter = Filter("name", "main", Color.WHITE, LogLevel.VERBOSE)
+    store[2].appliedFilter = filter
+
+    val trimmed = store.dropFirst(1)
+
+    assertEquals(listOf("main2", "main3"), trimmed.map { it.logText })
+    assertEquals(listOf(0, 1), trimmed.map { it.index })
+    assertNull(trimmed[0].appliedFilter)
+    assertSame(filter, trimmed[1].appliedFilter)
+  }
+}
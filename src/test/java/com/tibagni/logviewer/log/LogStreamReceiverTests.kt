@@ -0,0 +1,43 @@
+package com.tibagni.logviewer.log
+
+import org.junit.Assert.*
+import org.junit.Assume.assumeTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+class LogStreamReceiverTests {
+  @get:Rule
+  val tempFolder = TemporaryFolder()
+
+  @Test
+  fun testStandardInputAndTcpAreStreams() {
+    assertTrue(LogStreamReceiver.isLogStream("-"))
+    assertTrue(LogStreamReceiver.isLogStream("tcp:5037"))
+    assertFalse(LogStreamReceiver.isLogStream("tcp:none"))
+  }
+
+  @Test
+  fun testNamedPipeIsStream() {
+    val pipe = File(tempFolder.root, "pipe")
+    val mkfifo = try {
+      ProcessBuilder("mkfifo", pipe.path).start().waitFor()
+    } catch (e: Exception) {
+      -1
+    }
+    // Named pipes can only be created on unix systems
+    assumeTrue(mkfifo == 0)
+
+    assertTrue(LogStreamReceiver.isLogStream(pipe.path))
+  }
+
+  @Test
+  fun testOtherFilesAreNotStreams() {
+    assertFalse(LogStreamReceiver.isLogStream(tempFolder.newFile("log.txt").path))
+    assertFalse(LogStreamReceiver.isLogStream(tempFolder.root.path))
+    assertFalse(LogStreamReceiver.isLogStream(File(tempFolder.root, "missing").path))
+    // A device
+    assertFalse(LogStreamReceiver.isLogStream("/dev/null"))
+  }
+}
@@ -0,0 +1,58 @@
+package com.tibagni.logviewer.log
+
+import org.junit.Assert.*
+import org.junit.Test
+
+class LogTimestampTests {
+
+  @Test
+  fun testKeyKeepsTimestampOrder() {
+    val timestamps = listOf(
+      LogTimestamp(1, 1, 0, 0, 0, 0),
+      LogTimestamp(1, 1, 0, 0, 0, 999),
+      LogTimestamp(1, 1, 0, 0, 1, 0),
+      LogTimestamp(1, 1, 0, 59, 59, 999),
+      LogTimestamp(1, 1, 23, 0, 0, 0),
+      LogTimestamp(1, 31, 0, 0, 0, 0),
+      LogTimestamp(12, 1, 0, 0, 0, 0),
+      LogTimestamp(12, 31, 23, 59, 59, 999999999)
+    )
+
+    for (first in timestamps) {
+      for (second in timestamps) {
+        assertEquals("$first x $second",
+          first.compareTo(second).coerceIn(-1, 1), first.toKey().compareTo(second.toKey()).coerceIn(-1, 1))
+      }
+    }
+  }
+
+  @Test
+  fun testKeyRoundTrip() {
+    val timestamp = LogTimestamp(10, 12, 22, 32, 50, 264)
+
+    assertTrue(timestamp.toKey() > LogTimestamp.NO_TIMESTAMP)
+    assertEquals(timestamp, LogTimestamp.fromKey(timestamp.toKey()))
+    assertNull(LogTimestamp.fromKey(LogTimestamp.NO_TIMESTAMP))
+  }
+
+  @Test
+  fun testKeyEras() {
+    val date = LogTimestamp.toKey(12, 31, 23, 59, 59, 999)
+    val uptime = LogTimestamp.toKey(LogTimestamp.UPTIME_ERA, 0, 0, 0, 0, 0, 0)
+
+    assertTrue(date < uptime)
+    assertEquals(0, LogTimestamp.getEra(date))
+    assertEquals(LogTimestamp.UPTIME_ERA, LogTimestamp.getEra(uptime))
+    assertEquals(LogTimestamp(1, 2, 3, 4, 5, 6),
+      LogTimestamp.fromKey(LogTimestamp.toKey(LogTimestamp.UPTIME_ERA, 1, 2, 3, 4, 5, 6)))
+  }
+
+  @Test
+  fun testKeyWithTooManyFractionDigits() {
+    val smaller = LogTimestamp(10, 12, 22, 32, 50, 1234567890)
+    val bigger = LogTimestamp(10, 12, 22, 32, 50, 2134567890)
+
+    assertTrue(smaller.toKey() < bigger.toKey())
+    assertTrue(bigger.toKey() < LogTimestamp(10, 12, 22, 32, 51, 0).toKey())
+  }
+}
@@ -0,0 +1,184 @@
+package com.tibagni.logviewer.log
+
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Assume.assumeNoException
+import org.junit.Test
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.charset.StandardCharsets
+import java.util.stream.Collectors
+
+class MappedLogFileTests {
+  private var temporaryFile: File? = null
+
+  @After
+  fun tearDown() {
+    temporaryFile?.delete()
+  }
+
+  private fun mapText(text: String): MappedLogFile {
+    val file = File.createTempFile("mapped", "txt").apply { writeText(text) }
+    temporaryFile = file
+    return MappedLogFile.map(file, StandardCharsets.UTF_8)
+  }
+
+  private fun mapBytes(bytes: ByteArray, segmentShift: Int): MappedLogFile {
+    val file = File.createTempFile("mapped", "txt").apply { writeBytes(bytes) }
+    temporaryFile = file
+    return MappedLogFile.map(file, StandardCharsets.UTF_8, segmentShift)
+  }
+
+  private fun MappedLogFile.readLines(): List<String> {
+    val lines = mutableListOf<String>()
+    var lineStart = 0L
+    while (lineStart < size()) {
+      val lineEnd = findLineEnd(lineStart)
+      lines.add(decode(lineStart, lineEnd))
+      lineStart = nextLineStart(lineEnd)
+    }
+
+    return lines
+  }
+
+  @Test
+  fun testReadLinesWithDifferentLineTerminators() {
+    val mappedLog = mapText("line 1\nline 2\r\nline 3\rline 4")
+
+    assertEquals(listOf("line 1", "line 2", "line 3", "line 4"), mappedLog.readLines())
+  }
+
+  @Test
+  fun testReadEmptyLines() {
+    val mappedLog = mapText("line 1\n\n\nline 2\n")
+
+    assertEquals(listOf("line 1", "", "", "line 2"), mappedLog.readLines())
+  }
+
+  @Test
+  fun testDecodeMultiByteChars() {
+    val mappedLog = mapText("ação\n日本語")
+
+    assertEquals(listOf("ação", "日本語"), mappedLog.readLines())
+    assertEquals("ação\n日本語", mappedLog.decodeAll())
+  }
+
+  @Test
+  fun testStreamLines() {
+    val mappedLog = mapText("line 1\r\nline 2\nline 3")
+
+    val lines = mappedLog.lines().use { it.collect(Collectors.toList()) }
+    assertEquals(listOf("line 1", "line 2", "line 3"), lines)
+  }
+
+  @Test
+  fun testStreamLinesMultiByteLineTerminators() {
+    val file = File.createTempFile("mapped", "txt").apply { writeText("line 1\r\nline 2", StandardCharsets.UTF_16) }
+    temporaryFile = file
+    val mappedLog = MappedLogFile.map(file, StandardCharsets.UTF_16)
+
+    val lines = mappedLog.lines().use { it.collect(Collectors.toList()) }
+    assertEquals(listOf("line 1", "line 2"), lines)
+  }
+
+  @Test
+  fun testReadAcrossSegments() {
+    val text = "line 1\r\nação 2\n\nline 4 is longer than a segment\r\n日本語"
+    // 8 bytes per segment. Lines, line terminators and multi-byte chars are split between segments
+    val mappedLog = mapBytes(text.toByteArray(), 3)
+
+    assertEquals(text.toByteArray().size.toLong(), mappedLog.size())
+    assertEquals(listOf("line 1", "ação 2", "", "line 4 is longer than a segment", "日本語"), mappedLog.readLines())
+    assertEquals(mappedLog.readLines(), mappedLog.lines().use { it.collect(Collectors.toList()) })
+    assertEquals(text, mappedLog.decodeAll())
+    assertTrue(mappedLog.startsWith(18, mappedLog.size(), "line 4"))
+    val crc = java.util.zip.CRC32().apply { update(text.toByteArray(), 3, 37) }
+    assertEquals(crc.value, mappedLog.checksum(3, 40))
+  }
+
+  @Test
+  fun testDecodeHeadAcrossSegments() {
+    val text = "Bugreport format version: 2.0\nação"
+    val mappedLog = mapBytes(text.toByteArray(), 3)
+
+    assertEquals("Bugreport", mappedLog.decodeHead(9))
+    assertEquals(text, mappedLog.decodeHead(1024))
+  }
+
+  // Only the first bytes are there, but it claims to be larger than a String can hold
+  private fun mapTooLargeLog() = MappedLogFile("big", arrayOf(java.nio.ByteBuffer.wrap(
+    "Bugreport format version: 2.0".toByteArray())), 31, Int.MAX_VALUE + 1L, StandardCharsets.UTF_8)
+
+  @Test
+  fun testDecodeHeadOfFileTooLargeForAString() {
+    val mappedLog = mapTooLargeLog()
+
+    assertFalse(mappedLog.canDecodeAll())
+    assertEquals("Bugreport", mappedLog.decodeHead(9))
+  }
+
+  @Test(expected = IllegalStateException::class)
+  fun testFileTooLargeForAStringIsNotDecoded() {
+    mapTooLargeLog().decodeAll()
+  }
+
+  @Test
+  fun testReadNumbersAcrossSegments() {
+    val bytes = java.nio.ByteBuffer.allocate(22).order(java.nio.ByteOrder.LITTLE_ENDIAN)
+      .put(0).putShort(0xFFFE.toShort()).putInt(-123456).putLong(1L shl 40).put(ByteArray(7))
+      .array()
+    val mappedLog = mapBytes(bytes, 2)
+
+    assertEquals(0xFFFE, mappedLog.unsignedShortAt(1))
+    assertEquals(-123456, mappedLog.intAt(3))
+    assertEquals(1L shl 40, mappedLog.longAt(7))
+  }
+
+  @Test
+  fun testDecodeTruncatedFile() {
+    val mappedLog = mapText("first line\nsecond line\n")
+    assertEquals("first line", mappedLog.tryDecode(0, 10))
+
+    // Some systems don't allow mapped files to be truncated
+    try {
+      RandomAccessFile(temporaryFile, "rw").use { it.setLength(0) }
+    } catch (e: IOException) {
+      assumeNoException(e)
+    }
+
+    // The size is not checked for every read
+    Thread.sleep(MappedLogFile.SIZE_CHECK_INTERVAL_MS + 50)
+
+    assertNull(mappedLog.tryDecode(11, 22))
+    assertNull(mappedLog.tryDecode(0, 10))
+  }
+
+  @Test
+  fun testDecodeDeletedFile() {
+    val mappedLog = mapText("first line\nsecond line\n")
+    temporaryFile!!.delete()
+    Thread.sleep(MappedLogFile.SIZE_CHECK_INTERVAL_MS + 50)
+
+    // Deleted files are still mapped
+    assertEquals("second line", mappedLog.tryDecode(11, 22))
+  }
+
+  @Test
+  fun testStartsWith() {
+    val mappedLog = mapText("--------- beginning of main")
+
+    assertTrue(mappedLog.startsWith(0, mappedLog.size(), "--------- beginning of"))
+    assertFalse(mappedLog.startsWith(1, mappedLog.size(), "--------- beginning of"))
+    assertFalse(mappedLog.startsWith(0, 5, "--------- beginning of"))
+  }
+
+  @Test
+  fun testCanBeScannedAsBytes() {
+    assertTrue(MappedLogFile.canBeScannedAsBytes(StandardCharsets.UTF_8))
+    assertTrue(MappedLogFile.canBeScannedAsBytes(StandardCharsets.ISO_8859_1))
+    assertTrue(MappedLogFile.canBeScannedAsBytes(StandardCharsets.US_ASCII))
+    assertFalse(MappedLogFile.canBeScannedAsBytes(StandardCharsets.UTF_16))
+    assertFalse(MappedLogFile.canBeScannedAsBytes(StandardCharsets.UTF_16LE))
+  }
+}
@@ -0,0 +1,74 @@
+package com.tibagni.logviewer.log
+
+import org.junit.Assert.*
+import org.junit.Test
+import java.nio.charset.StandardCharsets
+import kotlin.streams.toList
+
+class StreamLogReaderTests {
+
+  private fun StreamLogReader.read(): List<String> {
+    readLogs(StandardCharsets.UTF_8)
+    return getLines(logName).toList()
+  }
+
+  @Test
+  fun testReadOnlyNewLines() {
+    val reader = StreamLogReader("stdin", 10)
+    reader.addLine("line 1")
+    reader.addLine("line 2")
+
+    assertTrue(reader.hasNewLines())
+    assertEquals(listOf("line 1", "line 2"), reader.read())
+    assertFalse(reader.hasNewLines())
+
+    reader.addLine("line 3")
+    assertEquals(listOf("line 3"), reader.read())
+    assertEquals(setOf("stdin"), reader.availableLogPaths)
+  }
+
+  @Test
+  fun testOldestLinesAreDropped() {
+    val reader = StreamLogReader("stdin", 3)
+    for (i in 1..5) {
+      reader.addLine("line $i")
+    }
+
+    assertEquals(listOf("line 3", "line 4", "line 5"), reader.read())
+  }
+
+  @Test
+  fun testUnreadLinesAreReadAgain() {
+    val reader = StreamLogReader("stdin", 10)
+    reader.addLine("line 1")
+    reader.addLine("line 2")
+    reader.read()
+
+    reader.unread(1)
+    assertFalse(reader.hasNewLines())
+
+    reader.addLine("line 3")
+    assertEquals(listOf("line 2", "line 3"), reader.read())
+  }
+
+  @Test
+  fun testUnreadLinesDroppedBeforeTheyAreReadAgain() {
+    val reader = StreamLogReader("stdin", 3)
+    reader.addLine("line 1")
+    reader.addLine("line 2")
+    reader.read()
+    assertFalse(reader.wereUnreadLinesDropped())
+
+    reader.unread(1)
+    for (i in 3..5) {
+      reader.addLine("line $i")
+    }
+
+    assertEquals(listOf("line 3", "line 4", "line 5"), reader.read())
+    assertTrue(reader.wereUnreadLinesDropped())
+
+    reader.addLine("line 6")
+    assertEquals(listOf("line 6"), reader.read())
+    assertFalse(reader.wereUnreadLinesDropped())
+  }
+}
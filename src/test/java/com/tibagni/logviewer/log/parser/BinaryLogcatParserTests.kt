@@ -0,0 +1,122 @@
+package com.tibagni.logviewer.log.parser
+
+import com.tibagni.logviewer.log.LogLevel
+import com.tibagni.logviewer.log.LogTimestamp
+import com.tibagni.logviewer.log.MappedLogFile
+import org.junit.After
+import org.junit.Assert.*
+import org.junit.Test
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.charset.StandardCharsets
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+
+class BinaryLogcatParserTests {
+    private val seconds = LocalDateTime.of(2020, 10, 12, 22, 32, 50).toEpochSecond(ZoneOffset.UTC).toInt()
+    private var temporaryFile: File? = null
+
+    @After
+    fun tearDown() {
+        temporaryFile?.delete()
+    }
+
+    private fun map(bytes: ByteArray): MappedLogFile {
+        val file = File.createTempFile("binary", "log").apply { writeBytes(bytes) }
+        temporaryFile = file
+        return MappedLogFile.map(file, StandardCharsets.UTF_8)
+    }
+
+    private fun record(headerSize: Int, logId: Int, pid: Int, tid: Int, nanoseconds: Int, payload: ByteArray): ByteArray {
+        val record = ByteBuffer.allocate(headerSize + payload.size).order(ByteOrder.LITTLE_ENDIAN)
+        record.putShort(payload.size.toShort())
+        record.putShort(headerSize.toShort())
+        record.putInt(pid)
+        record.putInt(tid)
+        record.putInt(seconds)
+        record.putInt(nanoseconds)
+        record.putInt(logId)
+        if (headerSize == 28) {
+            record.putInt(1000)
+        }
+        record.put(payload)
+        return record.array()
+    }
+
+    private fun message(priority: Int, tag: String, message: String): ByteArray {
+        return byteArrayOf(priority.toByte()) + tag.toByteArray() + 0 + message.toByteArray() + 0
+    }
+
+    private fun bytesOf(vararg records: ByteArray): ByteArray {
+        val bytes = ByteArrayOutputStream()
+        records.forEach { bytes.write(it) }
+        return bytes.toByteArray()
+    }
+
+    @Test
+    fun testIsBinaryLogcat() {
+        assertTrue(BinaryLogcatParser.isBinaryLogcat(map(bytesOf(
+            record(24, 0, 2646, 2664, 0, message(4, "test", "v3")),
+            record(28, 3, 2646, 2664, 0, message(4, "test", "v4"))))))
+
+        assertFalse(BinaryLogcatParser.isBinaryLogcat(map(
+            "10-12 22:32:50.264  2646  2664 I test  : first line\n".toByteArray())))
+        assertFalse(BinaryLogcatParser.isBinaryLogcat(map(
+            "--------- beginning of main\n".toByteArray())))
+        assertFalse(BinaryLogcatParser.isBinaryLogcat(map(ByteArray(0))))
+    }
+
+    @Test
+    fun testParseMessages() {
+        val log = map(bytesOf(
+            record(24, 0, 2646, 2664, 264_000_000, message(4, "test", "first line")),
+            record(28, 3, 442, 8037, 265_500_000, message(6, "vold", "first\nsecond\n")),
+            record(28, 4, 1, 1, 0, message(7, "crash", "fatal"))))
+
+        val entries = BinaryLogcatParser(ZoneOffset.UTC).parse(log, log.path, "binary.log").build()
+
+        assertEquals(listOf(
+            "10-12 22:32:50.264  2646  2664 I test    : first line",
+            "10-12 22:32:50.265   442  8037 E vold    : first",
+            "10-12 22:32:50.265   442  8037 E vold    : second",
+            "10-12 22:32:50.000     1     1 F crash   : fatal"),
+            entries.map { it.logText })
+        assertEquals(LogTimestamp(10, 12, 22, 32, 50, 264), entries[0].timestamp)
+        assertEquals(2646, entries[0].pid)
+        assertEquals(2664, entries[0].tid)
+        assertEquals(LogLevel.INFO, entries[0].logLevel)
+        assertEquals(LogLevel.ERROR, entries[1].logLevel)
+        assertEquals(LogLevel.ERROR, entries[3].logLevel)
+    }
+
+    @Test
+    fun testParseEvents() {
+        val event = ByteBuffer.allocate(28).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt(30001) // Tag
+            .put(3).put(3) // List with 3 values
+            .put(0).putInt(42)
+            .put(1).putLong(7)
+            .put(2).putInt(3).put("abc".toByteArray())
+            .array()
+        val log = map(record(28, 2, 100, 101, 0, event))
+
+        val entries = BinaryLogcatParser(ZoneOffset.UTC).parse(log, log.path, "binary.log").build()
+
+        assertEquals(listOf("10-12 22:32:50.000   100   101 I 30001   : [42,7,abc]"), entries.map { it.logText })
+    }
+
+    @Test
+    fun testStopOnTruncatedRecord() {
+        val complete = record(24, 0, 1, 1, 0, message(4, "test", "complete"))
+        val truncated = record(24, 0, 1, 1, 0, message(4, "test", "truncated"))
+        val log = map(bytesOf(complete, truncated.copyOf(truncated.size - 4)))
+
+        assertTrue(BinaryLogcatParser.isBinaryLogcat(log))
+        val entries = BinaryLogcatParser(ZoneOffset.UTC).parse(log, log.path, "binary.log").build()
+
+        assertEquals(1, entries.size)
+        assertTrue(entries[0].logText.endsWith("complete"))
+    }
+}
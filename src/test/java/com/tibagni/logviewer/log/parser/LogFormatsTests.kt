@@ -0,0 +1,104 @@
+package com.tibagni.logviewer.log.parser
+
+import com.tibagni.logviewer.log.LogLevel
+import com.tibagni.logviewer.log.LogTimestamp
+import org.junit.Assert.*
+import org.junit.Test
+import java.time.LocalDateTime
+import java.time.ZoneOffset
+
+class LogFormatsTests {
+
+    @Test
+    fun testDetectFormat() {
+        assertEquals(LogFormats.LOGCAT, LogFormats.detect(listOf(
+            "--------- beginning of main",
+            "10-12 22:32:50.264  2646  2664 I chatty  : uid=1000(system) batterystats-sy expire 13 lines")))
+        assertEquals(LogFormats.LOGCAT_YEAR, LogFormats.detect(listOf(
+            "2020-10-12 22:32:50.264  2646  2664 I chatty  : uid=1000(system) batterystats-sy expire 13 lines")))
+        assertEquals(LogFormats.LOGCAT_EPOCH, LogFormats.detect(listOf(
+            "1602541970.264  2646  2664 I chatty  : uid=1000(system) batterystats-sy expire 13 lines")))
+        assertEquals(LogFormats.LOGCAT_MONOTONIC, LogFormats.detect(listOf(
+            "   123.264  2646  2664 I chatty  : uid=1000(system) batterystats-sy expire 13 lines")))
+        assertEquals(LogFormats.KERNEL, LogFormats.detect(listOf(
+            "<6>[    0.000000] Booting Linux on physical CPU 0x0",
+            "[    0.000001] Linux version 4.14")))
+    }
+
+    @Test
+    fun testDetectFormatWithMostHeaders() {
+        assertEquals(LogFormats.KERNEL, LogFormats.detect(listOf(
+            "10-12 22:32:50.264  2646  2664 I test  : a single logcat line",
+            "[    0.000000] Booting Linux on physical CPU 0x0",
+            "[    0.000001] Linux version 4.14")))
+    }
+
+    @Test
+    fun testDetectUnknownFormat() {
+        assertEquals(LogFormats.LOGCAT, LogFormats.detect(listOf("not a log", "")))
+        assertEquals(LogFormats.LOGCAT, LogFormats.detect(emptyList<String>()))
+    }
+
+    @Test
+    fun testScanYearFormat() {
+        val scanner = LogFormats.LOGCAT_YEAR.newScanner()
+        scanner.scan("2020-10-12 22:32:50.264  2646  2664 W chatty  : test")
+
+        assertEquals(LogTimestamp(10, 12, 22, 32, 50, 264).toKey(), scanner.timestampKey)
+        assertEquals(2646, scanner.pid)
+        assertEquals(2664, scanner.tid)
+        assertEquals(LogLevel.WARNING, scanner.logLevel)
+    }
+
+    @Test
+    fun testScanEpochFormat() {
+        val seconds = LocalDateTime.of(2020, 10, 12, 22, 32, 50).toEpochSecond(ZoneOffset.UTC)
+        val scanner = SecondsLogFormat(true, ZoneOffset.UTC).newScanner()
+        scanner.scan("$seconds.264  2646  2664 E chatty  : test")
+
+        assertEquals(LogTimestamp(10, 12, 22, 32, 50, 264).toKey(), scanner.timestampKey)
+        assertEquals(2646, scanner.pid)
+        assertEquals(2664, scanner.tid)
+        assertEquals(LogLevel.ERROR, scanner.logLevel)
+    }
+
+    @Test
+    fun testScanMonotonicFormat() {
+        val scanner = LogFormats.LOGCAT_MONOTONIC.newScanner()
+        scanner.scan("  90061.500  1  2 V init    : test")
+
+        // 1 day, 1 hour, 1 minute and 1 second since boot
+        assertEquals(LogTimestamp.toKey(LogTimestamp.UPTIME_ERA, 0, 1, 1, 1, 1, 500), scanner.timestampKey)
+        assertEquals(1, scanner.pid)
+        assertEquals(2, scanner.tid)
+        assertEquals(LogLevel.VERBOSE, scanner.logLevel)
+
+        scanner.scan("  90061.501  1  2 V init    : next")
+        assertTrue(scanner.timestampKey > LogTimestamp.toKey(LogTimestamp.UPTIME_ERA, 0, 1, 1, 1, 1, 500))
+    }
+
+    @Test
+    fun testScanKernelFormat() {
+        val scanner = LogFormats.KERNEL.newScanner()
+        scanner.scan("<3>[   61.000123] init: Service 'vold' crashed")
+
+        assertEquals(SecondsLogFormat.toUptimeKey(61, 123), scanner.timestampKey)
+        assertEquals(LogLevel.ERROR, scanner.logLevel)
+        assertEquals(-1, scanner.pid)
+        assertEquals(-1, scanner.tid)
+
+        scanner.scan("[   62.000000] no priority")
+        assertEquals(LogLevel.INFO, scanner.logLevel)
+        assertEquals(SecondsLogFormat.toUptimeKey(62, 0), scanner.timestampKey)
+    }
+
+    @Test
+    fun testNotHeaders() {
+        assertFalse(LogFormats.LOGCAT_YEAR.isHeader("10-12 22:32:50.264  2646  2664 I chatty  : test"))
+        assertFalse(LogFormats.LOGCAT_EPOCH.isHeader("123.264  2646  2664 I chatty  : test"))
+        assertFalse(LogFormats.LOGCAT_MONOTONIC.isHeader("1602541970.264  2646  2664 I chatty  : test"))
+        assertFalse(LogFormats.LOGCAT_MONOTONIC.isHeader("10-12 22:32:50.264  2646  2664 I chatty  : test"))
+        assertFalse(LogFormats.KERNEL.isHeader("[    0.000000 missing bracket"))
+        assertFalse(LogFormats.KERNEL.isHeader("    at com.example.Main.main(Main.java:10)"))
+    }
+}
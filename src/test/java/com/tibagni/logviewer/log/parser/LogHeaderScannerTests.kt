@@ -0,0 +1,95 @@
+package com.tibagni.logviewer.log.parser
+
+import com.tibagni.logviewer.log.LogLevel
+import com.tibagni.logviewer.log.LogTimestamp
+import org.junit.Assert.*
+import org.junit.Test
+import java.util.regex.Pattern
+
+class LogHeaderScannerTests {
+    private val scanner = LogHeaderScanner()
+
+    @Test
+    fun testScanThreadTime() {
+        scanner.scan("10-12 22:32:50.264  2646  2664 I chatty  : uid=1000(system) batterystats-sy expire 13 lines")
+
+        assertEquals(LogTimestamp(10, 12, 22, 32, 50, 264), scanner.createTimestamp())
+        assertEquals(2646, scanner.pid)
+        assertEquals(2664, scanner.tid)
+        assertEquals(LogLevel.INFO, scanner.logLevel)
+    }
+
+    @Test
+    fun testScanOtherFormats() {
+        scanner.scan("01-06 20:46:39.491 821-1054/? W/ActivityManager:   Force finishing activity")
+
+        assertEquals(LogTimestamp(1, 6, 20, 46, 39, 491), scanner.createTimestamp())
+        assertEquals(-1, scanner.pid)
+        assertEquals(-1, scanner.tid)
+        assertEquals(LogLevel.WARNING, scanner.logLevel)
+    }
+
+    @Test
+    fun testScanOnlyFirstLine() {
+        scanner.scan("10-12 22:32:50.264 no level here\nE continuation")
+
+        assertEquals(LogLevel.DEBUG, scanner.logLevel)
+    }
+
+    @Test
+    fun testScanInvalidLine() {
+        scanner.scan("this is not a log line")
+
+        assertFalse(scanner.hasTimestamp())
+        assertNull(scanner.createTimestamp())
+        assertEquals(LogLevel.DEBUG, scanner.logLevel)
+    }
+
+    @Test
+    fun testIsLogHeader() {
+        assertTrue(LogHeaderScanner.isLogHeader("10-12 22:32:50"))
+        assertTrue(LogHeaderScanner.isLogHeader("10-12 22:32:50.264  2646  2664 I chatty  : test"))
+        assertFalse(LogHeaderScanner.isLogHeader("10-12\t22:32:50.264  2646  2664 I chatty  : test"))
+        assertFalse(LogHeaderScanner.isLogHeader("1-12 22:32:50.264  2646  2664 I chatty  : test"))
+        assertFalse(LogHeaderScanner.isLogHeader("--------- beginning of main"))
+        assertFalse(LogHeaderScanner.isLogHeader(""))
+    }
+
+    @Test
+    fun testSameResultsAsRegex() {
+        val levelPattern = Pattern.compile("^\\d{2}-\\d{2}\\s\\d{2}:\\d{2}:\\d{2}.*?([VDIWE])")
+        val timestampPattern = Pattern.compile("^(\\d{1,2})-(\\d{1,2})\\s(\\d{1,2}):(\\d{1,2}):(\\d{1,2}).(\\d{3,})")
+        val lines = listOf(
+            "10-12 22:32:50.264  2646  2664 I chatty  : test",
+            "1-2 3:4:5.678 V/Tag: test",
+            "10-12\t22:32:50.264  2646  2664 E chatty  : test",
+            "10-12 22:32:50123 W test",
+            "10-12 22:32:5012 W test",
+            "10-12 22:32:50.12 W test",
+            "10-12 22:32:50.99999999999 W test",
+            "10-12 22:32:50.264 1 2 X tag: E",
+            "10-12 22:32:50",
+            "10-12 22:32",
+            "123-12 22:32:50.264 I test",
+            "not a log"
+        )
+
+        for (line in lines) {
+            scanner.scan(line)
+
+            val levelMatcher = levelPattern.matcher(line)
+            val expectedLevel = if (levelMatcher.find()) LogLevel.createFromStringLevel(levelMatcher.group(1)) else LogLevel.DEBUG
+            assertEquals(line, expectedLevel, scanner.logLevel)
+
+            val timestampMatcher = timestampPattern.matcher(line)
+            val expectedTimestamp = try {
+                if (timestampMatcher.find()) LogTimestamp(timestampMatcher.group(1), timestampMatcher.group(2),
+                    timestampMatcher.group(3), timestampMatcher.group(4), timestampMatcher.group(5),
+                    timestampMatcher.group(6)) else null
+            } catch (e: NumberFormatException) {
+                null
+            }
+            assertEquals(line, expectedTimestamp, scanner.createTimestamp())
+        }
+    }
+}
@@ -1,19 +1,25 @@
 package com.tibagni.logviewer.log.parser
 
 import com.tibagni.logviewer.ProgressReporter
+import com.tibagni.logviewer.log.LogIndex
 import com.tibagni.logviewer.log.LogLevel
 import com.tibagni.logviewer.log.LogReader
 import com.tibagni.logviewer.log.LogStream
+import com.tibagni.logviewer.log.MappedFileLogReader
 import com.tibagni.logviewer.log.LogTimestamp
 import org.junit.Assert.*
 import org.junit.Before
+import org.junit.Rule
 import org.junit.Test
+import org.junit.rules.TemporaryFolder
 import org.mockito.ArgumentCaptor
 import org.mockito.ArgumentMatchers
 import org.mockito.Mock
 import org.mockito.Mockito.*
 import org.mockito.MockitoAnnotations
+import java.io.File
 import java.nio.charset.StandardCharsets
+import java.util.concurrent.CancellationException
 
 class ParserTests {
     private lateinit var logParser: LogParser
@@ -24,6 +30,10 @@ class ParserTests {
     @Mock
     private lateinit var progressReporter: ProgressReporter
 
+    // The logs written by the tests. Deleted after each test
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
     @Before
     fun setUp() {
         MockitoAnnotations.initMocks(this)
@@ -57,6 +67,17 @@ class ParserTests {
         assertEquals(LogLevel.ERROR, error2)
     }
 
+    @Test(expected = CancellationException::class)
+    fun testParseLogsCancelled() {
+        `when`(reader.availableLogPaths).thenReturn(setOf("main", "system"))
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer {
+            "10-12 22:32:50.264  2646  2664 I test  : Test log".lines().stream()
+        }
+        `when`(progressReporter.isCancelled).thenReturn(true)
+
+        logParser.parseLogs(StandardCharsets.UTF_8)
+    }
+
     @Test
     fun testFindTimestamp() {
         val expected = LogTimestamp(10, 12, 22, 32, 50, 264)
@@ -77,38 +98,84 @@ class ParserTests {
         val expectedLogs = Array(4) { testLogLine }
 
         `when`(reader.availableLogPaths).thenReturn(logNames)
-        `when`(reader.get(ArgumentMatchers.any())).thenReturn(testLogLine)
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer { testLogLine.lines().stream() }
+        // Only check the updates of each step, not the ones with the throughput
+        logParser.setProgressRateLimiter { false }
 
         val entries = logParser.parseLogs(StandardCharsets.UTF_8)
 
         val progressCaptor = ArgumentCaptor.forClass(Int::class.java)
         val descriptionCaptor = ArgumentCaptor.forClass(String::class.java)
-        verify<ProgressReporter>(progressReporter, times(7))
+        verify<ProgressReporter>(progressReporter, times(6))
                 .onProgress(progressCaptor.capture(), descriptionCaptor.capture())
 
         val progresses = progressCaptor.allValues
         val descriptions = descriptionCaptor.allValues
 
+        // The size of the logs is not known (they are not mapped), so the progress is how many of them were read
         assertTrue(progresses.contains(0))
         assertTrue(progresses.contains(22))
         assertTrue(progresses.contains(45))
         assertTrue(progresses.contains(67))
         assertTrue(progresses.contains(91))
-        assertTrue(progresses.contains(95))
         assertTrue(progresses.contains(100))
 
         assertTrue(descriptions.contains("Reading main..."))
         assertTrue(descriptions.contains("Reading radio..."))
         assertTrue(descriptions.contains("Reading system..."))
         assertTrue(descriptions.contains("Reading events..."))
-        assertTrue(descriptions.contains("Sorting..."))
-        assertTrue(descriptions.contains("Setting index..."))
+        assertTrue(descriptions.contains("Merging..."))
         assertTrue(descriptions.contains("Completed"))
 
         val actualLogs = entries.map { it.logText }.toTypedArray()
         assertArrayEquals(expectedLogs, actualLogs)
     }
 
+    @Test
+    fun testParseLogsKeepsLogsOrder() {
+        val logNames = (1..12).map { "log$it" }.toSet()
+        val emptyLogs = listOf("log3", "log7", "log8")
+
+        `when`(reader.availableLogPaths).thenReturn(logNames)
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer {
+            val logName = it.arguments[0] as String
+            val logText = if (emptyLogs.contains(logName)) "" else "10-12 22:32:50.264  2646  2664 I test  : $logName"
+            logText.lines().stream()
+        }
+
+        val entries = logParser.parseLogs(StandardCharsets.UTF_8)
+
+        val expectedLogs = logNames.filter { !emptyLogs.contains(it) }
+            .map { "10-12 22:32:50.264  2646  2664 I test  : $it" }
+        assertEquals(expectedLogs, entries.map { it.logText })
+        assertEquals(emptyLogs, logParser.logsSkipped)
+    }
+
+    @Test
+    fun testParseLogsMergesLogsInTimeOrder() {
+        val logs = mapOf(
+            "main" to "10-12 22:32:50.100  1  1 I A: main 1\n" +
+                    "10-12 22:32:50.300  1  1 I A: main 2\n" +
+                    "10-12 22:32:50.200  1  1 I A: main 3\n" +
+                    "10-12 22:32:50.500  1  1 I A: main 4",
+            "system" to "10-12 22:32:50.200  1  1 I A: system 1\n" +
+                    "10-12 22:32:50.400  1  1 I A: system 2"
+        )
+
+        `when`(reader.availableLogPaths).thenReturn(logs.keys)
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer {
+            logs.getValue(it.arguments[0] as String).lines().stream()
+        }
+
+        val entries = logParser.parseLogs(StandardCharsets.UTF_8)
+
+        // Entries with the same timestamp keep the order of the logs they came from
+        assertEquals(
+            listOf("main 1", "main 3", "system 1", "main 2", "system 2", "main 4"),
+            entries.map { it.logText.substringAfter("A: ") })
+        assertEquals((0 until 6).toList(), entries.map { it.index })
+    }
+
     @Test
     fun testParseInvalidLogs() {
         val testLogLine = buildHugeLogPayload()
@@ -116,6 +183,7 @@ class ParserTests {
 
         `when`(reader.availableLogPaths).thenReturn(logNames)
         `when`(reader.get(ArgumentMatchers.any())).thenReturn(testLogLine)
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer { testLogLine.lines().stream() }
 
         val parsedLogs = logParser.parseLogs(StandardCharsets.UTF_8)
 
@@ -125,6 +193,384 @@ class ParserTests {
         assertEquals(LogParser.MAX_LOG_LINE_ALLOWED, parsedLogs[0].logText.length)
     }
 
+    @Test
+    fun testLogIsCheckedForBugReportOnlyOnce() {
+        val overlongLine = "continuation ".repeat(LogParser.MAX_LOG_LINE_ALLOWED / 13 + 1)
+        val logText = (0 until 5).joinToString("\n") {
+            "10-12 22:32:50.264  2646  2664 I test  : line $it\n$overlongLine\n$overlongLine"
+        }
+
+        `when`(reader.availableLogPaths).thenReturn(setOf("main"))
+        `when`(reader.get(ArgumentMatchers.any())).thenReturn(logText)
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer { logText.lines().stream() }
+
+        val parsedLogs = logParser.parseLogs(StandardCharsets.UTF_8)
+
+        assertEquals(5, parsedLogs.size)
+        assertTrue(logParser.potentialBugReports.isEmpty())
+        // Every line is too long, but only the head of the log is read (once) to look for the bugreport header
+        verify(reader, times(2)).getLines("main")
+        verify(reader, never()).get("main")
+    }
+
+    @Test
+    fun testFindPotentialBugReportInStreamedLog() {
+        val logText = bugReportText(0)
+        val farHeaderText = bugReportText(LogParser.BUGREPORT_HEADER_SEARCH_SIZE)
+
+        `when`(reader.availableLogPaths).thenReturn(setOf("bugreport", "other"))
+        `when`(reader.get("bugreport")).thenReturn(logText)
+        `when`(reader.getLines("bugreport")).thenAnswer { logText.lines().stream() }
+        `when`(reader.getLines("other")).thenAnswer { farHeaderText.lines().stream() }
+
+        logParser.parseLogs(StandardCharsets.UTF_8)
+
+        // Only the log with the header in its head is read as a whole
+        assertEquals(mapOf("bugreport" to logText.replace("\r", "")), logParser.potentialBugReports)
+        verify(reader, never()).get("other")
+    }
+
+    @Test
+    fun testParseMappedLogs() {
+        val logText = "--------- beginning of main\r\n" +
+                "10-12 22:32:50.264  2646  2664 I test  : first line\r\n" +
+                "continuation of the first line\r\n" +
+                "10-12 22:32:51.264  2646  2664 W test  : second line\u0000\u0000\r\n" +
+                "--------- beginning of system\r\n" +
+                "10-12 22:32:52.264  2646  2664 E test  : third line\r\n\r\n"
+        val logFile = createLogFile("main.txt", logText)
+
+        `when`(reader.availableLogPaths).thenReturn(setOf(logFile.path))
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer { logText.lines().stream() }
+        val expected = logParser.parseLogs(StandardCharsets.UTF_8)
+
+        val mappedLogParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+        val actual = mappedLogParser.parseLogs(StandardCharsets.UTF_8)
+
+        assertEquals(3, actual.size)
+        assertArrayEquals(expected.map { it.logText }.toTypedArray(), actual.map { it.logText }.toTypedArray())
+        assertEquals("10-12 22:32:50.264  2646  2664 I test  : first line" + System.lineSeparator() +
+                "continuation of the first line", actual[0].logText)
+        assertEquals(LogLevel.WARNING, actual[1].logLevel)
+        assertEquals("10-12 22:32:51.264  2646  2664 W test  : second line", actual[1].logText)
+    }
+
+    @Test
+    fun testParseKernelLog() {
+        val logText = "<6>[    0.000000] Booting Linux on physical CPU 0x0\n" +
+                "  continuation of the first line\n" +
+                "<4>[    1.500000] second line\n"
+        val logFile = createLogFile("kernel.txt", logText)
+
+        `when`(reader.availableLogPaths).thenReturn(setOf(logFile.path))
+        `when`(reader.getLines(ArgumentMatchers.any())).thenAnswer { logText.lines().stream() }
+        val streamed = logParser.parseLogs(StandardCharsets.UTF_8)
+
+        val mappedLogParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+        val mapped = mappedLogParser.parseLogs(StandardCharsets.UTF_8)
+
+        for (actual in listOf(streamed, mapped)) {
+            assertEquals(2, actual.size)
+            assertEquals("<6>[    0.000000] Booting Linux on physical CPU 0x0" + System.lineSeparator() +
+                    "  continuation of the first line", actual[0].logText)
+            assertEquals(LogLevel.INFO, actual[0].logLevel)
+            assertEquals(LogLevel.WARNING, actual[1].logLevel)
+            assertTrue(actual[0].timestampKey < actual[1].timestampKey)
+        }
+    }
+
+    @Test
+    fun testParseKernelAndLogcatLogs() {
+        // More than 32 days since boot, which would be the same "month" of the logcat dates if they were mixed
+        val kernelText = "<6>[3000000.000000] kernel first line\n" +
+                "<6>[3000001.000000] kernel second line\n"
+        val logcatText = "01-06 20:46:50.000  2646  2664 I test  : logcat first line\n" +
+                "01-06 20:46:51.000  2646  2664 I test  : logcat second line\n"
+        val kernelFile = createLogFile("kernel.txt", kernelText)
+        val logcatFile = createLogFile("main.txt", logcatText)
+
+        val mappedLogParser = LogParser(MappedFileLogReader(arrayOf(kernelFile, logcatFile)), progressReporter)
+        val actual = mappedLogParser.parseLogs(StandardCharsets.UTF_8)
+
+        // Time since boot can't be compared to dates, so the kernel entries are kept together after the others
+        assertEquals(listOf(
+            "01-06 20:46:50.000  2646  2664 I test  : logcat first line",
+            "01-06 20:46:51.000  2646  2664 I test  : logcat second line",
+            "<6>[3000000.000000] kernel first line",
+            "<6>[3000001.000000] kernel second line"),
+            actual.map { it.logText })
+        assertEquals(listOf(0, 0, LogTimestamp.UPTIME_ERA, LogTimestamp.UPTIME_ERA),
+            actual.map { LogTimestamp.getEra(it.timestampKey) })
+    }
+
+    @Test
+    fun testParseCompressedLogs() {
+        val mainText = "10-12 22:32:50.264  2646  2664 I test  : main line\n" +
+                "continuation of the main line\n"
+        val systemText = "10-12 22:32:51.264  2646  2664 W test  : system line\n"
+        val gzipFile = tempFolder.newFile("main.txt.gz")
+        java.util.zip.GZIPOutputStream(gzipFile.outputStream()).use { it.write(mainText.toByteArray()) }
+        val zipFile = tempFolder.newFile("bugreport.zip")
+        java.util.zip.ZipOutputStream(zipFile.outputStream()).use {
+            it.putNextEntry(java.util.zip.ZipEntry("system.txt"))
+            it.write(systemText.toByteArray())
+            it.closeEntry()
+        }
+
+        val compressedLogParser = LogParser(MappedFileLogReader(arrayOf(gzipFile, zipFile)), progressReporter)
+        val actual = compressedLogParser.parseLogs(StandardCharsets.UTF_8)
+
+        assertEquals(listOf(
+            "10-12 22:32:50.264  2646  2664 I test  : main line" + System.lineSeparator() +
+                    "continuation of the main line",
+            "10-12 22:32:51.264  2646  2664 W test  : system line"),
+            actual.map { it.logText })
+        assertEquals("system.txt", actual[1].fileName)
+    }
+
+    @Test
+    fun testParseBinaryLog() {
+        val payload = byteArrayOf(5) + "test".toByteArray() + 0 + "binary line".toByteArray() + 0
+        val record = java.nio.ByteBuffer.allocate(28 + payload.size).order(java.nio.ByteOrder.LITTLE_ENDIAN)
+            .putShort(payload.size.toShort()).putShort(28).putInt(2646).putInt(2664)
+            .putInt(1602541970).putInt(264_000_000).putInt(0).putInt(1000).put(payload)
+        val logFile = tempFolder.newFile("main.log").apply { writeBytes(record.array()) }
+
+        val binaryLogParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+        val actual = binaryLogParser.parseLogs(StandardCharsets.UTF_8)
+
+        assertEquals(1, actual.size)
+        assertEquals(LogLevel.WARNING, actual[0].logLevel)
+        assertEquals(2646, actual[0].pid)
+        assertEquals(2664, actual[0].tid)
+        assertTrue(actual[0].logText.endsWith(".264  2646  2664 W test    : binary line"))
+        // Binary logs are always parsed again from the start
+        assertTrue(binaryLogParser.logTails.isEmpty())
+    }
+
+    @Test
+    fun testParseMappedLogInChunks() {
+        val logText = "text before the first log line\n" +
+                "10-12 22:32:50.264  2646  2664 I test  : first line\n" +
+                "continuation of the first line\n" +
+                "\n" +
+                "another continuation of the first line\n" +
+                "10-12 22:32:51.264  2646  2664 W test  : second line\n" +
+                "\n" +
+                "\n" +
+                "--------- beginning of system\n" +
+                "10-12 22:32:52.264  2646  2664 E test  : third line\n" +
+                "10-12 22:32:53.264  2646  2664 E test  : fourth line\n\n"
+        val logFile = createLogFile("main.txt", logText)
+
+        val expected = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+            .parseLogs(StandardCharsets.UTF_8)
+
+        // Split the log in chunks that are way smaller than a log line, so every line ends in its own chunk
+        val chunkedLogParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 10)
+        val actual = chunkedLogParser.parseLogs(StandardCharsets.UTF_8)
+
+        assertEquals(4, actual.size)
+        assertEquals(expected.map { it.logText }, actual.map { it.logText })
+        assertEquals((0 until 4).toList(), actual.map { it.index })
+        assertTrue(chunkedLogParser.logsSkipped.isEmpty())
+    }
+
+    private fun createLogFile(name: String, text: String): File = tempFolder.newFile(name).apply { writeText(text) }
+
+    private fun bugReportText(headerOffset: Int): String {
+        val overlongLine = "continuation ".repeat(LogParser.MAX_LOG_LINE_ALLOWED / 13 + 1)
+        return " ".repeat(headerOffset) + "\nBugreport format version: 2.0\r\n" +
+                "10-12 22:32:50.264  2646  2664 I test  : first line\r\n" +
+                overlongLine + "\n" +
+                overlongLine + "\n"
+    }
+
+    @Test
+    fun testFindPotentialBugReport() {
+        val logText = bugReportText(0)
+        val logFile = createLogFile("bugreport.txt", logText)
+
+        val parser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+        parser.parseLogs(StandardCharsets.UTF_8)
+
+        assertEquals(mapOf(logFile.path to logText.replace("\r", "")), parser.potentialBugReports)
+    }
+
+    @Test
+    fun testOnlyTheBeginningOfTheLogIsSearchedForTheBugReportHeader() {
+        val logFile = createLogFile("bugreport.txt", bugReportText(LogParser.BUGREPORT_HEADER_SEARCH_SIZE))
+
+        val parser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+        parser.parseLogs(StandardCharsets.UTF_8)
+
+        assertTrue(parser.potentialBugReports.isEmpty())
+    }
+
+    @Test
+    fun testParseMappedLogKeepingTextInLogFile() {
+        val logText = "text before the first log line\n" +
+                "10-12 22:32:50.264  2646  2664 I test  : first line\n" +
+                "continuation of the first line\n" +
+                "\n" +
+                "another continuation of the first line\r\n" +
+                "10-12 22:32:51.264  2646  2664 W test  : second line\u0000\u0000\n" +
+                "\n" +
+                "\n" +
+                "--------- beginning of system\n" +
+                "10-12 22:32:52.264  2646  2664 E test  : third line\n" +
+                "continuation\n" +
+                "--------- beginning of system\n" +
+                "after ignored line\n" +
+                "10-12 22:32:53.264  2647  2665 V test  : fourth line ação\n\n"
+        val logFile = createLogFile("main.txt", logText)
+
+        val expected = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+            .parseLogs(StandardCharsets.UTF_8)
+
+        for (chunkSize in listOf(0, 10)) {
+            val actual = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, chunkSize, true, null)
+                .parseLogs(StandardCharsets.UTF_8)
+
+            assertEquals(expected, actual)
+            assertEquals(expected.map { it.logText }, actual.map { it.logText })
+            assertEquals(expected.map { it.logLevel }, actual.map { it.logLevel })
+            assertEquals(listOf(2646, 2646, 2646, 2647), actual.map { it.pid })
+            assertEquals(listOf(2664, 2664, 2664, 2665), actual.map { it.tid })
+        }
+    }
+
+    @Test
+    fun testChangeCharsetOfLogKeptInLogFile() {
+        val logText = "10-12 22:32:50.264  2646  2664 I test  : ação\n" +
+                "10-12 22:32:51.264  2646  2664 W test  : naïve" + System.lineSeparator() + "café\n"
+        val logFile = createLogFile("main.txt", logText)
+
+        val expected = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+            .parseLogs(StandardCharsets.UTF_8)
+        val latin1Logs = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, null)
+            .parseLogs(StandardCharsets.ISO_8859_1)
+        assertNotEquals(expected.map { it.logText }, latin1Logs.map { it.logText })
+
+        val utf8Logs = latin1Logs.withCharset(StandardCharsets.UTF_8)
+        assertNotNull(utf8Logs)
+        assertEquals(expected.map { it.logText }, utf8Logs!!.map { it.logText })
+        assertNull(utf8Logs.withCharset(StandardCharsets.UTF_16))
+
+        // When the text is copied, the logs must be parsed again to be decoded with another charset
+        assertNull(expected.withCharset(StandardCharsets.ISO_8859_1))
+    }
+
+    @Test
+    fun testParseIndexedLog() {
+        val logText = "10-12 22:32:50.264  2646  2664 I test  : first line\n" +
+                "continuation\r\n" +
+                "10-12 22:32:49.264  2646  2664 W test  : second line\n"
+        val logFile = createLogFile("main.txt", logText)
+        val indexDirectory = tempFolder.newFolder("index")
+        val logIndex = LogIndex(indexDirectory, 0)
+
+        val expected = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+            .parseLogs(StandardCharsets.UTF_8)
+        val parsedLogs = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, logIndex)
+            .parseLogs(StandardCharsets.UTF_8)
+        assertEquals(1, indexDirectory.listFiles()!!.size)
+
+        // Now the log is not read again, the index is used instead
+        val indexedProgressReporter = mock(ProgressReporter::class.java)
+        val indexedLogs = LogParser(MappedFileLogReader(arrayOf(logFile)), indexedProgressReporter, 0, true, logIndex)
+            .parseLogs(StandardCharsets.UTF_8)
+
+        val descriptionCaptor = ArgumentCaptor.forClass(String::class.java)
+        verify(indexedProgressReporter, atLeastOnce()).onProgress(anyInt(), descriptionCaptor.capture())
+        assertEquals(listOf("Completed"), descriptionCaptor.allValues)
+        assertEquals(expected, parsedLogs)
+        assertEquals(expected, indexedLogs)
+        assertEquals(expected.map { it.logText }, indexedLogs.map { it.logText })
+    }
+
+    @Test
+    fun testParseIndexedLogWithCopiedText() {
+        val logText = "10-12 22:32:50.264  2646  2664 I test  : first line\n" +
+                "continuation\r\n" +
+                "10-12 22:32:49.264  2646  2664 W test  : second line\n"
+        val logFile = createLogFile("main.txt", logText)
+        val indexDirectory = tempFolder.newFolder("index")
+        val logIndex = LogIndex(indexDirectory, 0)
+
+        val expected = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter)
+            .parseLogs(StandardCharsets.UTF_8)
+        val parsedLogs = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, false, logIndex)
+            .parseLogs(StandardCharsets.UTF_8)
+        assertEquals(1, indexDirectory.listFiles()!!.size)
+
+        // The index is also used when the text is not kept in the log. The text is decoded from the log instead
+        val indexedProgressReporter = mock(ProgressReporter::class.java)
+        val indexedLogs = LogParser(MappedFileLogReader(arrayOf(logFile)), indexedProgressReporter, 0, false, logIndex)
+            .parseLogs(StandardCharsets.UTF_8)
+
+        val descriptionCaptor = ArgumentCaptor.forClass(String::class.java)
+        verify(indexedProgressReporter, atLeastOnce()).onProgress(anyInt(), descriptionCaptor.capture())
+        assertEquals(listOf("Completed"), descriptionCaptor.allValues)
+        assertEquals(expected, parsedLogs)
+        assertEquals(expected, indexedLogs)
+        assertEquals(expected.map { it.logText }, indexedLogs.map { it.logText })
+        // The text is copied, so it can't be decoded again with another charset
+        assertNull(indexedLogs.withCharset(StandardCharsets.ISO_8859_1))
+    }
+
+    @Test
+    fun testParseAppendedLogs() {
+        val logText = "10-12 22:32:50.264  2646  2664 I test  : first line\n" +
+                "10-12 22:32:52.264  2646  2664 W test  : second line\n"
+        val logFile = createLogFile("main.txt", logText)
+
+        val logParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, null)
+        logParser.parseLogs(StandardCharsets.UTF_8)
+        val logTails = logParser.logTails
+
+        logFile.appendText("continuation\n10-12 22:32:51.264  2646  2664 I test  : third line\n")
+        val appendedLogs = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, null)
+            .parseAppendedLogs(StandardCharsets.UTF_8, logTails)
+
+        // The last entry is parsed again, as it continues in the appended text
+        assertNotNull(appendedLogs)
+        assertEquals(
+            listOf("10-12 22:32:52.264  2646  2664 W test  : second line" + System.lineSeparator() + "continuation",
+                "10-12 22:32:51.264  2646  2664 I test  : third line"),
+            appendedLogs!!.map { it.logText })
+    }
+
+    @Test
+    fun testParseAppendedLogsWithoutChanges() {
+        val logFile = createLogFile("main.txt", "10-12 22:32:50.264  2646  2664 I test  : first line\n")
+
+        val logParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, null)
+        logParser.parseLogs(StandardCharsets.UTF_8)
+
+        val refreshParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, null)
+        val appendedLogs = refreshParser.parseAppendedLogs(StandardCharsets.UTF_8, logParser.logTails)
+
+        assertNotNull(appendedLogs)
+        assertTrue(appendedLogs!!.isEmpty())
+        assertEquals(logParser.logTails, refreshParser.logTails)
+    }
+
+    @Test
+    fun testParseAppendedLogsOfModifiedLog() {
+        val logFile = createLogFile("main.txt", "10-12 22:32:50.264  2646  2664 I test  : first line\n")
+
+        val logParser = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, null)
+        logParser.parseLogs(StandardCharsets.UTF_8)
+
+        logFile.writeText("10-12 22:32:50.264  2646  2664 I test  : other line\n" +
+                "10-12 22:32:51.264  2646  2664 I test  : second line\n")
+        val appendedLogs = LogParser(MappedFileLogReader(arrayOf(logFile)), progressReporter, 0, true, null)
+            .parseAppendedLogs(StandardCharsets.UTF_8, logParser.logTails)
+
+        assertNull(appendedLogs)
+    }
+
     private fun buildHugeLogPayload(): String {
         val builder = StringBuilder()
         builder.append("10-12 22:32:50.264  2646  2664 I test  : Test log Test Log")
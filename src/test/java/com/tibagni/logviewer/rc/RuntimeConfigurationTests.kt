@@ -1,9 +1,13 @@
 package com.tibagni.logviewer.rc
 
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
 import org.junit.Assert.assertNotNull
 import org.junit.Assert.assertNull
+import org.junit.Assert.assertTrue
 import org.junit.Before
 import org.junit.Test
+import java.io.File
 
 class RuntimeConfigurationTests {
     lateinit var testRcConfig: RuntimeConfiguration
@@ -40,6 +44,27 @@ class RuntimeConfigurationTests {
         assertNotNull(RuntimeConfiguration.getConfig(RuntimeConfiguration.CRASH_REPORT, CrashReportConfig::class.java))
     }
 
+    @Test
+    fun testLazyTextConfig() {
+        testRcConfig.parseConfig("lazytext=on")
+
+        val config = RuntimeConfiguration.getConfig(RuntimeConfiguration.LAZY_TEXT, LazyTextConfig::class.java)
+        assertNotNull(config)
+        assertTrue(config!!.configValue)
+        assertNull(RuntimeConfiguration.getConfig(RuntimeConfiguration.CRASH_REPORT, CrashReportConfig::class.java))
+    }
+
+    @Test
+    fun testStreamLinesConfig() {
+        testRcConfig.parseConfig("streamlines=1000")
+        assertEquals(1000, RuntimeConfiguration.getConfig(RuntimeConfiguration.STREAM_LINES,
+            StreamLinesConfig::class.java)?.configValue)
+
+        testRcConfig.parseConfig("streamlines=none")
+        assertEquals(StreamLinesConfig.DEFAULT_MAX_LINES, RuntimeConfiguration.getConfig(
+            RuntimeConfiguration.STREAM_LINES, StreamLinesConfig::class.java)?.configValue)
+    }
+
     @Test
     fun testAllConfig() {
         testRcConfig.parseConfig("loglevel=verbose")
@@ -51,6 +76,35 @@ class RuntimeConfigurationTests {
         assertNotNull(RuntimeConfiguration.getConfig(RuntimeConfiguration.CRASH_REPORT, CrashReportConfig::class.java))
     }
 
+    @Test
+    fun testThreadsConfig() {
+        testRcConfig.parseConfig("threads=3")
+        assertEquals(3, RuntimeConfiguration.getConfig(RuntimeConfiguration.THREADS,
+            ThreadsConfig::class.java)?.configValue)
+
+        testRcConfig.parseConfig("threads=0")
+        assertEquals(ThreadsConfig.defaultThreads, RuntimeConfiguration.getConfig(
+            RuntimeConfiguration.THREADS, ThreadsConfig::class.java)?.configValue)
+    }
+
+    @Test
+    fun testIndexConfig() {
+        assertNull(RuntimeConfiguration.getConfig(RuntimeConfiguration.INDEX, IndexConfig::class.java))
+
+        testRcConfig.parseConfig("index=off")
+        assertFalse(RuntimeConfiguration.getConfig(RuntimeConfiguration.INDEX, IndexConfig::class.java)!!.configValue)
+
+        testRcConfig.parseConfig("index=on")
+        assertTrue(RuntimeConfiguration.getConfig(RuntimeConfiguration.INDEX, IndexConfig::class.java)!!.configValue)
+    }
+
+    @Test
+    fun testIndexDirConfig() {
+        testRcConfig.parseConfig("indexdir=/tmp/LogViewer/Index")
+        assertEquals(File("/tmp/LogViewer/Index"), RuntimeConfiguration.getConfig(RuntimeConfiguration.INDEX_DIR,
+            IndexDirConfig::class.java)?.configValue)
+    }
+
     @Test
     fun testNoConfig() {
         assertNull(RuntimeConfiguration.getConfig(RuntimeConfiguration.UI_SCALE, UIScaleConfig::class.java))